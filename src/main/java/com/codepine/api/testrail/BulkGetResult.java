@@ -0,0 +1,87 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome of fetching many entities by their IDs: the entities fetched and the failures, each keyed by ID in the order
+ * the IDs were requested.
+ *
+ * @param <T> the type of the entities
+ */
+@ToString
+public class BulkGetResult<T> {
+
+    private final Map<Integer, T> values;
+    private final Map<Integer, RuntimeException> failures;
+
+    BulkGetResult(LinkedHashMap<Integer, T> values, LinkedHashMap<Integer, RuntimeException> failures) {
+        this.values = Collections.unmodifiableMap(values);
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * Get the entities fetched.
+     *
+     * @return the entities keyed by ID, in the order the IDs were requested
+     */
+    public Map<Integer, T> getValues() {
+        return values;
+    }
+
+    /**
+     * Get the failures of the IDs which could not be fetched, for e.g. a {@link TestRailException} for an ID which does not exist.
+     *
+     * @return the failures keyed by ID, in the order the IDs were requested
+     */
+    public Map<Integer, RuntimeException> getFailures() {
+        return failures;
+    }
+
+    /**
+     * Get an entity fetched.
+     *
+     * @param id the ID of the entity
+     * @return the entity, or null if it was not requested or could not be fetched
+     */
+    public T get(int id) {
+        return values.get(id);
+    }
+
+    /**
+     * Whether all the requested IDs were fetched.
+     *
+     * @return true if there is no failure
+     */
+    public boolean isComplete() {
+        return failures.isEmpty();
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Separate limits of the number of concurrent read ({@code GET}) and write ({@code POST}) requests, so that slow reads
+ * cannot hold up writes and vice versa.
+ */
+class Bulkheads {
+
+    private final Semaphore reads;
+    private final Semaphore writes;
+
+    /**
+     * @param maxConcurrentReads  the maximum number of concurrent read requests, null if unlimited
+     * @param maxConcurrentWrites the maximum number of concurrent write requests, null if unlimited
+     */
+    Bulkheads(Integer maxConcurrentReads, Integer maxConcurrentWrites) {
+        this.reads = maxConcurrentReads == null ? null : new Semaphore(maxConcurrentReads, true);
+        this.writes = maxConcurrentWrites == null ? null : new Semaphore(maxConcurrentWrites, true);
+    }
+
+    /**
+     * Wait for a request of the given method to be allowed.
+     *
+     * @param method the method of the request
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void acquire(Request.Method method) throws InterruptedException {
+        Semaphore semaphore = get(method);
+        if (semaphore != null) {
+            semaphore.acquire();
+        }
+    }
+
+    /**
+     * Wait for a request of the given method to be allowed, at most for the given time.
+     *
+     * @param method       the method of the request
+     * @param timeoutNanos the maximum time to wait
+     * @return true if the request is allowed, false if the time elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean tryAcquire(Request.Method method, long timeoutNanos) throws InterruptedException {
+        Semaphore semaphore = get(method);
+        return semaphore == null || semaphore.tryAcquire(Math.max(0, timeoutNanos), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Release the slot of a request of the given method, once it completed.
+     *
+     * @param method the method of the request
+     */
+    void release(Request.Method method) {
+        Semaphore semaphore = get(method);
+        if (semaphore != null) {
+            semaphore.release();
+        }
+    }
+
+    private Semaphore get(Request.Method method) {
+        return method == Request.Method.GET ? reads : writes;
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.model.Case;
+import com.codepine.api.testrail.model.CaseField;
+import com.codepine.api.testrail.model.Field;
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Stable fingerprint of the content of test cases, to tell whether two cases, for e.g. a case defined in source code and
+ * the one in TestRail, would have the same content.
+ * <p>The fingerprint covers the title, type, priority, milestone, references and estimate of a case, and its custom
+ * fields, normalized as per their {@link Field.Type}: line endings and surrounding whitespace of texts, numbers and
+ * checkboxes whether given as such or as text, options of multi-select fields in any order, and the content and expected
+ * result of each step. Fields which are null or empty are left out. The fingerprint does not depend on the JVM nor on
+ * the order of the custom fields, so it can be stored and compared across runs.</p>
+ */
+public final class CaseFingerprint {
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+    private static final String[] SYSTEM_FIELDS = {"title", "type_id", "priority_id", "milestone_id", "refs", "estimate"};
+    private static final char SEPARATOR = '\u0000';
+
+    private final List<CaseField> customFields;
+
+    /**
+     * @param caseFields the custom case fields configured in TestRail
+     */
+    public CaseFingerprint(@NonNull List<CaseField> caseFields) {
+        customFields = new ArrayList<>(caseFields);
+        Collections.sort(customFields, new Comparator<CaseField>() {
+            @Override
+            public int compare(CaseField field1, CaseField field2) {
+                return field1.getName().compareTo(field2.getName());
+            }
+        });
+    }
+
+    /**
+     * Get the fingerprint of the content of a case.
+     *
+     * @param testCase the case
+     * @return the fingerprint
+     */
+    public long of(@NonNull Case testCase) {
+        Hasher hasher = HASH.newHasher();
+        for (long fieldFingerprint : getFieldFingerprints(testCase)) {
+            hasher.putLong(fieldFingerprint);
+        }
+        return hasher.hash().asLong();
+    }
+
+    /**
+     * Check whether a case has the same content as another for all the fields set in the first one, that is whether
+     * updating the second case with the first one would not change it.
+     *
+     * @param definition the case whose set fields are compared
+     * @param testCase   the case to compare to
+     * @return true if all the fields set in definition have the same content in testCase
+     */
+    public boolean matches(@NonNull Case definition, @NonNull Case testCase) {
+        return matches(getFieldFingerprints(definition), getFieldFingerprints(testCase));
+    }
+
+    /**
+     * Check whether the fingerprints of the fields of a case match those of another for all the fields set in the first one.
+     *
+     * @param definitionFields the fingerprints of the fields of the case whose set fields are compared
+     * @param fields           the fingerprints of the fields of the case to compare to
+     * @return true if all the fields set in the first case have the same fingerprint in the other one
+     */
+    static boolean matches(long[] definitionFields, long[] fields) {
+        for (int i = 0; i < definitionFields.length; i++) {
+            if (definitionFields[i] != 0 && definitionFields[i] != fields[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the names of the fields, in the order of their fingerprints in {@link #getFieldFingerprints(Case)}.
+     *
+     * @return the names of the system fields, then of the custom fields
+     */
+    List<String> getFieldNames() {
+        List<String> names = new ArrayList<>(SYSTEM_FIELDS.length + customFields.size());
+        names.addAll(Arrays.asList(SYSTEM_FIELDS));
+        for (CaseField field : customFields) {
+            names.add(field.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Get the fingerprint of each field of a case, the system fields first, then the custom fields in the order of their names.
+     *
+     * @param testCase the case
+     * @return the fingerprints of the fields, 0 for those which are not set
+     */
+    long[] getFieldFingerprints(Case testCase) {
+        long[] fingerprints = new long[SYSTEM_FIELDS.length + customFields.size()];
+        fingerprints[0] = fingerprint(SYSTEM_FIELDS[0], normalizeText(testCase.getTitle()));
+        fingerprints[1] = fingerprint(SYSTEM_FIELDS[1], normalizeNumber(testCase.getTypeId()));
+        fingerprints[2] = fingerprint(SYSTEM_FIELDS[2], normalizeNumber(testCase.getPriorityId()));
+        fingerprints[3] = fingerprint(SYSTEM_FIELDS[3], normalizeNumber(testCase.getMilestoneId()));
+        fingerprints[4] = fingerprint(SYSTEM_FIELDS[4], normalizeRefs(testCase.getRefs()));
+        fingerprints[5] = fingerprint(SYSTEM_FIELDS[5], normalizeText(testCase.getEstimate()));
+        for (int i = 0; i < customFields.size(); i++) {
+            CaseField field = customFields.get(i);
+            Object value = testCase.getCustomFields().get(field.getName());
+            fingerprints[SYSTEM_FIELDS.length + i] = fingerprint(field.getName(), normalize(Field.Type.getType(field.getTypeId()), value));
+        }
+        return fingerprints;
+    }
+
+    private static long fingerprint(String name, String normalizedValue) {
+        if (normalizedValue == null) {
+            return 0;
+        }
+        long fingerprint = HASH.newHasher().putString(name, Charsets.UTF_8).putChar(SEPARATOR)
+                .putString(normalizedValue, Charsets.UTF_8).hash().asLong();
+        // 0 stands for fields which are not set
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    private static String normalize(Field.Type type, Object value) {
+        if (value == null) {
+            return null;
+        }
+        switch (type) {
+            case INTEGER:
+            case USER:
+            case MILESTONE:
+                return normalizeNumber(value);
+            case CHECKBOX: {
+                String text = value.toString().trim();
+                return text.isEmpty() ? null : String.valueOf("true".equalsIgnoreCase(text) || "1".equals(text));
+            }
+            case MULTI_SELECT: {
+                if (!(value instanceof List)) {
+                    return normalizeText(value.toString());
+                }
+                List<String> options = new ArrayList<>();
+                for (Object option : (List<?>) value) {
+                    String normalizedOption = option == null ? null : normalizeText(option.toString());
+                    if (normalizedOption != null) {
+                        options.add(normalizedOption);
+                    }
+                }
+                Collections.sort(options);
+                return options.isEmpty() ? null : join(options);
+            }
+            case STEPS: {
+                if (!(value instanceof List)) {
+                    return normalizeText(value.toString());
+                }
+                List<String> steps = new ArrayList<>();
+                for (Object step : (List<?>) value) {
+                    if (step instanceof Field.Step) {
+                        String content = normalizeText(((Field.Step) step).getContent());
+                        String expected = normalizeText(((Field.Step) step).getExpected());
+                        if (content != null || expected != null) {
+                            steps.add(String.valueOf(content) + SEPARATOR + String.valueOf(expected));
+                        }
+                    }
+                }
+                return steps.isEmpty() ? null : join(steps);
+            }
+            default:
+                return normalizeText(value.toString());
+        }
+    }
+
+    private static String normalizeText(String text) {
+        if (text == null) {
+            return null;
+        }
+        String normalized = text.replace("\r\n", "\n").replace('\r', '\n').trim();
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    private static String normalizeNumber(Object number) {
+        if (number == null) {
+            return null;
+        }
+        String text = number.toString().trim();
+        try {
+            return String.valueOf(Long.parseLong(text));
+        } catch (NumberFormatException e) {
+            return normalizeText(text);
+        }
+    }
+
+    private static String normalizeRefs(String refs) {
+        if (refs == null) {
+            return null;
+        }
+        List<String> parts = new ArrayList<>();
+        for (String ref : refs.split(",")) {
+            if (!ref.trim().isEmpty()) {
+                parts.add(ref.trim());
+            }
+        }
+        return parts.isEmpty() ? null : join(parts);
+    }
+
+    private static String join(List<String> values) {
+        StringBuilder joined = new StringBuilder();
+        for (String value : values) {
+            if (joined.length() > 0) {
+                joined.append(SEPARATOR).append(SEPARATOR);
+            }
+            joined.append(value);
+        }
+        return joined.toString();
+    }
+}
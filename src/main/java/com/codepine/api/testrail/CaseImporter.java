@@ -0,0 +1,428 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.BoundedExecutor;
+import com.codepine.api.testrail.model.Case;
+import com.codepine.api.testrail.model.CaseField;
+import com.codepine.api.testrail.model.Section;
+import com.google.common.base.Splitter;
+import com.google.common.primitives.Ints;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+import lombok.extern.log4j.Log4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Imports a tree of sections with their test cases.
+ * <p>Sections are created level by level, so that parents are created before their children. Sibling sections are created in order,
+ * one parent after the other, while sections with different parents are created concurrently. Once all sections are created, cases are
+ * created concurrently. At most {@link TestRail.Builder#parallelism(int)} requests are executed at a time, hence cases of a section may
+ * be created in a different order than given unless parallelism is 1.</p>
+ * <p>If a progress file is set, the ID of every section and case created is appended to it as soon as it is created. Running the same
+ * import again with the same progress file resumes it, skipping the sections and cases already created. Sections and cases are
+ * identified by their position in the tree, so the tree must not be changed in between.</p>
+ * <p>The custom case fields configured in TestRail can be fetched using {@link TestRail.CaseFields#list()} request.</p>
+ */
+@Log4j
+@Setter
+@Accessors(fluent = true)
+public class CaseImporter {
+
+    private static final Splitter LINE_SPLITTER = Splitter.on('\n').omitEmptyStrings();
+    private static final Splitter PROGRESS_SPLITTER = Splitter.on(' ').limit(3);
+    private static final String SECTION_ENTRY = "S";
+    private static final String CASE_ENTRY = "C";
+
+    @Setter(AccessLevel.NONE)
+    private final TestRail testRail;
+
+    @Setter(AccessLevel.NONE)
+    private final int projectId;
+
+    @Setter(AccessLevel.NONE)
+    private final List<CaseField> caseFields;
+
+    /**
+     * The ID of the suite to import into, required unless the project is operating in single suite mode.
+     */
+    private Integer suiteId;
+
+    /**
+     * The file to record progress to and resume from.
+     */
+    private Path progressFile;
+
+    /**
+     * Number of cases created between two progress log messages, defaults to 1000.
+     */
+    private int logInterval = 1000;
+
+    /**
+     * @param testRail   the client to create sections and cases with
+     * @param projectId  the ID of the project to import into
+     * @param caseFields the custom case fields configured in TestRail to get type information for custom fields in the cases
+     * @throws java.lang.IllegalArgumentException if projectId is not positive
+     */
+    public CaseImporter(@NonNull TestRail testRail, final int projectId, @NonNull List<CaseField> caseFields) {
+        checkArgument(projectId > 0, "projectId should be positive");
+        this.testRail = testRail;
+        this.projectId = projectId;
+        this.caseFields = caseFields;
+    }
+
+    /**
+     * Import the given trees of sections.
+     * <p>Failures to create a section or a case do not stop the import, they are reported in the summary. The descendants of a
+     * section which could not be created are skipped.</p>
+     *
+     * @param roots the top level sections to be created, with their cases and child sections
+     * @return the summary of the import
+     * @throws UncheckedIOException if the progress file cannot be read or written
+     */
+    public Summary importSections(@NonNull List<SectionNode> roots) {
+        final long startNanos = System.nanoTime();
+        final Summary summary = new Summary();
+        final Progress progress = new Progress();
+        final BoundedExecutor executor = new BoundedExecutor(testRail.getConfig().getParallelism(), testRail.getConfig().isVirtualThreads());
+        try {
+            progress.open();
+
+            // create sections level by level
+            final Map<String, Integer> sectionIds = new ConcurrentHashMap<>();
+            final Map<String, SectionNode> sectionsByKey = new LinkedHashMap<>();
+            Map<String, List<SectionNode>> level = new LinkedHashMap<>();
+            level.put("", roots);
+            while (!level.isEmpty()) {
+                List<Callable<Void>> tasks = new ArrayList<>(level.size());
+                for (final Map.Entry<String, List<SectionNode>> siblings : level.entrySet()) {
+                    final String parentKey = siblings.getKey();
+                    final Integer parentId = parentKey.isEmpty() ? null : sectionIds.get(parentKey);
+                    if (!parentKey.isEmpty() && parentId == null) {
+                        // the parent could not be created
+                        continue;
+                    }
+                    tasks.add(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            for (int i = 0; i < siblings.getValue().size(); i++) {
+                                String key = parentKey.isEmpty() ? String.valueOf(i) : parentKey + "/" + i;
+                                Integer sectionId = progress.get(SECTION_ENTRY, key);
+                                if (sectionId != null) {
+                                    summary.skippedSectionCount.incrementAndGet();
+                                } else {
+                                    sectionId = createSection(siblings.getValue().get(i).getSection(), parentId, key, summary);
+                                    if (sectionId == null) {
+                                        continue;
+                                    }
+                                    progress.record(SECTION_ENTRY, key, sectionId);
+                                    summary.createdSectionCount.incrementAndGet();
+                                }
+                                sectionIds.put(key, sectionId);
+                            }
+                            return null;
+                        }
+                    });
+                }
+                executor.getAll(tasks);
+                Map<String, List<SectionNode>> nextLevel = new LinkedHashMap<>();
+                for (Map.Entry<String, List<SectionNode>> siblings : level.entrySet()) {
+                    for (int i = 0; i < siblings.getValue().size(); i++) {
+                        String key = siblings.getKey().isEmpty() ? String.valueOf(i) : siblings.getKey() + "/" + i;
+                        SectionNode node = siblings.getValue().get(i);
+                        sectionsByKey.put(key, node);
+                        if (sectionIds.containsKey(key) && !node.getChildren().isEmpty()) {
+                            nextLevel.put(key, node.getChildren());
+                        }
+                    }
+                }
+                level = nextLevel;
+            }
+
+            // create cases
+            final long casesStartNanos = System.nanoTime();
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (Map.Entry<String, SectionNode> section : sectionsByKey.entrySet()) {
+                final Integer sectionId = sectionIds.get(section.getKey());
+                if (sectionId == null) {
+                    continue;
+                }
+                List<Case> cases = section.getValue().getCases();
+                for (int i = 0; i < cases.size(); i++) {
+                    final String key = section.getKey() + "#" + i;
+                    final Case testCase = cases.get(i);
+                    if (progress.get(CASE_ENTRY, key) != null) {
+                        summary.skippedCaseCount.incrementAndGet();
+                        continue;
+                    }
+                    tasks.add(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            Case created;
+                            try {
+                                created = testRail.cases().add(sectionId, testCase, caseFields).execute();
+                            } catch (RuntimeException e) {
+                                summary.addFailure(key, e);
+                                return null;
+                            }
+                            progress.record(CASE_ENTRY, key, created.getId());
+                            int createdCount = summary.createdCaseCount.incrementAndGet();
+                            if (logInterval > 0 && createdCount % logInterval == 0) {
+                                double seconds = (System.nanoTime() - casesStartNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+                                log.info(String.format("Created %d cases, %.1f cases/s", createdCount, createdCount / seconds));
+                            }
+                            return null;
+                        }
+                    });
+                }
+            }
+            executor.getAll(tasks);
+        } finally {
+            progress.close();
+            summary.elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+        return summary;
+    }
+
+    private Integer createSection(Section section, Integer parentId, String key, Summary summary) {
+        Section toCreate = new Section().setName(section.getName()).setDescription(section.getDescription())
+                .setSuiteId(section.getSuiteId() != null ? section.getSuiteId() : suiteId).setParentId(parentId);
+        try {
+            return testRail.sections().add(projectId, toCreate).execute().getId();
+        } catch (RuntimeException e) {
+            summary.addFailure(key, e);
+            return null;
+        }
+    }
+
+    /**
+     * Progress of the import, as appended to the progress file, one line per section or case created.
+     */
+    private class Progress {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private BufferedWriter writer;
+
+        void open() {
+            if (progressFile == null) {
+                return;
+            }
+            try {
+                if (Files.exists(progressFile)) {
+                    byte[] content = Files.readAllBytes(progressFile);
+                    int length = content.length;
+                    while (length > 0 && content[length - 1] != '\n') {
+                        length--;
+                    }
+                    if (length < content.length) {
+                        // a partially written last line is dropped, so that the next entry starts on a line of its own
+                        log.warn("Ignoring the partially written last line of " + progressFile);
+                        try (FileChannel channel = FileChannel.open(progressFile, StandardOpenOption.WRITE)) {
+                            channel.truncate(length);
+                        }
+                    }
+                    for (String line : LINE_SPLITTER.split(new String(content, 0, length, StandardCharsets.UTF_8))) {
+                        List<String> entry = PROGRESS_SPLITTER.splitToList(line);
+                        Integer id = entry.size() == 3 ? Ints.tryParse(entry.get(1)) : null;
+                        if (id == null) {
+                            log.warn("Ignoring malformed line of " + progressFile + ": " + line);
+                            continue;
+                        }
+                        ids.put(entry.get(0) + " " + entry.get(2), id);
+                    }
+                    log.info("Resuming import from " + progressFile + " with " + ids.size() + " sections and cases already created");
+                }
+                writer = Files.newBufferedWriter(progressFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        Integer get(String type, String key) {
+            return ids.get(type + " " + key);
+        }
+
+        synchronized void record(String type, String key, int id) {
+            if (writer == null) {
+                return;
+            }
+            try {
+                writer.write(type + " " + id + " " + key + "\n");
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        synchronized void close() {
+            if (writer == null) {
+                return;
+            }
+            try {
+                writer.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * A section to be imported, with its cases and child sections. The parent and suite of the section are set by the importer.
+     */
+    @Data
+    @Accessors(fluent = false)
+    public static class SectionNode {
+
+        @NonNull
+        private Section section;
+
+        private List<Case> cases = new ArrayList<>();
+
+        private List<SectionNode> children = new ArrayList<>();
+
+        public SectionNode(@NonNull Section section) {
+            this.section = section;
+        }
+
+        /**
+         * Add a case to this section.
+         *
+         * @param testCase the case to be added
+         * @return this for chaining
+         */
+        public SectionNode addCase(@NonNull Case testCase) {
+            cases.add(testCase);
+            return this;
+        }
+
+        /**
+         * Add a child section to this section.
+         *
+         * @param child the child section to be added
+         * @return this for chaining
+         */
+        public SectionNode addChild(@NonNull SectionNode child) {
+            children.add(child);
+            return this;
+        }
+    }
+
+    /**
+     * Summary of an import, including its throughput.
+     */
+    @Getter
+    @ToString
+    @Accessors(fluent = false)
+    public static class Summary {
+
+        @Getter(AccessLevel.NONE)
+        private final AtomicInteger createdSectionCount = new AtomicInteger();
+
+        @Getter(AccessLevel.NONE)
+        private final AtomicInteger skippedSectionCount = new AtomicInteger();
+
+        @Getter(AccessLevel.NONE)
+        private final AtomicInteger createdCaseCount = new AtomicInteger();
+
+        @Getter(AccessLevel.NONE)
+        private final AtomicInteger skippedCaseCount = new AtomicInteger();
+
+        /**
+         * Failures keyed by the position of the section or case in the tree, for e.g. "0/2" for the third child of the first
+         * section or "0/2#5" for the sixth case of that section.
+         */
+        @Getter(AccessLevel.NONE)
+        private final Map<String, RuntimeException> failures = Collections.synchronizedMap(new LinkedHashMap<String, RuntimeException>());
+
+        private long elapsedMillis;
+
+        private Summary() {
+        }
+
+        private void addFailure(String key, RuntimeException e) {
+            log.warn("Failed to import " + key + ": " + e.getMessage());
+            failures.put(key, e);
+        }
+
+        public int getCreatedSectionCount() {
+            return createdSectionCount.get();
+        }
+
+        /**
+         * @return number of sections skipped since they were created by a previous run of the import
+         */
+        public int getSkippedSectionCount() {
+            return skippedSectionCount.get();
+        }
+
+        public int getCreatedCaseCount() {
+            return createdCaseCount.get();
+        }
+
+        /**
+         * @return number of cases skipped since they were created by a previous run of the import
+         */
+        public int getSkippedCaseCount() {
+            return skippedCaseCount.get();
+        }
+
+        public Map<String, RuntimeException> getFailures() {
+            synchronized (failures) {
+                return new LinkedHashMap<>(failures);
+            }
+        }
+
+        /**
+         * @return number of sections and cases created per second
+         */
+        public double getThroughput() {
+            return elapsedMillis == 0 ? 0 : (getCreatedSectionCount() + getCreatedCaseCount()) * 1000.0 / elapsedMillis;
+        }
+    }
+}
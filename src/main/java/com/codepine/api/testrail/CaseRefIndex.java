@@ -0,0 +1,330 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.model.Case;
+import com.codepine.api.testrail.model.CaseField;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Inverted index of the references of the test cases of a project or suite, from each reference, for e.g. an issue key
+ * like {@code PROJ-123}, to the IDs of the cases listing it in their {@code refs}.
+ * <p>The index is built incrementally: every {@link #refresh()} only fetches the cases updated since the latest update
+ * already indexed, using the {@code updated_after} filter of {@link TestRail.Cases#list(int, List)}. The IDs of the cases
+ * of each reference are kept as a sorted {@code int} array, so that looking up a batch of references is a merge of a few
+ * small arrays, whose result can be given to {@link com.codepine.api.testrail.model.Run#setCaseIds(List)}. References are
+ * matched ignoring case. Lookups can be done concurrently with a refresh.</p>
+ * <p>Deleted cases are not reported by TestRail as updates, so they stay in the index until it is rebuilt with a new
+ * instance.</p>
+ */
+public class CaseRefIndex {
+
+    private static final int[] NO_CASES = new int[0];
+
+    private final WatermarkFetch<Case> casesUpdated;
+    private final StampedLock lock = new StampedLock();
+    private final Map<String, int[]> caseIdsByRef = new HashMap<>();
+    private final Map<Integer, String[]> refsByCaseId = new HashMap<>();
+
+    /**
+     * @param testRail   the client to fetch cases with
+     * @param projectId  the ID of the project, in single-suite mode or whose cases of all suites are indexed
+     * @param caseFields the custom case fields configured in TestRail to get type information for custom fields in the cases
+     * @throws java.lang.IllegalArgumentException if projectId is not positive
+     */
+    public CaseRefIndex(@NonNull TestRail testRail, final int projectId, @NonNull List<CaseField> caseFields) {
+        this(testRail, projectId, null, caseFields);
+    }
+
+    /**
+     * @param testRail   the client to fetch cases with
+     * @param projectId  the ID of the project
+     * @param suiteId    the ID of the suite whose cases are indexed
+     * @param caseFields the custom case fields configured in TestRail to get type information for custom fields in the cases
+     * @throws java.lang.IllegalArgumentException if projectId or suiteId is not positive
+     */
+    public CaseRefIndex(@NonNull TestRail testRail, final int projectId, final int suiteId, @NonNull List<CaseField> caseFields) {
+        this(testRail, projectId, Integer.valueOf(suiteId), caseFields);
+        checkArgument(suiteId > 0, "suiteId should be positive");
+    }
+
+    private CaseRefIndex(TestRail testRail, int projectId, Integer suiteId, List<CaseField> caseFields) {
+        checkArgument(projectId > 0, "projectId should be positive");
+        this.casesUpdated = WatermarkFetch.casesUpdated(testRail, projectId, suiteId, caseFields);
+    }
+
+    /**
+     * Fetch the cases updated since the last refresh and update the index with them. The first refresh fetches all the cases.
+     * <p>Refreshes are serialized, lookups running concurrently see the index either before or after the whole refresh.</p>
+     *
+     * @return the number of cases whose references have changed
+     */
+    public synchronized int refresh() {
+        // cases fetched again whose references did not change are ignored by the index
+        final Map<Integer, String[]> updatedRefs = new LinkedHashMap<>();
+        casesUpdated.fetch(new Consumer<List<Case>>() {
+            @Override
+            public void accept(List<Case> cases) {
+                for (Case testCase : cases) {
+                    updatedRefs.put(testCase.getId(), parseRefs(testCase.getRefs()));
+                }
+            }
+        });
+        long stamp = lock.writeLock();
+        try {
+            return index(updatedRefs);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Get the IDs of the cases listing a reference.
+     *
+     * @param ref the reference, for e.g. an issue key
+     * @return the sorted IDs of the cases, empty if none
+     */
+    public int[] getCaseIds(@NonNull String ref) {
+        long stamp = lock.readLock();
+        try {
+            int[] caseIds = caseIdsByRef.get(normalize(ref));
+            return caseIds == null ? NO_CASES : caseIds.clone();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Get the IDs of the cases listing any of a batch of references, for e.g. the issues changed since the last build.
+     *
+     * @param refs the references
+     * @return the sorted IDs of the cases, without duplicates, empty if none
+     */
+    public int[] getCaseIds(@NonNull Collection<String> refs) {
+        List<int[]> postings = new ArrayList<>(refs.size());
+        int total = 0;
+        long stamp = lock.readLock();
+        try {
+            for (String ref : refs) {
+                int[] caseIds = caseIdsByRef.get(normalize(ref));
+                if (caseIds != null) {
+                    postings.add(caseIds);
+                    total += caseIds.length;
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        // the arrays are replaced rather than modified by refreshes, so they can be merged outside of the lock
+        int[] merged = new int[total];
+        int length = 0;
+        for (int[] caseIds : postings) {
+            System.arraycopy(caseIds, 0, merged, length, caseIds.length);
+            length += caseIds.length;
+        }
+        Arrays.sort(merged);
+        return dedupe(merged, merged.length);
+    }
+
+    /**
+     * Get the IDs of the cases listing any of a batch of references, as expected by
+     * {@link com.codepine.api.testrail.model.Run#setCaseIds(List)}.
+     *
+     * @param refs the references
+     * @return the sorted IDs of the cases, without duplicates, empty if none
+     */
+    public List<Integer> getCaseIdList(@NonNull Collection<String> refs) {
+        int[] caseIds = getCaseIds(refs);
+        List<Integer> caseIdList = new ArrayList<>(caseIds.length);
+        for (int caseId : caseIds) {
+            caseIdList.add(caseId);
+        }
+        return caseIdList;
+    }
+
+    /**
+     * @return the number of distinct references listed by the cases
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return caseIdsByRef.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Update the index with the references of cases. Must be called holding the write lock.
+     *
+     * @param updatedRefs the references of the cases, by case ID
+     * @return the number of cases whose references changed
+     */
+    int index(Map<Integer, String[]> updatedRefs) {
+        Map<String, IntList> added = new HashMap<>();
+        Map<String, IntList> removed = new HashMap<>();
+        int changedCount = 0;
+        for (Map.Entry<Integer, String[]> entry : updatedRefs.entrySet()) {
+            int caseId = entry.getKey();
+            String[] refs = entry.getValue();
+            String[] previousRefs = refsByCaseId.get(caseId);
+            if (previousRefs == null ? refs.length == 0 : Arrays.equals(previousRefs, refs)) {
+                continue;
+            }
+            changedCount++;
+            if (previousRefs != null) {
+                for (String ref : previousRefs) {
+                    if (Arrays.binarySearch(refs, ref) < 0) {
+                        get(removed, ref).add(caseId);
+                    }
+                }
+            }
+            for (String ref : refs) {
+                if (previousRefs == null || Arrays.binarySearch(previousRefs, ref) < 0) {
+                    get(added, ref).add(caseId);
+                }
+            }
+            if (refs.length == 0) {
+                refsByCaseId.remove(caseId);
+            } else {
+                refsByCaseId.put(caseId, refs);
+            }
+        }
+        for (Map.Entry<String, IntList> entry : removed.entrySet()) {
+            int[] caseIds = caseIdsByRef.get(entry.getKey());
+            int[] removedIds = entry.getValue().toSortedArray();
+            int[] remaining = new int[caseIds.length];
+            int length = 0;
+            for (int caseId : caseIds) {
+                if (Arrays.binarySearch(removedIds, caseId) < 0) {
+                    remaining[length++] = caseId;
+                }
+            }
+            if (length == 0) {
+                caseIdsByRef.remove(entry.getKey());
+            } else {
+                caseIdsByRef.put(entry.getKey(), Arrays.copyOf(remaining, length));
+            }
+        }
+        for (Map.Entry<String, IntList> entry : added.entrySet()) {
+            int[] caseIds = caseIdsByRef.get(entry.getKey());
+            int[] addedIds = entry.getValue().toSortedArray();
+            if (caseIds == null) {
+                caseIdsByRef.put(entry.getKey(), addedIds);
+            } else {
+                int[] merged = Arrays.copyOf(caseIds, caseIds.length + addedIds.length);
+                System.arraycopy(addedIds, 0, merged, caseIds.length, addedIds.length);
+                Arrays.sort(merged);
+                caseIdsByRef.put(entry.getKey(), dedupe(merged, merged.length));
+            }
+        }
+        return changedCount;
+    }
+
+    /**
+     * Split the references of a case.
+     *
+     * @param refs the references as in {@link Case#getRefs()}, comma separated
+     * @return the normalized references, sorted and without duplicates
+     */
+    static String[] parseRefs(String refs) {
+        if (refs == null || refs.isEmpty()) {
+            return new String[0];
+        }
+        String[] parts = refs.split(",");
+        int length = 0;
+        for (String part : parts) {
+            String ref = normalize(part);
+            if (!ref.isEmpty()) {
+                parts[length++] = ref;
+            }
+        }
+        Arrays.sort(parts, 0, length);
+        int distinct = 0;
+        for (int i = 0; i < length; i++) {
+            if (distinct == 0 || !parts[i].equals(parts[distinct - 1])) {
+                parts[distinct++] = parts[i];
+            }
+        }
+        return Arrays.copyOf(parts, distinct);
+    }
+
+    private static String normalize(String ref) {
+        return ref.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static IntList get(Map<String, IntList> lists, String ref) {
+        IntList list = lists.get(ref);
+        if (list == null) {
+            list = new IntList();
+            lists.put(ref, list);
+        }
+        return list;
+    }
+
+    private static int[] dedupe(int[] sorted, int length) {
+        int distinct = 0;
+        for (int i = 0; i < length; i++) {
+            if (distinct == 0 || sorted[i] != sorted[distinct - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return distinct == sorted.length ? sorted : Arrays.copyOf(sorted, distinct);
+    }
+
+    /**
+     * Growable list of {@code int}.
+     */
+    private static final class IntList {
+
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toSortedArray() {
+            int[] array = Arrays.copyOf(values, size);
+            Arrays.sort(array);
+            return array;
+        }
+    }
+}
@@ -0,0 +1,573 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.IntIntHashMap;
+import com.codepine.api.testrail.model.Case;
+import com.codepine.api.testrail.model.CaseField;
+import com.codepine.api.testrail.model.Field;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Full-text index of the test cases of a project or suite, to find the cases mentioning some words without querying
+ * TestRail.
+ * <p>The title, the references and the custom fields of type {@link Field.Type#STRING}, {@link Field.Type#TEXT} and
+ * {@link Field.Type#STEPS} of the cases are split into lower case words. For each word, the cases containing it are kept
+ * as a posting list of the gaps between their positions in the index and of the number of occurrences, both encoded as
+ * variable length integers. Searches rank the cases containing any of the words of the query with BM25.</p>
+ * <p>The index is saved to a file after every {@link #refresh()} and loaded back on the first one, which then only fetches
+ * the cases updated since, using the {@code updated_after} filter of {@link TestRail.Cases#list(int, List)}. An updated case
+ * is indexed again and its previous entry is marked as deleted; deleted entries are dropped from the posting lists once
+ * they outnumber the cases. Searches can be done concurrently with a refresh.</p>
+ * <p>Deleted cases are not reported by TestRail as updates, so they stay in the index until it is rebuilt from an empty
+ * file.</p>
+ */
+@Log4j
+public class CaseSearchIndex {
+
+    private static final int MAGIC = 0x54525331; // "TRS1"
+    private static final Set<Field.Type> TEXT_TYPES = EnumSet.of(Field.Type.STRING, Field.Type.TEXT, Field.Type.STEPS);
+    private static final int MAX_WORD_LENGTH = 64;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private final int projectId;
+    private final Integer suiteId;
+    private final List<String> textFieldNames = new ArrayList<>();
+    private final Path file;
+    private final WatermarkFetch<Case> casesUpdated;
+    private final StampedLock lock = new StampedLock();
+    private Map<String, Postings> postingsByWord = new HashMap<>();
+    private IntIntHashMap positions = new IntIntHashMap(INITIAL_CAPACITY);
+    private int[] caseIds = new int[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private BitSet live = new BitSet();
+    private int positionCount;
+    private long totalLength;
+    private boolean loaded;
+
+    /**
+     * @param testRail   the client to fetch cases with
+     * @param projectId  the ID of the project, in single-suite mode or whose cases of all suites are indexed
+     * @param caseFields the custom case fields configured in TestRail, to find the text fields and get type information
+     *                   for custom fields in the cases
+     * @param file       the file to save the index to and load it from
+     * @throws java.lang.IllegalArgumentException if projectId is not positive
+     */
+    public CaseSearchIndex(@NonNull TestRail testRail, final int projectId, @NonNull List<CaseField> caseFields, @NonNull Path file) {
+        this(testRail, projectId, null, caseFields, file);
+    }
+
+    /**
+     * @param testRail   the client to fetch cases with
+     * @param projectId  the ID of the project
+     * @param suiteId    the ID of the suite whose cases are indexed
+     * @param caseFields the custom case fields configured in TestRail, to find the text fields and get type information
+     *                   for custom fields in the cases
+     * @param file       the file to save the index to and load it from
+     * @throws java.lang.IllegalArgumentException if projectId or suiteId is not positive
+     */
+    public CaseSearchIndex(@NonNull TestRail testRail, final int projectId, final int suiteId, @NonNull List<CaseField> caseFields, @NonNull Path file) {
+        this(testRail, projectId, Integer.valueOf(suiteId), caseFields, file);
+        checkArgument(suiteId > 0, "suiteId should be positive");
+    }
+
+    private CaseSearchIndex(TestRail testRail, int projectId, Integer suiteId, List<CaseField> caseFields, Path file) {
+        checkArgument(projectId > 0, "projectId should be positive");
+        this.projectId = projectId;
+        this.suiteId = suiteId;
+        this.file = file;
+        this.casesUpdated = WatermarkFetch.casesUpdated(testRail, projectId, suiteId, caseFields);
+        for (CaseField caseField : caseFields) {
+            if (TEXT_TYPES.contains(Field.Type.getType(caseField.getTypeId()))) {
+                textFieldNames.add(caseField.getName());
+            }
+        }
+    }
+
+    /**
+     * Load the index from its file if not done yet, fetch the cases updated since the last refresh, index them and save
+     * the index. The first refresh without a file fetches all the cases.
+     * <p>Refreshes are serialized, searches running concurrently see the cases indexed page by page.</p>
+     *
+     * @return the number of cases indexed
+     * @throws java.io.UncheckedIOException if the index cannot be saved
+     */
+    public synchronized int refresh() {
+        if (!loaded) {
+            load();
+            loaded = true;
+        }
+        final int[] indexedCount = {0};
+        casesUpdated.fetch(new Consumer<List<Case>>() {
+            @Override
+            public void accept(List<Case> cases) {
+                indexedCount[0] += index(cases);
+            }
+        });
+        try {
+            save();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return indexedCount[0];
+    }
+
+    /**
+     * Search the cases containing any of the words of a query.
+     *
+     * @param query the words to search, separated by spaces or punctuation, ignoring case
+     * @param limit the maximum number of cases to return
+     * @return the IDs of the matching cases, the most relevant first
+     * @throws java.lang.IllegalArgumentException if limit is not positive
+     */
+    public List<Integer> search(@NonNull String query, final int limit) {
+        checkArgument(limit > 0, "limit should be positive");
+        List<String> words = tokenize(query, new ArrayList<String>());
+        if (words.isEmpty()) {
+            return Collections.emptyList();
+        }
+        long stamp = lock.readLock();
+        try {
+            int caseCount = positions.size();
+            if (caseCount == 0) {
+                return Collections.emptyList();
+            }
+            float averageLength = (float) totalLength / caseCount;
+            final float[] scores = new float[positionCount];
+            int[] matches = new int[INITIAL_CAPACITY];
+            int matchCount = 0;
+            for (String word : new HashSet<>(words)) {
+                Postings postings = postingsByWord.get(word);
+                if (postings == null) {
+                    continue;
+                }
+                // deleted entries are still counted in the posting lists until they are compacted
+                int documentCount = Math.min(postings.documentCount, caseCount);
+                float idf = (float) Math.log(1 + (caseCount - documentCount + 0.5) / (documentCount + 0.5));
+                int offset = 0;
+                int position = -1;
+                while (offset < postings.size) {
+                    long gap = readVarInt(postings.bytes, offset);
+                    offset = (int) (gap >>> 32);
+                    long frequency = readVarInt(postings.bytes, offset);
+                    offset = (int) (frequency >>> 32);
+                    position += (int) gap;
+                    if (!live.get(position)) {
+                        continue;
+                    }
+                    int tf = (int) frequency;
+                    if (scores[position] == 0) {
+                        if (matchCount == matches.length) {
+                            matches = Arrays.copyOf(matches, matchCount * 2);
+                        }
+                        matches[matchCount++] = position;
+                    }
+                    scores[position] += idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * lengths[position] / averageLength));
+                }
+            }
+            PriorityQueue<Integer> top = new PriorityQueue<>(Math.min(limit, matchCount) + 1, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer position1, Integer position2) {
+                    int comparison = Float.compare(scores[position1], scores[position2]);
+                    return comparison != 0 ? comparison : Integer.compare(caseIds[position2], caseIds[position1]);
+                }
+            });
+            for (int i = 0; i < matchCount; i++) {
+                top.add(matches[i]);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            Integer[] result = new Integer[top.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = caseIds[top.poll()];
+            }
+            return Arrays.asList(result);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return the number of cases indexed
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return positions.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Index cases, replacing their previous entries.
+     *
+     * @param cases the cases to index
+     * @return the number of cases indexed
+     */
+    int index(List<Case> cases) {
+        List<Document> documents = new ArrayList<>(cases.size());
+        List<String> words = new ArrayList<>();
+        for (Case testCase : cases) {
+            words.clear();
+            tokenize(testCase.getTitle(), words);
+            tokenize(testCase.getRefs(), words);
+            for (String fieldName : textFieldNames) {
+                Object value = testCase.getCustomFields().get(fieldName);
+                if (value instanceof String) {
+                    tokenize((String) value, words);
+                } else if (value instanceof List) {
+                    for (Object step : (List<?>) value) {
+                        if (step instanceof Field.Step) {
+                            tokenize(((Field.Step) step).getContent(), words);
+                            tokenize(((Field.Step) step).getExpected(), words);
+                        }
+                    }
+                }
+            }
+            documents.add(new Document(testCase.getId(), words));
+        }
+        long stamp = lock.writeLock();
+        try {
+            for (Document document : documents) {
+                add(document);
+            }
+            if (positionCount > INITIAL_CAPACITY && positionCount > 2 * positions.size()) {
+                compact();
+            }
+            return documents.size();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Add a case at the end of the index, marking its previous entry as deleted. Must be called holding the write lock.
+     */
+    private void add(Document document) {
+        int previousPosition = positions.get(document.caseId, -1);
+        if (previousPosition >= 0) {
+            live.clear(previousPosition);
+            totalLength -= lengths[previousPosition];
+        }
+        int position = positionCount++;
+        if (position == caseIds.length) {
+            caseIds = Arrays.copyOf(caseIds, position * 2);
+            lengths = Arrays.copyOf(lengths, position * 2);
+        }
+        caseIds[position] = document.caseId;
+        lengths[position] = document.length;
+        live.set(position);
+        positions.put(document.caseId, position);
+        totalLength += document.length;
+        for (int i = 0; i < document.words.length; i++) {
+            Postings postings = postingsByWord.get(document.words[i]);
+            if (postings == null) {
+                postings = new Postings();
+                postingsByWord.put(document.words[i], postings);
+            }
+            postings.add(position, document.frequencies[i]);
+        }
+    }
+
+    /**
+     * Drop the deleted entries, renumbering the cases. Must be called holding the write lock.
+     */
+    private void compact() {
+        int[] newPositions = new int[positionCount];
+        int newPositionCount = 0;
+        for (int position = 0; position < positionCount; position++) {
+            if (live.get(position)) {
+                caseIds[newPositionCount] = caseIds[position];
+                lengths[newPositionCount] = lengths[position];
+                positions.put(caseIds[position], newPositionCount);
+                newPositions[position] = newPositionCount++;
+            } else {
+                newPositions[position] = -1;
+            }
+        }
+        for (Iterator<Postings> iterator = postingsByWord.values().iterator(); iterator.hasNext(); ) {
+            Postings postings = iterator.next();
+            Postings compacted = new Postings();
+            int offset = 0;
+            int position = -1;
+            while (offset < postings.size) {
+                long gap = readVarInt(postings.bytes, offset);
+                offset = (int) (gap >>> 32);
+                long frequency = readVarInt(postings.bytes, offset);
+                offset = (int) (frequency >>> 32);
+                position += (int) gap;
+                if (newPositions[position] >= 0) {
+                    compacted.add(newPositions[position], (int) frequency);
+                }
+            }
+            if (compacted.documentCount == 0) {
+                iterator.remove();
+            } else {
+                postings.bytes = compacted.bytes;
+                postings.size = compacted.size;
+                postings.lastPosition = compacted.lastPosition;
+                postings.documentCount = compacted.documentCount;
+            }
+        }
+        live = new BitSet(newPositionCount);
+        live.set(0, newPositionCount);
+        positionCount = newPositionCount;
+    }
+
+    /**
+     * Load the index from its file, if any and saved for the same project and suite. Otherwise, the index is left empty to
+     * be built from all the cases.
+     */
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != projectId || in.readInt() != (suiteId == null ? 0 : suiteId)) {
+                log.warn("Ignoring case search index " + file + " saved for another project or suite");
+                return;
+            }
+            long newLatestUpdatedOn = in.readLong();
+            int newPositionCount = in.readInt();
+            int[] newCaseIds = new int[Math.max(newPositionCount, INITIAL_CAPACITY)];
+            int[] newLengths = new int[newCaseIds.length];
+            for (int position = 0; position < newPositionCount; position++) {
+                newCaseIds[position] = in.readInt();
+                newLengths[position] = in.readInt();
+            }
+            long[] liveWords = new long[in.readInt()];
+            for (int i = 0; i < liveWords.length; i++) {
+                liveWords[i] = in.readLong();
+            }
+            long newTotalLength = in.readLong();
+            int wordCount = in.readInt();
+            Map<String, Postings> newPostingsByWord = new HashMap<>(wordCount * 4 / 3 + 1);
+            for (int i = 0; i < wordCount; i++) {
+                String word = in.readUTF();
+                Postings postings = new Postings();
+                postings.documentCount = in.readInt();
+                postings.lastPosition = in.readInt();
+                postings.size = in.readInt();
+                postings.bytes = new byte[postings.size];
+                in.readFully(postings.bytes);
+                newPostingsByWord.put(word, postings);
+            }
+            BitSet newLive = BitSet.valueOf(liveWords);
+            IntIntHashMap newPositions = new IntIntHashMap(Math.max(newLive.cardinality(), INITIAL_CAPACITY));
+            for (int position = newLive.nextSetBit(0); position >= 0; position = newLive.nextSetBit(position + 1)) {
+                newPositions.put(newCaseIds[position], position);
+            }
+            long stamp = lock.writeLock();
+            try {
+                casesUpdated.setWatermark(newLatestUpdatedOn);
+                positionCount = newPositionCount;
+                caseIds = newCaseIds;
+                lengths = newLengths;
+                live = newLive;
+                positions = newPositions;
+                totalLength = newTotalLength;
+                postingsByWord = newPostingsByWord;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable case search index " + file, e);
+        }
+    }
+
+    /**
+     * Save the index to a temporary file moved over its file, so that a crash while saving leaves the previous one.
+     */
+    private void save() throws IOException {
+        long stamp = lock.readLock();
+        try {
+            AtomicFiles.write(file, "index", new AtomicFiles.ContentWriter() {
+                @Override
+                public void write(OutputStream fileOut) throws IOException {
+                    DataOutputStream out = new DataOutputStream(fileOut);
+                    out.writeInt(MAGIC);
+                    out.writeInt(projectId);
+                    out.writeInt(suiteId == null ? 0 : suiteId);
+                    out.writeLong(casesUpdated.getWatermark());
+                    out.writeInt(positionCount);
+                    for (int position = 0; position < positionCount; position++) {
+                        out.writeInt(caseIds[position]);
+                        out.writeInt(lengths[position]);
+                    }
+                    long[] liveWords = live.toLongArray();
+                    out.writeInt(liveWords.length);
+                    for (long liveWord : liveWords) {
+                        out.writeLong(liveWord);
+                    }
+                    out.writeLong(totalLength);
+                    out.writeInt(postingsByWord.size());
+                    for (Map.Entry<String, Postings> entry : postingsByWord.entrySet()) {
+                        Postings postings = entry.getValue();
+                        out.writeUTF(entry.getKey());
+                        out.writeInt(postings.documentCount);
+                        out.writeInt(postings.lastPosition);
+                        out.writeInt(postings.size);
+                        out.write(postings.bytes, 0, postings.size);
+                    }
+                }
+            });
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Split a text into lower case words of letters and digits.
+     *
+     * @param text  the text, may be null
+     * @param words the list to add the words to
+     * @return the list of words
+     */
+    static List<String> tokenize(String text, List<String> words) {
+        if (text == null) {
+            return words;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                if (i - start <= MAX_WORD_LENGTH) {
+                    words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                }
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Read a variable length integer, 7 bits per byte, the lowest first.
+     *
+     * @return the offset after the integer in the upper 32 bits and the integer in the lower ones
+     */
+    private static long readVarInt(byte[] bytes, int offset) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[offset++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return ((long) offset << 32) | (value & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Words of a case with their number of occurrences.
+     */
+    private static final class Document {
+
+        private final int caseId;
+        private final String[] words;
+        private final int[] frequencies;
+        private final int length;
+
+        private Document(int caseId, List<String> allWords) {
+            this.caseId = caseId;
+            this.length = allWords.size();
+            String[] sorted = allWords.toArray(new String[allWords.size()]);
+            Arrays.sort(sorted);
+            int[] counts = new int[sorted.length];
+            int distinct = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (distinct > 0 && sorted[i].equals(sorted[distinct - 1])) {
+                    counts[distinct - 1]++;
+                } else {
+                    sorted[distinct] = sorted[i];
+                    counts[distinct++] = 1;
+                }
+            }
+            this.words = Arrays.copyOf(sorted, distinct);
+            this.frequencies = Arrays.copyOf(counts, distinct);
+        }
+    }
+
+    /**
+     * Positions of the cases containing a word, as gaps, with the number of occurrences, both as variable length integers.
+     */
+    private static final class Postings {
+
+        private byte[] bytes = new byte[8];
+        private int size;
+        private int lastPosition = -1;
+        private int documentCount;
+
+        void add(int position, int frequency) {
+            writeVarInt(position - lastPosition);
+            writeVarInt(frequency);
+            lastPosition = position;
+            documentCount++;
+        }
+
+        private void writeVarInt(int value) {
+            if (bytes.length - size < 5) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + 5));
+            }
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+    }
+}
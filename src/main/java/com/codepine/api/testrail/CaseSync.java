@@ -0,0 +1,340 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.BoundedExecutor;
+import com.codepine.api.testrail.model.Case;
+import com.codepine.api.testrail.model.CaseField;
+import lombok.NonNull;
+import lombok.Value;
+import lombok.extern.log4j.Log4j;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Synchronizes test case definitions, for e.g. generated from annotations in source code, to the cases of a project or
+ * suite, adding and updating only the cases whose content differs.
+ * <p>The cases are fetched on the first sync, and only those updated since on the next ones, using the {@code updated_after}
+ * filter of {@link TestRail.Cases#list(int, List)}. Only the {@link CaseFingerprint} of each of their fields is kept. A
+ * definition is matched with a case by its ID if set, otherwise by its section and title. It is added if there is no such
+ * case, and updated only if one of the fields it sets differs from the case. Adds and updates are sent concurrently, at
+ * most {@link TestRail.Builder#parallelism(int)} at a time. Definitions to be added with the same section and title as
+ * one before them in the same sync are reported as failures instead of being added twice.</p>
+ * <p>The fingerprints are saved to a file after every sync and loaded back on the first one, which then only fetches the
+ * cases updated since. They are fetched all again if the custom case fields changed.</p>
+ * <p>Definitions are given the ID of their case, so that it can be recorded with them. Deleted cases are not reported by
+ * TestRail as updates, so definitions of a case deleted after the first sync are updated, and fail.</p>
+ */
+@Log4j
+public class CaseSync {
+
+    private static final int MAGIC = 0x54524631; // "TRF1"
+
+    private final TestRail testRail;
+    private final int projectId;
+    private final Integer suiteId;
+    private final List<CaseField> caseFields;
+    private final CaseFingerprint fingerprint;
+    private final Path file;
+    private final WatermarkFetch<Case> casesUpdated;
+    private final Map<Integer, long[]> fieldFingerprintsByCaseId = new HashMap<>();
+    private final Map<String, Integer> caseIdsByKey = new HashMap<>();
+    private final Map<Integer, String> keysByCaseId = new HashMap<>();
+    private boolean loaded;
+
+    /**
+     * @param testRail   the client to fetch and change cases with
+     * @param projectId  the ID of the project, in single-suite mode or whose cases of all suites are synchronized
+     * @param caseFields the custom case fields configured in TestRail
+     * @param file       the file to save the fingerprints of the cases to and load them from
+     * @throws java.lang.IllegalArgumentException if projectId is not positive
+     */
+    public CaseSync(@NonNull TestRail testRail, final int projectId, @NonNull List<CaseField> caseFields, @NonNull Path file) {
+        this(testRail, projectId, null, caseFields, file);
+    }
+
+    /**
+     * @param testRail   the client to fetch and change cases with
+     * @param projectId  the ID of the project
+     * @param suiteId    the ID of the suite whose cases are synchronized
+     * @param caseFields the custom case fields configured in TestRail
+     * @param file       the file to save the fingerprints of the cases to and load them from
+     * @throws java.lang.IllegalArgumentException if projectId or suiteId is not positive
+     */
+    public CaseSync(@NonNull TestRail testRail, final int projectId, final int suiteId, @NonNull List<CaseField> caseFields, @NonNull Path file) {
+        this(testRail, projectId, Integer.valueOf(suiteId), caseFields, file);
+        checkArgument(suiteId > 0, "suiteId should be positive");
+    }
+
+    private CaseSync(TestRail testRail, int projectId, Integer suiteId, List<CaseField> caseFields, Path file) {
+        checkArgument(projectId > 0, "projectId should be positive");
+        this.testRail = testRail;
+        this.projectId = projectId;
+        this.suiteId = suiteId;
+        this.caseFields = caseFields;
+        this.fingerprint = new CaseFingerprint(caseFields);
+        this.file = file;
+        this.casesUpdated = WatermarkFetch.casesUpdated(testRail, projectId, suiteId, caseFields);
+    }
+
+    /**
+     * Add the definitions without a case and update the cases which differ from their definition.
+     * <p>A failure to add or update a case does not stop the others, it is reported in the result.</p>
+     *
+     * @param definitions the definitions of the cases; those to be added must have a section
+     * @return the definitions added and updated, and the failures
+     * @throws java.io.UncheckedIOException if the fingerprints cannot be saved
+     */
+    public synchronized Result sync(@NonNull Collection<Case> definitions) {
+        if (!loaded) {
+            load();
+            loaded = true;
+        }
+        refresh();
+        final List<Case> changed = new ArrayList<>();
+        final List<Boolean> adds = new ArrayList<>();
+        List<Callable<Case>> tasks = new ArrayList<>();
+        Set<String> addedKeys = new HashSet<>();
+        List<Failure> failures = new ArrayList<>();
+        int unchangedCount = 0;
+        for (final Case definition : definitions) {
+            String key = getKey(definition.getSectionId(), definition.getTitle());
+            Integer caseId = definition.getId() > 0 ? Integer.valueOf(definition.getId()) : caseIdsByKey.get(key);
+            if (caseId == null) {
+                if (!addedKeys.add(key)) {
+                    failures.add(new Failure(definition, new IllegalArgumentException("Duplicate definition of case \"" + definition.getTitle()
+                            + "\" in section " + definition.getSectionId())));
+                    continue;
+                }
+                changed.add(definition);
+                adds.add(true);
+                tasks.add(new Callable<Case>() {
+                    @Override
+                    public Case call() {
+                        return testRail.cases().add(definition.getSectionId(), definition, caseFields).execute();
+                    }
+                });
+                continue;
+            }
+            definition.setId(caseId);
+            long[] fieldFingerprints = fieldFingerprintsByCaseId.get(caseId);
+            if (fieldFingerprints != null && CaseFingerprint.matches(fingerprint.getFieldFingerprints(definition), fieldFingerprints)) {
+                unchangedCount++;
+                continue;
+            }
+            changed.add(definition);
+            adds.add(false);
+            tasks.add(new Callable<Case>() {
+                @Override
+                public Case call() {
+                    return testRail.cases().update(definition, caseFields).execute();
+                }
+            });
+        }
+        List<Case> added = new ArrayList<>();
+        List<Case> updated = new ArrayList<>();
+        try {
+            List<Future<Case>> futures = new BoundedExecutor(testRail.getConfig().getParallelism(), testRail.getConfig().isVirtualThreads()).invokeAll(tasks);
+            for (int i = 0; i < futures.size(); i++) {
+                Case definition = changed.get(i);
+                try {
+                    Case testCase = futures.get(i).get();
+                    definition.setId(testCase.getId());
+                    put(testCase);
+                    (adds.get(i) ? added : updated).add(definition);
+                } catch (ExecutionException e) {
+                    failures.add(new Failure(definition, e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause())));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        try {
+            save();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Result(Collections.unmodifiableList(added), Collections.unmodifiableList(updated), unchangedCount,
+                Collections.unmodifiableList(failures));
+    }
+
+    /**
+     * Fetch the cases updated since the last refresh, all of them the first time.
+     */
+    private void refresh() {
+        casesUpdated.fetch(new Consumer<List<Case>>() {
+            @Override
+            public void accept(List<Case> cases) {
+                for (Case testCase : cases) {
+                    put(testCase);
+                }
+            }
+        });
+    }
+
+    private void put(Case testCase) {
+        String key = getKey(testCase.getSectionId(), testCase.getTitle());
+        String previousKey = keysByCaseId.put(testCase.getId(), key);
+        if (previousKey != null && !previousKey.equals(key)) {
+            caseIdsByKey.remove(previousKey);
+        }
+        caseIdsByKey.put(key, testCase.getId());
+        fieldFingerprintsByCaseId.put(testCase.getId(), fingerprint.getFieldFingerprints(testCase));
+    }
+
+    /**
+     * Load the fingerprints from their file, if any and saved for the same project, suite and custom case fields.
+     * Otherwise, they are left empty to be fetched from all the cases.
+     */
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        List<String> fieldNames = fingerprint.getFieldNames();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != projectId || in.readInt() != (suiteId == null ? 0 : suiteId)) {
+                log.warn("Ignoring case fingerprints " + file + " saved for another project or suite");
+                return;
+            }
+            List<String> savedFieldNames = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                savedFieldNames.add(in.readUTF());
+            }
+            if (!savedFieldNames.equals(fieldNames)) {
+                log.warn("Ignoring case fingerprints " + file + " saved for other case fields");
+                return;
+            }
+            long newLatestUpdatedOn = in.readLong();
+            int caseCount = in.readInt();
+            Map<Integer, long[]> newFieldFingerprintsByCaseId = new HashMap<>(caseCount * 4 / 3 + 1);
+            Map<Integer, String> newKeysByCaseId = new HashMap<>(caseCount * 4 / 3 + 1);
+            for (int i = 0; i < caseCount; i++) {
+                int caseId = in.readInt();
+                newKeysByCaseId.put(caseId, in.readUTF());
+                long[] fieldFingerprints = new long[fieldNames.size()];
+                for (int j = 0; j < fieldFingerprints.length; j++) {
+                    fieldFingerprints[j] = in.readLong();
+                }
+                newFieldFingerprintsByCaseId.put(caseId, fieldFingerprints);
+            }
+            casesUpdated.setWatermark(newLatestUpdatedOn);
+            fieldFingerprintsByCaseId.putAll(newFieldFingerprintsByCaseId);
+            keysByCaseId.putAll(newKeysByCaseId);
+            for (Map.Entry<Integer, String> entry : newKeysByCaseId.entrySet()) {
+                caseIdsByKey.put(entry.getValue(), entry.getKey());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable case fingerprints " + file, e);
+        }
+    }
+
+    /**
+     * Save the fingerprints to a temporary file moved over their file, so that a crash while saving leaves the previous one.
+     */
+    private void save() throws IOException {
+        AtomicFiles.write(file, "fingerprints", new AtomicFiles.ContentWriter() {
+            @Override
+            public void write(OutputStream fileOut) throws IOException {
+                DataOutputStream out = new DataOutputStream(fileOut);
+                out.writeInt(MAGIC);
+                out.writeInt(projectId);
+                out.writeInt(suiteId == null ? 0 : suiteId);
+                List<String> fieldNames = fingerprint.getFieldNames();
+                out.writeInt(fieldNames.size());
+                for (String fieldName : fieldNames) {
+                    out.writeUTF(fieldName);
+                }
+                out.writeLong(casesUpdated.getWatermark());
+                out.writeInt(fieldFingerprintsByCaseId.size());
+                for (Map.Entry<Integer, long[]> entry : fieldFingerprintsByCaseId.entrySet()) {
+                    out.writeInt(entry.getKey());
+                    out.writeUTF(keysByCaseId.get(entry.getKey()));
+                    for (long fieldFingerprint : entry.getValue()) {
+                        out.writeLong(fieldFingerprint);
+                    }
+                }
+            }
+        });
+    }
+
+    private static String getKey(int sectionId, String title) {
+        return sectionId + "/" + (title == null ? "" : title.trim());
+    }
+
+    /**
+     * Outcome of a sync.
+     */
+    @Value
+    public static class Result {
+
+        /**
+         * The definitions added as new cases, with their ID.
+         */
+        List<Case> added;
+        /**
+         * The definitions whose case was updated.
+         */
+        List<Case> updated;
+        /**
+         * The number of definitions whose case was already up to date.
+         */
+        int unchangedCount;
+        /**
+         * The definitions which could not be added or updated.
+         */
+        List<Failure> failures;
+    }
+
+    /**
+     * Failure to add or update the case of a definition.
+     */
+    @Value
+    public static class Failure {
+
+        Case definition;
+        RuntimeException exception;
+    }
+}
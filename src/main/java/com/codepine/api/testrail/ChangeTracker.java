@@ -0,0 +1,131 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.model.Case;
+import com.codepine.api.testrail.model.Milestone;
+import com.codepine.api.testrail.model.Plan;
+import com.codepine.api.testrail.model.Run;
+import com.codepine.api.testrail.model.Section;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.MapMaker;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Tracker of the changes made to the cases, runs, plans, milestones and sections loaded through the client, so that
+ * their update requests only send the fields changed since they were loaded, and are not sent at all if none changed.
+ * <p>When a model is loaded, a fingerprint of each of its fields, as serialized in the content of its update request,
+ * is recorded. Models are tracked by identity and weakly, so tracking does not keep them in memory. Models which were not
+ * loaded through the client, for e.g. built with their ID only, are sent in full.</p>
+ */
+class ChangeTracker {
+
+    private static final Map<Class<?>, Class<?>> UPDATE_REQUESTS = ImmutableMap.<Class<?>, Class<?>>builder()
+            .put(Case.class, TestRail.Cases.Update.class)
+            .put(Milestone.class, TestRail.Milestones.Update.class)
+            .put(Plan.class, TestRail.Plans.Update.class)
+            .put(Run.class, TestRail.Runs.Update.class)
+            .put(Section.class, TestRail.Sections.Update.class)
+            .build();
+    private static final HashFunction FINGERPRINT = Hashing.murmur3_128();
+
+    private final ConcurrentMap<Object, Map<String, Long>> fingerprints = new MapMaker().weakKeys().makeMap();
+
+    /**
+     * Check whether a request is an update whose content can be reduced to the changed fields.
+     *
+     * @param request the request
+     * @return true if the request updates a tracked type of model
+     */
+    static boolean isTrackedUpdate(Request<?> request) {
+        return UPDATE_REQUESTS.containsValue(request.getClass());
+    }
+
+    /**
+     * Record the current state of the models of a response, replacing any state previously recorded for them.
+     *
+     * @param response a model or a list of models, other responses are ignored
+     */
+    void track(Object response) {
+        if (response instanceof List) {
+            for (Object element : (List<?>) response) {
+                track(element);
+            }
+        } else if (response != null && UPDATE_REQUESTS.containsKey(response.getClass())) {
+            Map<String, Long> fieldFingerprints = new HashMap<>();
+            for (Iterator<Map.Entry<String, JsonNode>> fields = toTree(response).fields(); fields.hasNext(); ) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                fieldFingerprints.put(field.getKey(), fingerprint(field.getValue()));
+            }
+            fingerprints.put(response, fieldFingerprints);
+        }
+    }
+
+    /**
+     * Get the fields of a model changed since its state was recorded.
+     *
+     * @param model the model
+     * @return the changed fields as they would be serialized in the content of its update request, empty if none, or null
+     * if the state of the model was not recorded
+     */
+    ObjectNode getChanges(Object model) {
+        Map<String, Long> fieldFingerprints = fingerprints.get(model);
+        if (fieldFingerprints == null) {
+            return null;
+        }
+        ObjectNode tree = toTree(model);
+        for (Iterator<Map.Entry<String, JsonNode>> fields = tree.fields(); fields.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            Long fieldFingerprint = fieldFingerprints.get(field.getKey());
+            if (fieldFingerprint != null && fieldFingerprint == fingerprint(field.getValue())) {
+                fields.remove();
+            }
+        }
+        return tree;
+    }
+
+    private static ObjectNode toTree(Object model) {
+        try {
+            byte[] json = Request.JSON.writerWithView(UPDATE_REQUESTS.get(model.getClass())).writeValueAsBytes(model);
+            return (ObjectNode) Request.JSON.readTree(json);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static long fingerprint(JsonNode value) {
+        return FINGERPRINT.hashString(value.toString(), Charsets.UTF_8).asLong();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.model.Result;
+import com.google.common.collect.ImmutableList;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * Exception thrown when some of the chunks of a request sent in chunks failed, while others succeeded.
+ */
+public class ChunkedRequestException extends RuntimeException {
+
+    private static final long serialVersionUID = 4427036374557155043L;
+
+    /**
+     * The results added by the chunks which succeeded, in the order they were submitted.
+     */
+    @Getter
+    private final List<Result> addedResults;
+
+    /**
+     * The chunks which failed, in the order they were submitted.
+     */
+    @Getter
+    private final List<ChunkFailure> failures;
+
+    ChunkedRequestException(List<Result> addedResults, List<ChunkFailure> failures) {
+        super(failures.size() + " chunk(s) failed, first failure: " + failures.get(0).getCause().getMessage(), failures.get(0).getCause());
+        this.addedResults = ImmutableList.copyOf(addedResults);
+        this.failures = ImmutableList.copyOf(failures);
+    }
+
+    /**
+     * A chunk which failed.
+     */
+    @Getter
+    @ToString
+    public static class ChunkFailure {
+
+        /**
+         * Index of the first element of the chunk in the submitted list, inclusive.
+         */
+        private final int fromIndex;
+
+        /**
+         * Index of the last element of the chunk in the submitted list, exclusive.
+         */
+        private final int toIndex;
+
+        private final RuntimeException cause;
+
+        ChunkFailure(int fromIndex, int toIndex, RuntimeException cause) {
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+            this.cause = cause;
+        }
+    }
+}
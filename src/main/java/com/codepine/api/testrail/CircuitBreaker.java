@@ -0,0 +1,284 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import com.google.common.base.Ticker;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Circuit breaker of a single TestRail API endpoint, for e.g. {@code add_results_for_cases}.
+ * <p>While {@link State#CLOSED}, the outcomes of the last {@link Settings#windowSize(int)} requests are kept. A request fails
+ * if it could not get a response or got a 5xx or 429 response; a request is slow if it took longer than
+ * {@link Settings#slowCallDurationMillis(long)}. Once enough requests were made, the breaker opens if the rate of failed or
+ * slow requests reaches its threshold. While {@link State#OPEN}, requests fail fast with {@link CircuitBreakerOpenException}
+ * without being sent. After {@link Settings#openDurationMillis(long)}, the breaker is {@link State#HALF_OPEN} and lets a
+ * few trial requests through: it closes if all of them succeed, and opens again otherwise.</p>
+ * <p>Thread-safe.</p>
+ */
+@ToString(of = {"endpoint", "state"})
+public class CircuitBreaker {
+
+    /**
+     * State of a circuit breaker.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * The endpoint of this circuit breaker.
+     */
+    @Getter
+    private final String endpoint;
+    private final Settings settings;
+    private final Ticker ticker;
+
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private int next;
+    private int bufferedCalls;
+    private int failedCalls;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int trialCalls;
+    private int succeededTrialCalls;
+    private long rejectedCalls;
+
+    CircuitBreaker(String endpoint, Settings settings, Ticker ticker) {
+        this.endpoint = endpoint;
+        this.settings = settings;
+        this.ticker = ticker;
+        this.failed = new boolean[settings.windowSize];
+        this.slow = new boolean[settings.windowSize];
+    }
+
+    /**
+     * Get the current state.
+     *
+     * @return the state
+     */
+    public synchronized State getState() {
+        updateState();
+        return state;
+    }
+
+    /**
+     * Get the rate of failed requests among the last requests while closed.
+     *
+     * @return the rate between 0 and 1, 0 if no request was made
+     */
+    public synchronized double getFailureRate() {
+        return bufferedCalls == 0 ? 0 : (double) failedCalls / bufferedCalls;
+    }
+
+    /**
+     * Get the rate of slow requests among the last requests while closed.
+     *
+     * @return the rate between 0 and 1, 0 if no request was made
+     */
+    public synchronized double getSlowCallRate() {
+        return bufferedCalls == 0 ? 0 : (double) slowCalls / bufferedCalls;
+    }
+
+    /**
+     * Get the number of requests the rates are computed from.
+     *
+     * @return the number of requests, at most the window size
+     */
+    public synchronized int getBufferedCalls() {
+        return bufferedCalls;
+    }
+
+    /**
+     * Get the number of requests which failed fast since this circuit breaker was created.
+     *
+     * @return the number of rejected requests
+     */
+    public synchronized long getRejectedCalls() {
+        return rejectedCalls;
+    }
+
+    /**
+     * Acquire the permission to send a request.
+     *
+     * @throws CircuitBreakerOpenException if the request may not be sent
+     */
+    synchronized void acquirePermission() {
+        updateState();
+        if (state == State.CLOSED) {
+            return;
+        }
+        if (state == State.HALF_OPEN && trialCalls < settings.halfOpenCalls) {
+            trialCalls++;
+            return;
+        }
+        rejectedCalls++;
+        long retryAfterNanos = state == State.OPEN ? openedAt + TimeUnit.MILLISECONDS.toNanos(settings.openDurationMillis) - ticker.read() : 0;
+        throw new CircuitBreakerOpenException(endpoint, Math.max(0, TimeUnit.NANOSECONDS.toMillis(retryAfterNanos)));
+    }
+
+    /**
+     * Record the outcome of a request sent with permission.
+     *
+     * @param durationNanos the duration of the request
+     * @param failure       whether the request failed
+     */
+    synchronized void onResult(long durationNanos, boolean failure) {
+        boolean slowCall = durationNanos > TimeUnit.MILLISECONDS.toNanos(settings.slowCallDurationMillis);
+        switch (state) {
+            case CLOSED:
+                record(failure, slowCall);
+                if (bufferedCalls >= settings.minimumCalls
+                        && (failedCalls >= settings.failureRateThreshold * bufferedCalls || slowCalls >= settings.slowCallRateThreshold * bufferedCalls)) {
+                    open();
+                }
+                break;
+            case HALF_OPEN:
+                if (failure || slowCall) {
+                    open();
+                } else if (++succeededTrialCalls >= settings.halfOpenCalls) {
+                    close();
+                }
+                break;
+            default:
+                // outcome of a request sent before the breaker opened
+                break;
+        }
+    }
+
+    private void record(boolean failure, boolean slowCall) {
+        if (bufferedCalls == failed.length) {
+            failedCalls -= failed[next] ? 1 : 0;
+            slowCalls -= slow[next] ? 1 : 0;
+        } else {
+            bufferedCalls++;
+        }
+        failed[next] = failure;
+        slow[next] = slowCall;
+        failedCalls += failure ? 1 : 0;
+        slowCalls += slowCall ? 1 : 0;
+        next = (next + 1) % failed.length;
+    }
+
+    private void updateState() {
+        if (state == State.OPEN && ticker.read() - openedAt >= TimeUnit.MILLISECONDS.toNanos(settings.openDurationMillis)) {
+            state = State.HALF_OPEN;
+            trialCalls = 0;
+            succeededTrialCalls = 0;
+        }
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = ticker.read();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        next = 0;
+        bufferedCalls = 0;
+        failedCalls = 0;
+        slowCalls = 0;
+    }
+
+    /**
+     * Settings of the circuit breakers, shared by all the endpoints.
+     */
+    @Getter
+    @Setter
+    @Accessors(fluent = true)
+    public static class Settings {
+
+        /**
+         * Rate of failed requests at or above which the breaker opens, 0.5 by default.
+         */
+        private double failureRateThreshold = 0.5;
+
+        /**
+         * Rate of slow requests at or above which the breaker opens, 0.8 by default.
+         */
+        private double slowCallRateThreshold = 0.8;
+
+        /**
+         * Duration above which a request is slow, 10 seconds by default.
+         */
+        private long slowCallDurationMillis = 10000;
+
+        /**
+         * Number of last requests the rates are computed from, 20 by default.
+         */
+        private int windowSize = 20;
+
+        /**
+         * Minimum number of requests before the rates are considered, 10 by default.
+         */
+        private int minimumCalls = 10;
+
+        /**
+         * Duration the breaker stays open before letting trial requests through, 30 seconds by default.
+         */
+        private long openDurationMillis = 30000;
+
+        /**
+         * Number of trial requests which must succeed to close the breaker again, 3 by default.
+         */
+        private int halfOpenCalls = 3;
+
+        /**
+         * Get a copy of these settings, so that later changes to them have no effect.
+         *
+         * @return the copy
+         */
+        Settings copy() {
+            return new Settings().failureRateThreshold(failureRateThreshold).slowCallRateThreshold(slowCallRateThreshold)
+                    .slowCallDurationMillis(slowCallDurationMillis).windowSize(windowSize).minimumCalls(minimumCalls)
+                    .openDurationMillis(openDurationMillis).halfOpenCalls(halfOpenCalls);
+        }
+
+        /**
+         * Check the settings are consistent.
+         *
+         * @throws IllegalArgumentException if a setting is out of its range
+         */
+        void validate() {
+            checkArgument(failureRateThreshold > 0 && failureRateThreshold <= 1, "failureRateThreshold should be in (0, 1]");
+            checkArgument(slowCallRateThreshold > 0 && slowCallRateThreshold <= 1, "slowCallRateThreshold should be in (0, 1]");
+            checkArgument(slowCallDurationMillis > 0, "slowCallDurationMillis should be positive");
+            checkArgument(windowSize > 0, "windowSize should be positive");
+            checkArgument(minimumCalls > 0 && minimumCalls <= windowSize, "minimumCalls should be positive and at most windowSize");
+            checkArgument(openDurationMillis > 0, "openDurationMillis should be positive");
+            checkArgument(halfOpenCalls > 0, "halfOpenCalls should be positive");
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import lombok.Getter;
+
+/**
+ * Exception thrown without sending the request when the circuit breaker of its endpoint is open, see {@link CircuitBreaker}.
+ * Its response code is {@link TestRailException#NO_RESPONSE} since TestRail was not requested.
+ */
+public class CircuitBreakerOpenException extends TestRailException {
+
+    private static final long serialVersionUID = 6003525305941405402L;
+
+    /**
+     * The endpoint whose circuit breaker is open, for e.g. {@code get_results_for_run}.
+     */
+    @Getter
+    private final String endpoint;
+
+    /**
+     * The time left before the circuit breaker lets trial requests through, in milliseconds.
+     */
+    @Getter
+    private final long retryAfterMillis;
+
+    CircuitBreakerOpenException(String endpoint, long retryAfterMillis) {
+        super("Circuit breaker of " + endpoint + " is open, retry after " + retryAfterMillis + " ms");
+        this.endpoint = endpoint;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The circuit breakers of the TestRail API endpoints, one per endpoint, created on the first request to the endpoint.
+ * Thread-safe.
+ */
+public class CircuitBreakers {
+
+    private final CircuitBreaker.Settings settings;
+    private final Ticker ticker;
+    private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    CircuitBreakers(CircuitBreaker.Settings settings, Ticker ticker) {
+        this.settings = settings.copy();
+        this.ticker = ticker;
+    }
+
+    /**
+     * Get the circuit breakers of all the endpoints which were requested so far.
+     *
+     * @return snapshot of the circuit breakers keyed by endpoint, sorted by endpoint
+     */
+    public Map<String, CircuitBreaker> getAll() {
+        return ImmutableMap.copyOf(new TreeMap<>(circuitBreakers));
+    }
+
+    /**
+     * Get the circuit breaker of an endpoint.
+     *
+     * @param endpoint the endpoint, for e.g. {@code add_results_for_cases}
+     * @return the circuit breaker, or null if the endpoint was not requested yet
+     */
+    public CircuitBreaker get(String endpoint) {
+        return circuitBreakers.get(endpoint);
+    }
+
+    CircuitBreaker getOrCreate(String endpoint) {
+        CircuitBreaker circuitBreaker = circuitBreakers.get(endpoint);
+        if (circuitBreaker == null) {
+            CircuitBreaker newCircuitBreaker = new CircuitBreaker(endpoint, settings, ticker);
+            circuitBreaker = circuitBreakers.putIfAbsent(endpoint, newCircuitBreaker);
+            if (circuitBreaker == null) {
+                circuitBreaker = newCircuitBreaker;
+            }
+        }
+        return circuitBreaker;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import com.google.common.collect.ImmutableList;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reader of records exported in the {@link DataExporter.Format#COLUMNAR} format.
+ * <p>The layout of the format, where varints are unsigned LEB128 and strings are a varint length followed by UTF-8 bytes:</p>
+ * <pre>
+ *      file       := "TRC1" varint(columnCount) (string(name) byte(type))* rowGroup* varint(0)
+ *      rowGroup   := varint(rowCount) chunk*          -- a chunk per column, in column order
+ *      INTEGER    := bitmap(present) varint(zigzag(value - previous present value, 0 for the first))*
+ *      TIMESTAMP  := same as INTEGER
+ *      BOOLEAN    := bitmap(present) bitmap(true)
+ *      STRING     := varint(dictionarySize) string* varint(index + 1, 0 if null) per row
+ *      JSON       := same as STRING
+ *      bitmap     := a bit per row, least significant bit first, padded to whole bytes
+ * </pre>
+ * <p>Only a single row group is held in memory while reading.</p>
+ */
+public class ColumnarReader implements Closeable {
+
+    private final DataInputStream in;
+
+    /**
+     * The columns of the records.
+     */
+    @Getter
+    private final List<Column> columns;
+
+    private Object[][] rowGroup = new Object[0][];
+    private int nextRow;
+    private boolean ended;
+
+    /**
+     * @param in the stream to read from, closed by {@link #close()}
+     * @throws UncheckedIOException     if reading fails
+     * @throws IllegalArgumentException if the stream is not in the columnar format
+     */
+    public ColumnarReader(@NonNull InputStream in) {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        try {
+            byte[] magic = new byte[ColumnarWriter.MAGIC.length];
+            this.in.readFully(magic);
+            if (!Arrays.equals(magic, ColumnarWriter.MAGIC)) {
+                throw new IllegalArgumentException("Not in the columnar format of DataExporter");
+            }
+            ImmutableList.Builder<Column> columns = ImmutableList.builder();
+            for (int i = (int) readVarint(); i > 0; i--) {
+                columns.add(new Column(readString(), DataExporter.ColumnType.values()[this.in.readUnsignedByte()]));
+            }
+            this.columns = columns.build();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @return the values of the record in the order of the columns, or null if all records were read
+     * @throws UncheckedIOException if reading fails
+     */
+    public Object[] next() {
+        try {
+            while (nextRow == rowGroup.length) {
+                if (ended) {
+                    return null;
+                }
+                readRowGroup();
+            }
+            return rowGroup[nextRow++];
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void readRowGroup() throws IOException {
+        int rowCount = (int) readVarint();
+        if (rowCount == 0) {
+            ended = true;
+            return;
+        }
+        rowGroup = new Object[rowCount][columns.size()];
+        nextRow = 0;
+        for (int column = 0; column < columns.size(); column++) {
+            switch (columns.get(column).getType()) {
+                case INTEGER:
+                case TIMESTAMP:
+                    boolean[] present = readBitmap(rowCount);
+                    long previous = 0;
+                    for (int row = 0; row < rowCount; row++) {
+                        if (present[row]) {
+                            long zigzag = readVarint();
+                            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                            rowGroup[row][column] = previous;
+                        }
+                    }
+                    break;
+                case BOOLEAN:
+                    boolean[] notNull = readBitmap(rowCount);
+                    boolean[] values = readBitmap(rowCount);
+                    for (int row = 0; row < rowCount; row++) {
+                        rowGroup[row][column] = notNull[row] ? values[row] : null;
+                    }
+                    break;
+                default:
+                    String[] dictionary = new String[(int) readVarint()];
+                    for (int i = 0; i < dictionary.length; i++) {
+                        dictionary[i] = readString();
+                    }
+                    for (int row = 0; row < rowCount; row++) {
+                        int index = (int) readVarint();
+                        rowGroup[row][column] = index == 0 ? null : dictionary[index - 1];
+                    }
+                    break;
+            }
+        }
+    }
+
+    private boolean[] readBitmap(int rowCount) throws IOException {
+        byte[] bitmap = new byte[(rowCount + 7) / 8];
+        in.readFully(bitmap);
+        boolean[] bits = new boolean[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            bits[i] = (bitmap[i / 8] & (1 << (i % 8))) != 0;
+        }
+        return bits;
+    }
+
+    private String readString() throws IOException {
+        byte[] bytes = new byte[(int) readVarint()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new EOFException("Malformed varint");
+    }
+
+    /**
+     * A column of the records.
+     */
+    @Getter
+    public static class Column {
+
+        private final String name;
+        private final DataExporter.ColumnType type;
+
+        Column(String name, DataExporter.ColumnType type) {
+            this.name = name;
+            this.type = type;
+        }
+    }
+}
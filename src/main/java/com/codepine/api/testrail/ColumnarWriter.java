@@ -0,0 +1,163 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writer of records in the {@link DataExporter.Format#COLUMNAR} format, a row group per page. See {@link ColumnarReader}
+ * for the layout.
+ *
+ * @param <T> the type of the exported model
+ */
+class ColumnarWriter<T> extends DataExporter.RecordWriter<T> {
+
+    static final byte[] MAGIC = {'T', 'R', 'C', '1'};
+
+    private final DataOutputStream out;
+    private final List<Object[]> rows = new ArrayList<>();
+
+    ColumnarWriter(List<DataExporter.Column<T>> columns, OutputStream out) {
+        super(columns);
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        try {
+            this.out.write(MAGIC);
+            writeVarint(columns.size());
+            for (DataExporter.Column<T> column : columns) {
+                writeString(column.getName());
+                this.out.writeByte(column.getType().ordinal());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    void write(Object[] values) {
+        rows.add(values.clone());
+    }
+
+    @Override
+    void endPage() throws IOException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        writeVarint(rows.size());
+        for (int i = 0; i < columns.size(); i++) {
+            switch (columns.get(i).getType()) {
+                case INTEGER:
+                case TIMESTAMP:
+                    writeIntegerChunk(i);
+                    break;
+                case BOOLEAN:
+                    writeBooleanChunk(i);
+                    break;
+                default:
+                    writeStringChunk(i);
+                    break;
+            }
+        }
+        rows.clear();
+        out.flush();
+    }
+
+    @Override
+    void end() throws IOException {
+        endPage();
+        writeVarint(0);
+        out.flush();
+    }
+
+    private void writeIntegerChunk(int column) throws IOException {
+        writeBitmap(column, false);
+        long previous = 0;
+        for (Object[] row : rows) {
+            if (row[column] != null) {
+                long value = (Long) row[column];
+                long delta = value - previous;
+                writeVarint((delta << 1) ^ (delta >> 63));
+                previous = value;
+            }
+        }
+    }
+
+    private void writeBooleanChunk(int column) throws IOException {
+        writeBitmap(column, false);
+        writeBitmap(column, true);
+    }
+
+    private void writeStringChunk(int column) throws IOException {
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            if (row[column] != null && !dictionary.containsKey(row[column])) {
+                dictionary.put((String) row[column], dictionary.size());
+            }
+        }
+        writeVarint(dictionary.size());
+        for (String value : dictionary.keySet()) {
+            writeString(value);
+        }
+        for (Object[] row : rows) {
+            writeVarint(row[column] == null ? 0 : dictionary.get(row[column]) + 1);
+        }
+    }
+
+    /**
+     * Write a bit per row, set if the value of the column is present, or if it is true when values is set.
+     */
+    private void writeBitmap(int column, boolean values) throws IOException {
+        byte[] bitmap = new byte[(rows.size() + 7) / 8];
+        for (int i = 0; i < rows.size(); i++) {
+            Object value = rows.get(i)[column];
+            if (values ? Boolean.TRUE.equals(value) : value != null) {
+                bitmap[i / 8] |= 1 << (i % 8);
+            }
+        }
+        out.write(bitmap);
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeVarint(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
@@ -0,0 +1,482 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.model.Case;
+import com.codepine.api.testrail.model.CaseField;
+import com.codepine.api.testrail.model.Field;
+import com.codepine.api.testrail.model.Result;
+import com.codepine.api.testrail.model.ResultField;
+import com.codepine.api.testrail.model.Run;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Exports cases and results as flat records of typed columns, in one of the {@link Format}s.
+ * <p>Records are written page by page as the pages of the list requests are received, so that only a single page is held
+ * in memory however many cases or results are exported. Each record has a column per field of the model, followed by a
+ * column per custom field, typed as per its {@link Field.Type}:</p>
+ * <pre>
+ *      INTEGER, USER, MILESTONE -- {@link ColumnType#INTEGER}
+ *      CHECKBOX -- {@link ColumnType#BOOLEAN}
+ *      STRING, TEXT, URL, DROPDOWN, DATE -- {@link ColumnType#STRING}
+ *      STEPS, STEP_RESULTS, MULTI_SELECT, UNKNOWN -- {@link ColumnType#JSON}
+ * </pre>
+ * <p>The custom fields configured in TestRail can be fetched using {@link TestRail.CaseFields#list()} and
+ * {@link TestRail.ResultFields#list()} requests.</p>
+ */
+@Setter
+@Accessors(fluent = true)
+public class DataExporter {
+
+    private static final Joiner DEFECTS_JOINER = Joiner.on(',');
+
+    private static final List<Column<Case>> CASE_COLUMNS = ImmutableList.of(
+            new Column<Case>("id", ColumnType.INTEGER, Case::getId),
+            new Column<Case>("title", ColumnType.STRING, Case::getTitle),
+            new Column<Case>("section_id", ColumnType.INTEGER, Case::getSectionId),
+            new Column<Case>("type_id", ColumnType.INTEGER, Case::getTypeId),
+            new Column<Case>("priority_id", ColumnType.INTEGER, Case::getPriorityId),
+            new Column<Case>("milestone_id", ColumnType.INTEGER, Case::getMilestoneId),
+            new Column<Case>("refs", ColumnType.STRING, Case::getRefs),
+            new Column<Case>("created_by", ColumnType.INTEGER, Case::getCreatedBy),
+            new Column<Case>("created_on", ColumnType.TIMESTAMP, Case::getCreatedOn),
+            new Column<Case>("updated_by", ColumnType.INTEGER, Case::getUpdatedBy),
+            new Column<Case>("updated_on", ColumnType.TIMESTAMP, Case::getUpdatedOn),
+            new Column<Case>("estimate", ColumnType.STRING, Case::getEstimate),
+            new Column<Case>("estimate_forecast", ColumnType.STRING, Case::getEstimateForecast),
+            new Column<Case>("suite_id", ColumnType.INTEGER, Case::getSuiteId));
+
+    private static final List<Column<Result>> RESULT_COLUMNS = ImmutableList.of(
+            new Column<Result>("id", ColumnType.INTEGER, Result::getId),
+            new Column<Result>("test_id", ColumnType.INTEGER, Result::getTestId),
+            new Column<Result>("status_id", ColumnType.INTEGER, Result::getStatusId),
+            new Column<Result>("created_by", ColumnType.INTEGER, Result::getCreatedBy),
+            new Column<Result>("created_on", ColumnType.TIMESTAMP, Result::getCreatedOn),
+            new Column<Result>("assignedto_id", ColumnType.INTEGER, Result::getAssignedtoId),
+            new Column<Result>("comment", ColumnType.STRING, Result::getComment),
+            new Column<Result>("version", ColumnType.STRING, Result::getVersion),
+            new Column<Result>("elapsed", ColumnType.STRING, Result::getElapsed),
+            new Column<Result>("defects", ColumnType.STRING, result -> result.getDefects() == null ? null : DEFECTS_JOINER.join(result.getDefects())));
+
+    @Getter
+    private final TestRail testRail;
+
+    /**
+     * The format to export in, {@link Format#NDJSON} by default.
+     */
+    @Getter
+    @NonNull
+    private Format format = Format.NDJSON;
+
+    /**
+     * @param testRail the client to list cases and results with
+     */
+    public DataExporter(@NonNull TestRail testRail) {
+        this.testRail = testRail;
+    }
+
+    /**
+     * Export the cases of a project.
+     *
+     * @param projectId  the ID of the project
+     * @param suiteId    the ID of the suite, null if the project is operating in single suite mode
+     * @param caseFields the custom case fields configured in TestRail
+     * @param out        the stream to write to, which is flushed but not closed
+     * @return the number of cases exported
+     * @throws java.lang.IllegalArgumentException if projectId or suiteId is not positive
+     * @throws UncheckedIOException               if writing to the stream fails
+     */
+    public long exportCases(final int projectId, final Integer suiteId, @NonNull List<CaseField> caseFields, @NonNull OutputStream out) {
+        checkArgument(projectId > 0, "projectId should be positive");
+        checkArgument(suiteId == null || suiteId > 0, "suiteId should be positive");
+        final Request<List<Case>> request = suiteId == null ? testRail.cases().list(projectId, caseFields) : testRail.cases().list(projectId, suiteId, caseFields);
+        return export(getColumns(CASE_COLUMNS, caseFields, Case::getCustomFields), request, out);
+    }
+
+    /**
+     * Export the results of runs, run after run.
+     *
+     * @param runs         the runs
+     * @param resultFields the custom result fields configured in TestRail
+     * @param out          the stream to write to, which is flushed but not closed
+     * @return the number of results exported
+     * @throws UncheckedIOException if writing to the stream fails
+     */
+    public long exportResults(@NonNull Collection<? extends Run> runs, @NonNull List<ResultField> resultFields, @NonNull OutputStream out) {
+        List<Column<Result>> columns = getColumns(RESULT_COLUMNS, resultFields, Result::getCustomFields);
+        RecordWriter<Result> writer = newWriter(columns, out);
+        for (Run run : runs) {
+            export(writer, testRail.results().listForRun(run.getId(), resultFields));
+        }
+        return writer.finish();
+    }
+
+    private <T> long export(List<Column<T>> columns, Request<List<T>> request, OutputStream out) {
+        RecordWriter<T> writer = newWriter(columns, out);
+        export(writer, request);
+        return writer.finish();
+    }
+
+    private static <T> void export(final RecordWriter<T> writer, Request<List<T>> request) {
+        request.forEachPage(new Consumer<List<T>>() {
+            @Override
+            public void accept(List<T> page) {
+                writer.writePage(page);
+            }
+        });
+    }
+
+    private <T> RecordWriter<T> newWriter(List<Column<T>> columns, OutputStream out) {
+        switch (format) {
+            case CSV:
+                return new CsvWriter<>(columns, out);
+            case COLUMNAR:
+                return new ColumnarWriter<>(columns, out);
+            default:
+                return new NdjsonWriter<>(columns, out);
+        }
+    }
+
+    private static <T> List<Column<T>> getColumns(List<Column<T>> modelColumns, List<? extends Field> fields,
+                                                  final Function<T, Map<String, Object>> customFields) {
+        ImmutableList.Builder<Column<T>> columns = ImmutableList.<Column<T>>builder().addAll(modelColumns);
+        for (final Field field : fields) {
+            columns.add(new Column<T>(field.getSystemName(), getColumnType(Field.Type.getType(field.getTypeId())), record -> customFields.apply(record).get(field.getName())));
+        }
+        return columns.build();
+    }
+
+    private static ColumnType getColumnType(Field.Type fieldType) {
+        switch (fieldType) {
+            case INTEGER:
+            case USER:
+            case MILESTONE:
+                return ColumnType.INTEGER;
+            case CHECKBOX:
+                return ColumnType.BOOLEAN;
+            case STRING:
+            case TEXT:
+            case URL:
+            case DROPDOWN:
+            case DATE:
+                return ColumnType.STRING;
+            default:
+                return ColumnType.JSON;
+        }
+    }
+
+    /**
+     * Formats of export.
+     */
+    public enum Format {
+
+        /**
+         * A JSON object per line, with a member per column which is not null. Timestamps are in seconds since the epoch.
+         */
+        NDJSON,
+
+        /**
+         * Comma separated values as per RFC 4180, with a header line of the column names. Null values are empty,
+         * timestamps are in seconds since the epoch and {@link ColumnType#JSON} values are JSON text.
+         */
+        CSV,
+
+        /**
+         * A compact binary format storing records in groups, column by column, with dictionary encoded strings and
+         * delta encoded integers. See {@link ColumnarReader} for the layout and for reading it.
+         */
+        COLUMNAR
+    }
+
+    /**
+     * Types of the columns of exported records.
+     */
+    public enum ColumnType {
+
+        /**
+         * A whole number, read as {@code Long}.
+         */
+        INTEGER,
+
+        /**
+         * A {@code Boolean}.
+         */
+        BOOLEAN,
+
+        /**
+         * A {@code String}.
+         */
+        STRING,
+
+        /**
+         * A point in time in seconds since the epoch, read as {@code Long}.
+         */
+        TIMESTAMP,
+
+        /**
+         * A structured value, for e.g. the steps of a case, as JSON text read as {@code String}.
+         */
+        JSON
+    }
+
+    /**
+     * A column of exported records.
+     *
+     * @param <T> the type of the exported model
+     */
+    @Getter
+    @Accessors(fluent = false)
+    @ToString(exclude = "getter")
+    public static class Column<T> {
+
+        private final String name;
+        private final ColumnType type;
+        private final Function<T, Object> getter;
+
+        Column(String name, ColumnType type, Function<T, Object> getter) {
+            this.name = name;
+            this.type = type;
+            this.getter = getter;
+        }
+
+        /**
+         * Get the value of this column in a record, converted to the Java type of the column.
+         *
+         * @param record the record
+         * @return the value, null if none
+         */
+        Object getValue(T record) {
+            Object value = getter.apply(record);
+            if (value == null) {
+                return null;
+            }
+            switch (type) {
+                case INTEGER:
+                    return value instanceof Number ? ((Number) value).longValue() : Long.valueOf(value.toString());
+                case BOOLEAN:
+                    return value instanceof Boolean ? value : Boolean.valueOf(value.toString());
+                case TIMESTAMP:
+                    return ((Date) value).getTime() / 1000;
+                case JSON:
+                    try {
+                        return Request.JSON.writeValueAsString(value);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                default:
+                    return value.toString();
+            }
+        }
+    }
+
+    /**
+     * Writer of exported records in a format.
+     *
+     * @param <T> the type of the exported model
+     */
+    abstract static class RecordWriter<T> {
+
+        final List<Column<T>> columns;
+        private long count;
+
+        RecordWriter(List<Column<T>> columns) {
+            this.columns = columns;
+        }
+
+        /**
+         * Write the records of a page.
+         *
+         * @param page the records
+         */
+        final void writePage(List<T> page) {
+            try {
+                Object[] values = new Object[columns.size()];
+                for (T record : page) {
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = columns.get(i).getValue(record);
+                    }
+                    write(values);
+                }
+                endPage();
+                count += page.size();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Finish writing and flush the output.
+         *
+         * @return the number of records written
+         */
+        final long finish() {
+            try {
+                end();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return count;
+        }
+
+        /**
+         * @param values the values of a record, in the order of the columns
+         * @throws IOException if writing fails
+         */
+        abstract void write(Object[] values) throws IOException;
+
+        /**
+         * Called after the records of each page are written.
+         *
+         * @throws IOException if writing fails
+         */
+        abstract void endPage() throws IOException;
+
+        /**
+         * Called once after all the records are written, to flush the output.
+         *
+         * @throws IOException if writing fails
+         */
+        abstract void end() throws IOException;
+    }
+
+    private static class NdjsonWriter<T> extends RecordWriter<T> {
+
+        private final OutputStream out;
+        private final JsonGenerator generator;
+
+        NdjsonWriter(List<Column<T>> columns, OutputStream out) {
+            super(columns);
+            this.out = out;
+            try {
+                this.generator = Request.JSON.getFactory().createGenerator(new BufferedOutputStream(out))
+                        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        void write(Object[] values) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null) {
+                    continue;
+                }
+                generator.writeFieldName(columns.get(i).getName());
+                if (columns.get(i).getType() == ColumnType.JSON) {
+                    generator.writeRawValue((String) values[i]);
+                } else {
+                    generator.writeObject(values[i]);
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        void endPage() throws IOException {
+            generator.flush();
+        }
+
+        @Override
+        void end() throws IOException {
+            generator.close();
+            out.flush();
+        }
+    }
+
+    private static class CsvWriter<T> extends RecordWriter<T> {
+
+        private final Writer writer;
+
+        CsvWriter(List<Column<T>> columns, OutputStream out) {
+            super(columns);
+            this.writer = new OutputStreamWriter(new BufferedOutputStream(out), StandardCharsets.UTF_8);
+            try {
+                for (int i = 0; i < columns.size(); i++) {
+                    writeCell(i, columns.get(i).getName());
+                }
+                writer.write("\r\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        void write(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                writeCell(i, values[i] == null ? "" : values[i].toString());
+            }
+            writer.write("\r\n");
+        }
+
+        private void writeCell(int index, String value) throws IOException {
+            if (index > 0) {
+                writer.write(',');
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+            } else {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            }
+        }
+
+        @Override
+        void endPage() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        void end() throws IOException {
+            writer.flush();
+        }
+    }
+}
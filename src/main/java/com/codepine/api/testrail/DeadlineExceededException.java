@@ -0,0 +1,62 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import lombok.Getter;
+
+/**
+ * Exception thrown when a request, including all the pages of a paginated response, did not complete before its
+ * deadline. The pages completed before the deadline were already handed over, so a paginated request can be resumed
+ * from {@link #getNextOffset()}.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = -5139476406880294631L;
+
+    /**
+     * The deadline of the request, in milliseconds.
+     */
+    @Getter
+    private final long deadlineMillis;
+
+    /**
+     * The number of pages completed before the deadline.
+     */
+    @Getter
+    private final int completedPages;
+
+    /**
+     * The offset of the first element not received yet, to resume a paginated request from, or null if no page was completed.
+     */
+    @Getter
+    private final Integer nextOffset;
+
+    DeadlineExceededException(long deadlineMillis, int completedPages, Integer nextOffset, Throwable cause) {
+        super("Deadline of " + deadlineMillis + "ms exceeded after " + completedPages + " completed page(s)", cause);
+        this.deadlineMillis = deadlineMillis;
+        this.completedPages = completedPages;
+        this.nextOffset = nextOffset;
+    }
+}
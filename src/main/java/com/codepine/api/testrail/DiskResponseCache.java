@@ -0,0 +1,527 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.Value;
+import lombok.experimental.Accessors;
+import lombok.extern.log4j.Log4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Cache of the responses of {@code GET} requests on disk, enabled with {@link TestRail.Builder#responseCache(Settings)}, so
+ * that the responses survive the process and later runs of the same job are mostly served locally.
+ * <p>Responses are cached by URL, with the query parameters in a canonical order, and by user. Responses which can no
+ * longer change are cached until evicted: completed runs and plans, and the tests and results of the runs known to be
+ * completed, from a cached completed run or plan. Any other response expires after {@link Settings#ttlMillis(long)}.</p>
+ * <p>Each response is stored deflated in its own file, named after the hash of its key, and read back through a memory
+ * mapping. The files are ordered by their last modification time, which is touched on each hit, so the least recently
+ * used responses are evicted first when the cache exceeds {@link Settings#maximumSizeBytes(long)}, also across
+ * processes. Failing to store a response is logged and otherwise ignored.</p>
+ * <p>A directory should only be used by one process at a time. Thread-safe.</p>
+ */
+@Log4j
+public class DiskResponseCache {
+
+    private static final int MAGIC = 0x54524331; // "TRC1"
+    private static final String SUFFIX = ".entry";
+    private static final long IMMUTABLE = Long.MAX_VALUE;
+    private static final Set<String> RUN_CONTENT_ENDPOINTS = new HashSet<>(Arrays.asList("get_tests", "get_results_for_run"));
+
+    private final Path directory;
+    private final long maximumSizeBytes;
+    private final long ttlMillis;
+    private final Clock clock;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<String> completedRuns = new HashSet<>();
+    private long sizeBytes;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    DiskResponseCache(Settings settings, Clock clock) {
+        this.directory = settings.directory.toAbsolutePath();
+        this.maximumSizeBytes = settings.maximumSizeBytes;
+        this.ttlMillis = settings.ttlMillis;
+        this.clock = clock;
+        try {
+            Files.createDirectories(directory);
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Get the statistics of this cache.
+     *
+     * @return a snapshot of the statistics
+     */
+    public synchronized Stats getStats() {
+        return new Stats(hitCount, missCount, evictionCount, entries.size(), sizeBytes);
+    }
+
+    /**
+     * Remove all the cached responses.
+     */
+    public synchronized void clear() {
+        for (Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator(); iterator.hasNext(); ) {
+            delete(iterator.next().getKey());
+            iterator.remove();
+        }
+        completedRuns.clear();
+        sizeBytes = 0;
+    }
+
+    /**
+     * Get a cached response.
+     *
+     * @param scope the base URL of the API and the user of the request
+     * @param path  the REST path of the request, with its query parameters
+     * @return the response body, or null if not cached or expired
+     */
+    byte[] get(String scope, String path) {
+        String key = scope + '\n' + normalize(path);
+        String fileName = fileNameOf(key);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(fileName);
+            if (entry != null && entry.expiresAt <= clock.millis()) {
+                remove(fileName);
+                entry = null;
+            }
+            if (entry == null) {
+                missCount++;
+                return null;
+            }
+        }
+        byte[] body = read(directory.resolve(fileName), key);
+        synchronized (this) {
+            if (body == null) {
+                if (entries.get(fileName) == entry) {
+                    remove(fileName);
+                }
+                missCount++;
+                return null;
+            }
+            hitCount++;
+        }
+        try {
+            Files.setLastModifiedTime(directory.resolve(fileName), FileTime.fromMillis(clock.millis()));
+        } catch (IOException e) {
+            // the entry was evicted meanwhile, its recency no longer matters
+        }
+        return body;
+    }
+
+    /**
+     * Cache a response, until evicted if it can no longer change, else for the TTL.
+     *
+     * @param scope the base URL of the API and the user of the request
+     * @param path  the REST path of the request, with its query parameters
+     * @param body  the response body
+     */
+    void put(String scope, String path, byte[] body) {
+        String normalizedPath = normalize(path);
+        String key = scope + '\n' + normalizedPath;
+        String fileName = fileNameOf(key);
+        List<Integer> completedRunIds = getCompletedRunIds(normalizedPath, body);
+        long expiresAt;
+        synchronized (this) {
+            boolean immutable;
+            if (completedRunIds != null) {
+                immutable = true;
+                for (Integer runId : completedRunIds) {
+                    completedRuns.add(scope + '\n' + runId);
+                }
+            } else {
+                immutable = RUN_CONTENT_ENDPOINTS.contains(TransferStatistics.getEndpointName(normalizedPath))
+                        && completedRuns.contains(scope + '\n' + getId(normalizedPath));
+            }
+            expiresAt = immutable ? IMMUTABLE : clock.millis() + ttlMillis;
+        }
+        long size;
+        try {
+            size = write(directory.resolve(fileName), key, expiresAt, body);
+        } catch (IOException e) {
+            log.warn("Failed to cache response of " + path + ": " + e.getMessage());
+            return;
+        }
+        synchronized (this) {
+            Entry previous = entries.put(fileName, new Entry(expiresAt, size));
+            sizeBytes += size - (previous == null ? 0 : previous.size);
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (sizeBytes > maximumSizeBytes && iterator.hasNext()) {
+                Map.Entry<String, Entry> eldest = iterator.next();
+                delete(eldest.getKey());
+                sizeBytes -= eldest.getValue().size;
+                iterator.remove();
+                evictionCount++;
+            }
+        }
+    }
+
+    /**
+     * Get the IDs of the runs a response shows to be completed.
+     *
+     * @param path the normalized REST path of the request
+     * @param body the response body
+     * @return the ID of the run if the response is a completed run, the IDs of its runs if it is a completed plan, else null
+     */
+    private static List<Integer> getCompletedRunIds(String path, byte[] body) {
+        String endpoint = TransferStatistics.getEndpointName(path);
+        if (!endpoint.equals("get_run") && !endpoint.equals("get_plan")) {
+            return null;
+        }
+        JsonNode entity;
+        try {
+            entity = Request.JSON.readTree(body);
+        } catch (IOException e) {
+            return null;
+        }
+        if (!entity.path("is_completed").asBoolean()) {
+            return null;
+        }
+        if (endpoint.equals("get_run")) {
+            return Collections.singletonList(entity.path("id").asInt());
+        }
+        List<Integer> runIds = new ArrayList<>();
+        for (JsonNode planEntry : entity.path("entries")) {
+            for (JsonNode run : planEntry.path("runs")) {
+                runIds.add(run.path("id").asInt());
+            }
+        }
+        return runIds;
+    }
+
+    /**
+     * Index the entries of the directory, from the least to the most recently used, dropping those which expired or
+     * cannot be read, and recall the completed runs.
+     */
+    private void load() throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.tmp")) {
+            for (Path file : stream) {
+                // left over by a process which stopped while writing an entry
+                Files.deleteIfExists(file);
+            }
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        final Map<Path, Long> lastUsed = new LinkedHashMap<>();
+        for (Path file : files) {
+            lastUsed.put(file, Files.getLastModifiedTime(file).toMillis());
+        }
+        Collections.sort(files, new Comparator<Path>() {
+            @Override
+            public int compare(Path file1, Path file2) {
+                return Long.compare(lastUsed.get(file1), lastUsed.get(file2));
+            }
+        });
+        long now = clock.millis();
+        for (Path file : files) {
+            String key;
+            long expiresAt;
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException("Not a cache entry: " + file);
+                }
+                expiresAt = in.readLong();
+                byte[] keyBytes = new byte[in.readInt()];
+                in.readFully(keyBytes);
+                key = new String(keyBytes, Charsets.UTF_8);
+            } catch (IOException e) {
+                Files.deleteIfExists(file);
+                continue;
+            }
+            if (expiresAt <= now) {
+                Files.deleteIfExists(file);
+                continue;
+            }
+            String fileName = file.getFileName().toString();
+            long size = Files.size(file);
+            entries.put(fileName, new Entry(expiresAt, size));
+            sizeBytes += size;
+            int separator = key.indexOf('\n');
+            String path = key.substring(separator + 1);
+            if (expiresAt == IMMUTABLE) {
+                String endpoint = TransferStatistics.getEndpointName(path);
+                if (endpoint.equals("get_run") || endpoint.equals("get_plan")) {
+                    byte[] body = read(file, key);
+                    List<Integer> completedRunIds = body == null ? null : getCompletedRunIds(path, body);
+                    if (completedRunIds != null) {
+                        for (Integer runId : completedRunIds) {
+                            completedRuns.add(key.substring(0, separator) + '\n' + runId);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the body of an entry through a memory mapping of its file.
+     *
+     * @param file the file of the entry
+     * @param key  the key of the entry, checked against the one stored in case of a hash collision
+     * @return the body, or null if the file is missing, corrupt or holds another key
+     */
+    private static byte[] read(Path file, String key) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                return null;
+            }
+            buffer.getLong();
+            byte[] keyBytes = new byte[buffer.getInt()];
+            buffer.get(keyBytes);
+            if (!key.equals(new String(keyBytes, Charsets.UTF_8))) {
+                return null;
+            }
+            byte[] body = new byte[buffer.getInt()];
+            byte[] deflated = new byte[buffer.remaining()];
+            buffer.get(deflated);
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(deflated);
+                int length = 0;
+                while (length < body.length && !inflater.finished()) {
+                    int inflated = inflater.inflate(body, length, body.length - length);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        return null;
+                    }
+                    length += inflated;
+                }
+                return length == body.length ? body : null;
+            } finally {
+                inflater.end();
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | DataFormatException | RuntimeException e) {
+            log.warn("Failed to read cached response " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write an entry to a temporary file first, then move it over the file of the entry atomically, so that the entry is
+     * never read half written.
+     *
+     * @return the size of the file
+     */
+    private static long write(Path file, String key, long expiresAt, byte[] body) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4 + 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        byte[] keyBytes = key.getBytes(Charsets.UTF_8);
+        out.writeInt(MAGIC);
+        out.writeLong(expiresAt);
+        out.writeInt(keyBytes.length);
+        out.write(keyBytes);
+        out.writeInt(body.length);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream deflaterOut = new DeflaterOutputStream(out, deflater)) {
+            deflaterOut.write(body);
+        } finally {
+            deflater.end();
+        }
+        AtomicFiles.write(file, "entry", new AtomicFiles.ContentWriter() {
+            @Override
+            public void write(OutputStream fileOut) throws IOException {
+                bytes.writeTo(fileOut);
+            }
+        });
+        return bytes.size();
+    }
+
+    private void remove(String fileName) {
+        Entry entry = entries.remove(fileName);
+        if (entry != null) {
+            sizeBytes -= entry.size;
+            delete(fileName);
+        }
+    }
+
+    private void delete(String fileName) {
+        try {
+            Files.deleteIfExists(directory.resolve(fileName));
+        } catch (IOException e) {
+            log.warn("Failed to delete cached response " + fileName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Put the query parameters of a path in a canonical order, so that the same request always has the same key.
+     *
+     * @param path the REST path, for e.g. {@code get_cases/1&suite_id=2&section_id=3}
+     * @return the path with the parameters after the first {@code &} sorted
+     */
+    static String normalize(String path) {
+        String[] parts = path.split("&");
+        if (parts.length <= 2) {
+            return path;
+        }
+        Arrays.sort(parts, 1, parts.length);
+        StringBuilder normalized = new StringBuilder(path.length()).append(parts[0]);
+        for (int i = 1; i < parts.length; i++) {
+            normalized.append('&').append(parts[i]);
+        }
+        return normalized.toString();
+    }
+
+    private static String fileNameOf(String key) {
+        return Hashing.sha256().hashString(key, Charsets.UTF_8).toString() + SUFFIX;
+    }
+
+    private static int getId(String path) {
+        int start = path.indexOf('/') + 1;
+        int end = start;
+        while (end < path.length() && Character.isDigit(path.charAt(end))) {
+            end++;
+        }
+        return end == start ? 0 : Integer.parseInt(path.substring(start, end));
+    }
+
+    @Value
+    private static class Entry {
+        long expiresAt;
+        long size;
+    }
+
+    /**
+     * Statistics of a response cache, since it was opened.
+     */
+    @Value
+    public static class Stats {
+
+        /**
+         * The number of requests served from the cache.
+         */
+        long hitCount;
+
+        /**
+         * The number of requests sent to TestRail, since the response was not cached or had expired.
+         */
+        long missCount;
+
+        /**
+         * The number of responses evicted to keep the cache within its maximum size.
+         */
+        long evictionCount;
+
+        /**
+         * The number of responses currently cached.
+         */
+        int entryCount;
+
+        /**
+         * The size of the cached responses on disk, in bytes.
+         */
+        long sizeBytes;
+    }
+
+    /**
+     * Settings of a response cache.
+     */
+    @Getter
+    @Setter
+    @Accessors(fluent = true)
+    public static class Settings {
+
+        /**
+         * The directory of the cache, created if needed. Required.
+         */
+        private Path directory;
+
+        /**
+         * Maximum size of the cached responses on disk, 256 MiB by default.
+         */
+        private long maximumSizeBytes = 256L * 1024 * 1024;
+
+        /**
+         * Time the responses which may still change stay cached, 5 minutes by default.
+         */
+        private long ttlMillis = TimeUnit.MINUTES.toMillis(5);
+
+        /**
+         * Get a copy of these settings, so that later changes to them have no effect.
+         *
+         * @return the copy
+         */
+        Settings copy() {
+            return new Settings().directory(directory).maximumSizeBytes(maximumSizeBytes).ttlMillis(ttlMillis);
+        }
+
+        /**
+         * Check the settings are consistent.
+         *
+         * @throws IllegalArgumentException if a setting is missing or out of its range
+         */
+        void validate() {
+            checkArgument(directory != null, "directory is required");
+            checkArgument(maximumSizeBytes > 0, "maximumSizeBytes should be positive");
+            checkArgument(ttlMillis >= 0, "ttlMillis should not be negative");
+        }
+    }
+}
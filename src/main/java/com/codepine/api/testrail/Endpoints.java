@@ -0,0 +1,167 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.PageDeserializer;
+import com.codepine.api.testrail.model.Case;
+import com.codepine.api.testrail.model.CaseField;
+import com.codepine.api.testrail.model.CaseType;
+import com.codepine.api.testrail.model.Configuration;
+import com.codepine.api.testrail.model.Milestone;
+import com.codepine.api.testrail.model.Page;
+import com.codepine.api.testrail.model.Plan;
+import com.codepine.api.testrail.model.Priority;
+import com.codepine.api.testrail.model.Project;
+import com.codepine.api.testrail.model.Result;
+import com.codepine.api.testrail.model.ResultField;
+import com.codepine.api.testrail.model.Run;
+import com.codepine.api.testrail.model.Section;
+import com.codepine.api.testrail.model.Status;
+import com.codepine.api.testrail.model.Suite;
+import com.codepine.api.testrail.model.Test;
+import com.codepine.api.testrail.model.User;
+import com.fasterxml.jackson.databind.InjectableValues;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Registry of the metadata of the paginated endpoints, by the class of their requests.
+ * <p>The registry is built once when the class is loaded, so that preparing a paginated request looks its page field
+ * and element readers up instead of deriving them from its path and response type. Every registration is checked
+ * against the response type of the request class, so that a wrong mapping fails loading the class; a paginated request
+ * whose class is not registered fails to prepare.</p>
+ * <p>The readers of an endpoint are only built when a request to it is first prepared, since building them introspects
+ * the whole model of its entities, and most clients only use a few endpoints.</p>
+ */
+final class Endpoints {
+
+    private static final Map<Class<?>, Endpoint> ENDPOINTS = new ConcurrentHashMap<>();
+
+    static {
+        register(TestRail.Projects.List.class, "get_projects", "projects", Project.class);
+        register(TestRail.Cases.List.class, "get_cases", "cases", Case.class);
+        register(TestRail.CaseFields.List.class, "get_case_fields", "case_fields", CaseField.class);
+        register(TestRail.CaseTypes.List.class, "get_case_types", "case_types", CaseType.class);
+        register(TestRail.Configurations.List.class, "get_configs", "configs", Configuration.class);
+        register(TestRail.Milestones.List.class, "get_milestones", "milestones", Milestone.class);
+        register(TestRail.Priorities.List.class, "get_priorities", "priorities", Priority.class);
+        register(TestRail.Plans.List.class, "get_plans", "plans", Plan.class);
+        register(TestRail.Results.List.class, "get_results", "results", Result.class);
+        register(TestRail.Results.ListForRun.class, "get_results_for_run", "results", Result.class);
+        register(TestRail.Results.ListForCase.class, "get_results_for_case", "results", Result.class);
+        register(TestRail.ResultFields.List.class, "get_result_fields", "result_fields", ResultField.class);
+        register(TestRail.Runs.List.class, "get_runs", "runs", Run.class);
+        register(TestRail.Sections.List.class, "get_sections", "sections", Section.class);
+        register(TestRail.Statuses.List.class, "get_statuses", "statuses", Status.class);
+        register(TestRail.Suites.List.class, "get_suites", "suites", Suite.class);
+        register(TestRail.Tests.List.class, "get_tests", "tests", Test.class);
+        register(TestRail.Users.List.class, "get_users", "users", User.class);
+    }
+
+    private Endpoints() {
+    }
+
+    /**
+     * Register a paginated endpoint.
+     *
+     * @param requestClass the class of the requests to the endpoint, a {@code Request<java.util.List<E>>}
+     * @param name         the name of the endpoint, which the REST path of the requests starts with
+     * @param pageField    the field of the page envelope holding the entities
+     * @param elementClass the class E of the entities
+     * @throws IllegalStateException if requestClass is not a request of a list of elementClass
+     */
+    static void register(Class<? extends Request<?>> requestClass, String name, String pageField, Class<?> elementClass) {
+        Type responseType = ((ParameterizedType) requestClass.getGenericSuperclass()).getActualTypeArguments()[0];
+        checkState(responseType instanceof ParameterizedType && ((ParameterizedType) responseType).getRawType() == List.class
+                        && ((ParameterizedType) responseType).getActualTypeArguments()[0] == elementClass,
+                "%s is not a request of a list of %s", requestClass.getName(), elementClass.getName());
+        ENDPOINTS.put(requestClass, new Endpoint(name, pageField, elementClass));
+    }
+
+    /**
+     * Get the endpoint of a paginated request.
+     *
+     * @param requestClass the class of the request
+     * @param restPath     the REST path of the request
+     * @return the endpoint
+     * @throws IllegalStateException if the class is not registered, or the path is not of its endpoint
+     */
+    static Endpoint get(Class<?> requestClass, String restPath) {
+        Endpoint endpoint = ENDPOINTS.get(requestClass);
+        checkState(endpoint != null, "No endpoint registered for paginated request %s", requestClass.getName());
+        checkState(restPath.startsWith(endpoint.getName()), "Path %s of %s is not of endpoint %s", restPath, requestClass.getName(), endpoint.getName());
+        return endpoint;
+    }
+
+    /**
+     * Metadata of a paginated endpoint.
+     */
+    @Getter
+    static final class Endpoint {
+
+        private final String name;
+        private final String pageField;
+        private final Class<?> elementClass;
+        private final String supplementKey;
+        @Getter(AccessLevel.NONE)
+        private volatile ObjectReader elementReader;
+        @Getter(AccessLevel.NONE)
+        private volatile ObjectReader pageReader;
+
+        Endpoint(String name, String pageField, Class<?> elementClass) {
+            this.name = name;
+            this.pageField = pageField;
+            this.elementClass = elementClass;
+            this.supplementKey = elementClass.toString();
+        }
+
+        /**
+         * Get the reader of the pages of a request to this endpoint.
+         *
+         * @param supplementForDeserialization the supplement of the request, injected in the deserializers of the entities
+         * @return the page reader
+         */
+        ObjectReader getPageReader(Object supplementForDeserialization) {
+            if (pageReader == null) {
+                // readers are immutable, so building them twice on a race is harmless
+                elementReader = Request.JSON.reader(elementClass);
+                pageReader = Request.JSON.reader(Page.class).withAttribute(PageDeserializer.FIELD, pageField);
+            }
+            ObjectReader elementReader = this.elementReader.with(new InjectableValues.Std().addValue(supplementKey,
+                    supplementForDeserialization != null ? supplementForDeserialization : Collections.emptyList()));
+            return pageReader.withAttribute(PageDeserializer.ELEMENT_READER, elementReader);
+        }
+    }
+}
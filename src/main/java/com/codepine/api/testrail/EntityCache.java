@@ -0,0 +1,534 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.FrequencySketch;
+import com.codepine.api.testrail.model.Case;
+import com.codepine.api.testrail.model.Milestone;
+import com.codepine.api.testrail.model.Run;
+import com.codepine.api.testrail.model.Section;
+import com.codepine.api.testrail.model.Suite;
+import com.google.common.base.Ticker;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.Value;
+import lombok.experimental.Accessors;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Bounded in-memory cache of the cases, sections, suites, milestones and runs fetched by ID, enabled with
+ * {@link TestRail.Builder#entityCache(Settings)} and shared by all the requests created through the same {@code TestRail}.
+ * <p>{@code Get} requests of these entities are served from the cache while their entry lives, see
+ * {@link Settings#ttl(EntityType, long, TimeUnit)}. Successful {@code Add}, {@code Update} and {@code Close} requests store
+ * the entity they return, and successful {@code Delete} requests remove the deleted entity, as well as all the entities
+ * TestRail deletes along with it: the sections and cases of a suite, the subsections and cases of a section, and the
+ * sub-milestones of a milestone. Changes made by any other means, for e.g. by another client or by deleting a plan, are
+ * only seen once the entries expire.</p>
+ * <p>When full, the cache evicts following W-TinyLFU: new entities enter a small LRU window, and an entity leaving the
+ * window only replaces the least recently used entity of the main space if it was requested more often recently, as
+ * estimated by a {@link FrequencySketch}. Entities requested once, for e.g. during a one-off scan, thus do not evict
+ * those requested over and over. In the main space, entities requested again are protected from eviction by entities
+ * requested only once.</p>
+ * <p>The cached entities are shared by all the callers and must not be modified. Thread-safe.</p>
+ */
+public class EntityCache {
+
+    /**
+     * The types of the cached entities.
+     */
+    public enum EntityType {
+        CASE {
+            @Override
+            int getId(Object entity) {
+                return ((Case) entity).getId();
+            }
+        },
+        SECTION {
+            @Override
+            int getId(Object entity) {
+                return ((Section) entity).getId();
+            }
+        },
+        SUITE {
+            @Override
+            int getId(Object entity) {
+                return ((Suite) entity).getId();
+            }
+        },
+        MILESTONE {
+            @Override
+            int getId(Object entity) {
+                return ((Milestone) entity).getId();
+            }
+        },
+        RUN {
+            @Override
+            int getId(Object entity) {
+                return ((Run) entity).getId();
+            }
+        };
+
+        abstract int getId(Object entity);
+    }
+
+    private enum Operation {
+        GET, PUT, DELETE
+    }
+
+    private static final Map<Class<?>, Binding> BINDINGS = new HashMap<>();
+
+    static {
+        bind(TestRail.Cases.Get.class, EntityType.CASE, Operation.GET);
+        bind(TestRail.Cases.Add.class, EntityType.CASE, Operation.PUT);
+        bind(TestRail.Cases.Update.class, EntityType.CASE, Operation.PUT);
+        bind(TestRail.Cases.Delete.class, EntityType.CASE, Operation.DELETE);
+        bind(TestRail.Sections.Get.class, EntityType.SECTION, Operation.GET);
+        bind(TestRail.Sections.Add.class, EntityType.SECTION, Operation.PUT);
+        bind(TestRail.Sections.Update.class, EntityType.SECTION, Operation.PUT);
+        bind(TestRail.Sections.Delete.class, EntityType.SECTION, Operation.DELETE, EntityType.SECTION, EntityType.CASE);
+        bind(TestRail.Suites.Get.class, EntityType.SUITE, Operation.GET);
+        bind(TestRail.Suites.Add.class, EntityType.SUITE, Operation.PUT);
+        bind(TestRail.Suites.Update.class, EntityType.SUITE, Operation.PUT);
+        bind(TestRail.Suites.Delete.class, EntityType.SUITE, Operation.DELETE, EntityType.SECTION, EntityType.CASE);
+        bind(TestRail.Milestones.Get.class, EntityType.MILESTONE, Operation.GET);
+        bind(TestRail.Milestones.Add.class, EntityType.MILESTONE, Operation.PUT);
+        bind(TestRail.Milestones.Update.class, EntityType.MILESTONE, Operation.PUT);
+        bind(TestRail.Milestones.Delete.class, EntityType.MILESTONE, Operation.DELETE, EntityType.MILESTONE);
+        bind(TestRail.Runs.Get.class, EntityType.RUN, Operation.GET);
+        bind(TestRail.Runs.Add.class, EntityType.RUN, Operation.PUT);
+        bind(TestRail.Runs.Update.class, EntityType.RUN, Operation.PUT);
+        bind(TestRail.Runs.Close.class, EntityType.RUN, Operation.PUT);
+        bind(TestRail.Runs.Delete.class, EntityType.RUN, Operation.DELETE);
+    }
+
+    private final Settings settings;
+    private final Ticker ticker;
+    private final FrequencySketch sketch;
+    private final Map<Long, Node> nodes = new HashMap<>();
+    private final Node window = new Node();
+    private final Node probation = new Node();
+    private final Node protectedSpace = new Node();
+    private final int maxWindowSize;
+    private final int maxMainSize;
+    private final int maxProtectedSize;
+    private int windowSize;
+    private int probationSize;
+    private int protectedSize;
+    private long writes;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    EntityCache(Settings settings, Ticker ticker) {
+        this.settings = settings.copy();
+        this.ticker = ticker;
+        this.sketch = new FrequencySketch(settings.maximumSize);
+        this.maxWindowSize = Math.max(1, settings.maximumSize / 100);
+        this.maxMainSize = settings.maximumSize - maxWindowSize;
+        this.maxProtectedSize = maxMainSize * 4 / 5;
+    }
+
+    private static void bind(Class<? extends Request<?>> requestClass, EntityType type, Operation operation, EntityType... deletedTypes) {
+        BINDINGS.put(requestClass, new Binding(type, operation, deletedTypes.length == 0
+                ? Collections.<EntityType>emptySet() : EnumSet.copyOf(Arrays.asList(deletedTypes))));
+    }
+
+    /**
+     * Get the statistics of this cache.
+     *
+     * @return a snapshot of the statistics
+     */
+    public synchronized Stats getStats() {
+        return new Stats(hitCount, missCount, evictionCount, nodes.size());
+    }
+
+    /**
+     * Get a cached entity, if its entry has not expired.
+     *
+     * @param type the type of the entity
+     * @param id   the ID of the entity
+     * @return the entity, or null if not cached
+     */
+    public synchronized Object getIfPresent(@NonNull EntityType type, int id) {
+        Node node = nodes.get(keyOf(type, id));
+        return node == null || node.expiresAt - ticker.read() <= 0 ? null : node.value;
+    }
+
+    /**
+     * Remove a cached entity.
+     *
+     * @param type the type of the entity
+     * @param id   the ID of the entity
+     */
+    public synchronized void invalidate(@NonNull EntityType type, int id) {
+        writes++;
+        Node node = nodes.remove(keyOf(type, id));
+        if (node != null) {
+            unlink(node);
+        }
+    }
+
+    /**
+     * Remove all the cached entities of a type.
+     *
+     * @param type the type of the entities
+     */
+    public synchronized void invalidateAll(@NonNull EntityType type) {
+        writes++;
+        for (Iterator<Node> iterator = nodes.values().iterator(); iterator.hasNext(); ) {
+            Node node = iterator.next();
+            if (node.type == type) {
+                iterator.remove();
+                unlink(node);
+            }
+        }
+    }
+
+    /**
+     * Remove all the cached entities.
+     */
+    public synchronized void invalidateAll() {
+        writes++;
+        for (Node node : nodes.values()) {
+            unlink(node);
+        }
+        nodes.clear();
+    }
+
+    /**
+     * Execute a request through this cache, if it is a request of a cached entity.
+     *
+     * @param request the request
+     * @param <T>     the type of the response
+     * @return the response, cached or from TestRail
+     */
+    @SuppressWarnings("unchecked")
+    <T> T execute(Request<T> request) {
+        Binding binding = BINDINGS.get(request.getClass());
+        if (binding == null || settings.ttlNanos(binding.type) == 0) {
+            return request.executeUncached();
+        }
+        switch (binding.operation) {
+            case GET: {
+                int id = getIdOfPath(request.getRestPath());
+                long writesBefore;
+                synchronized (this) {
+                    Object cached = lookUp(binding.type, id);
+                    if (cached != null) {
+                        return (T) cached;
+                    }
+                    writesBefore = writes;
+                }
+                T value = request.executeUncached();
+                synchronized (this) {
+                    // a response may predate a concurrent write or deletion, so it is only cached if there was none
+                    if (writes == writesBefore) {
+                        put(binding.type, id, value);
+                    }
+                }
+                return value;
+            }
+            case PUT: {
+                T value = request.executeUncached();
+                synchronized (this) {
+                    writes++;
+                    put(binding.type, binding.type.getId(value), value);
+                }
+                return value;
+            }
+            default: {
+                T value = request.executeUncached();
+                synchronized (this) {
+                    invalidate(binding.type, getIdOfPath(request.getRestPath()));
+                    for (EntityType deletedType : binding.deletedTypes) {
+                        invalidateAll(deletedType);
+                    }
+                }
+                return value;
+            }
+        }
+    }
+
+    private Object lookUp(EntityType type, int id) {
+        long key = keyOf(type, id);
+        sketch.increment(key);
+        Node node = nodes.get(key);
+        if (node != null && node.expiresAt - ticker.read() <= 0) {
+            nodes.remove(key);
+            unlink(node);
+            node = null;
+        }
+        if (node == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        onAccess(node);
+        return node.value;
+    }
+
+    private void put(EntityType type, int id, Object value) {
+        long key = keyOf(type, id);
+        long expiresAt = ticker.read() + settings.ttlNanos(type);
+        Node node = nodes.get(key);
+        if (node != null) {
+            node.value = value;
+            node.expiresAt = expiresAt;
+            onAccess(node);
+            return;
+        }
+        node = new Node(key, type, value, expiresAt);
+        nodes.put(key, node);
+        node.space = window;
+        node.linkBefore(window);
+        windowSize++;
+        if (windowSize > maxWindowSize) {
+            Node candidate = window.next;
+            unlink(candidate);
+            candidate.space = probation;
+            candidate.linkBefore(probation);
+            probationSize++;
+            if (probationSize + protectedSize > maxMainSize) {
+                evict(candidate);
+            }
+        }
+    }
+
+    private void evict(Node candidate) {
+        Node victim = probation.next != candidate ? probation.next : protectedSpace.next != protectedSpace ? protectedSpace.next : null;
+        Node evicted = victim != null && sketch.frequency(candidate.key) > sketch.frequency(victim.key) ? victim : candidate;
+        nodes.remove(evicted.key);
+        unlink(evicted);
+        evictionCount++;
+    }
+
+    private void onAccess(Node node) {
+        if (node.space == probation) {
+            unlink(node);
+            node.space = protectedSpace;
+            node.linkBefore(protectedSpace);
+            protectedSize++;
+            if (protectedSize > maxProtectedSize) {
+                Node demoted = protectedSpace.next;
+                unlink(demoted);
+                demoted.space = probation;
+                demoted.linkBefore(probation);
+                probationSize++;
+            }
+        } else {
+            node.unlink();
+            node.linkBefore(node.space);
+        }
+    }
+
+    private void unlink(Node node) {
+        node.unlink();
+        if (node.space == window) {
+            windowSize--;
+        } else if (node.space == probation) {
+            probationSize--;
+        } else {
+            protectedSize--;
+        }
+    }
+
+    private static long keyOf(EntityType type, int id) {
+        return ((long) type.ordinal() << 32) | (id & 0xffffffffL);
+    }
+
+    private static int getIdOfPath(String restPath) {
+        String id = restPath.substring(restPath.lastIndexOf('/') + 1);
+        int end = 0;
+        while (end < id.length() && Character.isDigit(id.charAt(end))) {
+            end++;
+        }
+        return Integer.parseInt(id.substring(0, end));
+    }
+
+    /**
+     * Entry of a cached entity, in a doubly linked list of one of the spaces of the cache, whose head is a sentinel node.
+     */
+    private static final class Node {
+
+        private final long key;
+        private final EntityType type;
+        private Object value;
+        private long expiresAt;
+        private Node space;
+        private Node previous = this;
+        private Node next = this;
+
+        Node() {
+            this(0, null, null, 0);
+        }
+
+        Node(long key, EntityType type, Object value, long expiresAt) {
+            this.key = key;
+            this.type = type;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        void linkBefore(Node node) {
+            previous = node.previous;
+            next = node;
+            node.previous.next = this;
+            node.previous = this;
+        }
+
+        void unlink() {
+            previous.next = next;
+            next.previous = previous;
+            previous = this;
+            next = this;
+        }
+    }
+
+    @Value
+    private static class Binding {
+        EntityType type;
+        Operation operation;
+        Set<EntityType> deletedTypes;
+    }
+
+    /**
+     * Statistics of an entity cache, since it was created.
+     */
+    @Value
+    public static class Stats {
+
+        /**
+         * The number of {@code Get} requests served from the cache.
+         */
+        long hitCount;
+
+        /**
+         * The number of {@code Get} requests sent to TestRail, since the entity was not cached or its entry expired.
+         */
+        long missCount;
+
+        /**
+         * The number of entities evicted to keep the cache within its maximum size.
+         */
+        long evictionCount;
+
+        /**
+         * The number of entities currently cached, including those whose entry expired but which were not removed yet.
+         */
+        int size;
+
+        /**
+         * Get the rate of {@code Get} requests served from the cache.
+         *
+         * @return the rate between 0 and 1, 0 if there was no request
+         */
+        public double getHitRate() {
+            long requestCount = hitCount + missCount;
+            return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+        }
+    }
+
+    /**
+     * Settings of an entity cache.
+     */
+    @Getter
+    @Setter
+    @Accessors(fluent = true)
+    public static class Settings {
+
+        private static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+        /**
+         * Maximum number of entities cached, of all types, 10000 by default.
+         */
+        private int maximumSize = 10000;
+
+        @Getter(AccessLevel.NONE)
+        @Setter(AccessLevel.NONE)
+        private final Map<EntityType, Long> ttlMillis = new EnumMap<>(EntityType.class);
+
+        /**
+         * Set the time an entity of a type stays cached after it was fetched or written, 5 minutes by default.
+         *
+         * @param type     the type of the entities
+         * @param duration the duration, 0 not to cache entities of the type
+         * @param unit     the unit of the duration
+         * @return this for chaining
+         */
+        public Settings ttl(@NonNull EntityType type, long duration, @NonNull TimeUnit unit) {
+            checkArgument(duration >= 0, "duration should not be negative");
+            ttlMillis.put(type, unit.toMillis(duration));
+            return this;
+        }
+
+        /**
+         * Get the time an entity of a type stays cached.
+         *
+         * @param type the type of the entities
+         * @return the time in milliseconds, 0 if entities of the type are not cached
+         */
+        public long ttlMillis(@NonNull EntityType type) {
+            Long millis = ttlMillis.get(type);
+            return millis == null ? DEFAULT_TTL_MILLIS : millis;
+        }
+
+        long ttlNanos(EntityType type) {
+            return TimeUnit.MILLISECONDS.toNanos(ttlMillis(type));
+        }
+
+        /**
+         * Get a copy of these settings, so that later changes to them have no effect.
+         *
+         * @return the copy
+         */
+        Settings copy() {
+            Settings copy = new Settings().maximumSize(maximumSize);
+            copy.ttlMillis.putAll(ttlMillis);
+            return copy;
+        }
+
+        /**
+         * Check the settings are consistent.
+         *
+         * @throws IllegalArgumentException if a setting is out of its range
+         */
+        void validate() {
+            checkArgument(maximumSize > 0, "maximumSize should be positive");
+        }
+    }
+}
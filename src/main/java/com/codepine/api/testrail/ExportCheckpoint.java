@@ -0,0 +1,97 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Storage of the position reached by an export of a paginated request, see {@link PreparedRequest#export(ExportCheckpoint, java.util.function.Consumer)}.
+ * <p>The position is saved after each page has been handed over to the sink of the export, so an export interrupted by
+ * a crash or a network failure resumes with the first page not handed over yet. A page handed over right before the
+ * interruption may be handed over again, if its position could not be saved.</p>
+ */
+public interface ExportCheckpoint {
+
+    /**
+     * Load the last saved position.
+     *
+     * @return the position, or null if none was saved yet
+     */
+    Position load();
+
+    /**
+     * Save a position, replacing the last one.
+     *
+     * @param position the position to save
+     */
+    void save(Position position);
+
+    /**
+     * The position reached by an export.
+     */
+    @Getter
+    @EqualsAndHashCode
+    @ToString
+    final class Position {
+
+        /**
+         * The URL of the first page of the exported request, identifying the export.
+         */
+        private final String requestUrl;
+
+        /**
+         * The number of pages handed over to the sink.
+         */
+        private final int completedPages;
+
+        /**
+         * The offset of the first element not handed over yet, or null if no page was handed over.
+         */
+        private final Integer nextOffset;
+
+        /**
+         * The REST path of the next page to request, or null if the export is complete.
+         */
+        private final String nextPath;
+
+        public Position(String requestUrl, int completedPages, Integer nextOffset, String nextPath) {
+            this.requestUrl = requestUrl;
+            this.completedPages = completedPages;
+            this.nextOffset = nextOffset;
+            this.nextPath = nextPath;
+        }
+
+        /**
+         * Whether all the pages have been handed over.
+         *
+         * @return true if complete
+         */
+        public boolean isComplete() {
+            return nextPath == null;
+        }
+    }
+}
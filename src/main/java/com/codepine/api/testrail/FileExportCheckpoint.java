@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * An {@link ExportCheckpoint} saved in a properties file. Each position is written to a unique temporary file first, then
+ * moved over the checkpoint file atomically, so that a crash while saving leaves the previous position intact.
+ */
+public class FileExportCheckpoint implements ExportCheckpoint {
+
+    private static final String REQUEST_URL = "requestUrl";
+    private static final String COMPLETED_PAGES = "completedPages";
+    private static final String NEXT_OFFSET = "nextOffset";
+    private static final String NEXT_PATH = "nextPath";
+
+    @Getter
+    private final Path file;
+
+    /**
+     * @param file the checkpoint file, which need not exist yet
+     */
+    public FileExportCheckpoint(@NonNull Path file) {
+        this.file = file.toAbsolutePath();
+    }
+
+    @Override
+    public Position load() {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            properties.load(inputStream);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        String nextOffset = properties.getProperty(NEXT_OFFSET);
+        return new Position(properties.getProperty(REQUEST_URL), Integer.parseInt(properties.getProperty(COMPLETED_PAGES)),
+                nextOffset == null ? null : Integer.valueOf(nextOffset), properties.getProperty(NEXT_PATH));
+    }
+
+    @Override
+    public void save(@NonNull Position position) {
+        final Properties properties = new Properties();
+        properties.setProperty(REQUEST_URL, position.getRequestUrl());
+        properties.setProperty(COMPLETED_PAGES, String.valueOf(position.getCompletedPages()));
+        if (position.getNextOffset() != null) {
+            properties.setProperty(NEXT_OFFSET, String.valueOf(position.getNextOffset()));
+        }
+        if (position.getNextPath() != null) {
+            properties.setProperty(NEXT_PATH, position.getNextPath());
+        }
+        try {
+            AtomicFiles.write(file, "checkpoint", new AtomicFiles.ContentWriter() {
+                @Override
+                public void write(OutputStream out) throws IOException {
+                    properties.store(out, null);
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Delete the checkpoint file, so that the next export starts over.
+     */
+    public void delete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,399 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.BoundedExecutor;
+import com.codepine.api.testrail.internal.IntIntHashMap;
+import com.codepine.api.testrail.model.Result;
+import com.codepine.api.testrail.model.ResultField;
+import com.codepine.api.testrail.model.Run;
+import com.codepine.api.testrail.model.Test;
+import com.google.common.collect.ImmutableSet;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Detects flaky test cases by analyzing the outcomes of cases across a set of test runs.
+ * <p>The outcome of a case in a run is the status of the latest result of its test. Outcomes are folded per case in chronological
+ * order of runs into a constant size state: flip rate between passing and failing outcomes, fail streaks and entropy of statuses.</p>
+ * <p>Runs are fetched concurrently, at most {@link TestRail.Builder#parallelism(int)} at a time. For every run, the cheaper of two ways
+ * is used: listing the tests and all the results of the run, which is a couple of requests per 250 tests, or listing the results of
+ * every case of interest using {@link TestRail.Results#listForCase(int, int, List)}, which is a request per case.</p>
+ * <p>The custom result fields configured in TestRail can be fetched using {@link TestRail.ResultFields#list()} request.</p>
+ */
+@Setter
+@Accessors(fluent = true)
+public class FlakyTestDetector {
+
+    private static final int PAGE_SIZE = 250;
+    // error of TestRail when listing the results of a case which is not part of the run
+    private static final String NO_TEST_FOR_CASE_ERROR = "No (active) test found for the run/case combination";
+
+    @Setter(AccessLevel.NONE)
+    private final TestRail testRail;
+
+    @Setter(AccessLevel.NONE)
+    private final List<ResultField> resultFields;
+
+    /**
+     * The status IDs considered as passing outcomes, defaults to "Passed".
+     */
+    @NonNull
+    private Set<Integer> passedStatusIds = ImmutableSet.of(ResultAggregator.Report.PASSED_STATUS_ID);
+
+    /**
+     * The status IDs considered as failing outcomes, defaults to "Failed".
+     */
+    @NonNull
+    private Set<Integer> failedStatusIds = ImmutableSet.of(ResultAggregator.Report.FAILED_STATUS_ID);
+
+    /**
+     * The minimum number of passing or failing outcomes for a case to be part of the report, defaults to 2.
+     */
+    private int minOutcomes = 2;
+
+    /**
+     * @param testRail     the client to fetch tests and results with
+     * @param resultFields the custom result fields configured in TestRail to get type information for custom fields in the results
+     */
+    public FlakyTestDetector(@NonNull TestRail testRail, @NonNull List<ResultField> resultFields) {
+        this.testRail = testRail;
+        this.resultFields = resultFields;
+    }
+
+    /**
+     * Analyze all the cases of the given test runs.
+     *
+     * @param runs the test runs, as returned by TestRail, since their creation times and status counts are used
+     * @return cases ranked from the most flaky to the least flaky
+     */
+    public List<CaseFlakiness> analyze(@NonNull Collection<? extends Run> runs) {
+        return analyze(runs, null);
+    }
+
+    /**
+     * Analyze some cases of the given test runs.
+     *
+     * @param runs    the test runs, as returned by TestRail, since their creation times and status counts are used
+     * @param caseIds the IDs of the cases to analyze
+     * @return cases ranked from the most flaky to the least flaky
+     */
+    public List<CaseFlakiness> analyze(@NonNull Collection<? extends Run> runs, Collection<Integer> caseIds) {
+        final List<Run> orderedRuns = new ArrayList<>(runs);
+        Collections.sort(orderedRuns, new Comparator<Run>() {
+            @Override
+            public int compare(Run run1, Run run2) {
+                long createdOn1 = run1.getCreatedOn() == null ? 0 : run1.getCreatedOn().getTime();
+                long createdOn2 = run2.getCreatedOn() == null ? 0 : run2.getCreatedOn().getTime();
+                return createdOn1 != createdOn2 ? Long.compare(createdOn1, createdOn2) : Integer.compare(run1.getId(), run2.getId());
+            }
+        });
+        final IntIntHashMap caseIdFilter = caseIds == null ? null : new IntIntHashMap(caseIds.size());
+        if (caseIds != null) {
+            for (Integer caseId : caseIds) {
+                caseIdFilter.put(caseId, 1);
+            }
+        }
+        final OrderedFold fold = new OrderedFold(orderedRuns.size());
+        List<Callable<Void>> tasks = new ArrayList<>(orderedRuns.size());
+        for (int i = 0; i < orderedRuns.size(); i++) {
+            final int runIndex = i;
+            final Run run = orderedRuns.get(i);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    int bulkRequestCount = 2 * Math.max(1, (run.getTestCount() + PAGE_SIZE - 1) / PAGE_SIZE);
+                    RunOutcomes outcomes = caseIdFilter != null && caseIdFilter.size() < bulkRequestCount
+                            ? getOutcomesPerCase(run, caseIdFilter) : getOutcomes(run, caseIdFilter);
+                    fold.complete(runIndex, outcomes);
+                    return null;
+                }
+            });
+        }
+        new BoundedExecutor(testRail.getConfig().getParallelism(), testRail.getConfig().isVirtualThreads()).getAll(tasks);
+
+        List<CaseFlakiness> report = new ArrayList<>();
+        for (CaseState state : fold.states.values()) {
+            if (state.passedCount + state.failedCount >= minOutcomes) {
+                report.add(state.toFlakiness());
+            }
+        }
+        Collections.sort(report, new Comparator<CaseFlakiness>() {
+            @Override
+            public int compare(CaseFlakiness flakiness1, CaseFlakiness flakiness2) {
+                int comparison = Double.compare(flakiness2.getFlipRate(), flakiness1.getFlipRate());
+                if (comparison == 0) {
+                    comparison = Double.compare(flakiness2.getEntropy(), flakiness1.getEntropy());
+                }
+                return comparison != 0 ? comparison : Integer.compare(flakiness1.getCaseId(), flakiness2.getCaseId());
+            }
+        });
+        return report;
+    }
+
+    /**
+     * Get the outcomes of a run by listing all its tests and results.
+     */
+    private RunOutcomes getOutcomes(Run run, final IntIntHashMap caseIdFilter) {
+        // results of a run refer to tests, not cases
+        final IntIntHashMap caseIdsByTestId = new IntIntHashMap(run.getTestCount());
+        testRail.tests().list(run.getId()).forEachPage(new Consumer<List<Test>>() {
+            @Override
+            public void accept(List<Test> tests) {
+                for (Test test : tests) {
+                    if (caseIdFilter == null || caseIdFilter.containsKey(test.getCaseId())) {
+                        caseIdsByTestId.put(test.getId(), test.getCaseId());
+                    }
+                }
+            }
+        });
+        final RunOutcomes outcomes = new RunOutcomes(caseIdsByTestId.size());
+        testRail.results().listForRun(run.getId(), resultFields).forEachPage(new Consumer<List<Result>>() {
+            @Override
+            public void accept(List<Result> results) {
+                for (Result result : results) {
+                    int caseId = caseIdsByTestId.get(result.getTestId(), 0);
+                    if (caseId != 0) {
+                        outcomes.add(caseId, result);
+                    }
+                }
+            }
+        });
+        return outcomes;
+    }
+
+    /**
+     * Get the outcomes of a run by listing the results of each case of interest.
+     */
+    private RunOutcomes getOutcomesPerCase(Run run, IntIntHashMap caseIdFilter) {
+        int[] caseIds = caseIdFilter.keys();
+        RunOutcomes outcomes = new RunOutcomes(caseIds.length);
+        for (int caseId : caseIds) {
+            try {
+                for (Result result : testRail.results().listForCase(run.getId(), caseId, resultFields).execute()) {
+                    outcomes.add(caseId, result);
+                }
+            } catch (TestRailException e) {
+                if (!isCaseNotInRun(e)) {
+                    throw e;
+                }
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * Check whether a failure to list the results of a case in a run is due to the case not being part of the run, as opposed to
+     * any other bad request, for e.g. an invalid run ID, which must not be mistaken for a case without results.
+     *
+     * @param e the failure
+     * @return true if TestRail reported that the run has no test for the case
+     */
+    static boolean isCaseNotInRun(TestRailException e) {
+        return e.getResponseCode() == 400 && e.getMessage() != null && e.getMessage().contains(NO_TEST_FOR_CASE_ERROR);
+    }
+
+    /**
+     * Latest status of each case of a run.
+     */
+    private static class RunOutcomes {
+        private final IntIntHashMap slots;
+        private int[] caseIds;
+        private int[] statusIds;
+        private int[] resultIds;
+
+        RunOutcomes(int expectedSize) {
+            slots = new IntIntHashMap(expectedSize);
+            caseIds = new int[Math.max(expectedSize, 1)];
+            statusIds = new int[caseIds.length];
+            resultIds = new int[caseIds.length];
+        }
+
+        void add(int caseId, Result result) {
+            // results which only add a comment or assign the test do not have a status
+            if (result.getStatusId() == null) {
+                return;
+            }
+            int slot = slots.get(caseId, -1);
+            if (slot < 0) {
+                slot = slots.size();
+                if (slot == caseIds.length) {
+                    caseIds = Arrays.copyOf(caseIds, slot * 2);
+                    statusIds = Arrays.copyOf(statusIds, slot * 2);
+                    resultIds = Arrays.copyOf(resultIds, slot * 2);
+                }
+                slots.put(caseId, slot);
+                caseIds[slot] = caseId;
+            } else if (resultIds[slot] > result.getId()) {
+                return;
+            }
+            statusIds[slot] = result.getStatusId();
+            resultIds[slot] = result.getId();
+        }
+    }
+
+    /**
+     * Folds outcomes of runs into case states in the order of runs, whatever the order in which runs are fetched. Outcomes of runs
+     * fetched ahead of their turn are held until all the previous runs are folded.
+     */
+    private class OrderedFold {
+        private final RunOutcomes[] pending;
+        private final Map<Integer, CaseState> states = new HashMap<>();
+        private int next;
+
+        OrderedFold(int runCount) {
+            pending = new RunOutcomes[runCount];
+        }
+
+        synchronized void complete(int runIndex, RunOutcomes outcomes) {
+            pending[runIndex] = outcomes;
+            while (next < pending.length && pending[next] != null) {
+                RunOutcomes ready = pending[next];
+                pending[next++] = null;
+                for (int slot = 0; slot < ready.slots.size(); slot++) {
+                    CaseState state = states.get(ready.caseIds[slot]);
+                    if (state == null) {
+                        state = new CaseState(ready.caseIds[slot]);
+                        states.put(ready.caseIds[slot], state);
+                    }
+                    state.add(ready.statusIds[slot]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Constant size state of the outcomes of a case so far.
+     */
+    private class CaseState {
+        private final int caseId;
+        private int outcomeCount;
+        private int passedCount;
+        private int failedCount;
+        private int flipCount;
+        private int lastVerdict;
+        private int failStreak;
+        private int longestFailStreak;
+        private final Map<Integer, Integer> statusCounts = new HashMap<>();
+
+        CaseState(int caseId) {
+            this.caseId = caseId;
+        }
+
+        void add(int statusId) {
+            outcomeCount++;
+            statusCounts.merge(statusId, 1, Integer::sum);
+            int verdict = passedStatusIds.contains(statusId) ? 1 : failedStatusIds.contains(statusId) ? -1 : 0;
+            if (verdict == 0) {
+                // neither passing nor failing, for e.g. blocked or retest
+                return;
+            }
+            if (verdict > 0) {
+                passedCount++;
+                failStreak = 0;
+            } else {
+                failedCount++;
+                longestFailStreak = Math.max(longestFailStreak, ++failStreak);
+            }
+            if (lastVerdict != 0 && verdict != lastVerdict) {
+                flipCount++;
+            }
+            lastVerdict = verdict;
+        }
+
+        CaseFlakiness toFlakiness() {
+            int verdictCount = passedCount + failedCount;
+            double entropy = 0;
+            for (int count : statusCounts.values()) {
+                double p = (double) count / outcomeCount;
+                entropy -= p * Math.log(p) / Math.log(2);
+            }
+            return new CaseFlakiness(caseId, outcomeCount, passedCount, failedCount, flipCount,
+                    verdictCount > 1 ? (double) flipCount / (verdictCount - 1) : 0, failStreak, longestFailStreak, entropy);
+        }
+    }
+
+    /**
+     * Flakiness of a test case over the analyzed runs.
+     */
+    @Getter
+    @ToString
+    @Accessors(fluent = false)
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class CaseFlakiness {
+
+        private final int caseId;
+
+        /**
+         * Number of runs in which the case has a result with a status.
+         */
+        private final int outcomeCount;
+
+        private final int passedCount;
+
+        private final int failedCount;
+
+        /**
+         * Number of times the outcome changed from passing to failing or back, in chronological order of runs.
+         */
+        private final int flipCount;
+
+        /**
+         * Flips per pair of consecutive passing or failing outcomes, from 0 for a stable case to 1 for a case alternating every run.
+         */
+        private final double flipRate;
+
+        /**
+         * Number of failing outcomes in a row in the latest runs.
+         */
+        private final int currentFailStreak;
+
+        private final int longestFailStreak;
+
+        /**
+         * Shannon entropy, in bits, of the distribution of statuses of the outcomes.
+         */
+        private final double entropy;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.IntIntHashMap;
+import com.codepine.api.testrail.model.Result;
+import com.codepine.api.testrail.model.ResultField;
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Index of the latest result with a status of each test of a test run, keyed by test ID.
+ * <p>The index is built incrementally: every {@link #refresh()} only fetches the results created since the latest result already
+ * indexed, using the {@code created_after} filter of {@link TestRail.Results#listForRun(int, List)}. Lookups are constant time and do
+ * not allocate, and can be done concurrently with a refresh.</p>
+ */
+public class LatestResultIndex {
+
+    /**
+     * Returned by lookups for tests without any result with a status.
+     */
+    public static final int NONE = 0;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final WatermarkFetch<Result> resultsCreated;
+    private final StampedLock lock = new StampedLock();
+    private final IntIntHashMap slots = new IntIntHashMap(INITIAL_CAPACITY);
+    private int[] statusIds = new int[INITIAL_CAPACITY];
+    private int[] resultIds = new int[INITIAL_CAPACITY];
+    private long[] createdOns = new long[INITIAL_CAPACITY];
+
+    /**
+     * @param testRail     the client to fetch results with
+     * @param runId        the ID of the test run to index
+     * @param resultFields the custom result fields configured in TestRail to get type information for custom fields in the results
+     * @throws java.lang.IllegalArgumentException if runId is not positive
+     */
+    public LatestResultIndex(@NonNull TestRail testRail, final int runId, @NonNull List<ResultField> resultFields) {
+        checkArgument(runId > 0, "runId should be positive");
+        this.resultsCreated = WatermarkFetch.resultsCreated(testRail, runId, resultFields);
+    }
+
+    /**
+     * Fetch the results created since the last refresh and update the index with them. The first refresh fetches all the results
+     * of the run.
+     * <p>Refreshes are serialized, lookups running concurrently see the index either before or after each page of results.</p>
+     *
+     * @return the number of tests whose latest result has changed
+     */
+    public synchronized int refresh() {
+        // results fetched again which are already indexed are ignored by the index
+        final int[] updatedCount = new int[1];
+        resultsCreated.fetch(new Consumer<List<Result>>() {
+            @Override
+            public void accept(List<Result> results) {
+                long stamp = lock.writeLock();
+                try {
+                    for (Result result : results) {
+                        if (index(result)) {
+                            updatedCount[0]++;
+                        }
+                    }
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+            }
+        });
+        return updatedCount[0];
+    }
+
+    /**
+     * Get the status of the latest result of a test.
+     *
+     * @param testId the ID of the test
+     * @return the status ID or {@link #NONE} if the test does not have any result with a status
+     */
+    public int getStatusId(final int testId) {
+        long stamp = lock.readLock();
+        try {
+            int slot = slots.get(testId, -1);
+            return slot < 0 ? NONE : statusIds[slot];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Get the ID of the latest result of a test.
+     *
+     * @param testId the ID of the test
+     * @return the result ID or {@link #NONE} if the test does not have any result with a status
+     */
+    public int getResultId(final int testId) {
+        long stamp = lock.readLock();
+        try {
+            int slot = slots.get(testId, -1);
+            return slot < 0 ? NONE : resultIds[slot];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Get the creation time of the latest result of a test.
+     *
+     * @param testId the ID of the test
+     * @return the creation time in milliseconds since epoch or {@link #NONE} if the test does not have any result with a status
+     */
+    public long getCreatedOn(final int testId) {
+        long stamp = lock.readLock();
+        try {
+            int slot = slots.get(testId, -1);
+            return slot < 0 ? NONE : createdOns[slot];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return the number of tests with at least one result with a status
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return slots.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Index a result, unless the test already has a later one. Must be called holding the write lock.
+     *
+     * @param result the result to index
+     * @return true if the result became the latest result of its test
+     */
+    boolean index(Result result) {
+        // results which only add a comment or assign the test do not have a status
+        if (result.getStatusId() == null) {
+            return false;
+        }
+        long createdOn = result.getCreatedOn() == null ? 0 : result.getCreatedOn().getTime();
+        int slot = slots.get(result.getTestId(), -1);
+        if (slot < 0) {
+            slot = slots.size();
+            if (slot == statusIds.length) {
+                int capacity = slot * 2;
+                statusIds = Arrays.copyOf(statusIds, capacity);
+                resultIds = Arrays.copyOf(resultIds, capacity);
+                createdOns = Arrays.copyOf(createdOns, capacity);
+            }
+            slots.put(result.getTestId(), slot);
+        } else if (resultIds[slot] >= result.getId()) {
+            return false;
+        }
+        statusIds[slot] = result.getStatusId();
+        resultIds[slot] = result.getId();
+        createdOns[slot] = createdOn;
+        return true;
+    }
+}
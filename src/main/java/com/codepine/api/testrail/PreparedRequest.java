@@ -0,0 +1,481 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.RequestBodyOutputStream;
+import com.codepine.api.testrail.internal.UrlConnectionFactory;
+import com.codepine.api.testrail.model.Page;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.base.Charsets;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+import lombok.NonNull;
+import lombok.extern.log4j.Log4j;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * A TestRail request prepared for execution, see {@link Request#prepare()}.
+ * <p>A prepared request is immutable: its URL, content and deserializers are resolved when it is prepared, so later changes
+ * to the request it was prepared from do not affect it. It can be executed any number of times, concurrently from many
+ * threads.</p>
+ *
+ * @param <T> the type of the response
+ */
+@Log4j
+public final class PreparedRequest<T> {
+
+    // size of content above which it is streamed while being serialized, whether it is compressed or not
+    private static final int STREAMING_THRESHOLD = 64 * 1024;
+
+    private final TestRailConfig config;
+    private final Request.Method method;
+    private final String restPath;
+    private final String apiSegment;
+    private final String queryString;
+    private final String authorization;
+    private final UrlConnectionFactory urlConnectionFactory;
+    private final ObjectWriter contentWriter;
+    private final Object content;
+    private final byte[] contentBytes;
+    private final ObjectReader responseReader;
+    private final boolean paginated;
+    private final ObjectReader pageReader;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final long deadlineMillis;
+
+    PreparedRequest(TestRailConfig config, Request.Method method, String restPath, String apiSegment, String queryString,
+                    UrlConnectionFactory urlConnectionFactory, ObjectWriter contentWriter, Object content, byte[] contentBytes,
+                    ObjectReader responseReader, boolean paginated, ObjectReader pageReader, int connectTimeoutMillis,
+                    int readTimeoutMillis, long deadlineMillis) {
+        this.config = config;
+        this.method = method;
+        this.restPath = restPath;
+        this.apiSegment = apiSegment;
+        this.queryString = queryString;
+        this.authorization = "Basic " + BaseEncoding.base64().encode((config.getUsername() + ":" + config.getPassword()).getBytes(Charsets.UTF_8));
+        this.urlConnectionFactory = urlConnectionFactory;
+        this.contentWriter = contentWriter;
+        this.content = content;
+        this.contentBytes = contentBytes;
+        this.responseReader = responseReader;
+        this.paginated = paginated;
+        this.pageReader = pageReader;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    /**
+     * Get the URL of the first page of this request.
+     *
+     * @return the string URL
+     */
+    public String getUrl() {
+        return getUrl(restPath);
+    }
+
+    /**
+     * Execute this request.
+     *
+     * @return response from TestRail
+     */
+    public T execute() {
+        final List<T> pages = new ArrayList<>();
+        forEachPage(new Consumer<T>() {
+            @Override
+            public void accept(T page) {
+                pages.add(page);
+            }
+        });
+        if (pages.size() == 1) {
+            return pages.get(0);
+        }
+        List models = (List) pages.get(0);
+        for (T page : pages.subList(1, pages.size())) {
+            models.addAll((List) page);
+        }
+        return (T) models;
+    }
+
+    /**
+     * Execute this request, handing over each page of a paginated response to the consumer as soon as it is received.
+     * <p>Unlike {@link #execute()}, pages are not accumulated, so the memory used stays proportional to a single page
+     * however large the full response is. Responses which are not paginated are handed over as a single page.</p>
+     *
+     * @param pageConsumer the consumer of pages, called on the executing thread in the order the pages are received
+     * @throws DeadlineExceededException if the deadline of the request passed before the last page was received
+     */
+    public void forEachPage(@NonNull final Consumer<? super T> pageConsumer) {
+        forEachPage(restPath, 0, null, new PageListener<T>() {
+            @Override
+            public void onPage(T objects, int completedPages, Integer nextOffset, String nextPath) {
+                pageConsumer.accept(objects);
+            }
+        });
+    }
+
+    /**
+     * Export this request page by page to a sink, saving the position reached in a checkpoint after each page, so that an
+     * export interrupted by a crash or a network failure can be resumed from where it stopped by executing it again with
+     * the same checkpoint.
+     * <p>The export resumes from the position loaded from the checkpoint, if any. A complete export is not executed again.
+     * Responses which are not paginated are handed over as a single page.</p>
+     *
+     * @param checkpoint the storage of the position reached
+     * @param pageSink   the consumer of pages, called on the executing thread in the order the pages are received
+     * @return the final position of the export, which is complete
+     * @throws IllegalStateException     if the checkpoint belongs to the export of another request
+     * @throws DeadlineExceededException if the deadline of the request passed before the last page was received
+     */
+    public ExportCheckpoint.Position export(@NonNull final ExportCheckpoint checkpoint, @NonNull final Consumer<? super T> pageSink) {
+        final String requestUrl = getUrl();
+        ExportCheckpoint.Position position = checkpoint.load();
+        if (position == null) {
+            position = new ExportCheckpoint.Position(requestUrl, 0, null, restPath);
+        }
+        checkState(requestUrl.equals(position.getRequestUrl()), "Checkpoint belongs to the export of %s, not %s", position.getRequestUrl(), requestUrl);
+        if (position.isComplete()) {
+            return position;
+        }
+        final List<ExportCheckpoint.Position> lastPosition = new ArrayList<>(Collections.singletonList(position));
+        forEachPage(position.getNextPath(), position.getCompletedPages(), position.getNextOffset(), new PageListener<T>() {
+            @Override
+            public void onPage(T objects, int completedPages, Integer nextOffset, String nextPath) {
+                pageSink.accept(objects);
+                ExportCheckpoint.Position position = new ExportCheckpoint.Position(requestUrl, completedPages, nextOffset, nextPath);
+                checkpoint.save(position);
+                lastPosition.set(0, position);
+            }
+        });
+        return lastPosition.get(0);
+    }
+
+    /**
+     * Fetch the pages of this request from a given page on, handing each over to the listener as soon as it is received.
+     *
+     * @param path           the REST path of the first page to be fetched
+     * @param completedPages the number of pages fetched before the first page
+     * @param nextOffset     the offset of the first page, null if unknown
+     * @param pageListener   the listener of pages
+     */
+    private void forEachPage(String path, int completedPages, Integer nextOffset, PageListener<T> pageListener) {
+        Deadline deadline = deadlineMillis > 0 ? new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis)) : null;
+        while (path != null) {
+            Object response;
+            try {
+                response = executePage(path, deadline);
+            } catch (RuntimeException e) {
+                if (e instanceof DeadlineExceededException) {
+                    throw new DeadlineExceededException(deadlineMillis, completedPages, nextOffset, null);
+                }
+                if (deadline != null && deadline.remainingNanos() <= 0 && e.getCause() instanceof IOException) {
+                    throw new DeadlineExceededException(deadlineMillis, completedPages, nextOffset, e.getCause());
+                }
+                throw e;
+            }
+            completedPages++;
+            T objects;
+            if (response instanceof Page) {
+                Page<T> page = (Page<T>) response;
+                objects = page.objects;
+                nextOffset = page.offset + page.size;
+                path = page._links.next == null ? null : page._links.next.replace(this.apiSegment, "");
+            } else {
+                objects = (T) response;
+                path = null;
+            }
+            pageListener.onPage(objects, completedPages, nextOffset, path);
+        }
+    }
+
+    private String getUrl(String path) {
+        return config.getBaseApiUrl() + path + queryString;
+    }
+
+    /**
+     * Fetch a single page of this request, within the bulkhead of its method and the circuit breaker of its endpoint.
+     *
+     * @param path     the REST path of the page to be fetched
+     * @param deadline the deadline of the request, null if none
+     * @return the {@link Page} if the response is paginated, else the response itself
+     * @throws DeadlineExceededException with no details, if the deadline passed before the page could be requested
+     */
+    private Object executePage(String path, Deadline deadline) {
+        DiskResponseCache responseCache = method == Request.Method.GET ? config.getResponseCache().orNull() : null;
+        if (responseCache != null) {
+            byte[] cached = responseCache.get(getCacheScope(), path + queryString);
+            if (cached != null) {
+                try {
+                    return readResponse(cached);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+        try {
+            if (deadline == null) {
+                config.getBulkheads().acquire(method);
+            } else if (!config.getBulkheads().tryAcquire(method, deadline.remainingNanos())) {
+                throw new DeadlineExceededException(deadlineMillis, 0, null, null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        try {
+            int connectTimeout = deadline == null ? connectTimeoutMillis : deadline.shorten(connectTimeoutMillis);
+            int readTimeout = deadline == null ? readTimeoutMillis : deadline.shorten(readTimeoutMillis);
+            if (!config.getCircuitBreakers().isPresent()) {
+                return sendPage(path, connectTimeout, readTimeout);
+            }
+            CircuitBreaker circuitBreaker = config.getCircuitBreakers().get().getOrCreate(TransferStatistics.getEndpointName(path));
+            circuitBreaker.acquirePermission();
+            long start = System.nanoTime();
+            // an error counts as a failure, so that a trial request in HALF_OPEN state always gives its permission back
+            boolean failure = true;
+            try {
+                Object response = sendPage(path, connectTimeout, readTimeout);
+                failure = false;
+                return response;
+            } catch (RuntimeException e) {
+                failure = isServerFailure(e);
+                throw e;
+            } finally {
+                circuitBreaker.onResult(System.nanoTime() - start, failure);
+            }
+        } finally {
+            config.getBulkheads().release(method);
+        }
+    }
+
+    /**
+     * Whether a failure is caused by TestRail being unavailable or overloaded, as opposed to an invalid request.
+     *
+     * @param e the failure
+     * @return true if no response was received or the response was 5xx or 429
+     */
+    private static boolean isServerFailure(RuntimeException e) {
+        if (e instanceof TestRailException) {
+            int responseCode = ((TestRailException) e).getResponseCode();
+            return responseCode >= 500 || responseCode == 429;
+        }
+        return e.getCause() instanceof IOException && !(e.getCause() instanceof JsonProcessingException);
+    }
+
+    /**
+     * Send the request of a single page.
+     *
+     * @param path                 the REST path of the page to be fetched
+     * @param connectTimeoutMillis the timeout to establish a connection, zero if infinite
+     * @param readTimeoutMillis    the timeout waiting for data of the response, zero if infinite
+     * @return the {@link Page} if the response is paginated, else the response itself
+     */
+    private Object sendPage(String path, int connectTimeoutMillis, int readTimeoutMillis) {
+        try {
+
+            String url = getUrl(path);
+            HttpURLConnection con = (HttpURLConnection) urlConnectionFactory.getUrlConnection(url);
+            con.setRequestMethod(method.name());
+            con.setConnectTimeout(connectTimeoutMillis);
+            con.setReadTimeout(readTimeoutMillis);
+            if (config.getApplicationName().isPresent()) {
+                con.setRequestProperty("User-Agent", config.getApplicationName().get());
+            }
+            con.setRequestProperty("Content-Type", "application/json");
+            con.setRequestProperty("Accept-Encoding", "gzip, deflate");
+            con.setRequestProperty("Authorization", authorization);
+            if (method == Request.Method.POST) {
+                con.setDoOutput(true);
+                if (content != null || contentBytes != null) {
+                    try (OutputStream outputStream = new RequestBodyOutputStream(con, STREAMING_THRESHOLD, config.getRequestCompressionThreshold().or(-1))) {
+                        if (contentBytes != null) {
+                            outputStream.write(contentBytes);
+                        } else {
+                            contentWriter.writeValue(outputStream, content);
+                        }
+                    }
+                } else {
+                    con.setFixedLengthStreamingMode(0);
+                }
+            }
+            log.debug("Sending " + method + " request to URL : " + url);
+            int responseCode = 0;
+            try {
+                responseCode = con.getResponseCode();
+            } catch (IOException e) {
+                // swallow it since for 401 getResponseCode throws an IOException
+                responseCode = con.getResponseCode();
+            }
+            log.debug("Response Code : " + responseCode);
+
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                try (InputStream errorStream = con.getErrorStream()) {
+                    TestRailException.Builder exceptionBuilder = new TestRailException.Builder().setResponseCode(responseCode);
+                    if (errorStream == null) {
+                        throw exceptionBuilder.setError("<server did not send any error message>").build();
+                    }
+                    throw Request.JSON.readerForUpdating(exceptionBuilder).<TestRailException.Builder>readValue(decode(con, new BufferedInputStream(errorStream))).build();
+                }
+            }
+
+            CountingInputStream transferredStream = new CountingInputStream(new BufferedInputStream(con.getInputStream()));
+            CountingInputStream decodedStream = new CountingInputStream(decode(con, transferredStream));
+            try (InputStream responseStream = decodedStream) {
+                if (responseReader == null) {
+                    return null;
+                }
+                if (method == Request.Method.GET && config.getResponseCache().isPresent()) {
+                    byte[] payload = ByteStreams.toByteArray(responseStream);
+                    config.getResponseCache().get().put(getCacheScope(), path + queryString, payload);
+                    return readResponse(payload);
+                }
+                if (!paginated) {
+                    return responseReader.readValue(responseStream);
+                }
+                return readResponse(ByteStreams.toByteArray(responseStream));
+            } finally {
+                config.getTransferStatistics().record(path, transferredStream.getCount(), decodedStream.getCount());
+            }
+
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Read a response body.
+     *
+     * @param payload the response body
+     * @return the {@link Page} if the response is paginated, else the response itself
+     * @throws IOException if the body cannot be read as the response
+     */
+    private Object readResponse(byte[] payload) throws IOException {
+        if (responseReader == null) {
+            return null;
+        }
+        if (!paginated) {
+            return responseReader.readValue(payload);
+        }
+        String json = new String(payload, Charsets.UTF_8).replace("\"_links\":", "\"links\":");
+        if (json.contains("\"offset\":") && json.contains("\"limit\":")) {
+            return pageReader.readValue(json);
+        }
+        return responseReader.readValue(json);
+    }
+
+    /**
+     * Get the scope of the cached responses of this request, as responses differ per TestRail instance and per user.
+     *
+     * @return the base URL of the API and the user
+     */
+    private String getCacheScope() {
+        return config.getUsername() + "@" + config.getBaseApiUrl();
+    }
+
+    /**
+     * Listener of the pages of a request.
+     *
+     * @param <T> the type of the page
+     */
+    private interface PageListener<T> {
+
+        /**
+         * @param objects        the objects of the page
+         * @param completedPages the number of pages fetched so far, including this one
+         * @param nextOffset     the offset of the first element of the next page, null if unknown
+         * @param nextPath       the REST path of the next page, null if this is the last page
+         */
+        void onPage(T objects, int completedPages, Integer nextOffset, String nextPath);
+    }
+
+    /**
+     * The point in time by which an execution of a request must complete.
+     */
+    private static class Deadline {
+
+        private final long nanoTime;
+
+        Deadline(long nanoTime) {
+            this.nanoTime = nanoTime;
+        }
+
+        long remainingNanos() {
+            return nanoTime - System.nanoTime();
+        }
+
+        /**
+         * Shorten a timeout to the time left until this deadline.
+         *
+         * @param timeoutMillis the timeout, zero if infinite
+         * @return the shortened timeout, at least 1 since zero is infinite
+         * @throws DeadlineExceededException with no details, if the deadline passed
+         */
+        int shorten(int timeoutMillis) {
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(remainingNanos());
+            if (remainingMillis <= 0) {
+                throw new DeadlineExceededException(0, 0, null, null);
+            }
+            return (int) (timeoutMillis == 0 ? Math.min(remainingMillis, Integer.MAX_VALUE) : Math.min(remainingMillis, timeoutMillis));
+        }
+    }
+
+    /**
+     * Wrap a response stream to decompress it as per the {@code Content-Encoding} of the response.
+     *
+     * @param con    the connection
+     * @param stream the stream of the response body, as received
+     * @return the stream of the decompressed response body
+     * @throws IOException if there is an error reading the gzip header
+     */
+    private static InputStream decode(HttpURLConnection con, InputStream stream) throws IOException {
+        String contentEncoding = con.getContentEncoding();
+        if ("gzip".equalsIgnoreCase(contentEncoding)) {
+            return new BufferedInputStream(new GZIPInputStream(stream));
+        }
+        if ("deflate".equalsIgnoreCase(contentEncoding)) {
+            return new BufferedInputStream(new InflaterInputStream(stream));
+        }
+        return stream;
+    }
+
+}
@@ -29,55 +29,48 @@ import com.codepine.api.testrail.model.Page;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.*;
-import com.google.common.base.Charsets;
-import com.google.common.io.ByteStreams;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.NonNull;
-import lombok.extern.log4j.Log4j;
 
-import javax.xml.bind.DatatypeConverter;
-import java.io.*;
+import java.io.IOException;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.nio.charset.Charset;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
 
 /**
  * TestRail request.
  */
-@Log4j
 public abstract class Request<T> {
 
-    private static final UrlConnectionFactory DEFAULT_URL_CONNECTION_FACTORY = new UrlConnectionFactory();
-
-    private static final ObjectMapper JSON = new ObjectMapper()
-            .setPropertyNamingStrategy(PropertyNamingStrategy.CAMEL_CASE_TO_LOWER_CASE_WITH_UNDERSCORES)
-            .configure(MapperFeature.DEFAULT_VIEW_INCLUSION, false)
-            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
-            .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
-            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
-            .registerModules(new CaseModule(), new FieldModule(), new PlanModule(), new ResultModule(), new UnixTimestampModule());
+    // registered last, so that the other modules wrap the generated readers
+    static final ObjectMapper JSON = newReflectiveObjectMapper().registerModule(new ModelCodecModule());
 
     @NonNull
     private final TestRailConfig config;
     @NonNull
     private final Method method;
     @NonNull
-    private String restPath;
-    private String apiSegment;
+    private final String restPath;
+    private final String apiSegment;
     private final Class<? extends T> responseClass;
     private final TypeReference<? extends T> responseType;
     private final TypeReference<Page<T>> pageType;
-    private UrlConnectionFactory urlConnectionFactory = DEFAULT_URL_CONNECTION_FACTORY;
+    private UrlConnectionFactory urlConnectionFactory;
+    private int connectTimeoutMillis;
+    private int readTimeoutMillis;
+    private long deadlineMillis;
 
     Request(TestRailConfig config, Method method, String restPath, Class<? extends T> responseClass, TypeReference<? extends T>
             responseType, TypeReference<Page<T>> pageType) {
         this.config = config;
         this.method = method;
+        this.urlConnectionFactory = config.getUrlConnectionFactory();
+        this.connectTimeoutMillis = config.getConnectTimeoutMillis();
+        this.readTimeoutMillis = config.getReadTimeoutMillis();
+        this.deadlineMillis = config.getDeadlineMillis();
 
         this.responseClass = responseClass;
         this.responseType = responseType;
@@ -112,21 +105,65 @@ public abstract class Request<T> {
     }
 
     /**
-     * Get URL string for this request.
+     * Create the mapper of the requests binding the models by reflection, without their generated readers and writers.
      *
-     * @return the string URL
-     * @throws IOException if there is an error creating query parameter string
+     * @return the mapper
      */
-    private String getUrl() throws IOException {
-        StringBuilder urlBuilder = new StringBuilder(config.getBaseApiUrl()).append(restPath);
+    static ObjectMapper newReflectiveObjectMapper() {
+        return new ObjectMapper()
+                .setPropertyNamingStrategy(PropertyNamingStrategy.CAMEL_CASE_TO_LOWER_CASE_WITH_UNDERSCORES)
+                .configure(MapperFeature.DEFAULT_VIEW_INCLUSION, false)
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .registerModules(new CaseModule(), new FieldModule(), new PlanModule(), new ResultModule(), new UnixTimestampModule());
+    }
 
+    /**
+     * Get the query parameter string for the filters of this request.
+     *
+     * @return the string to be appended to the URL, empty if there is no filter
+     * @throws IOException if there is an error creating query parameter string
+     */
+    private String getQueryString() throws IOException {
         String queryParamJson = JSON.writerWithView(getClass()).writeValueAsString(this);
         String queryParamString = JSON.readValue(queryParamJson, QueryParameterString.class).toString();
-        if (!queryParamString.isEmpty()) {
-            urlBuilder.append("&").append(queryParamString);
-        }
+        return queryParamString.isEmpty() ? "" : "&" + queryParamString;
+    }
+
+    /**
+     * Set the timeouts of each HTTP request sent to execute this request, overriding those of {@link TestRail.Builder#timeouts(int, int)}.
+     * A timeout of zero is infinite.
+     *
+     * @param connectTimeoutMillis the timeout to establish a connection, in milliseconds
+     * @param readTimeoutMillis    the timeout waiting for data of a response, in milliseconds
+     * @return this for chaining
+     * @throws java.lang.IllegalArgumentException if any of the timeouts is negative
+     */
+    public Request<T> timeouts(int connectTimeoutMillis, int readTimeoutMillis) {
+        checkArgument(connectTimeoutMillis >= 0, "connectTimeoutMillis should not be negative");
+        checkArgument(readTimeoutMillis >= 0, "readTimeoutMillis should not be negative");
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        return this;
+    }
 
-        return urlBuilder.toString();
+    /**
+     * Set the time this request may take in total, overriding the deadline of {@link TestRail.Builder#deadline(long, TimeUnit)}.
+     * <p>The deadline starts with each execution and spans all the pages of a paginated response, including the time
+     * waiting for a bulkhead. No page is requested once it passed, and the timeouts of each page are shortened to the time
+     * left, so that an execution fails with {@link DeadlineExceededException} shortly after its deadline. The exception
+     * tells how many pages were completed and the offset to resume from.</p>
+     *
+     * @param timeout the time this request may take in total
+     * @param unit    the unit of timeout
+     * @return this for chaining
+     * @throws java.lang.IllegalArgumentException if timeout is not positive
+     */
+    public Request<T> deadline(long timeout, @NonNull TimeUnit unit) {
+        checkArgument(timeout > 0, "timeout should be positive");
+        this.deadlineMillis = Math.max(1, unit.toMillis(timeout));
+        return this;
     }
 
     /**
@@ -148,108 +185,177 @@ public abstract class Request<T> {
     }
 
     /**
-     * Execute this request.
+     * Prepare this request for execution, resolving its URL, content and deserializers once.
+     * <p>The prepared request is immutable and thread-safe: it is not affected by later changes to this request, and can
+     * be executed any number of times, concurrently from many threads. Requests with their own way of execution, for e.g.
+     * {@link TestRail.Results.ChunkedAddList}, are prepared as a single request.</p>
      *
-     * @return response from TestRail
+     * @return the prepared request
      */
-    public T execute() {
+    public PreparedRequest<T> prepare() {
+        Object content = method == Method.POST ? getContent() : null;
         try {
+            byte[] contentBytes = content == null ? null : JSON.writerWithView(getClass()).writeValueAsBytes(content);
+            return prepare(null, contentBytes);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            String url = getUrl();
-            HttpURLConnection con = (HttpURLConnection) urlConnectionFactory.getUrlConnection(url);
-            con.setRequestMethod(method.name());
-            if (config.getApplicationName().isPresent()) {
-                con.setRequestProperty("User-Agent", config.getApplicationName().get());
-            }
-            con.setRequestProperty("Content-Type", "application/json");
-            String basicAuth = "Basic "
-                    + DatatypeConverter.printBase64Binary((config.getUsername()
-                    + ":" + config.getPassword()).getBytes(Charset.forName("UTF-8")));
-            con.setRequestProperty("Authorization", basicAuth);
-            if (method == Method.POST) {
-                con.setDoOutput(true);
-                Object content = getContent();
-                if (content != null) {
-                    try (OutputStream outputStream = new BufferedOutputStream(con.getOutputStream())) {
-                        JSON.writerWithView(this.getClass()).writeValue(outputStream, content);
+    /**
+     * Prepare this request for a single execution, serializing its content only while it is sent.
+     *
+     * @param content      the content to be serialized, null if none or if contentBytes is given
+     * @param contentBytes the serialized content, null if none or if content is given
+     * @return the prepared request
+     */
+    private PreparedRequest<T> prepare(Object content, byte[] contentBytes) {
+        try {
+            Object supplementForDeserialization = getSupplementForDeserialization();
+            ObjectReader responseReader;
+            boolean paginated = false;
+            ObjectReader pageReader = null;
+            if (responseClass != null) {
+                responseReader = responseClass == Void.class ? null : JSON.reader(responseClass);
+                if (responseReader != null && supplementForDeserialization != null) {
+                    responseReader = responseReader.with(new InjectableValues.Std().addValue(responseClass.toString(), supplementForDeserialization));
+                }
+            } else {
+                responseReader = JSON.reader(responseType);
+                if (supplementForDeserialization != null) {
+                    String supplementKey = responseType.getType().toString();
+                    if (responseType.getType() instanceof ParameterizedType) {
+                        Type[] actualTypes = ((ParameterizedType) responseType.getType()).getActualTypeArguments();
+                        if (actualTypes.length == 1 && actualTypes[0] instanceof Class<?>) {
+                            supplementKey = actualTypes[0].toString();
+                        }
                     }
-                } else {
-                    con.setFixedLengthStreamingMode(0);
+                    responseReader = responseReader.with(new InjectableValues.Std().addValue(supplementKey, supplementForDeserialization));
+                }
+                paginated = pageType != null && ((ParameterizedType) responseType.getType()).getRawType().getTypeName().equals("java.util.List");
+                if (paginated) {
+                    pageReader = Endpoints.get(getClass(), restPath).getPageReader(supplementForDeserialization);
                 }
             }
-            log.debug("Sending " + method + " request to URL : " + url);
-            int responseCode = 0;
-            try {
-                responseCode = con.getResponseCode();
-            } catch (IOException e) {
-                // swallow it since for 401 getResponseCode throws an IOException
-                responseCode = con.getResponseCode();
-            }
-            log.debug("Response Code : " + responseCode);
+            return new PreparedRequest<>(config, method, restPath, apiSegment, getQueryString(), urlConnectionFactory,
+                    JSON.writerWithView(getClass()), content, contentBytes, responseReader, paginated, pageReader, connectTimeoutMillis,
+                    readTimeoutMillis, deadlineMillis);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            if (responseCode != HttpURLConnection.HTTP_OK) {
-                try (InputStream errorStream = con.getErrorStream()) {
-                    TestRailException.Builder exceptionBuilder = new TestRailException.Builder().setResponseCode(responseCode);
-                    if (errorStream == null) {
-                        throw exceptionBuilder.setError("<server did not send any error message>").build();
-                    }
-                    throw JSON.readerForUpdating(exceptionBuilder).<TestRailException.Builder>readValue(new BufferedInputStream(errorStream)).build();
-                }
+    /**
+     * Execute this request.
+     *
+     * @return response from TestRail
+     */
+    public T execute() {
+        EntityCache entityCache = config.getEntityCache().orNull();
+        T response = entityCache != null ? entityCache.execute(this) : executeUncached();
+        config.getRequestListeners().onExecuted(this, response);
+        return response;
+    }
+
+    /**
+     * Execute this request, bypassing the entity cache.
+     *
+     * @return response from TestRail
+     */
+    @SuppressWarnings("unchecked")
+    T executeUncached() {
+        Object content = method == Method.POST ? getContent() : null;
+        ChangeTracker changeTracker = config.getChangeTracker().orNull();
+        if (changeTracker == null) {
+            return prepare(content, null).execute();
+        }
+        if (content != null && ChangeTracker.isTrackedUpdate(this)) {
+            ObjectNode changes = changeTracker.getChanges(content);
+            if (changes != null && changes.size() == 0) {
+                // nothing to update, the model is as it was loaded
+                return (T) content;
             }
+            T response = prepare(changes != null ? changes : content, null).execute();
+            changeTracker.track(content);
+            changeTracker.track(response);
+            return response;
+        }
+        T response = prepare(content, null).execute();
+        changeTracker.track(response);
+        return response;
+    }
 
-            try (InputStream responseStream = new BufferedInputStream(con.getInputStream())) {
-                Object supplementForDeserialization = getSupplementForDeserialization();
-                if (responseClass != null) {
-                    if (responseClass == Void.class) {
-                        return null;
-                    }
-                    if (supplementForDeserialization != null) {
-                        return JSON.reader(responseClass).with(new InjectableValues.Std().addValue(responseClass.toString(), supplementForDeserialization)).readValue(responseStream);
-                    }
-                    return JSON.readValue(responseStream, responseClass);
-                } else {
-                    String payload = new String(ByteStreams.toByteArray(responseStream), Charsets.UTF_8).replace("\"_links\":", "\"links\":");
-                    if (((ParameterizedType) responseType.getType()).getRawType().getTypeName().equals("java.util.List")
-                    && payload.contains("\"offset\":") && payload.contains("\"limit\":") && payload.contains("\"offset\":")) {
-                        Matcher matcher = Pattern.compile("get_([^\\_/]+)").matcher(restPath);
-                        if (matcher.find())
-                            PageDeserializer.field = matcher.group(1);
-                        try {
-                            PageDeserializer.type = Class.forName(((ParameterizedType) responseType.getType()).getActualTypeArguments()[0].getTypeName());
-                        }
-                        catch(Exception e) {
-                            return ((T)new ArrayList());
-                        }
-                        if (supplementForDeserialization != null) {
-                            PageDeserializer.supplement = supplementForDeserialization;
-                        }
-                        Page<T> page = JSON.readValue(payload, pageType);
-                        if (page._links.next != null) {
-                            restPath = page._links.next.replace(this.apiSegment, "");
-                            T concat = execute();
-                            T models = page.objects;
-                            ((List)models).addAll(((List)concat));
-                            return models;
-                        }
-                        else
-                            return page.objects;
-                    }
-                    else if (supplementForDeserialization != null) {
-                        String supplementKey = responseType.getType().toString();
-                        if (responseType.getType() instanceof ParameterizedType) {
-                            Type[] actualTypes = ((ParameterizedType) responseType.getType()).getActualTypeArguments();
-                            if (actualTypes.length == 1 && actualTypes[0] instanceof Class<?>) {
-                                supplementKey = actualTypes[0].toString();
-                            }
-                        }
-                        return JSON.reader(responseType).with(new InjectableValues.Std().addValue(supplementKey, supplementForDeserialization)).readValue(payload);
-                    }
-                    return JSON.readValue(payload, responseType);
-                }
+    /**
+     * Execute this request, handing over each page of a paginated response to the consumer as soon as it is received.
+     * <p>Unlike {@link #execute()}, pages are not accumulated, so the memory used stays proportional to a single page
+     * however large the full response is. Responses which are not paginated are handed over as a single page.</p>
+     *
+     * @param pageConsumer the consumer of pages, called on the executing thread in the order the pages are received
+     */
+    public void forEachPage(@NonNull final Consumer<? super T> pageConsumer) {
+        final ChangeTracker changeTracker = config.getChangeTracker().orNull();
+        prepare(method == Method.POST ? getContent() : null, null).forEachPage(changeTracker == null ? pageConsumer : new Consumer<T>() {
+            @Override
+            public void accept(T page) {
+                changeTracker.track(page);
+                pageConsumer.accept(page);
             }
+        });
+    }
 
-        } catch (MalformedURLException e) {
-            throw new RuntimeException(e);
+    /**
+     * Export this request page by page to a sink, resuming from the position saved in the checkpoint, if any.
+     * See {@link PreparedRequest#export(ExportCheckpoint, Consumer)} for details.
+     *
+     * @param checkpoint the storage of the position reached
+     * @param pageSink   the consumer of pages, called on the executing thread in the order the pages are received
+     * @return the final position of the export, which is complete
+     * @throws IllegalStateException if the checkpoint belongs to the export of another request
+     */
+    public ExportCheckpoint.Position export(@NonNull ExportCheckpoint checkpoint, @NonNull Consumer<? super T> pageSink) {
+        return prepare(method == Method.POST ? getContent() : null, null).export(checkpoint, pageSink);
+    }
+
+    /**
+     * Execute this request with the given content instead of the one provided by {@link #getContent()}, for e.g. to send a part
+     * of the content. Only meant for requests whose response is not paginated.
+     *
+     * @param content the content to be sent
+     * @return response from TestRail
+     */
+    T execute(Object content) {
+        return prepare(content, null).execute();
+    }
+
+    /**
+     * Get the path of the request URL, relative to the API base URL.
+     *
+     * @return the path, for e.g. {@code get_case/1}
+     */
+    String getRestPath() {
+        return restPath;
+    }
+
+    /**
+     * Execute this request with the given serialized content instead of the one provided by {@link #getContent()}. Only meant
+     * for requests whose response is not paginated.
+     *
+     * @param contentBytes the JSON content to be sent
+     * @return response from TestRail
+     */
+    T execute(byte[] contentBytes) {
+        return prepare(null, contentBytes).execute();
+    }
+
+    /**
+     * Get the JSON representation of a value, as it would be written in the content of this request.
+     *
+     * @param value the value
+     * @return the JSON representation
+     */
+    byte[] getContentBytes(Object value) {
+        try {
+            return JSON.writerWithView(this.getClass()).writeValueAsBytes(value);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,81 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The listeners of the requests executed through a {@code TestRail}, for e.g. the indexes kept up to date with the
+ * changes made through the same client.
+ * <p>The listeners are only weakly referenced, so that an index no longer used by its owner is garbage collected without
+ * having to be unregistered. Thread-safe.</p>
+ */
+class RequestListeners {
+
+    /**
+     * Listener of the requests executed through a {@code TestRail}.
+     */
+    interface Listener {
+
+        /**
+         * Called on the executing thread after a request was executed successfully.
+         *
+         * @param request  the request
+         * @param response the response, null if the request has no response
+         */
+        void onExecuted(Request<?> request, Object response);
+    }
+
+    private final CopyOnWriteArrayList<WeakReference<Listener>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Add a listener, as long as it is strongly referenced elsewhere.
+     *
+     * @param listener the listener
+     */
+    void add(Listener listener) {
+        listeners.add(new WeakReference<>(listener));
+    }
+
+    /**
+     * Notify the listeners of a request executed successfully.
+     *
+     * @param request  the request
+     * @param response the response
+     */
+    void onExecuted(Request<?> request, Object response) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        for (WeakReference<Listener> reference : listeners) {
+            Listener listener = reference.get();
+            if (listener == null) {
+                listeners.remove(reference);
+            } else {
+                listener.onExecuted(request, response);
+            }
+        }
+    }
+}
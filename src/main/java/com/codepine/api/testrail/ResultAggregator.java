@@ -0,0 +1,363 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.BoundedExecutor;
+import com.codepine.api.testrail.internal.IntIntHashMap;
+import com.codepine.api.testrail.model.Milestone;
+import com.codepine.api.testrail.model.Plan;
+import com.codepine.api.testrail.model.Result;
+import com.codepine.api.testrail.model.ResultField;
+import com.codepine.api.testrail.model.Run;
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableMap;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Aggregates the results of all the test runs of a test plan or a milestone into status breakdowns.
+ * <p>Results of different runs are fetched concurrently, at most {@link TestRail.Builder#parallelism(int)} runs at a time, and every
+ * page of results is folded into the breakdowns as soon as it is received. Only the latest status and assignee of each test of the runs
+ * being fetched are held in memory, so the memory used does not grow with the number of results.</p>
+ * <p>The custom result fields configured in TestRail can be fetched using {@link TestRail.ResultFields#list()} request.</p>
+ */
+public class ResultAggregator {
+
+    private final TestRail testRail;
+    private final List<ResultField> resultFields;
+
+    /**
+     * @param testRail     the client to fetch runs and results with
+     * @param resultFields the custom result fields configured in TestRail to get type information for custom fields in the results
+     */
+    public ResultAggregator(@NonNull TestRail testRail, @NonNull List<ResultField> resultFields) {
+        this.testRail = testRail;
+        this.resultFields = resultFields;
+    }
+
+    /**
+     * Aggregate the results of all the test runs of a test plan.
+     *
+     * @param planId the ID of the test plan
+     * @return the aggregated breakdowns
+     * @throws java.lang.IllegalArgumentException if planId is not positive
+     */
+    public Report forPlan(final int planId) {
+        checkArgument(planId > 0, "planId should be positive");
+        return forRuns(getRuns(testRail.plans().get(planId).execute()));
+    }
+
+    /**
+     * Aggregate the results of all the test runs of a milestone, including the runs which are part of test plans of the milestone.
+     *
+     * @param milestoneId the ID of the milestone
+     * @return the aggregated breakdowns
+     * @throws java.lang.IllegalArgumentException if milestoneId is not positive
+     */
+    public Report forMilestone(final int milestoneId) {
+        checkArgument(milestoneId > 0, "milestoneId should be positive");
+        Milestone milestone = testRail.milestones().get(milestoneId).execute();
+        List<Integer> milestoneIds = Collections.singletonList(milestoneId);
+        final List<Run> runs = new ArrayList<>(testRail.runs().list(milestone.getProjectId()).milestoneId(milestoneIds).execute());
+        List<Callable<Plan>> planTasks = new ArrayList<>();
+        for (final Plan plan : testRail.plans().list(milestone.getProjectId()).milestoneId(milestoneIds).execute()) {
+            planTasks.add(new Callable<Plan>() {
+                @Override
+                public Plan call() {
+                    // plans in the list do not contain entries
+                    return testRail.plans().get(plan.getId()).execute();
+                }
+            });
+        }
+        for (Plan plan : invokeAll(planTasks)) {
+            runs.addAll(getRuns(plan));
+        }
+        return forRuns(runs);
+    }
+
+    /**
+     * Aggregate the results of the given test runs.
+     *
+     * @param runs the test runs, as returned by TestRail, since the status counts of runs are used to account for untested tests
+     * @return the aggregated breakdowns
+     */
+    public Report forRuns(@NonNull Collection<? extends Run> runs) {
+        final Report report = new Report();
+        List<Callable<Void>> runTasks = new ArrayList<>(runs.size());
+        for (final Run run : runs) {
+            runTasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    final RunTally tally = new RunTally();
+                    testRail.results().listForRun(run.getId(), resultFields).forEachPage(new Consumer<List<Result>>() {
+                        @Override
+                        public void accept(List<Result> results) {
+                            for (Result result : results) {
+                                tally.add(result);
+                            }
+                        }
+                    });
+                    report.merge(run, tally);
+                    return null;
+                }
+            });
+        }
+        invokeAll(runTasks);
+        return report;
+    }
+
+    private <V> List<V> invokeAll(List<Callable<V>> tasks) {
+        return new BoundedExecutor(testRail.getConfig().getParallelism(), testRail.getConfig().isVirtualThreads()).getAll(tasks);
+    }
+
+    private static List<Run> getRuns(Plan plan) {
+        List<Run> runs = new ArrayList<>();
+        if (plan.getEntries() != null) {
+            for (Plan.Entry entry : plan.getEntries()) {
+                if (entry.getRuns() != null) {
+                    runs.addAll(entry.getRuns());
+                }
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Latest status and assignee of each test of a single run, keyed by test ID. The ID of the result which set a value is kept
+     * alongside, since results are not guaranteed to be received in chronological order.
+     */
+    private static class RunTally {
+        private final IntIntHashMap slots = new IntIntHashMap();
+        private int[] statusIds = new int[16];
+        private int[] statusResultIds = new int[16];
+        private int[] assigneeIds = new int[16];
+        private int[] assigneeResultIds = new int[16];
+        private final Map<Integer, Long> resultStatusCounts = new HashMap<>();
+        private long resultCount;
+
+        void add(Result result) {
+            resultCount++;
+            int slot = slots.get(result.getTestId(), -1);
+            if (slot < 0) {
+                slot = slots.size();
+                slots.put(result.getTestId(), slot);
+                if (slot == statusIds.length) {
+                    int capacity = slot * 2;
+                    statusIds = Arrays.copyOf(statusIds, capacity);
+                    statusResultIds = Arrays.copyOf(statusResultIds, capacity);
+                    assigneeIds = Arrays.copyOf(assigneeIds, capacity);
+                    assigneeResultIds = Arrays.copyOf(assigneeResultIds, capacity);
+                }
+            }
+            // results which only add a comment or assign the test do not have a status
+            if (result.getStatusId() != null) {
+                resultStatusCounts.merge(result.getStatusId(), 1L, Long::sum);
+                if (result.getId() > statusResultIds[slot]) {
+                    statusIds[slot] = result.getStatusId();
+                    statusResultIds[slot] = result.getId();
+                }
+            }
+            if (result.getAssignedtoId() != null && result.getId() > assigneeResultIds[slot]) {
+                assigneeIds[slot] = result.getAssignedtoId();
+                assigneeResultIds[slot] = result.getId();
+            }
+        }
+
+        int size() {
+            return slots.size();
+        }
+    }
+
+    /**
+     * Status breakdowns aggregated over a set of test runs. Status IDs are used as keys of all breakdowns.
+     * <p>Test status breakdowns count each test once, with its latest status, same as the status counts of a {@link Run}. Tests
+     * without any result with a status are counted as untested. Assignees are derived from results, hence tests without any result
+     * are not accounted for in {@link #getAssigneeStatusCounts()}.</p>
+     */
+    @Getter
+    @ToString
+    public static class Report {
+
+        public static final int PASSED_STATUS_ID = 1;
+        public static final int BLOCKED_STATUS_ID = 2;
+        public static final int UNTESTED_STATUS_ID = 3;
+        public static final int RETEST_STATUS_ID = 4;
+        public static final int FAILED_STATUS_ID = 5;
+        private static final int CUSTOM_STATUS_ID_OFFSET = 5;
+        private static final Joiner CONFIG_JOINER = Joiner.on(", ");
+
+        /**
+         * Number of runs aggregated.
+         */
+        private int runCount;
+
+        /**
+         * Number of results aggregated, including the ones without a status.
+         */
+        private long resultCount;
+
+        /**
+         * Number of tests by their latest status.
+         */
+        @Getter(AccessLevel.NONE)
+        private final Map<Integer, Integer> statusCounts = new HashMap<>();
+
+        /**
+         * Number of results by status, i.e. counting every status ever set on tests.
+         */
+        @Getter(AccessLevel.NONE)
+        private final Map<Integer, Long> resultStatusCounts = new HashMap<>();
+
+        /**
+         * Number of tests by their latest assignee and latest status.
+         */
+        @Getter(AccessLevel.NONE)
+        private final Map<Integer, Map<Integer, Integer>> assigneeStatusCounts = new HashMap<>();
+
+        /**
+         * Number of tests by the configuration of their run and latest status, only for runs of test plans with configurations.
+         * The configuration is the comma separated names of the configurations of the run, for e.g. "Chrome, Windows 10".
+         */
+        @Getter(AccessLevel.NONE)
+        private final Map<String, Map<Integer, Integer>> configStatusCounts = new HashMap<>();
+
+        private Report() {
+        }
+
+        public synchronized Map<Integer, Integer> getStatusCounts() {
+            return ImmutableMap.copyOf(statusCounts);
+        }
+
+        public synchronized Map<Integer, Long> getResultStatusCounts() {
+            return ImmutableMap.copyOf(resultStatusCounts);
+        }
+
+        public synchronized Map<Integer, Map<Integer, Integer>> getAssigneeStatusCounts() {
+            return copyOf(assigneeStatusCounts);
+        }
+
+        public synchronized Map<String, Map<Integer, Integer>> getConfigStatusCounts() {
+            return copyOf(configStatusCounts);
+        }
+
+        public int getPassedCount() {
+            return getStatusCount(PASSED_STATUS_ID);
+        }
+
+        public int getBlockedCount() {
+            return getStatusCount(BLOCKED_STATUS_ID);
+        }
+
+        public int getUntestedCount() {
+            return getStatusCount(UNTESTED_STATUS_ID);
+        }
+
+        public int getRetestCount() {
+            return getStatusCount(RETEST_STATUS_ID);
+        }
+
+        public int getFailedCount() {
+            return getStatusCount(FAILED_STATUS_ID);
+        }
+
+        /**
+         * Get the number of tests with a custom status as their latest status.
+         *
+         * @param customStatusNumber the number of the custom status, between 1 and 7, same as in {@link Run#getCustomStatus1Count()}
+         * @return the number of tests
+         * @throws java.lang.IllegalArgumentException if customStatusNumber is not between 1 and 7
+         */
+        public int getCustomStatusCount(final int customStatusNumber) {
+            checkArgument(customStatusNumber >= 1 && customStatusNumber <= 7, "customStatusNumber should be between 1 and 7");
+            return getStatusCount(CUSTOM_STATUS_ID_OFFSET + customStatusNumber);
+        }
+
+        /**
+         * Get the number of tests with the given status as their latest status.
+         *
+         * @param statusId the ID of the status
+         * @return the number of tests
+         */
+        public synchronized int getStatusCount(final int statusId) {
+            Integer count = statusCounts.get(statusId);
+            return count == null ? 0 : count;
+        }
+
+        private synchronized void merge(Run run, RunTally tally) {
+            runCount++;
+            resultCount += tally.resultCount;
+            for (Map.Entry<Integer, Long> resultStatusCount : tally.resultStatusCounts.entrySet()) {
+                resultStatusCounts.merge(resultStatusCount.getKey(), resultStatusCount.getValue(), Long::sum);
+            }
+            Map<Integer, Integer> configCounts = null;
+            if (run.getConfig() != null && !run.getConfig().isEmpty()) {
+                configCounts = configStatusCounts.computeIfAbsent(CONFIG_JOINER.join(run.getConfig()), k -> new HashMap<>());
+            }
+            for (int slot = 0; slot < tally.size(); slot++) {
+                int statusId = tally.statusIds[slot];
+                if (statusId == 0) {
+                    statusId = UNTESTED_STATUS_ID;
+                }
+                statusCounts.merge(statusId, 1, Integer::sum);
+                if (configCounts != null) {
+                    configCounts.merge(statusId, 1, Integer::sum);
+                }
+                if (tally.assigneeIds[slot] != 0) {
+                    assigneeStatusCounts.computeIfAbsent(tally.assigneeIds[slot], k -> new HashMap<>()).merge(statusId, 1, Integer::sum);
+                }
+            }
+            // tests without any result are not part of the tally
+            int untouchedCount = run.getTestCount() - tally.size();
+            if (untouchedCount > 0) {
+                statusCounts.merge(UNTESTED_STATUS_ID, untouchedCount, Integer::sum);
+                if (configCounts != null) {
+                    configCounts.merge(UNTESTED_STATUS_ID, untouchedCount, Integer::sum);
+                }
+            }
+        }
+
+        private static <K> Map<K, Map<Integer, Integer>> copyOf(Map<K, Map<Integer, Integer>> counts) {
+            ImmutableMap.Builder<K, Map<Integer, Integer>> copy = ImmutableMap.builder();
+            for (Map.Entry<K, Map<Integer, Integer>> entry : counts.entrySet()) {
+                copy.put(entry.getKey(), ImmutableMap.copyOf(entry.getValue()));
+            }
+            return copy.build();
+        }
+    }
+}
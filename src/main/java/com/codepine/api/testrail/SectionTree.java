@@ -0,0 +1,388 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.IntIntHashMap;
+import com.codepine.api.testrail.model.Section;
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The hierarchy of the sections of a project or of a suite, built once from {@link TestRail.Sections#list(int)} and kept
+ * up to date with the sections added, updated and deleted through the same {@code TestRail}.
+ * <p>Sections are nodes of arrays indexed through a primitive map of their IDs, with their children in display order.
+ * A depth-first walk numbers the sections in the order they are displayed in TestRail, so that the subtree of a section
+ * is the interval between its own number and the number of its last descendant: checking whether a section is under
+ * another is a constant time comparison, for e.g. to pick the cases under a section with their {@code sectionId}. The
+ * walk is only redone on the first query after the tree changed. The paths of the sections are built on first use and
+ * memoized.</p>
+ * <p>Thread-safe.</p>
+ */
+public class SectionTree {
+
+    /**
+     * Returned as the parent ID of the top level sections.
+     */
+    public static final int ROOT = 0;
+
+    /**
+     * Separator of the names of the sections in their path.
+     */
+    public static final String PATH_SEPARATOR = " > ";
+
+    private static final int NONE = -1;
+
+    private final int projectId;
+    private final Integer suiteId;
+    private final IntIntHashMap nodes;
+    private final RequestListeners.Listener listener = new RequestListeners.Listener() {
+        @Override
+        public void onExecuted(Request<?> request, Object response) {
+            onRequestExecuted(request, response);
+        }
+    };
+
+    // node 0 is the root, parent of the top level sections
+    private int nodeCount = 1;
+    private int[] ids;
+    private int[] parents;
+    private int[] displayOrders;
+    private int[] firstChildren;
+    private int[] nextSiblings;
+    private String[] names;
+    private String[] paths;
+
+    private boolean walked;
+    private int[] enters;
+    private int[] exits;
+    private int[] walk;
+
+    private SectionTree(int projectId, Integer suiteId, List<Section> sections) {
+        this.projectId = projectId;
+        this.suiteId = suiteId;
+        int capacity = sections.size() + 1;
+        this.nodes = new IntIntHashMap(capacity);
+        this.ids = new int[capacity];
+        this.parents = new int[capacity];
+        this.displayOrders = new int[capacity];
+        this.firstChildren = new int[capacity];
+        this.nextSiblings = new int[capacity];
+        this.names = new String[capacity];
+        this.paths = new String[capacity];
+        firstChildren[0] = NONE;
+        nextSiblings[0] = NONE;
+        for (Section section : sections) {
+            nodes.put(section.getId(), nodeCount);
+            newNode(section);
+        }
+        for (int node = 1; node < nodeCount; node++) {
+            Integer parentId = sections.get(node - 1).getParentId();
+            int parent = parentId == null ? 0 : nodes.get(parentId, 0);
+            link(node, parent);
+        }
+    }
+
+    /**
+     * Build the tree of the sections of a project in single-suite mode, or of all the suites of a project.
+     *
+     * @param testRail  the client to list the sections with, whose changes to the sections are applied to the tree
+     * @param projectId the ID of the project
+     * @return the tree
+     * @throws java.lang.IllegalArgumentException if projectId is not positive
+     */
+    public static SectionTree build(@NonNull TestRail testRail, int projectId) {
+        return register(testRail, new SectionTree(projectId, null, testRail.sections().list(projectId).execute()));
+    }
+
+    /**
+     * Build the tree of the sections of a suite.
+     *
+     * @param testRail  the client to list the sections with, whose changes to the sections are applied to the tree
+     * @param projectId the ID of the project
+     * @param suiteId   the ID of the suite
+     * @return the tree
+     * @throws java.lang.IllegalArgumentException if projectId or suiteId is not positive
+     */
+    public static SectionTree build(@NonNull TestRail testRail, int projectId, int suiteId) {
+        return register(testRail, new SectionTree(projectId, suiteId, testRail.sections().list(projectId, suiteId).execute()));
+    }
+
+    private static SectionTree register(TestRail testRail, SectionTree sectionTree) {
+        testRail.getConfig().getRequestListeners().add(sectionTree.listener);
+        return sectionTree;
+    }
+
+    /**
+     * Get the number of sections in the tree.
+     *
+     * @return the number of sections
+     */
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    /**
+     * @param sectionId the ID of a section
+     * @return true if the section is in the tree
+     */
+    public synchronized boolean contains(int sectionId) {
+        return nodes.containsKey(sectionId);
+    }
+
+    /**
+     * Get the ID of the parent of a section.
+     *
+     * @param sectionId the ID of the section
+     * @return the ID of the parent, or {@link #ROOT} for a top level section
+     * @throws java.lang.IllegalArgumentException if the section is not in the tree
+     */
+    public synchronized int getParentId(int sectionId) {
+        return ids[parents[nodeOf(sectionId)]];
+    }
+
+    /**
+     * Get the IDs of the children of a section, in display order.
+     *
+     * @param sectionId the ID of the section, or {@link #ROOT} for the top level sections
+     * @return the IDs of the children
+     * @throws java.lang.IllegalArgumentException if the section is not in the tree
+     */
+    public synchronized int[] getChildIds(int sectionId) {
+        int node = sectionId == ROOT ? 0 : nodeOf(sectionId);
+        int count = 0;
+        for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+            count++;
+        }
+        int[] childIds = new int[count];
+        int i = 0;
+        for (int child = firstChildren[node]; child != NONE; child = nextSiblings[child]) {
+            childIds[i++] = ids[child];
+        }
+        return childIds;
+    }
+
+    /**
+     * Check whether a section is in the subtree of another, for e.g. whether a case with its {@code sectionId} is under a
+     * section. Constant time once the tree is walked.
+     *
+     * @param sectionId  the ID of the section
+     * @param ancestorId the ID of the root of the subtree
+     * @return true if the section is the ancestor or one of its descendants, false if either is not in the tree
+     */
+    public synchronized boolean isInSubtree(int sectionId, int ancestorId) {
+        int node = nodes.get(sectionId, NONE);
+        int ancestor = nodes.get(ancestorId, NONE);
+        if (node == NONE || ancestor == NONE) {
+            return false;
+        }
+        walk();
+        return enters[ancestor] <= enters[node] && enters[node] <= exits[ancestor];
+    }
+
+    /**
+     * Get the IDs of a section and of all its descendants, in display order.
+     *
+     * @param sectionId the ID of the section
+     * @return the IDs, starting with the section itself
+     * @throws java.lang.IllegalArgumentException if the section is not in the tree
+     */
+    public synchronized int[] getSubtreeIds(int sectionId) {
+        int node = nodeOf(sectionId);
+        walk();
+        int[] subtreeIds = new int[exits[node] - enters[node] + 1];
+        for (int i = 0; i < subtreeIds.length; i++) {
+            subtreeIds[i] = ids[walk[enters[node] + i]];
+        }
+        return subtreeIds;
+    }
+
+    /**
+     * Get the path of a section, the names of the sections from the top level down to the section, separated by
+     * {@link #PATH_SEPARATOR}.
+     *
+     * @param sectionId the ID of the section
+     * @return the path
+     * @throws java.lang.IllegalArgumentException if the section is not in the tree
+     */
+    public synchronized String getPath(int sectionId) {
+        return pathOf(nodeOf(sectionId));
+    }
+
+    private String pathOf(int node) {
+        if (paths[node] == null) {
+            int parent = parents[node];
+            paths[node] = parent == 0 ? names[node] : pathOf(parent) + PATH_SEPARATOR + names[node];
+        }
+        return paths[node];
+    }
+
+    private int nodeOf(int sectionId) {
+        int node = nodes.get(sectionId, NONE);
+        checkArgument(node != NONE, "Section %s is not in the tree", sectionId);
+        return node;
+    }
+
+    /**
+     * Number the sections depth first in display order, if the tree changed since the last walk.
+     */
+    private void walk() {
+        if (walked) {
+            return;
+        }
+        if (enters == null || enters.length < ids.length) {
+            enters = new int[ids.length];
+            exits = new int[ids.length];
+            walk = new int[ids.length];
+        }
+        int[] stack = new int[nodeCount];
+        int depth = 0;
+        int next = 0;
+        stack[depth++] = 0;
+        enters[0] = next;
+        walk[next++] = 0;
+        int[] cursor = new int[nodeCount];
+        cursor[0] = firstChildren[0];
+        while (depth > 0) {
+            int node = stack[depth - 1];
+            int child = cursor[depth - 1];
+            if (child == NONE) {
+                exits[node] = next - 1;
+                depth--;
+            } else {
+                cursor[depth - 1] = nextSiblings[child];
+                enters[child] = next;
+                walk[next++] = child;
+                stack[depth] = child;
+                cursor[depth] = firstChildren[child];
+                depth++;
+            }
+        }
+        walked = true;
+    }
+
+    private synchronized void onRequestExecuted(Request<?> request, Object response) {
+        if (request instanceof TestRail.Sections.Add) {
+            Section section = (Section) response;
+            if (section != null && !nodes.containsKey(section.getId()) && isOfTree(request, section)) {
+                int parent = section.getParentId() == null ? 0 : nodes.get(section.getParentId(), NONE);
+                if (parent != NONE) {
+                    nodes.put(section.getId(), nodeCount);
+                    int node = newNode(section);
+                    link(node, parent);
+                    walked = false;
+                }
+            }
+        } else if (request instanceof TestRail.Sections.Update) {
+            Section section = (Section) response;
+            int node = section == null ? NONE : nodes.get(section.getId(), NONE);
+            if (node != NONE && section.getName() != null && !section.getName().equals(names[node])) {
+                names[node] = section.getName();
+                walk();
+                for (int i = enters[node]; i <= exits[node]; i++) {
+                    paths[walk[i]] = null;
+                }
+            }
+        } else if (request instanceof TestRail.Sections.Delete) {
+            // TestRail deletes the subsections along with the section
+            String path = request.getRestPath();
+            int node = nodes.get(Integer.parseInt(path.substring(path.lastIndexOf('/') + 1)), NONE);
+            if (node != NONE) {
+                walk();
+                for (int i = enters[node]; i <= exits[node]; i++) {
+                    nodes.remove(ids[walk[i]]);
+                }
+                unlink(node);
+                walked = false;
+            }
+        }
+    }
+
+    private boolean isOfTree(Request<?> request, Section section) {
+        if (suiteId != null && section.getSuiteId() != null) {
+            return suiteId.equals(section.getSuiteId());
+        }
+        if (section.getParentId() != null) {
+            return true;
+        }
+        String path = request.getRestPath();
+        return Integer.parseInt(path.substring(path.lastIndexOf('/') + 1)) == projectId && suiteId == null;
+    }
+
+    private int newNode(Section section) {
+        if (nodeCount == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            displayOrders = Arrays.copyOf(displayOrders, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            names = Arrays.copyOf(names, capacity);
+            paths = Arrays.copyOf(paths, capacity);
+        }
+        int node = nodeCount++;
+        ids[node] = section.getId();
+        displayOrders[node] = section.getDisplayOrder();
+        names[node] = section.getName();
+        firstChildren[node] = NONE;
+        nextSiblings[node] = NONE;
+        return node;
+    }
+
+    /**
+     * Add a node to the children of its parent, before the first sibling displayed after it.
+     */
+    private void link(int node, int parent) {
+        parents[node] = parent;
+        int previous = NONE;
+        int sibling = firstChildren[parent];
+        while (sibling != NONE && (displayOrders[sibling] < displayOrders[node]
+                || displayOrders[sibling] == displayOrders[node] && ids[sibling] < ids[node])) {
+            previous = sibling;
+            sibling = nextSiblings[sibling];
+        }
+        nextSiblings[node] = sibling;
+        if (previous == NONE) {
+            firstChildren[parent] = node;
+        } else {
+            nextSiblings[previous] = node;
+        }
+    }
+
+    private void unlink(int node) {
+        int parent = parents[node];
+        if (firstChildren[parent] == node) {
+            firstChildren[parent] = nextSiblings[node];
+            return;
+        }
+        int sibling = firstChildren[parent];
+        while (nextSiblings[sibling] != node) {
+            sibling = nextSiblings[sibling];
+        }
+        nextSiblings[sibling] = nextSiblings[node];
+    }
+}
@@ -25,7 +25,10 @@
 package com.codepine.api.testrail;
 
 import com.codepine.api.testrail.internal.BooleanToIntSerializer;
+import com.codepine.api.testrail.internal.BoundedExecutor;
 import com.codepine.api.testrail.internal.ListToCsvSerializer;
+import com.codepine.api.testrail.internal.UrlConnectionFactory;
+import com.codepine.api.testrail.internal.VirtualThreads;
 import com.codepine.api.testrail.model.*;
 import com.fasterxml.jackson.annotation.JsonView;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -37,17 +40,34 @@ import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.Accessors;
+import lombok.extern.log4j.Log4j;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
 
 /**
  * Client for Test Rail API. Configure and use it to create requests for the API.
  *
  * @see <a href="http://docs.gurock.com/testrail-api2/start">TestRail API v2 Documentation</a>
  */
+@Log4j
 @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
 @Accessors(fluent = true)
 public class TestRail {
@@ -68,6 +88,42 @@ public class TestRail {
         return new Builder(endPoint, username, password);
     }
 
+    /**
+     * Get the counts of bytes received from TestRail per API endpoint, as transferred and after decompression.
+     *
+     * @return the statistics shared by all the requests created through this instance
+     */
+    public TransferStatistics transferStatistics() {
+        return config.getTransferStatistics();
+    }
+
+    /**
+     * Get the circuit breakers of the API endpoints, enabled with {@link Builder#circuitBreakers(CircuitBreaker.Settings)}.
+     *
+     * @return the circuit breakers, or null if not enabled
+     */
+    public CircuitBreakers circuitBreakers() {
+        return config.getCircuitBreakers().orNull();
+    }
+
+    /**
+     * Get the cache of the entities fetched by ID, enabled with {@link Builder#entityCache(EntityCache.Settings)}.
+     *
+     * @return the entity cache, or null if not enabled
+     */
+    public EntityCache entityCache() {
+        return config.getEntityCache().orNull();
+    }
+
+    /**
+     * Get the cache of the responses on disk, enabled with {@link Builder#responseCache(DiskResponseCache.Settings)}.
+     *
+     * @return the response cache, or null if not enabled
+     */
+    public DiskResponseCache responseCache() {
+        return config.getResponseCache().orNull();
+    }
+
     /**
      * An accessor for creating requests for "Projects".
      *
@@ -224,6 +280,20 @@ public class TestRail {
         private final String password;
         private String apiPath;
         private String applicationName;
+        private int parallelism;
+        private Integer requestCompressionThreshold;
+        private boolean http2;
+        private boolean virtualThreads;
+        private UrlConnectionFactory urlConnectionFactory;
+        private Integer maxConcurrentReads;
+        private Integer maxConcurrentWrites;
+        private CircuitBreaker.Settings circuitBreakerSettings;
+        private EntityCache.Settings entityCacheSettings;
+        private DiskResponseCache.Settings responseCacheSettings;
+        private boolean changeTracking;
+        private int connectTimeoutMillis;
+        private int readTimeoutMillis;
+        private long deadlineMillis;
 
         /**
          * @param endPoint the URL end point where your TestRail is hosted, for e.g. https://example.com/testrail
@@ -239,6 +309,7 @@ public class TestRail {
             this.username = username;
             this.password = password;
             apiPath = DEFAULT_BASE_API_PATH;
+            parallelism = Runtime.getRuntime().availableProcessors();
         }
 
         /**
@@ -272,13 +343,314 @@ public class TestRail {
             return this;
         }
 
+        /**
+         * Set the maximum number of requests executed concurrently by operations which fan out over many requests,
+         * for e.g. {@link ResultAggregator}. Defaults to the number of available processors.
+         *
+         * @param parallelism the maximum number of concurrent requests
+         * @return this for chaining
+         * @throws java.lang.IllegalArgumentException if parallelism is not positive
+         */
+        public Builder parallelism(final int parallelism) {
+            checkArgument(parallelism > 0, "parallelism should be positive");
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Enable gzip compression of request content larger than the given size. Disabled by default.
+         * <p>Whatever this size, request content larger than 64 KiB is streamed to TestRail as it is serialized instead of
+         * being held in memory.</p>
+         *
+         * @param thresholdBytes the size in bytes above which request content is compressed
+         * @return this for chaining
+         * @throws java.lang.IllegalArgumentException if thresholdBytes is negative
+         */
+        public Builder requestCompressionThreshold(final int thresholdBytes) {
+            checkArgument(thresholdBytes >= 0, "thresholdBytes should not be negative");
+            this.requestCompressionThreshold = thresholdBytes;
+            return this;
+        }
+
+        /**
+         * Send requests with the {@code java.net.http.HttpClient} of Java 11+, which multiplexes concurrent requests over
+         * a few HTTP/2 connections and falls back to HTTP/1.1 for servers which do not support HTTP/2. Disabled by default.
+         * <p>The client is shared by all requests, so is its connect timeout, the one set with {@link #timeouts(int, int)}. A
+         * shorter connect timeout set with {@link Request#timeouts(int, int)} is rejected, unless the read timeout of the
+         * request is not longer, since it also bounds the connection.</p>
+         * <p>On Java 8 a warning is logged and requests are sent with {@link java.net.HttpURLConnection} as usual.</p>
+         *
+         * @param http2 whether to use HTTP/2 if available
+         * @return this for chaining
+         */
+        public Builder http2(final boolean http2) {
+            this.http2 = http2;
+            return this;
+        }
+
+        /**
+         * Run the requests of operations which fan out over many requests, for e.g. {@link ResultAggregator}, each on its
+         * own virtual thread instead of a pool of platform threads, still at most {@link #parallelism(int)} at a time.
+         * Disabled by default.
+         * <p>On a JVM without virtual threads (before Java 21) a warning is logged and platform threads are used.</p>
+         *
+         * @param virtualThreads whether to use virtual threads if available
+         * @return this for chaining
+         */
+        public Builder virtualThreads(final boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        /**
+         * Limit the number of concurrent read ({@code GET}) and write ({@code POST}) requests separately, so that for e.g.
+         * slow list requests of reports cannot hold up the requests adding results. Requests beyond a limit wait for a
+         * request of the same kind to complete. Unlimited by default.
+         *
+         * @param maxConcurrentReads  the maximum number of concurrent read requests
+         * @param maxConcurrentWrites the maximum number of concurrent write requests
+         * @return this for chaining
+         * @throws java.lang.IllegalArgumentException if any of the limits is not positive
+         */
+        public Builder bulkheads(final int maxConcurrentReads, final int maxConcurrentWrites) {
+            checkArgument(maxConcurrentReads > 0, "maxConcurrentReads should be positive");
+            checkArgument(maxConcurrentWrites > 0, "maxConcurrentWrites should be positive");
+            this.maxConcurrentReads = maxConcurrentReads;
+            this.maxConcurrentWrites = maxConcurrentWrites;
+            return this;
+        }
+
+        /**
+         * Enable a circuit breaker per API endpoint, failing requests fast with {@link CircuitBreakerOpenException} while
+         * the endpoint fails or is slow. Disabled by default. The circuit breakers can be monitored through
+         * {@link TestRail#circuitBreakers()}.
+         *
+         * @param settings the settings of the circuit breakers
+         * @return this for chaining
+         * @throws java.lang.NullPointerException     if settings is null
+         * @throws java.lang.IllegalArgumentException if any of the settings is out of its range
+         */
+        public Builder circuitBreakers(@NonNull final CircuitBreaker.Settings settings) {
+            settings.validate();
+            this.circuitBreakerSettings = settings.copy();
+            return this;
+        }
+
+        /**
+         * Set the default timeouts of every HTTP request, which can be overridden per request with
+         * {@link Request#timeouts(int, int)}. A timeout of zero is infinite, the default.
+         *
+         * @param connectTimeoutMillis the timeout to establish a connection, in milliseconds
+         * @param readTimeoutMillis    the timeout waiting for data of a response, in milliseconds
+         * @return this for chaining
+         * @throws java.lang.IllegalArgumentException if any of the timeouts is negative
+         */
+        public Builder timeouts(final int connectTimeoutMillis, final int readTimeoutMillis) {
+            checkArgument(connectTimeoutMillis >= 0, "connectTimeoutMillis should not be negative");
+            checkArgument(readTimeoutMillis >= 0, "readTimeoutMillis should not be negative");
+            this.connectTimeoutMillis = connectTimeoutMillis;
+            this.readTimeoutMillis = readTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * Set the default deadline of every request, which can be overridden per request with
+         * {@link Request#deadline(long, TimeUnit)}. See there for details. No deadline by default.
+         *
+         * @param timeout the time the request may take in total, across all its pages
+         * @param unit    the unit of timeout
+         * @return this for chaining
+         * @throws java.lang.IllegalArgumentException if timeout is not positive
+         */
+        public Builder deadline(final long timeout, @NonNull final TimeUnit unit) {
+            checkArgument(timeout > 0, "timeout should be positive");
+            this.deadlineMillis = Math.max(1, unit.toMillis(timeout));
+            return this;
+        }
+
+        /**
+         * Enable a cache of the cases, sections, suites, milestones and runs fetched by ID, kept up to date by the
+         * requests changing them. Disabled by default. The cache can be monitored through {@link TestRail#entityCache()}.
+         * <p>Cannot be combined with {@link #changeTracking(boolean)}, as the cached entities are shared by all the callers
+         * and must not be modified.</p>
+         *
+         * @param settings the settings of the cache
+         * @return this for chaining
+         * @throws java.lang.NullPointerException     if settings is null
+         * @throws java.lang.IllegalArgumentException if any of the settings is out of its range
+         */
+        public Builder entityCache(@NonNull final EntityCache.Settings settings) {
+            settings.validate();
+            this.entityCacheSettings = settings.copy();
+            return this;
+        }
+
+        /**
+         * Enable a cache of the responses of {@code GET} requests on disk, which outlives the process. Disabled by
+         * default. The cache can be monitored through {@link TestRail#responseCache()}.
+         *
+         * @param settings the settings of the cache
+         * @return this for chaining
+         * @throws java.lang.NullPointerException     if settings is null
+         * @throws java.lang.IllegalArgumentException if any of the settings is missing or out of its range
+         */
+        public Builder responseCache(@NonNull final DiskResponseCache.Settings settings) {
+            settings.validate();
+            this.responseCacheSettings = settings.copy();
+            return this;
+        }
+
+        /**
+         * Enable the tracking of the changes made to the cases, runs, plans, milestones and sections loaded through the
+         * client, by executing requests or iterating over their pages. Their update requests then only send the fields
+         * changed since they were loaded or last updated, and are not sent at all if none changed, in which case the
+         * model given to the request is returned as its response. Models not loaded through the client are sent in full.
+         * Disabled by default.
+         * <p>Cannot be combined with {@link #entityCache(EntityCache.Settings)}, which hands out the same entities to all
+         * the callers: a change made by one would be seen by the others, and lost from the changes tracked.</p>
+         *
+         * @param changeTracking true to enable change tracking
+         * @return this for chaining
+         */
+        public Builder changeTracking(final boolean changeTracking) {
+            this.changeTracking = changeTracking;
+            return this;
+        }
+
+        /**
+         * Set URL connection factory. Only used for testing.
+         *
+         * @param urlConnectionFactory the URL connection factory
+         * @return this for chaining
+         */
+        Builder urlConnectionFactory(final UrlConnectionFactory urlConnectionFactory) {
+            this.urlConnectionFactory = urlConnectionFactory;
+            return this;
+        }
+
         /**
          * Build an instance of {@code TestRail}.
          *
          * @return a new instance
+         * @throws java.io.UncheckedIOException if the directory of the response cache cannot be read or created
+         * @throws java.lang.IllegalStateException if both change tracking and the entity cache are enabled
          */
         public TestRail build() {
-            return new TestRail(new TestRailConfig(endPoint + apiPath, username, password, applicationName));
+            checkState(!changeTracking || entityCacheSettings == null, "Change tracking cannot be combined with the entity cache");
+            if (urlConnectionFactory == null) {
+                urlConnectionFactory = http2 ? UrlConnectionFactory.http2OrDefault(connectTimeoutMillis) : new UrlConnectionFactory();
+            }
+            if (virtualThreads && !VirtualThreads.isSupported()) {
+                log.warn("Virtual threads require Java 21+, falling back to platform threads");
+            }
+            return new TestRail(new TestRailConfig(endPoint + apiPath, username, password, applicationName, parallelism, requestCompressionThreshold,
+                    urlConnectionFactory, virtualThreads && VirtualThreads.isSupported(), maxConcurrentReads, maxConcurrentWrites, circuitBreakerSettings,
+                    connectTimeoutMillis, readTimeoutMillis, deadlineMillis, entityCacheSettings,
+                    responseCacheSettings, changeTracking));
+        }
+    }
+
+    /**
+     * Fetches many entities by their IDs, each with its own request, at most {@link Builder#parallelism(int)} at a time.
+     * Where a list request can serve the same entities in fewer pages, it is used instead and only the IDs it did not
+     * serve are fetched one by one.
+     *
+     * @param <T> the type of the entities
+     */
+    public abstract class BulkGet<T> {
+        static final int PAGE_SIZE = 250;
+
+        private final java.util.List<Integer> ids;
+
+        private BulkGet(Collection<Integer> ids) {
+            this.ids = new ArrayList<>(new LinkedHashSet<>(ids));
+            for (Integer id : this.ids) {
+                checkArgument(id != null && id > 0, "ids should be positive");
+            }
+        }
+
+        /**
+         * Get the request fetching a single entity.
+         *
+         * @param id the ID of the entity
+         * @return the request
+         */
+        abstract Request<T> get(int id);
+
+        /**
+         * Get the list request which would serve the entities in fewer pages than there are IDs to fetch, if any.
+         *
+         * @param idCount the number of IDs to fetch
+         * @return the request, or null if fetching one by one is cheaper or no suitable list request is known
+         */
+        abstract Request<java.util.List<T>> list(int idCount);
+
+        /**
+         * Get the ID of an entity.
+         *
+         * @param value the entity
+         * @return the ID
+         */
+        abstract int getId(T value);
+
+        /**
+         * Execute this bulk request. A failure of the list request is logged as a warning, the IDs are then fetched one by one.
+         *
+         * @return the entities and the failures, keyed by ID in the order the IDs were given
+         */
+        public BulkGetResult<T> execute() {
+            final Map<Integer, T> values = new HashMap<>(ids.size());
+            Request<java.util.List<T>> listRequest = ids.size() > 1 ? list(ids.size()) : null;
+            if (listRequest != null) {
+                Set<Integer> wanted = new HashSet<>(ids);
+                try {
+                    for (T value : listRequest.execute()) {
+                        if (wanted.contains(getId(value))) {
+                            values.put(getId(value), value);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Failed to list " + ids.size() + " entities with " + listRequest.getRestPath() + ", fetching them one by one", e);
+                    values.clear();
+                }
+            }
+            java.util.List<Integer> remainingIds = new ArrayList<>();
+            java.util.List<Callable<T>> tasks = new ArrayList<>();
+            for (final Integer id : ids) {
+                if (!values.containsKey(id)) {
+                    remainingIds.add(id);
+                    tasks.add(new Callable<T>() {
+                        @Override
+                        public T call() {
+                            return get(id).execute();
+                        }
+                    });
+                }
+            }
+            Map<Integer, RuntimeException> failures = new HashMap<>();
+            try {
+                java.util.List<Future<T>> futures = new BoundedExecutor(config.getParallelism(), config.isVirtualThreads()).invokeAll(tasks);
+                for (int i = 0; i < futures.size(); i++) {
+                    try {
+                        values.put(remainingIds.get(i), futures.get(i).get());
+                    } catch (ExecutionException e) {
+                        failures.put(remainingIds.get(i), e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause()));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            LinkedHashMap<Integer, T> orderedValues = new LinkedHashMap<>();
+            LinkedHashMap<Integer, RuntimeException> orderedFailures = new LinkedHashMap<>();
+            for (Integer id : ids) {
+                if (values.containsKey(id)) {
+                    orderedValues.put(id, values.get(id));
+                } else {
+                    orderedFailures.put(id, failures.get(id));
+                }
+            }
+            return new BulkGetResult<>(orderedValues, orderedFailures);
         }
     }
 
@@ -432,6 +804,20 @@ public class TestRail {
             return new Get(testCaseId, caseFields);
         }
 
+        /**
+         * Returns many existing test cases, fetched concurrently. The failure to fetch a test case does not prevent others
+         * from being fetched, it is reported in the result instead.
+         *
+         * @param testCaseIds the IDs of the test cases
+         * @param caseFields  the custom case fields configured in TestRail to get type information for custom fields in the test cases returned
+         * @return the request
+         * @throws java.lang.IllegalArgumentException if any of testCaseIds is not positive
+         * @throws java.lang.NullPointerException     if testCaseIds or caseFields is null
+         */
+        public GetAll getAll(@NonNull final Collection<Integer> testCaseIds, @NonNull java.util.List<CaseField> caseFields) {
+            return new GetAll(testCaseIds, caseFields);
+        }
+
         /**
          * Returns the list of available test cases.
          * <p>The custom case fields configured in TestRail can be fetched using {@link CaseFields#list()} request.
@@ -509,6 +895,31 @@ public class TestRail {
             return new Delete(testCaseId);
         }
 
+        public class GetAll extends BulkGet<Case> {
+            private final java.util.List<CaseField> caseFields;
+
+            private GetAll(Collection<Integer> testCaseIds, java.util.List<CaseField> caseFields) {
+                super(testCaseIds);
+                this.caseFields = caseFields;
+            }
+
+            @Override
+            Request<Case> get(int id) {
+                return new Get(id, caseFields);
+            }
+
+            @Override
+            Request<java.util.List<Case>> list(int idCount) {
+                // test cases are listed per project and suite, which are not known from the IDs
+                return null;
+            }
+
+            @Override
+            int getId(Case value) {
+                return value.getId();
+            }
+        }
+
         public class Get extends Request<Case> {
             private static final String REST_PATH = "get_case/";
 
@@ -1220,6 +1631,7 @@ public class TestRail {
 
         /**
          * Adds one or more new test results, comments or assigns one or more tests.
+         * <p>Large lists of results are sent in chunks, see {@link ChunkedAddList}.</p>
          * <p>The custom result fields configured in TestRail can be fetched using {@link ResultFields#list()} request.
          * The reason for not fetching this during execution of this request is to allow you to cache the list on your end to prevent an extra call on every execution.</p>
          *
@@ -1238,6 +1650,7 @@ public class TestRail {
 
         /**
          * Adds one or more new test results, comments or assigns one or more tests (using the case IDs).
+         * <p>Large lists of results are sent in chunks, see {@link ChunkedAddList}.</p>
          * <p>The custom result fields configured in TestRail can be fetched using {@link ResultFields#list()} request.
          * The reason for not fetching this during execution of this request is to allow you to cache the list on your end to prevent an extra call on every execution.</p>
          *
@@ -1385,22 +1798,171 @@ public class TestRail {
             }
         }
 
-        public class AddList extends Request<java.util.List<Result>> {
-            private static final String REST_PATH = "add_results/";
-
-            private final Result.List results;
+        /**
+         * Base of requests adding a list of results. Large lists are split into chunks, by number of results and by
+         * size of the request content, which are sent concurrently, at most {@link Builder#parallelism(int)} at a time.
+         */
+        @Getter
+        @Setter
+        @Accessors(fluent = true)
+        public abstract class ChunkedAddList extends Request<java.util.List<Result>> {
+            public static final int DEFAULT_CHUNK_SIZE = 1000;
+            public static final long DEFAULT_MAX_CHUNK_BYTES = 4 * 1024 * 1024;
+            private static final String CHUNK_PREFIX = "{\"results\":[";
+            private static final String CHUNK_SUFFIX = "]}";
+
+            @Getter(AccessLevel.NONE)
+            @Setter(AccessLevel.NONE)
+            private final java.util.List<Result> results;
+            @Getter(AccessLevel.NONE)
+            @Setter(AccessLevel.NONE)
             private final java.util.List<ResultField> resultFields;
 
-            private AddList(final int runId, java.util.List<Result> results, java.util.List<ResultField> resultFields) {
-                super(config, Method.POST, REST_PATH + runId, new TypeReference<java.util.List<Result>>() {
+            /**
+             * Maximum number of results per chunk.
+             */
+            @Setter(AccessLevel.NONE)
+            private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+            /**
+             * Maximum size of the content of a chunk, in bytes. A single result larger than this is sent alone.
+             */
+            @Setter(AccessLevel.NONE)
+            private long maxChunkBytes = DEFAULT_MAX_CHUNK_BYTES;
+
+            private ChunkedAddList(String restPath, java.util.List<Result> results, java.util.List<ResultField> resultFields) {
+                super(config, Method.POST, restPath, new TypeReference<java.util.List<Result>>() {
                 });
-                this.results = new Result.List(results);
+                this.results = results;
                 this.resultFields = resultFields;
             }
 
+            /**
+             * Set the maximum number of results per chunk.
+             *
+             * @param chunkSize the maximum number of results
+             * @return this for chaining
+             * @throws java.lang.IllegalArgumentException if chunkSize is not positive
+             */
+            public ChunkedAddList chunkSize(final int chunkSize) {
+                checkArgument(chunkSize > 0, "chunkSize should be positive");
+                this.chunkSize = chunkSize;
+                return this;
+            }
+
+            /**
+             * Set the maximum size of the content of a chunk.
+             *
+             * @param maxChunkBytes the maximum size, in bytes
+             * @return this for chaining
+             * @throws java.lang.IllegalArgumentException if maxChunkBytes is not positive
+             */
+            public ChunkedAddList maxChunkBytes(final long maxChunkBytes) {
+                checkArgument(maxChunkBytes > 0, "maxChunkBytes should be positive");
+                this.maxChunkBytes = maxChunkBytes;
+                return this;
+            }
+
+            /**
+             * Execute this request, in chunks if needed. The request listeners are notified once, with all the added
+             * results, only if every chunk succeeded: as for any failed request, they are not notified of a
+             * {@link ChunkedRequestException}, whose added results are left to the caller.
+             *
+             * @return the added results, in the same order as submitted
+             * @throws ChunkedRequestException if some of the chunks failed while others succeeded
+             */
+            @Override
+            public java.util.List<Result> execute() {
+                // each result is serialized once, both to split the list and to send the chunks
+                java.util.List<byte[]> resultBytes = new ArrayList<>(results.size());
+                for (Result result : results) {
+                    resultBytes.add(getContentBytes(result));
+                }
+                final java.util.List<byte[]> chunks = new ArrayList<>();
+                java.util.List<Integer> chunkEnds = new ArrayList<>();
+                int fromIndex = 0;
+                long chunkBytes = 0;
+                for (int i = 0; i < resultBytes.size(); i++) {
+                    // account for the separating comma
+                    long bytes = resultBytes.get(i).length + 1;
+                    if (i > fromIndex && (i - fromIndex == chunkSize || chunkBytes + bytes > maxChunkBytes)) {
+                        chunks.add(getChunkContent(resultBytes.subList(fromIndex, i)));
+                        chunkEnds.add(i);
+                        fromIndex = i;
+                        chunkBytes = 0;
+                    }
+                    chunkBytes += bytes;
+                }
+                chunks.add(getChunkContent(resultBytes.subList(fromIndex, resultBytes.size())));
+                chunkEnds.add(resultBytes.size());
+                if (chunks.size() == 1) {
+                    java.util.List<Result> addedResults = execute(chunks.get(0));
+                    config.getRequestListeners().onExecuted(this, addedResults);
+                    return addedResults;
+                }
+                java.util.List<Callable<java.util.List<Result>>> tasks = new ArrayList<>(chunks.size());
+                for (final byte[] chunk : chunks) {
+                    tasks.add(new Callable<java.util.List<Result>>() {
+                        @Override
+                        public java.util.List<Result> call() {
+                            return execute(chunk);
+                        }
+                    });
+                }
+                java.util.List<Future<java.util.List<Result>>> futures;
+                try {
+                    futures = new BoundedExecutor(config.getParallelism(), config.isVirtualThreads()).invokeAll(tasks);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+                java.util.List<Result> addedResults = new ArrayList<>(results.size());
+                java.util.List<ChunkedRequestException.ChunkFailure> failures = new ArrayList<>();
+                fromIndex = 0;
+                for (int i = 0; i < chunks.size(); i++) {
+                    int toIndex = chunkEnds.get(i);
+                    try {
+                        addedResults.addAll(futures.get(i).get());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(e);
+                    } catch (ExecutionException e) {
+                        RuntimeException cause = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RuntimeException(e.getCause());
+                        failures.add(new ChunkedRequestException.ChunkFailure(fromIndex, toIndex, cause));
+                    }
+                    fromIndex = toIndex;
+                }
+                if (failures.size() == chunks.size()) {
+                    throw failures.get(0).getCause();
+                }
+                if (!failures.isEmpty()) {
+                    throw new ChunkedRequestException(addedResults, failures);
+                }
+                config.getRequestListeners().onExecuted(this, addedResults);
+                return addedResults;
+            }
+
+            /**
+             * Get the content of a chunk, as {@link Result.List} would be serialized, from its serialized results.
+             */
+            private byte[] getChunkContent(java.util.List<byte[]> resultBytes) {
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                byte[] prefix = CHUNK_PREFIX.getBytes(StandardCharsets.UTF_8);
+                content.write(prefix, 0, prefix.length);
+                for (int i = 0; i < resultBytes.size(); i++) {
+                    if (i > 0) {
+                        content.write(',');
+                    }
+                    content.write(resultBytes.get(i), 0, resultBytes.get(i).length);
+                }
+                byte[] suffix = CHUNK_SUFFIX.getBytes(StandardCharsets.UTF_8);
+                content.write(suffix, 0, suffix.length);
+                return content.toByteArray();
+            }
+
             @Override
             protected Object getContent() {
-                return results;
+                return new Result.List(results);
             }
 
             @Override
@@ -1409,27 +1971,19 @@ public class TestRail {
             }
         }
 
-        public class AddListForCases extends Request<java.util.List<Result>> {
-            private static final String REST_PATH = "add_results_for_cases/";
-
-            private final Result.List results;
-            private final java.util.List<ResultField> resultFields;
+        public class AddList extends ChunkedAddList {
+            private static final String REST_PATH = "add_results/";
 
-            private AddListForCases(int runId, java.util.List<Result> results, java.util.List<ResultField> resultFields) {
-                super(config, Method.POST, REST_PATH + runId, new TypeReference<java.util.List<Result>>() {
-                });
-                this.results = new Result.List(results);
-                this.resultFields = resultFields;
+            private AddList(final int runId, java.util.List<Result> results, java.util.List<ResultField> resultFields) {
+                super(REST_PATH + runId, results, resultFields);
             }
+        }
 
-            @Override
-            protected Object getContent() {
-                return results;
-            }
+        public class AddListForCases extends ChunkedAddList {
+            private static final String REST_PATH = "add_results_for_cases/";
 
-            @Override
-            protected Object getSupplementForDeserialization() {
-                return resultFields;
+            private AddListForCases(int runId, java.util.List<Result> results, java.util.List<ResultField> resultFields) {
+                super(REST_PATH + runId, results, resultFields);
             }
         }
 
@@ -1479,6 +2033,19 @@ public class TestRail {
             return new Get(runId);
         }
 
+        /**
+         * Returns many existing test runs, fetched concurrently. The failure to fetch a test run does not prevent others
+         * from being fetched, it is reported in the result instead.
+         *
+         * @param runIds the IDs of the test runs
+         * @return the request
+         * @throws java.lang.IllegalArgumentException if any of runIds is not positive
+         * @throws java.lang.NullPointerException     if runIds is null
+         */
+        public GetAll getAll(@NonNull final Collection<Integer> runIds) {
+            return new GetAll(runIds);
+        }
+
         /**
          * Returns a list of test runs for a project. Only returns those test runs that are not part of a test plan.
          *
@@ -1540,6 +2107,29 @@ public class TestRail {
             return new Delete(runId);
         }
 
+        public class GetAll extends BulkGet<Run> {
+
+            private GetAll(Collection<Integer> runIds) {
+                super(runIds);
+            }
+
+            @Override
+            Request<Run> get(int id) {
+                return new Get(id);
+            }
+
+            @Override
+            Request<java.util.List<Run>> list(int idCount) {
+                // test runs are listed per project, which is not known from the IDs, and without those of test plans
+                return null;
+            }
+
+            @Override
+            int getId(Run value) {
+                return value.getId();
+            }
+        }
+
         public class Get extends Request<Run> {
             private static final String REST_PATH = "get_run/";
 
@@ -1952,6 +2542,21 @@ public class TestRail {
             return new Get(testId);
         }
 
+        /**
+         * Returns many existing tests, fetched concurrently. The failure to fetch a test does not prevent others from being
+         * fetched, it is reported in the result instead.
+         * <p>If the tests are known to belong to a single test run, set it with {@link GetAll#run(Run)} to list the tests of
+         * the run instead when that takes fewer requests.</p>
+         *
+         * @param testIds the IDs of the tests
+         * @return the request
+         * @throws java.lang.IllegalArgumentException if any of testIds is not positive
+         * @throws java.lang.NullPointerException     if testIds is null
+         */
+        public GetAll getAll(@NonNull final Collection<Integer> testIds) {
+            return new GetAll(testIds);
+        }
+
         /**
          * Returns a list of tests for a test run.
          *
@@ -1964,6 +2569,40 @@ public class TestRail {
             return new List(runId);
         }
 
+        @Getter
+        @Setter
+        @Accessors(fluent = true)
+        public class GetAll extends BulkGet<Test> {
+
+            /**
+             * The test run all the tests belong to, if known.
+             */
+            private Run run;
+
+            private GetAll(Collection<Integer> testIds) {
+                super(testIds);
+            }
+
+            @Override
+            Request<Test> get(int id) {
+                return new Get(id);
+            }
+
+            @Override
+            Request<java.util.List<Test>> list(int idCount) {
+                if (run == null) {
+                    return null;
+                }
+                int pageCount = Math.max(1, (run.getTestCount() + PAGE_SIZE - 1) / PAGE_SIZE);
+                return pageCount < idCount ? new List(run.getId()) : null;
+            }
+
+            @Override
+            int getId(Test value) {
+                return value.getId();
+            }
+        }
+
         public class Get extends Request<Test> {
             private static final String REST_PATH = "get_test/";
 
@@ -2008,6 +2647,20 @@ public class TestRail {
             return new Get(userId);
         }
 
+        /**
+         * Returns many existing users. The users are listed with {@link #list()}, which usually takes a single request, and
+         * only those it did not return are fetched concurrently one by one. The failure to fetch a user does not prevent
+         * others from being fetched, it is reported in the result instead.
+         *
+         * @param userIds the IDs of the users
+         * @return the request
+         * @throws java.lang.IllegalArgumentException if any of userIds is not positive
+         * @throws java.lang.NullPointerException     if userIds is null
+         */
+        public GetAll getAll(@NonNull final Collection<Integer> userIds) {
+            return new GetAll(userIds);
+        }
+
         /**
          * Returns an existing user by his/her email address.
          *
@@ -2031,6 +2684,28 @@ public class TestRail {
             return new List();
         }
 
+        public class GetAll extends BulkGet<User> {
+
+            private GetAll(Collection<Integer> userIds) {
+                super(userIds);
+            }
+
+            @Override
+            Request<User> get(int id) {
+                return new Get(id);
+            }
+
+            @Override
+            Request<java.util.List<User>> list(int idCount) {
+                return new List();
+            }
+
+            @Override
+            int getId(User value) {
+                return value.getId();
+            }
+        }
+
         public class Get extends Request<User> {
             private static final String REST_PATH = "get_user/";
 
@@ -24,9 +24,13 @@
 
 package com.codepine.api.testrail;
 
+import com.codepine.api.testrail.internal.UrlConnectionFactory;
 import com.google.common.base.Optional;
+import com.google.common.base.Ticker;
 import lombok.*;
 
+import java.time.Clock;
+
 /**
  * Configuration for using this client library.
  */
@@ -38,12 +42,46 @@ class TestRailConfig {
     private final String username;
     private final String password;
     private final Optional<String> applicationName;
+    private final int parallelism;
+    private final Optional<Integer> requestCompressionThreshold;
+    private final UrlConnectionFactory urlConnectionFactory;
+    private final boolean virtualThreads;
+    private final Bulkheads bulkheads;
+    private final Optional<CircuitBreakers> circuitBreakers;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final long deadlineMillis;
+    private final Optional<EntityCache> entityCache;
+    private final Optional<DiskResponseCache> responseCache;
+    private final Optional<ChangeTracker> changeTracker;
+    private final TransferStatistics transferStatistics = new TransferStatistics();
+    private final RequestListeners requestListeners = new RequestListeners();
 
-    TestRailConfig(final String baseApiUrl, final String username, final String password, final String applicationName) {
+    TestRailConfig(final String baseApiUrl, final String username, final String password, final String applicationName, final int parallelism,
+                   final Integer requestCompressionThreshold, final UrlConnectionFactory urlConnectionFactory, final boolean virtualThreads,
+                   final Integer maxConcurrentReads, final Integer maxConcurrentWrites, final CircuitBreaker.Settings circuitBreakerSettings,
+                   final int connectTimeoutMillis, final int readTimeoutMillis, final long deadlineMillis,
+                   final EntityCache.Settings entityCacheSettings, final DiskResponseCache.Settings responseCacheSettings,
+                   final boolean changeTracking) {
         this.baseApiUrl = baseApiUrl;
         this.username = username;
         this.password = password;
         this.applicationName = Optional.fromNullable(applicationName);
+        this.parallelism = parallelism;
+        this.requestCompressionThreshold = Optional.fromNullable(requestCompressionThreshold);
+        this.urlConnectionFactory = urlConnectionFactory;
+        this.virtualThreads = virtualThreads;
+        this.bulkheads = new Bulkheads(maxConcurrentReads, maxConcurrentWrites);
+        this.circuitBreakers = circuitBreakerSettings == null ? Optional.<CircuitBreakers>absent()
+                : Optional.of(new CircuitBreakers(circuitBreakerSettings, Ticker.systemTicker()));
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.deadlineMillis = deadlineMillis;
+        this.entityCache = entityCacheSettings == null ? Optional.<EntityCache>absent()
+                : Optional.of(new EntityCache(entityCacheSettings, Ticker.systemTicker()));
+        this.responseCache = responseCacheSettings == null ? Optional.<DiskResponseCache>absent()
+                : Optional.of(new DiskResponseCache(responseCacheSettings, Clock.systemUTC()));
+        this.changeTracker = changeTracking ? Optional.of(new ChangeTracker()) : Optional.<ChangeTracker>absent();
     }
 
 }
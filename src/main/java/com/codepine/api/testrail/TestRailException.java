@@ -36,6 +36,11 @@ public class TestRailException extends RuntimeException {
 
     private static final long serialVersionUID = -2131644110724458502L;
 
+    /**
+     * The response code of an exception thrown without a response from TestRail, for e.g. when the request was not sent.
+     */
+    public static final int NO_RESPONSE = 0;
+
     @Getter
     private final int responseCode;
 
@@ -48,6 +53,16 @@ public class TestRailException extends RuntimeException {
         this.responseCode = responseCode;
     }
 
+    /**
+     * Create an exception for a request that received no response, with {@link #NO_RESPONSE} as response code.
+     *
+     * @param message the reason no response was received
+     */
+    TestRailException(String message) {
+        super(message);
+        this.responseCode = NO_RESPONSE;
+    }
+
     /**
      * Builder for {@code TestRailException}.
      */
@@ -0,0 +1,138 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import com.google.common.collect.ImmutableMap;
+import lombok.ToString;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts of the bytes received from TestRail per API endpoint, for e.g. {@code get_cases}, both as transferred over
+ * the wire and after decompression. Thread-safe.
+ */
+public class TransferStatistics {
+
+    private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * Get the statistics of all the endpoints which received a response so far.
+     *
+     * @return snapshot of the statistics keyed by endpoint, sorted by endpoint
+     */
+    public Map<String, Endpoint> getEndpoints() {
+        return ImmutableMap.copyOf(new TreeMap<>(endpoints));
+    }
+
+    /**
+     * Get the statistics of an endpoint.
+     *
+     * @param endpoint the endpoint, for e.g. {@code get_results_for_run}
+     * @return the statistics, with all counts 0 if the endpoint did not receive any response yet
+     */
+    public Endpoint getEndpoint(final String endpoint) {
+        Endpoint statistics = endpoints.get(endpoint);
+        return statistics == null ? new Endpoint() : statistics;
+    }
+
+    /**
+     * Reset all the counts.
+     */
+    public void reset() {
+        endpoints.clear();
+    }
+
+    void record(final String path, final long transferredBytes, final long decompressedBytes) {
+        String endpoint = getEndpointName(path);
+        Endpoint statistics = endpoints.get(endpoint);
+        if (statistics == null) {
+            Endpoint newStatistics = new Endpoint();
+            statistics = endpoints.putIfAbsent(endpoint, newStatistics);
+            if (statistics == null) {
+                statistics = newStatistics;
+            }
+        }
+        statistics.responses.incrementAndGet();
+        statistics.transferredBytes.addAndGet(transferredBytes);
+        statistics.decompressedBytes.addAndGet(decompressedBytes);
+    }
+
+    static String getEndpointName(final String path) {
+        int end = path.length();
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '/' || c == '&') {
+                end = i;
+                break;
+            }
+        }
+        return path.substring(0, end);
+    }
+
+    /**
+     * Statistics of a single endpoint.
+     */
+    @ToString
+    public static class Endpoint {
+
+        private final AtomicLong responses = new AtomicLong();
+        private final AtomicLong transferredBytes = new AtomicLong();
+        private final AtomicLong decompressedBytes = new AtomicLong();
+
+        /**
+         * @return the number of responses received
+         */
+        public long getResponses() {
+            return responses.get();
+        }
+
+        /**
+         * @return the number of bytes of the response bodies as transferred over the wire, compressed or not
+         */
+        public long getTransferredBytes() {
+            return transferredBytes.get();
+        }
+
+        /**
+         * @return the number of bytes of the response bodies after decompression
+         */
+        public long getDecompressedBytes() {
+            return decompressedBytes.get();
+        }
+
+        /**
+         * @return the ratio of decompressed to transferred bytes, 1 if nothing was transferred
+         */
+        public double getCompressionRatio() {
+            long transferred = getTransferredBytes();
+            return transferred == 0 ? 1 : (double) getDecompressedBytes() / transferred;
+        }
+    }
+
+}
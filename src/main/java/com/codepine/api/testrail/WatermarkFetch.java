@@ -0,0 +1,155 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.model.Case;
+import com.codepine.api.testrail.model.CaseField;
+import com.codepine.api.testrail.model.Result;
+import com.codepine.api.testrail.model.ResultField;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Incremental fetch of entities, each fetch only listing the ones changed after the latest change fetched before, the
+ * watermark.
+ * <p>The time filters of TestRail have a resolution of seconds, so a fetch goes back a second before the watermark to not
+ * miss the entities changed in the same second as the latest one fetched; consumers get those again and must ignore them.
+ * The watermark only moves once all the pages were consumed, as the pages are not ordered by change: a fetch failing
+ * halfway must not skip the entities of the pages it did not get to on the next one.</p>
+ * <p>Not thread safe, fetches are serialized by their callers.</p>
+ *
+ * @param <T> the type of the entities
+ */
+abstract class WatermarkFetch<T> {
+
+    private long watermark;
+
+    /**
+     * Fetch of the cases of a project or suite updated since the last fetch.
+     *
+     * @param testRail   the client to fetch the cases with
+     * @param projectId  the ID of the project
+     * @param suiteId    the ID of the suite, or null if the project is in single suite mode
+     * @param caseFields the custom case fields configured in TestRail
+     * @return the fetch, starting with all the cases
+     */
+    static WatermarkFetch<Case> casesUpdated(final TestRail testRail, final int projectId, final Integer suiteId, final List<CaseField> caseFields) {
+        return new WatermarkFetch<Case>() {
+            @Override
+            Request<List<Case>> newRequest(Date after) {
+                TestRail.Cases.List request = suiteId == null ? testRail.cases().list(projectId, caseFields)
+                        : testRail.cases().list(projectId, suiteId, caseFields);
+                return after == null ? request : request.updatedAfter(after);
+            }
+
+            @Override
+            Date getTime(Case testCase) {
+                return testCase.getUpdatedOn();
+            }
+        };
+    }
+
+    /**
+     * Fetch of the results of a run created since the last fetch.
+     *
+     * @param testRail     the client to fetch the results with
+     * @param runId        the ID of the run
+     * @param resultFields the custom result fields configured in TestRail
+     * @return the fetch, starting with all the results
+     */
+    static WatermarkFetch<Result> resultsCreated(final TestRail testRail, final int runId, final List<ResultField> resultFields) {
+        return new WatermarkFetch<Result>() {
+            @Override
+            Request<List<Result>> newRequest(Date after) {
+                TestRail.Results.ListForRun request = testRail.results().listForRun(runId, resultFields);
+                return after == null ? request : request.createdAfter(after);
+            }
+
+            @Override
+            Date getTime(Result result) {
+                return result.getCreatedOn();
+            }
+        };
+    }
+
+    /**
+     * Get the time of the latest change fetched.
+     *
+     * @return the time in milliseconds, zero if nothing was fetched yet
+     */
+    long getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * Set the time of the latest change fetched, for e.g. when loading it back from a file.
+     *
+     * @param watermark the time in milliseconds, zero to fetch all the entities again
+     */
+    void setWatermark(long watermark) {
+        this.watermark = watermark;
+    }
+
+    /**
+     * Fetch the entities changed since the watermark, then move it to the latest change fetched.
+     *
+     * @param pageConsumer the consumer of each page of entities
+     */
+    void fetch(final Consumer<List<T>> pageConsumer) {
+        Request<List<T>> request = newRequest(watermark > 0 ? new Date(watermark - TimeUnit.SECONDS.toMillis(1)) : null);
+        final long[] latest = {watermark};
+        request.forEachPage(new Consumer<List<T>>() {
+            @Override
+            public void accept(List<T> entities) {
+                pageConsumer.accept(entities);
+                for (T entity : entities) {
+                    Date time = getTime(entity);
+                    if (time != null && time.getTime() > latest[0]) {
+                        latest[0] = time.getTime();
+                    }
+                }
+            }
+        });
+        watermark = latest[0];
+    }
+
+    /**
+     * Create the request listing the entities.
+     *
+     * @param after the time to only list the entities changed after, or null to list them all
+     * @return the request
+     */
+    abstract Request<List<T>> newRequest(Date after);
+
+    /**
+     * Get the time an entity changed.
+     *
+     * @param entity the entity
+     * @return the time, or null if unknown
+     */
+    abstract Date getTime(T entity);
+}
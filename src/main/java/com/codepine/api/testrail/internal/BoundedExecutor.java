@@ -0,0 +1,150 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail.internal;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Executes a batch of tasks with at most a fixed number of them running at any time, either on a pool of platform
+ * threads or each on its own virtual thread.
+ * <p/>
+ * INTERNAL ONLY
+ */
+public class BoundedExecutor {
+
+    private static final String THREAD_NAME_PREFIX = "testrail-worker-";
+
+    private final int parallelism;
+    private final boolean virtualThreads;
+
+    /**
+     * @param parallelism the maximum number of tasks running concurrently
+     */
+    public BoundedExecutor(final int parallelism) {
+        this(parallelism, false);
+    }
+
+    /**
+     * @param parallelism    the maximum number of tasks running concurrently
+     * @param virtualThreads whether to run each task on its own virtual thread instead of a pool of platform threads
+     * @throws UnsupportedOperationException if virtual threads are requested but not supported
+     */
+    public BoundedExecutor(final int parallelism, final boolean virtualThreads) {
+        checkArgument(parallelism > 0, "parallelism should be positive");
+        if (virtualThreads && !VirtualThreads.isSupported()) {
+            throw new UnsupportedOperationException("virtual threads require Java 21+");
+        }
+        this.parallelism = parallelism;
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Execute the given tasks and wait for all of them to complete.
+     * <p>A failing task does not prevent other tasks from running, the failure is reported through its future.</p>
+     *
+     * @param tasks the tasks to be executed
+     * @param <V>   the type of the values returned by tasks
+     * @return the completed futures, in the same order as tasks
+     * @throws InterruptedException if interrupted while waiting, in which case unfinished tasks are cancelled
+     */
+    public <V> List<Future<V>> invokeAll(final Collection<? extends Callable<V>> tasks) throws InterruptedException {
+        if (tasks.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (virtualThreads) {
+            return invokeAllOnVirtualThreads(tasks);
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(parallelism, tasks.size()),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat(THREAD_NAME_PREFIX + "%d").build());
+        try {
+            return executorService.invokeAll(tasks);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private <V> List<Future<V>> invokeAllOnVirtualThreads(final Collection<? extends Callable<V>> tasks) throws InterruptedException {
+        // virtual threads are cheap, so every task gets one and waits for a permit instead of a pooled thread
+        final Semaphore permits = new Semaphore(parallelism);
+        List<Callable<V>> boundedTasks = new ArrayList<>(tasks.size());
+        for (final Callable<V> task : tasks) {
+            boundedTasks.add(new Callable<V>() {
+                @Override
+                public V call() throws Exception {
+                    permits.acquire();
+                    try {
+                        return task.call();
+                    } finally {
+                        permits.release();
+                    }
+                }
+            });
+        }
+        ExecutorService executorService = VirtualThreads.newThreadPerTaskExecutor(THREAD_NAME_PREFIX);
+        try {
+            return executorService.invokeAll(boundedTasks);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Execute the given tasks, wait for all of them to complete and get their values.
+     *
+     * @param tasks the tasks to be executed
+     * @param <V>   the type of the values returned by tasks
+     * @return the values returned by tasks, in the same order as tasks
+     * @throws RuntimeException the failure of the first failed task, in the order of tasks, wrapped if it is a checked exception
+     */
+    public <V> List<V> getAll(final Collection<? extends Callable<V>> tasks) {
+        try {
+            List<V> values = new ArrayList<>(tasks.size());
+            for (Future<V> future : invokeAll(tasks)) {
+                values.add(future.get());
+            }
+            return values;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
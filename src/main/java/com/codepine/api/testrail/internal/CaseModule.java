@@ -26,12 +26,12 @@ package com.codepine.api.testrail.internal;
 
 import com.codepine.api.testrail.model.Case;
 import com.codepine.api.testrail.model.CaseField;
-import com.codepine.api.testrail.model.Field;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.BeanDescription;
 import com.fasterxml.jackson.databind.DeserializationConfig;
 import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -39,8 +39,6 @@ import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
 import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import com.fasterxml.jackson.databind.module.SimpleModule;
-import com.google.common.base.Function;
-import com.google.common.collect.Maps;
 
 import java.io.IOException;
 import java.util.HashMap;
@@ -76,16 +74,12 @@ public class CaseModule extends SimpleModule {
 
             ObjectMapper mapper = (ObjectMapper) jsonParser.getCodec();
             List<CaseField> caseFieldList = (List<CaseField>) deserializationContext.findInjectableValue(Case.class.toString(), null, null);
-            Map<String, CaseField> caseFields = Maps.uniqueIndex(caseFieldList, new Function<CaseField, String>() {
-                @Override
-                public String apply(final CaseField caseField) {
-                    return caseField.getName();
-                }
-            });
+            CustomFieldTypes customFieldTypes = CustomFieldTypes.get(caseFieldList, mapper, deserializationContext);
             Map<String, Object> customFields = new HashMap<>(testCase.getCustomFields().size());
             for (Map.Entry<String, Object> customField : testCase.getCustomFields().entrySet()) {
-                checkArgument(caseFields.containsKey(customField.getKey()), "Case field list configuration is possibly outdated since it does not contain custom field: " + customField.getKey());
-                customFields.put(customField.getKey(), mapper.convertValue(customField.getValue(), Field.Type.getType(caseFields.get(customField.getKey()).getTypeId()).getTypeReference()));
+                JavaType type = customFieldTypes.getType(customField.getKey());
+                checkArgument(type != null, "Case field list configuration is possibly outdated since it does not contain custom field: " + customField.getKey());
+                customFields.put(customField.getKey(), mapper.convertValue(customField.getValue(), type));
             }
             testCase.setCustomFields(customFields);
             return testCase;
@@ -0,0 +1,116 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail.internal;
+
+import com.codepine.api.testrail.model.Field;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The Java types of the custom fields configured in TestRail, by name of the field.
+ * <p>The types are resolved once per read of a response and list of fields, and shared by all the entities of the
+ * response, instead of being resolved for each entity.</p>
+ * <p/>
+ * INTERNAL ONLY
+ */
+public final class CustomFieldTypes {
+
+    /**
+     * Attribute key of the {@link Cache} of a read, shared with the reads of the entities of a page.
+     */
+    public static final String CACHE = CustomFieldTypes.class.getName() + ".cache";
+
+    private final Map<String, JavaType> types;
+
+    private CustomFieldTypes(List<? extends Field> fields, ObjectMapper mapper) {
+        types = new HashMap<>(fields.size() * 2);
+        for (Field field : fields) {
+            JavaType type = mapper.getTypeFactory().constructType(Field.Type.getType(field.getTypeId()).getTypeReference());
+            if (types.put(field.getName(), type) != null) {
+                throw new IllegalArgumentException("duplicate key: " + field.getName());
+            }
+        }
+    }
+
+    /**
+     * Get the types of a list of fields, resolved once per read.
+     *
+     * @param fields the fields
+     * @param mapper the mapper of the read
+     * @param ctxt   the context of the read
+     * @return the types
+     */
+    public static CustomFieldTypes get(List<? extends Field> fields, ObjectMapper mapper, DeserializationContext ctxt) {
+        return getCache(ctxt).get(fields, mapper);
+    }
+
+    /**
+     * Get the cache of a read, created on first use.
+     *
+     * @param ctxt the context of the read
+     * @return the cache
+     */
+    public static Cache getCache(DeserializationContext ctxt) {
+        Cache cache = (Cache) ctxt.getAttribute(CACHE);
+        if (cache == null) {
+            cache = new Cache();
+            ctxt.setAttribute(CACHE, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * Get the type of a field.
+     *
+     * @param name the name of the field, without the "custom_" prefix
+     * @return the type, or null if there is no such field
+     */
+    public JavaType getType(String name) {
+        return types.get(name);
+    }
+
+    /**
+     * The types resolved during a read, by identity of the list of fields. Only used by the thread of the read.
+     */
+    public static final class Cache {
+
+        private final Map<List<? extends Field>, CustomFieldTypes> types = new IdentityHashMap<>();
+
+        CustomFieldTypes get(List<? extends Field> fields, ObjectMapper mapper) {
+            CustomFieldTypes customFieldTypes = types.get(fields);
+            if (customFieldTypes == null) {
+                customFieldTypes = new CustomFieldTypes(fields, mapper);
+                types.put(fields, customFieldTypes);
+            }
+            return customFieldTypes;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail.internal;
+
+/**
+ * Count-min sketch estimating how often keys were seen recently, with 4-bit counters which are all halved once the
+ * number of increments reaches ten times the expected number of keys, so that the estimates follow the recent popularity
+ * of the keys rather than their popularity since the start.
+ * <p>Each {@code long} of the table holds 16 counters; a key is counted in 4 of them, each picked by a different hash of
+ * the key, and its frequency is the minimum of the 4.</p>
+ * <p/>
+ * INTERNAL ONLY
+ */
+public class FrequencySketch {
+
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedSize the number of keys expected to be tracked, for e.g. the maximum size of a cache
+     */
+    public FrequencySketch(final int expectedSize) {
+        int size = Integer.highestOneBit(Math.max(expectedSize, 4) - 1) << 1;
+        this.table = new long[size];
+        this.mask = size - 1;
+        this.sampleSize = 10 * Math.max(expectedSize, 1);
+    }
+
+    /**
+     * Get the estimated number of times a key was seen recently.
+     *
+     * @param key the key
+     * @return the estimate, between 0 and 15
+     */
+    public int frequency(final long key) {
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, getCount(key, i));
+        }
+        return frequency;
+    }
+
+    /**
+     * Count one more occurrence of a key, unless it is already at the maximum count.
+     *
+     * @param key the key
+     */
+    public void increment(final long key) {
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = indexOf(key, i);
+            int shift = counterOf(key, i) << 2;
+            if (((table[index] >>> shift) & 0xf) < MAX_COUNT) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private int getCount(long key, int i) {
+        return (int) ((table[indexOf(key, i)] >>> (counterOf(key, i) << 2)) & 0xf);
+    }
+
+    private int indexOf(long key, int i) {
+        long hash = (key + SEEDS[i]) * SEEDS[i];
+        hash ^= hash >>> 29;
+        return (int) hash & mask;
+    }
+
+    private static int counterOf(long key, int i) {
+        long hash = (key ^ SEEDS[i]) * 0x9e3779b97f4a7c15L;
+        return (int) (hash >>> 60);
+    }
+}
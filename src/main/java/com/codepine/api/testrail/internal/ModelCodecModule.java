@@ -0,0 +1,76 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail.internal;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.Serializers;
+
+/**
+ * Jackson module binding the models with the readers and writers generated for them at compile time, see
+ * {@link ModelCodecs}, instead of the reflective bean deserializers and serializers.
+ * <p/>
+ * Must be registered after {@link CaseModule}, {@link PlanModule} and {@link ResultModule}: Jackson applies the
+ * deserializer modifiers of the last registered modules first, so that theirs wrap the generated readers.
+ * <p/>
+ * INTERNAL ONLY
+ */
+public class ModelCodecModule extends SimpleModule {
+
+    @Override
+    public void setupModule(SetupContext setupContext) {
+        setupContext.addBeanDeserializerModifier(new ModelReaderModifier());
+        setupContext.addSerializers(new ModelWriters());
+        super.setupModule(setupContext);
+    }
+
+    private static class ModelReaderModifier extends BeanDeserializerModifier {
+
+        @Override
+        public JsonDeserializer<?> modifyDeserializer(DeserializationConfig deserializationConfig, BeanDescription beanDescription, JsonDeserializer<?> jsonDeserializer) {
+            JsonDeserializer<?> reader = ModelCodecs.newReader(beanDescription.getBeanClass());
+            return reader != null ? reader : jsonDeserializer;
+        }
+    }
+
+    private static class ModelWriters extends Serializers.Base {
+
+        @Override
+        public JsonSerializer<?> findSerializer(SerializationConfig serializationConfig, JavaType type, BeanDescription beanDescription) {
+            JsonInclude.Include inclusion = serializationConfig.getSerializationInclusion();
+            if (inclusion != JsonInclude.Include.ALWAYS && inclusion != JsonInclude.Include.NON_NULL) {
+                return null;
+            }
+            return ModelCodecs.newWriter(type.getRawClass());
+        }
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail.internal;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.jsontype.TypeDeserializer;
+import com.fasterxml.jackson.databind.util.ClassUtil;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Base of the JSON readers generated for the models by {@code JsonCodecProcessor}. Numbers, booleans and strings are
+ * read straight from the parser unless custom deserializers are registered for them, the other values are delegated
+ * to the deserializers Jackson resolves for their types.
+ * <p/>
+ * INTERNAL ONLY
+ *
+ * @param <T> the model
+ */
+public abstract class ModelReader<T> extends StdDeserializer<T> implements ResolvableDeserializer {
+
+    private JsonDeserializer<Object> stringDeserializer;
+    private JsonDeserializer<Object> intDeserializer;
+    private JsonDeserializer<Object> integerDeserializer;
+    private JsonDeserializer<Object> booleanDeserializer;
+    private JsonDeserializer<Object> booleanObjectDeserializer;
+
+    protected ModelReader(Class<T> type) {
+        super(type);
+    }
+
+    @Override
+    public final void resolve(DeserializationContext ctxt) throws JsonMappingException {
+        stringDeserializer = customDeserializer(ctxt, String.class);
+        intDeserializer = customDeserializer(ctxt, int.class);
+        integerDeserializer = customDeserializer(ctxt, Integer.class);
+        booleanDeserializer = customDeserializer(ctxt, boolean.class);
+        booleanObjectDeserializer = customDeserializer(ctxt, Boolean.class);
+        resolveProperties(ctxt);
+    }
+
+    @Override
+    public boolean isCachable() {
+        return true;
+    }
+
+    @Override
+    public final T deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        return deserialize(p, ctxt, createBean());
+    }
+
+    @Override
+    public final T deserialize(JsonParser p, DeserializationContext ctxt, T bean) throws IOException {
+        JsonToken token = p.getCurrentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = p.nextToken();
+        }
+        if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+            throw ctxt.mappingException(handledType(), token);
+        }
+        readProperties(p, ctxt, bean);
+        return bean;
+    }
+
+    @Override
+    public final Object deserializeWithType(JsonParser p, DeserializationContext ctxt, TypeDeserializer typeDeserializer) throws IOException {
+        return typeDeserializer.deserializeTypedFromObject(p, ctxt);
+    }
+
+    /**
+     * Resolve the deserializers of the properties.
+     *
+     * @param ctxt the context
+     * @throws JsonMappingException if a deserializer cannot be resolved
+     */
+    protected abstract void resolveProperties(DeserializationContext ctxt) throws JsonMappingException;
+
+    /**
+     * Create an empty model.
+     *
+     * @return the model
+     */
+    protected abstract T createBean();
+
+    /**
+     * Read the properties of an object into a model, the parser being at the first field name or at the end of the
+     * object.
+     *
+     * @param p    the parser
+     * @param ctxt the context
+     * @param bean the model
+     * @throws IOException if the JSON cannot be read or mapped
+     */
+    protected abstract void readProperties(JsonParser p, DeserializationContext ctxt, T bean) throws IOException;
+
+    protected final JsonDeserializer<Object> findDeserializer(DeserializationContext ctxt, JavaType type) throws JsonMappingException {
+        return ctxt.findContextualValueDeserializer(type, null);
+    }
+
+    protected final int readInt(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (intDeserializer != null) {
+            Integer value = (Integer) read(p, ctxt, intDeserializer);
+            return value == null ? 0 : value;
+        }
+        if (p.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) {
+            return p.getIntValue();
+        }
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            checkNullForPrimitive(ctxt, "int");
+            return 0;
+        }
+        return _parseIntPrimitive(p, ctxt);
+    }
+
+    protected final Integer readInteger(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (integerDeserializer != null) {
+            return (Integer) read(p, ctxt, integerDeserializer);
+        }
+        if (p.getCurrentToken() == JsonToken.VALUE_NUMBER_INT) {
+            return p.getIntValue();
+        }
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        return _parseInteger(p, ctxt);
+    }
+
+    protected final boolean readBoolean(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (booleanDeserializer != null) {
+            Boolean value = (Boolean) read(p, ctxt, booleanDeserializer);
+            return value != null && value;
+        }
+        if (p.getCurrentToken() == JsonToken.VALUE_TRUE) {
+            return true;
+        }
+        if (p.getCurrentToken() == JsonToken.VALUE_FALSE) {
+            return false;
+        }
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            checkNullForPrimitive(ctxt, "boolean");
+            return false;
+        }
+        return _parseBooleanPrimitive(p, ctxt);
+    }
+
+    protected final Boolean readBooleanObject(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (booleanObjectDeserializer != null) {
+            return (Boolean) read(p, ctxt, booleanObjectDeserializer);
+        }
+        if (p.getCurrentToken() == JsonToken.VALUE_TRUE) {
+            return Boolean.TRUE;
+        }
+        if (p.getCurrentToken() == JsonToken.VALUE_FALSE) {
+            return Boolean.FALSE;
+        }
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        return _parseBoolean(p, ctxt);
+    }
+
+    protected final String readString(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (stringDeserializer != null) {
+            return (String) read(p, ctxt, stringDeserializer);
+        }
+        if (p.getCurrentToken() == JsonToken.VALUE_STRING) {
+            return p.getText();
+        }
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        return _parseString(p, ctxt);
+    }
+
+    protected final Object read(JsonParser p, DeserializationContext ctxt, JsonDeserializer<Object> deserializer) throws IOException {
+        if (p.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return deserializer.getNullValue();
+        }
+        return deserializer.deserialize(p, ctxt);
+    }
+
+    /**
+     * Rethrow a failure to read a property, with the path of the property, as the bean deserializer of Jackson does.
+     *
+     * @param t    the failure
+     * @param bean the model
+     * @param name the JSON name of the property
+     * @param ctxt the context
+     * @throws IOException the failure, wrapped in a {@link JsonMappingException} unless it is an I/O failure
+     */
+    protected final void wrapAndThrow(Throwable t, Object bean, String name, DeserializationContext ctxt) throws IOException {
+        while (t instanceof InvocationTargetException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        boolean wrap = ctxt == null || ctxt.isEnabled(DeserializationFeature.WRAP_EXCEPTIONS);
+        if (t instanceof IOException) {
+            if (!wrap || !(t instanceof JsonMappingException)) {
+                throw (IOException) t;
+            }
+        } else if (!wrap && t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        throw JsonMappingException.wrapWithPath(t, bean, name);
+    }
+
+    protected final JsonMappingException anySetterFailure(Throwable t, String name, Object value) {
+        while (t instanceof InvocationTargetException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return new JsonMappingException("Problem deserializing \"any\" property '" + name + "' of class " + handledType().getName()
+                + " (expected type: " + Object.class.getName() + "; actual type: " + (value == null ? "null" : value.getClass().getName())
+                + ")", null, t);
+    }
+
+    protected static MethodHandle setterHandle(Class<?> type, String field) {
+        try {
+            Field f = type.getDeclaredField(field);
+            f.setAccessible(true);
+            return MethodHandles.lookup().unreflectSetter(f);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    protected static MethodHandle methodHandle(Class<?> type, String method, Class<?>... parameterTypes) {
+        try {
+            Method m = type.getDeclaredMethod(method, parameterTypes);
+            m.setAccessible(true);
+            return MethodHandles.lookup().unreflect(m);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void checkNullForPrimitive(DeserializationContext ctxt, String type) throws JsonMappingException {
+        if (ctxt.isEnabled(DeserializationFeature.FAIL_ON_NULL_FOR_PRIMITIVES)) {
+            throw ctxt.mappingException("Can not map JSON null into type " + type
+                    + " (set DeserializationConfig.DeserializationFeature.FAIL_ON_NULL_FOR_PRIMITIVES to 'false' to allow)");
+        }
+    }
+
+    private static JsonDeserializer<Object> customDeserializer(DeserializationContext ctxt, Class<?> type) throws JsonMappingException {
+        JsonDeserializer<Object> deserializer = ctxt.findRootValueDeserializer(ctxt.constructType(type));
+        return ClassUtil.isJacksonStdImpl(deserializer) ? null : deserializer;
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail.internal;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.impl.PropertySerializerMap;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.ClassUtil;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Base of the JSON writers generated for the models by {@code JsonCodecProcessor}. Numbers, booleans and strings are
+ * written straight to the generator unless custom serializers are registered for them, the other values are delegated
+ * to the serializers Jackson resolves for their runtime types.
+ * <p/>
+ * Only supports the {@link JsonInclude.Include#ALWAYS} and {@link JsonInclude.Include#NON_NULL} inclusions.
+ * <p/>
+ * INTERNAL ONLY
+ *
+ * @param <T> the model
+ */
+public abstract class ModelWriter<T> extends StdSerializer<T> implements ResolvableSerializer {
+
+    private boolean suppressNulls;
+    private boolean defaultViewInclusion;
+    private JsonSerializer<Object> stringSerializer;
+    private JsonSerializer<Object> intSerializer;
+    private JsonSerializer<Object> booleanSerializer;
+
+    protected ModelWriter(Class<T> type) {
+        super(type);
+    }
+
+    @Override
+    public final void resolve(SerializerProvider provider) throws JsonMappingException {
+        suppressNulls = provider.getConfig().getSerializationInclusion() == JsonInclude.Include.NON_NULL;
+        defaultViewInclusion = provider.getConfig().isEnabled(MapperFeature.DEFAULT_VIEW_INCLUSION);
+        stringSerializer = customSerializer(provider, String.class);
+        intSerializer = customSerializer(provider, Integer.class);
+        booleanSerializer = customSerializer(provider, Boolean.class);
+        resolveProperties(provider);
+    }
+
+    @Override
+    public final void serialize(T value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+        writeProperties(value, gen, provider);
+        gen.writeEndObject();
+    }
+
+    @Override
+    public final void serializeWithType(T value, JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSerializer) throws IOException {
+        typeSerializer.writeTypePrefixForObject(value, gen);
+        writeProperties(value, gen, provider);
+        typeSerializer.writeTypeSuffixForObject(value, gen);
+    }
+
+    /**
+     * Resolve the serializers of the properties.
+     *
+     * @param provider the provider
+     * @throws JsonMappingException if a serializer cannot be resolved
+     */
+    protected abstract void resolveProperties(SerializerProvider provider) throws JsonMappingException;
+
+    /**
+     * Write all the properties of a model, when no view is active.
+     *
+     * @param value    the model
+     * @param gen      the generator
+     * @param provider the provider
+     * @throws IOException if the model cannot be written
+     */
+    protected abstract void writeAll(T value, JsonGenerator gen, SerializerProvider provider) throws IOException;
+
+    /**
+     * Write the properties of a model in a view.
+     *
+     * @param value    the model
+     * @param gen      the generator
+     * @param provider the provider
+     * @param view     the active view
+     * @throws IOException if the model cannot be written
+     */
+    protected abstract void writeView(T value, JsonGenerator gen, SerializerProvider provider, Class<?> view) throws IOException;
+
+    protected final boolean isSuppressNulls() {
+        return suppressNulls;
+    }
+
+    protected final boolean isDefaultViewInclusion() {
+        return defaultViewInclusion;
+    }
+
+    protected static boolean isInView(Class<?> view, Class<?>... views) {
+        for (Class<?> propertyView : views) {
+            if (propertyView.isAssignableFrom(view)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected final void writeInt(int value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (intSerializer != null) {
+            intSerializer.serialize(value, gen, provider);
+        } else {
+            gen.writeNumber(value);
+        }
+    }
+
+    protected final void writeInteger(Integer value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        writeInt(value, gen, provider);
+    }
+
+    protected final void writeBoolean(boolean value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (booleanSerializer != null) {
+            booleanSerializer.serialize(value, gen, provider);
+        } else {
+            gen.writeBoolean(value);
+        }
+    }
+
+    protected final void writeBooleanObject(Boolean value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        writeBoolean(value, gen, provider);
+    }
+
+    protected final void writeString(String value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (stringSerializer != null) {
+            stringSerializer.serialize(value, gen, provider);
+        } else {
+            gen.writeString(value);
+        }
+    }
+
+    /**
+     * Write the entries of the map of an any-getter, as the map serializer of Jackson does.
+     *
+     * @param map           the map, null to write nothing
+     * @param keySerializer the serializer of the keys
+     * @param valueWriter   the writer of the values
+     * @param gen           the generator
+     * @param provider      the provider
+     * @throws IOException if the map cannot be written
+     */
+    protected final void writeAny(Map<?, ?> map, JsonSerializer<Object> keySerializer, ValueWriter valueWriter, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (map == null) {
+            return;
+        }
+        if (provider.isEnabled(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS) && !(map instanceof TreeMap) && !map.containsKey(null)) {
+            map = new TreeMap<>(map);
+        }
+        boolean skipNulls = !provider.isEnabled(SerializationFeature.WRITE_NULL_MAP_VALUES);
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            Object key = entry.getKey();
+            Object value = entry.getValue();
+            if (key == null) {
+                provider.findNullKeySerializer(null, null).serialize(null, gen, provider);
+            } else {
+                if (skipNulls && value == null) {
+                    continue;
+                }
+                keySerializer.serialize(key, gen, provider);
+            }
+            if (value == null) {
+                provider.defaultSerializeNull(gen);
+            } else {
+                try {
+                    valueWriter.write(value, gen, provider);
+                } catch (Exception e) {
+                    wrapAndThrow(provider, e, map, String.valueOf(key));
+                }
+            }
+        }
+    }
+
+    protected static MethodHandle getterHandle(Class<?> type, String field) {
+        try {
+            Field f = type.getDeclaredField(field);
+            f.setAccessible(true);
+            return MethodHandles.lookup().unreflectGetter(f);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeProperties(T value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        Class<?> view = provider.getActiveView();
+        if (view == null) {
+            writeAll(value, gen, provider);
+        } else {
+            writeView(value, gen, provider, view);
+        }
+    }
+
+    private static JsonSerializer<Object> customSerializer(SerializerProvider provider, Class<?> type) throws JsonMappingException {
+        JsonSerializer<Object> serializer = provider.findValueSerializer(type, null);
+        return ClassUtil.isJacksonStdImpl(serializer) ? null : serializer;
+    }
+
+    /**
+     * Writer of the values of a property which serializer depends on their runtime type, as the property writers of
+     * Jackson do.
+     */
+    protected static final class ValueWriter {
+
+        private final JavaType baseType;
+        private PropertySerializerMap serializers = PropertySerializerMap.emptyMap();
+
+        /**
+         * @param baseType the declared type of the values if generic, to resolve the serializers of their subtypes
+         *                 with its type parameters, or null
+         */
+        public ValueWriter(JavaType baseType) {
+            this.baseType = baseType;
+        }
+
+        public void write(Object value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            Class<?> type = value.getClass();
+            JsonSerializer<Object> serializer = serializers.serializerFor(type);
+            if (serializer == null) {
+                PropertySerializerMap.SerializerAndMapResult result = baseType != null
+                        ? serializers.findAndAddSecondarySerializer(provider.constructSpecializedType(baseType, type), provider, null)
+                        : serializers.findAndAddSecondarySerializer(type, provider, null);
+                serializers = result.map;
+                serializer = result.serializer;
+            }
+            serializer.serialize(value, gen, provider);
+        }
+    }
+}
@@ -2,23 +2,31 @@ package com.codepine.api.testrail.internal;
 
 import com.codepine.api.testrail.model.Links;
 import com.codepine.api.testrail.model.Page;
-import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.ObjectCodec;
 import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
+/**
+ * Deserializer of a page of a paginated list response. The name of the field holding the entities in the page and the
+ * reader of the entities are passed as attributes of each read, so that concurrent reads do not share any state.
+ */
 public class PageDeserializer extends StdDeserializer<Page> {
 
-    public static String field = "objects";
-    public static Class type = Object.class;
-    public static Object supplement = Collections.emptyList();
+    /**
+     * Attribute key of the name of the field holding the entities in the page.
+     */
+    public static final String FIELD = PageDeserializer.class.getName() + ".field";
+    /**
+     * Attribute key of the {@link ObjectReader} reading each of the entities in the page.
+     */
+    public static final String ELEMENT_READER = PageDeserializer.class.getName() + ".elementReader";
 
     public PageDeserializer() {
         this(null);
@@ -38,18 +46,22 @@ public class PageDeserializer extends StdDeserializer<Page> {
         JsonNode links = node.get("links");
         String next = links.get("next").isNull() ? null : links.get("next").asText();
         String prev = links.get("prev").isNull() ? null : links.get("prev").asText();
+        String field = (String) ctxt.getAttribute(FIELD);
+        ObjectReader elementReader = (ObjectReader) ctxt.getAttribute(ELEMENT_READER);
+        if (field == null || elementReader == null) {
+            throw ctxt.mappingException("Page read without the field and reader of its entities");
+        }
+        if (!(node.get(field) instanceof ArrayNode)) {
+            throw ctxt.mappingException("Page has no array field '" + field + "'");
+        }
         ArrayNode objects = (ArrayNode) node.get(field);
-        List list = new ArrayList<>();
-        ObjectMapper mapper = new ObjectMapper()
-            .setPropertyNamingStrategy(PropertyNamingStrategy.CAMEL_CASE_TO_LOWER_CASE_WITH_UNDERSCORES)
-            .configure(MapperFeature.DEFAULT_VIEW_INCLUSION, false)
-            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
-            .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
-            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
-            .registerModules(new CaseModule(), new FieldModule(), new PlanModule(), new ResultModule(), new UnixTimestampModule());
-        for(int i = 0; i < objects.size(); i++) {
-            JsonNode element = objects.get(i);
-            list.add(mapper.reader(type).with(new InjectableValues.Std().addValue(type.toString(), supplement)).readValue(element.toString()));
+        List list = new ArrayList<>(objects.size());
+        // entity deserializers of the modules expect the mapper as the codec of the parser
+        ObjectCodec mapper = elementReader.getFactory().getCodec();
+        // custom field types are resolved once for the page rather than once per entity
+        ObjectReader reader = elementReader.withAttribute(CustomFieldTypes.CACHE, CustomFieldTypes.getCache(ctxt));
+        for (int i = 0; i < objects.size(); i++) {
+            list.add(reader.readValue(objects.get(i).traverse(mapper)));
         }
         Page page = new Page();
         page.limit = limit;
@@ -0,0 +1,160 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail.internal;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stream writing the body of a request to a {@link HttpURLConnection} without holding all of it in memory.
+ * <p>The first {@code streamingThreshold} bytes are buffered. A body which fits in the buffer is sent with a fixed length, a
+ * larger one is sent in chunked streaming mode as it is written. Either way the body is gzip compressed only if it is larger
+ * than {@code compressionThreshold}: a streamed body is gzip encoded from its start, but stored without compression until
+ * that many bytes are written.</p>
+ */
+public class RequestBodyOutputStream extends OutputStream {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final HttpURLConnection connection;
+    private final int streamingThreshold;
+    private final int compressionThreshold;
+    private ByteArrayOutputStream buffer;
+    private OutputStream out;
+    private GzipStream gzipStream;
+    private long count;
+
+    /**
+     * @param connection           the connection to write the body to, not connected yet
+     * @param streamingThreshold   the size in bytes above which the body is streamed
+     * @param compressionThreshold the size in bytes above which the body is gzip compressed, negative if it never is
+     */
+    public RequestBodyOutputStream(final HttpURLConnection connection, final int streamingThreshold, final int compressionThreshold) {
+        this.connection = connection;
+        this.streamingThreshold = streamingThreshold;
+        this.compressionThreshold = compressionThreshold;
+        this.buffer = new ByteArrayOutputStream(Math.min(streamingThreshold, CHUNK_SIZE));
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        if (out == null && buffer.size() + len > streamingThreshold) {
+            startStreaming();
+        }
+        if (out == null) {
+            buffer.write(b, off, len);
+        } else if (gzipStream != null && !isCompressed(count) && isCompressed(count + len)) {
+            // store the bytes up to the threshold as they are and compress the rest
+            int stored = (int) (compressionThreshold - count);
+            out.write(b, off, stored);
+            gzipStream.setLevel(Deflater.DEFAULT_COMPRESSION);
+            out.write(b, off + stored, len - stored);
+        } else {
+            out.write(b, off, len);
+        }
+        count += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // nothing is sent before the buffer overflows or the stream is closed
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out == null && buffer == null) {
+            return;
+        }
+        if (out == null) {
+            if (isCompressed(buffer.size())) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(buffer.size() / 2);
+                try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed)) {
+                    buffer.writeTo(gzipOutputStream);
+                }
+                buffer = compressed;
+                connection.setRequestProperty("Content-Encoding", "gzip");
+            }
+            connection.setFixedLengthStreamingMode(buffer.size());
+            out = connection.getOutputStream();
+            buffer.writeTo(out);
+            buffer = null;
+        }
+        out.close();
+        out = null;
+    }
+
+    private boolean isCompressed(long size) {
+        return compressionThreshold >= 0 && size > compressionThreshold;
+    }
+
+    private void startStreaming() throws IOException {
+        connection.setChunkedStreamingMode(CHUNK_SIZE);
+        if (compressionThreshold >= 0) {
+            connection.setRequestProperty("Content-Encoding", "gzip");
+            gzipStream = new GzipStream(connection.getOutputStream());
+            if (!isCompressed(buffer.size())) {
+                gzipStream.setLevel(Deflater.NO_COMPRESSION);
+            }
+            out = gzipStream;
+        } else {
+            out = new BufferedOutputStream(connection.getOutputStream(), CHUNK_SIZE);
+        }
+        buffer.writeTo(out);
+        buffer = null;
+    }
+
+    /**
+     * Gzip stream whose compression level can be changed while writing.
+     */
+    private static class GzipStream extends GZIPOutputStream {
+
+        GzipStream(OutputStream out) throws IOException {
+            super(out, CHUNK_SIZE);
+        }
+
+        void setLevel(int level) throws IOException {
+            def.setLevel(level);
+            // apply the level right away, else the input of the next write would still be deflated with the previous one
+            int len;
+            do {
+                len = def.deflate(buf, 0, buf.length);
+                out.write(buf, 0, len);
+            } while (len == buf.length);
+        }
+    }
+}
@@ -24,7 +24,6 @@
 
 package com.codepine.api.testrail.internal;
 
-import com.codepine.api.testrail.model.Field;
 import com.codepine.api.testrail.model.Result;
 import com.codepine.api.testrail.model.ResultField;
 import com.fasterxml.jackson.core.JsonParser;
@@ -32,6 +31,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.BeanDescription;
 import com.fasterxml.jackson.databind.DeserializationConfig;
 import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonDeserializer;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -39,8 +39,6 @@ import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
 import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import com.fasterxml.jackson.databind.module.SimpleModule;
-import com.google.common.base.Function;
-import com.google.common.collect.Maps;
 
 import java.io.IOException;
 import java.util.HashMap;
@@ -76,16 +74,12 @@ public class ResultModule extends SimpleModule {
 
             ObjectMapper mapper = (ObjectMapper) jsonParser.getCodec();
             List<ResultField> resultFieldList = (List<ResultField>) deserializationContext.findInjectableValue(Result.class.toString(), null, null);
-            Map<String, ResultField> resultFields = Maps.uniqueIndex(resultFieldList, new Function<ResultField, String>() {
-                @Override
-                public String apply(final ResultField resultField) {
-                    return resultField.getName();
-                }
-            });
+            CustomFieldTypes customFieldTypes = CustomFieldTypes.get(resultFieldList, mapper, deserializationContext);
             Map<String, Object> customFields = new HashMap<>(result.getCustomFields().size());
             for (Map.Entry<String, Object> customField : result.getCustomFields().entrySet()) {
-                checkArgument(resultFields.containsKey(customField.getKey()), "Result field list configuration is possibly outdated since it does not contain custom field: " + customField.getKey());
-                customFields.put(customField.getKey(), mapper.convertValue(customField.getValue(), Field.Type.getType(resultFields.get(customField.getKey()).getTypeId()).getTypeReference()));
+                JavaType type = customFieldTypes.getType(customField.getKey());
+                checkArgument(type != null, "Result field list configuration is possibly outdated since it does not contain custom field: " + customField.getKey());
+                customFields.put(customField.getKey(), mapper.convertValue(customField.getValue(), type));
             }
             result.setCustomFields(customFields);
             return result;
@@ -24,6 +24,8 @@
 
 package com.codepine.api.testrail.internal;
 
+import lombok.extern.log4j.Log4j;
+
 import java.io.IOException;
 import java.net.URL;
 import java.net.URLConnection;
@@ -31,8 +33,32 @@ import java.net.URLConnection;
 /**
  * Factory to create instances of {@link java.net.URLConnection}.
  */
+@Log4j
 public class UrlConnectionFactory {
 
+    private static final String HTTP_CLIENT_URL_CONNECTION_FACTORY = "com.codepine.api.testrail.internal.HttpClientUrlConnectionFactory";
+
+    /**
+     * Get a factory of connections multiplexed over HTTP/2 by the {@code java.net.http.HttpClient} of Java 11+, falling back
+     * to HTTP/1.1 for servers which do not support HTTP/2. The factory is only available on Java 11+ from the multi-release
+     * JAR of this library; elsewhere the default factory is returned.
+     * <p>The connect timeout of the HTTP/2 capable factory is shared by all its connections, which reject a shorter connect
+     * timeout unless their read timeout is short enough to bound the connection.</p>
+     *
+     * @param connectTimeoutMillis the timeout to establish a connection, zero if infinite
+     * @return a new HTTP/2 capable factory if available, else a new default factory
+     */
+    public static UrlConnectionFactory http2OrDefault(final int connectTimeoutMillis) {
+        try {
+            return (UrlConnectionFactory) Class.forName(HTTP_CLIENT_URL_CONNECTION_FACTORY).getConstructor(int.class).newInstance(connectTimeoutMillis);
+        } catch (ClassNotFoundException | LinkageError e) {
+            log.warn("HTTP/2 transport requires Java 11+, falling back to HttpURLConnection");
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+        return new UrlConnectionFactory();
+    }
+
     /**
      * Get URL connection.
      *
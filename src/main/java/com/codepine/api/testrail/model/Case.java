@@ -25,6 +25,7 @@
 package com.codepine.api.testrail.model;
 
 import com.codepine.api.testrail.TestRail;
+import com.codepine.api.testrail.internal.codegen.JsonCodec;
 import com.fasterxml.jackson.annotation.JsonAnyGetter;
 import com.fasterxml.jackson.annotation.JsonAnySetter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -50,6 +51,7 @@ import static com.codepine.api.testrail.model.Field.Type;
  * TestRail case.
  */
 @Data
+@JsonCodec
 public class Case {
 
     private static final String CUSTOM_FIELD_KEY_PREFIX = "custom_";
@@ -141,7 +143,7 @@ public class Case {
     /**
      * Serializer for custom fields.
      */
-    private static class CustomFieldSerializer extends StdKeySerializer {
+    static class CustomFieldSerializer extends StdKeySerializer {
 
         @Override
         public void serialize(Object o, JsonGenerator jsonGenerator, SerializerProvider serializerProvider) throws IOException, JsonGenerationException {
@@ -25,6 +25,7 @@
 package com.codepine.api.testrail.model;
 
 import com.codepine.api.testrail.TestRail;
+import com.codepine.api.testrail.internal.codegen.JsonCodec;
 import com.fasterxml.jackson.annotation.JsonView;
 import lombok.AccessLevel;
 import lombok.Data;
@@ -37,6 +38,7 @@ import java.util.Date;
  * TestRail milestone.
  */
 @Data
+@JsonCodec
 public class Milestone {
 
     private int id;
@@ -25,6 +25,7 @@
 package com.codepine.api.testrail.model;
 
 import com.codepine.api.testrail.TestRail;
+import com.codepine.api.testrail.internal.codegen.JsonCodec;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonView;
@@ -41,6 +42,7 @@ import java.util.List;
  * TestRail plan.
  */
 @Data
+@JsonCodec
 public class Plan {
 
     private int id;
@@ -98,6 +100,7 @@ public class Plan {
     private List<Entry> entries;
 
     @Data
+    @JsonCodec
     public static class Entry {
 
         private String id;
@@ -130,6 +133,7 @@ public class Plan {
         @Data
         @EqualsAndHashCode(callSuper = true)
         @ToString(callSuper = true)
+        @JsonCodec
         public static class Run extends com.codepine.api.testrail.model.Run {
             private String entryId;
             private int entryIndex;
@@ -24,6 +24,7 @@
 
 package com.codepine.api.testrail.model;
 
+import com.codepine.api.testrail.internal.codegen.JsonCodec;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
@@ -33,6 +34,7 @@ import lombok.Getter;
  * TestRail test case priority.
  */
 @Data
+@JsonCodec
 public class Priority {
 
     private int id;
@@ -28,6 +28,7 @@
 package com.codepine.api.testrail.model;
 
 import com.codepine.api.testrail.TestRail;
+import com.codepine.api.testrail.internal.codegen.JsonCodec;
 import com.fasterxml.jackson.annotation.JsonView;
 import lombok.AccessLevel;
 import lombok.Data;
@@ -40,6 +41,7 @@ import java.util.Date;
  * TestRail project.
  */
 @Data
+@JsonCodec
 public class Project {
 
     private int id;
@@ -27,6 +27,7 @@ package com.codepine.api.testrail.model;
 import com.codepine.api.testrail.TestRail;
 import com.codepine.api.testrail.internal.CsvToListDeserializer;
 import com.codepine.api.testrail.internal.ListToCsvSerializer;
+import com.codepine.api.testrail.internal.codegen.JsonCodec;
 import com.fasterxml.jackson.annotation.JsonAnyGetter;
 import com.fasterxml.jackson.annotation.JsonAnySetter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
@@ -60,6 +61,7 @@ import static com.codepine.api.testrail.model.Field.Type;
  */
 @Data
 @ToString(exclude = "caseId")
+@JsonCodec
 public class Result {
 
     private static final String CUSTOM_FIELD_KEY_PREFIX = "custom_";
@@ -165,7 +167,7 @@ public class Result {
     /**
      * Serializer for custom fields.
      */
-    private static class CustomFieldSerializer extends StdKeySerializer {
+    static class CustomFieldSerializer extends StdKeySerializer {
 
         @Override
         public void serialize(Object o, JsonGenerator jsonGenerator, SerializerProvider serializerProvider) throws IOException, JsonGenerationException {
@@ -179,6 +181,7 @@ public class Result {
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
+    @JsonCodec
     public static class List {
 
         @JsonView({TestRail.Results.AddList.class, TestRail.Results.AddListForCases.class})
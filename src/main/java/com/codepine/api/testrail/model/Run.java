@@ -26,6 +26,7 @@ package com.codepine.api.testrail.model;
 
 import com.codepine.api.testrail.TestRail;
 import com.codepine.api.testrail.internal.CsvToListDeserializer;
+import com.codepine.api.testrail.internal.codegen.JsonCodec;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonView;
@@ -40,6 +41,7 @@ import java.util.List;
  * TestRail run.
  */
 @Data
+@JsonCodec
 public class Run {
 
     private int id;
@@ -111,4 +113,15 @@ public class Run {
 
     private int customStatus7Count;
 
+    /**
+     * Get the number of tests of this run, as per its status counts.
+     *
+     * @return the number of tests
+     */
+    @JsonIgnore
+    public int getTestCount() {
+        return passedCount + blockedCount + untestedCount + retestCount + failedCount + customStatus1Count + customStatus2Count
+                + customStatus3Count + customStatus4Count + customStatus5Count + customStatus6Count + customStatus7Count;
+    }
+
 }
@@ -25,6 +25,7 @@
 package com.codepine.api.testrail.model;
 
 import com.codepine.api.testrail.TestRail;
+import com.codepine.api.testrail.internal.codegen.JsonCodec;
 import com.fasterxml.jackson.annotation.JsonView;
 import lombok.Data;
 
@@ -32,6 +33,7 @@ import lombok.Data;
  * TestRail section.
  */
 @Data
+@JsonCodec
 public class Section {
 
     private int id;
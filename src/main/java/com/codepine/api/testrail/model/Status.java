@@ -24,6 +24,7 @@
 
 package com.codepine.api.testrail.model;
 
+import com.codepine.api.testrail.internal.codegen.JsonCodec;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
@@ -33,6 +34,7 @@ import lombok.Getter;
  * TestRail status.
  */
 @Data
+@JsonCodec
 public class Status {
 
     private int id;
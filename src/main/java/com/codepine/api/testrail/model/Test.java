@@ -24,6 +24,7 @@
 
 package com.codepine.api.testrail.model;
 
+import com.codepine.api.testrail.internal.codegen.JsonCodec;
 import com.fasterxml.jackson.annotation.JsonAnySetter;
 import com.google.common.base.MoreObjects;
 import lombok.Data;
@@ -36,6 +37,7 @@ import java.util.Map;
  * TestRail test.
  */
 @Data
+@JsonCodec
 public class Test {
 
     private static final String CUSTOM_FIELD_KEY_PREFIX = "custom_";
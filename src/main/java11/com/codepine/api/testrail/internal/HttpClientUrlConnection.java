@@ -0,0 +1,348 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ProtocolException;
+import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link HttpURLConnection} adapter sending its request with {@link HttpClient}.
+ * <p>A request with a body of fixed length is sent once its output stream is closed, with the body written. A request
+ * with a body of unknown length is sent when its output stream is opened, the body being streamed to the client as it is
+ * written. A request without body is sent on connection. Only the parts of {@code HttpURLConnection} used by this library are
+ * supported.</p>
+ * <p>The connect timeout is the one of the client, shared by all its connections. A shorter connect timeout can only be
+ * honored through the read timeout, which bounds the whole exchange up to the response headers, including the connection:
+ * the request is rejected if neither bounds the connection within the connect timeout. Timeouts are reported as
+ * {@link SocketTimeoutException}, like with {@code HttpURLConnection}.</p>
+ */
+class HttpClientUrlConnection extends HttpURLConnection {
+
+    private static final int PIPE_SIZE = 8192;
+
+    private final HttpClient httpClient;
+    private CompletableFuture<HttpResponse<InputStream>> responseFuture;
+    private HttpResponse<InputStream> response;
+    private boolean bodyWritten;
+
+    HttpClientUrlConnection(final URL url, final HttpClient httpClient) {
+        super(url);
+        this.httpClient = httpClient;
+    }
+
+    @Override
+    public void connect() throws IOException {
+        if (responseFuture == null && bodyWritten) {
+            throw new ProtocolException("request body not closed before reading the response");
+        }
+        if (responseFuture == null) {
+            send(HttpRequest.BodyPublishers.noBody());
+        }
+        connected = true;
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        if (!doOutput) {
+            throw new ProtocolException("cannot write to a URLConnection if doOutput=false - call setDoOutput(true)");
+        }
+        if (connected || bodyWritten) {
+            throw new ProtocolException("cannot write request body after connection");
+        }
+        long contentLength = fixedContentLengthLong != -1 ? fixedContentLengthLong : fixedContentLength;
+        if (contentLength != -1) {
+            // a body of known length was buffered by the caller, it is sent in one piece once written
+            bodyWritten = true;
+            return new ByteArrayOutputStream((int) Math.min(contentLength, Integer.MAX_VALUE)) {
+                private boolean closed;
+
+                @Override
+                public void close() throws IOException {
+                    if (closed) {
+                        return;
+                    }
+                    closed = true;
+                    if (size() != contentLength) {
+                        throw new IOException("expected " + contentLength + " bytes of request body but " + size() + " were written");
+                    }
+                    send(HttpRequest.BodyPublishers.ofByteArray(toByteArray()));
+                    connected = true;
+                }
+            };
+        }
+        final BodyPipe body = new BodyPipe();
+        send(HttpRequest.BodyPublishers.ofInputStream(() -> body.in));
+        // unblock the writer if the request fails before the whole body is read
+        responseFuture.whenComplete((r, e) -> {
+            if (e != null) {
+                try {
+                    body.in.close();
+                } catch (IOException ignored) {
+                    // nothing more to do
+                }
+            }
+        });
+        connected = true;
+        return body.out;
+    }
+
+    @Override
+    public int getResponseCode() throws IOException {
+        return getResponse().statusCode();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        HttpResponse<InputStream> response = getResponse();
+        if (response.statusCode() >= HTTP_BAD_REQUEST) {
+            throw new IOException("Server returned HTTP response code: " + response.statusCode() + " for URL: " + url);
+        }
+        return response.body();
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        if (response == null || response.statusCode() < HTTP_BAD_REQUEST) {
+            return null;
+        }
+        return response.body();
+    }
+
+    @Override
+    public String getHeaderField(final String name) {
+        try {
+            return getResponse().headers().firstValue(name).orElse(null);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public Map<String, List<String>> getHeaderFields() {
+        try {
+            return getResponse().headers().map();
+        } catch (IOException e) {
+            return Map.of();
+        }
+    }
+
+    @Override
+    public void disconnect() {
+        if (response != null) {
+            try {
+                response.body().close();
+            } catch (IOException ignored) {
+                // nothing more to do
+            }
+        }
+    }
+
+    @Override
+    public boolean usingProxy() {
+        return false;
+    }
+
+    private void send(final HttpRequest.BodyPublisher publisher) throws IOException {
+        int connectTimeout = getConnectTimeout();
+        long clientConnectTimeout = httpClient.connectTimeout().map(Duration::toMillis).orElse(0L);
+        boolean connectTimeoutHonored = connectTimeout == 0
+                || clientConnectTimeout > 0 && clientConnectTimeout <= connectTimeout
+                || getReadTimeout() > 0 && getReadTimeout() <= connectTimeout;
+        if (!connectTimeoutHonored) {
+            throw new IllegalStateException("connect timeout of " + connectTimeout + "ms cannot be honored by a HttpClient with "
+                    + (clientConnectTimeout > 0 ? "a connect timeout of " + clientConnectTimeout + "ms" : "no connect timeout"));
+        }
+        HttpRequest.Builder requestBuilder;
+        try {
+            requestBuilder = HttpRequest.newBuilder(url.toURI()).method(getRequestMethod(), publisher);
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+        for (Map.Entry<String, List<String>> property : getRequestProperties().entrySet()) {
+            for (String value : property.getValue()) {
+                requestBuilder.header(property.getKey(), value);
+            }
+        }
+        if (getReadTimeout() > 0) {
+            requestBuilder.timeout(Duration.ofMillis(getReadTimeout()));
+        }
+        responseFuture = httpClient.sendAsync(requestBuilder.build(), HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    private HttpResponse<InputStream> getResponse() throws IOException {
+        if (response == null) {
+            connect();
+            try {
+                response = responseFuture.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof HttpTimeoutException) {
+                    SocketTimeoutException timeoutException = new SocketTimeoutException(e.getCause().getMessage());
+                    timeoutException.initCause(e.getCause());
+                    throw timeoutException;
+                }
+                throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Hand-off of a streamed request body from the thread writing it to the client reading it. Unlike the piped streams, it
+     * blocks on a lock rather than on monitors, so that a virtual thread waiting for the client to read does not pin its
+     * carrier thread.
+     */
+    private static final class BodyPipe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final Condition notFull = lock.newCondition();
+        private final byte[] buffer = new byte[PIPE_SIZE];
+        private int readPosition;
+        private int count;
+        private boolean writerClosed;
+        private boolean readerClosed;
+
+        final OutputStream out = new OutputStream() {
+            @Override
+            public void write(final int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(final byte[] b, int off, int len) throws IOException {
+                lock.lock();
+                try {
+                    while (len > 0) {
+                        while (count == buffer.length && !readerClosed) {
+                            await(notFull);
+                        }
+                        if (readerClosed || writerClosed) {
+                            throw new IOException("request body is no longer read");
+                        }
+                        int writePosition = (readPosition + count) % buffer.length;
+                        int length = Math.min(len, Math.min(buffer.length - count, buffer.length - writePosition));
+                        System.arraycopy(b, off, buffer, writePosition, length);
+                        count += length;
+                        off += length;
+                        len -= length;
+                        notEmpty.signal();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            @Override
+            public void close() {
+                lock.lock();
+                try {
+                    writerClosed = true;
+                    notEmpty.signal();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+
+        final InputStream in = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+                lock.lock();
+                try {
+                    while (count == 0 && !writerClosed && !readerClosed) {
+                        await(notEmpty);
+                    }
+                    if (readerClosed) {
+                        throw new IOException("request body stream closed");
+                    }
+                    if (count == 0) {
+                        return -1;
+                    }
+                    int length = Math.min(len, Math.min(count, buffer.length - readPosition));
+                    System.arraycopy(buffer, readPosition, b, off, length);
+                    readPosition = (readPosition + length) % buffer.length;
+                    count -= length;
+                    notFull.signal();
+                    return length;
+                } finally {
+                    lock.unlock();
+                }
+            }
+
+            @Override
+            public void close() {
+                lock.lock();
+                try {
+                    readerClosed = true;
+                    notFull.signal();
+                    notEmpty.signal();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+
+        private static void await(final Condition condition) throws InterruptedIOException {
+            try {
+                condition.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+}
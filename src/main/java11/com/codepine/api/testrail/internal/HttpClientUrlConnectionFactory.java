@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail.internal;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Factory to create connections sending requests with {@link HttpClient}, which multiplexes concurrent requests over HTTP/2
+ * connections and falls back to HTTP/1.1 for servers which do not support HTTP/2. All the connections created by a factory
+ * share the same client, and so its connection pool.
+ */
+public class HttpClientUrlConnectionFactory extends UrlConnectionFactory {
+
+    private final HttpClient httpClient;
+
+    public HttpClientUrlConnectionFactory() {
+        this(0);
+    }
+
+    /**
+     * @param connectTimeoutMillis the timeout to establish a connection, zero if infinite
+     */
+    public HttpClientUrlConnectionFactory(final int connectTimeoutMillis) {
+        this(newHttpClient(connectTimeoutMillis));
+    }
+
+    /**
+     * @param httpClient the client to send requests with, whose connect timeout applies to all the connections
+     */
+    public HttpClientUrlConnectionFactory(final HttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    @Override
+    public URLConnection getUrlConnection(final String url) throws IOException {
+        return new HttpClientUrlConnection(new URL(url), httpClient);
+    }
+
+    private static HttpClient newHttpClient(final int connectTimeoutMillis) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL);
+        if (connectTimeoutMillis > 0) {
+            builder.connectTimeout(Duration.ofMillis(connectTimeoutMillis));
+        }
+        return builder.build();
+    }
+
+}
@@ -0,0 +1,513 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail.internal.codegen;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The JSON properties of a model, collected from its fields and accessors the way Jackson 2.3 collects them with the
+ * configuration of the client.
+ * <ul>
+ * <li>Fields are visible when public or annotated, getters when public, setters whatever their visibility.</li>
+ * <li>{@code @JsonIgnore} on an accessor drops the property, unless another of its accessors is annotated.</li>
+ * <li>Annotated properties come after the other ones, in the order of the fields and then of the methods.</li>
+ * <li>Names are translated from camel case to lower case with underscores.</li>
+ * </ul>
+ * Any Jackson annotation on the model or its members that is not understood fails the compilation, instead of being
+ * silently ignored.
+ * <p/>
+ * INTERNAL ONLY
+ */
+final class BeanProperties {
+
+    static final String JSON_ANY_GETTER = "com.fasterxml.jackson.annotation.JsonAnyGetter";
+    static final String JSON_ANY_SETTER = "com.fasterxml.jackson.annotation.JsonAnySetter";
+    static final String JSON_IGNORE = "com.fasterxml.jackson.annotation.JsonIgnore";
+    static final String JSON_PROPERTY = "com.fasterxml.jackson.annotation.JsonProperty";
+    static final String JSON_VIEW = "com.fasterxml.jackson.annotation.JsonView";
+    static final String JSON_SERIALIZE = "com.fasterxml.jackson.databind.annotation.JsonSerialize";
+    static final String JSON_DESERIALIZE = "com.fasterxml.jackson.databind.annotation.JsonDeserialize";
+
+    private static final Set<String> SUPPORTED_ANNOTATIONS = new HashSet<>(Arrays.asList(
+            JSON_ANY_GETTER, JSON_ANY_SETTER, JSON_IGNORE, JSON_PROPERTY, JSON_VIEW, JSON_SERIALIZE, JSON_DESERIALIZE));
+
+    private final boolean serialization;
+    private final Map<String, Property> properties = new LinkedHashMap<>();
+    private final Set<String> ignoredNames = new LinkedHashSet<>();
+    private ExecutableElement anyGetter;
+    private ExecutableElement anySetter;
+
+    private BeanProperties(boolean serialization) {
+        this.serialization = serialization;
+    }
+
+    /**
+     * Collect the properties of a model.
+     *
+     * @param type          the model
+     * @param serialization whether to collect the properties written, or else the ones read
+     * @return the properties
+     * @throws CodecException if the model cannot be bound by generated code
+     */
+    static BeanProperties collect(TypeElement type, boolean serialization) throws CodecException {
+        BeanProperties beanProperties = new BeanProperties(serialization);
+        List<TypeElement> hierarchy = hierarchy(type);
+        for (TypeElement declaringType : hierarchy) {
+            checkSupported(declaringType);
+            for (VariableElement field : ElementFilter.fieldsIn(declaringType.getEnclosedElements())) {
+                if (!field.getModifiers().contains(Modifier.STATIC) && !field.getModifiers().contains(Modifier.TRANSIENT)) {
+                    checkSupported(field);
+                    boolean explicit = serialization ? hasExplicitName(field, JSON_SERIALIZE) : hasExplicitName(field, JSON_DESERIALIZE);
+                    boolean visible = explicit || field.getModifiers().contains(Modifier.PUBLIC);
+                    beanProperties.property(field.getSimpleName().toString()).fields.add(new Accessor(field, visible, explicit));
+                }
+            }
+        }
+        for (TypeElement declaringType : hierarchy) {
+            for (ExecutableElement method : ElementFilter.methodsIn(declaringType.getEnclosedElements())) {
+                if (!method.getModifiers().contains(Modifier.STATIC)) {
+                    checkSupported(method);
+                    beanProperties.addMethod(method);
+                }
+            }
+        }
+        beanProperties.removeUnwanted();
+        return beanProperties;
+    }
+
+    /**
+     * Get the properties, in the order Jackson writes them.
+     *
+     * @return the properties
+     */
+    List<Property> getProperties() {
+        List<Property> ordered = new ArrayList<>(properties.size());
+        for (Property property : properties.values()) {
+            if (!property.isExplicit()) {
+                ordered.add(property);
+            }
+        }
+        for (Property property : properties.values()) {
+            if (property.isExplicit()) {
+                ordered.add(property);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Get the names of the properties that are skipped when read, before the translation of the names like Jackson.
+     *
+     * @return the names
+     */
+    Set<String> getIgnoredNames() {
+        return Collections.unmodifiableSet(ignoredNames);
+    }
+
+    ExecutableElement getAnyGetter() {
+        return anyGetter;
+    }
+
+    ExecutableElement getAnySetter() {
+        return anySetter;
+    }
+
+    private void addMethod(ExecutableElement method) throws CodecException {
+        if (hasAnnotation(method, JSON_ANY_GETTER)) {
+            checkCodec(anyGetter == null && method.getParameters().isEmpty(), method, "Only one @JsonAnyGetter without parameters is supported");
+            anyGetter = method;
+            return;
+        }
+        if (hasAnnotation(method, JSON_ANY_SETTER)) {
+            checkCodec(anySetter == null && method.getParameters().size() == 2, method, "Only one @JsonAnySetter with a key and a value is supported");
+            anySetter = method;
+            return;
+        }
+        String methodName = method.getSimpleName().toString();
+        if (method.getParameters().isEmpty() && method.getReturnType().getKind() != TypeKind.VOID) {
+            String name = null;
+            if (methodName.startsWith("get")) {
+                name = manglePropertyName(methodName.substring(3));
+            } else if (methodName.startsWith("is") && isBoolean(method.getReturnType())) {
+                name = manglePropertyName(methodName.substring(2));
+            }
+            if (name != null) {
+                boolean explicit = hasExplicitName(method, JSON_SERIALIZE);
+                property(name).getters.add(new Accessor(method, explicit || method.getModifiers().contains(Modifier.PUBLIC), explicit));
+            }
+        } else if (method.getParameters().size() == 1 && methodName.startsWith("set")) {
+            String name = manglePropertyName(methodName.substring(3));
+            if (name != null) {
+                property(name).setters.add(new Accessor(method, true, hasExplicitName(method, JSON_DESERIALIZE)));
+            }
+        }
+    }
+
+    private void removeUnwanted() throws CodecException {
+        for (Iterator<Property> it = properties.values().iterator(); it.hasNext(); ) {
+            Property property = it.next();
+            if (!property.anyVisible()) {
+                it.remove();
+                continue;
+            }
+            if (property.anyIgnored()) {
+                if (!property.anyExplicit()) {
+                    it.remove();
+                    ignoredNames.add(property.name);
+                    continue;
+                }
+                property.removeIgnored();
+                if (!serialization && property.fields.isEmpty() && property.setters.isEmpty()) {
+                    ignoredNames.add(property.name);
+                }
+            }
+            // like Jackson with MapperFeature.INFER_PROPERTY_MUTATORS, a visible getter lets the field or setter be used
+            property.getters = visible(property.getters);
+            if (property.getters.isEmpty()) {
+                property.fields = visible(property.fields);
+                property.setters = visible(property.setters);
+            }
+            checkCodec(property.getters.size() <= 1 && property.setters.size() <= 1 && property.fields.size() <= 1,
+                    property.anyElement(), "Conflicting accessors of property " + property.name);
+            if (serialization ? property.getters.isEmpty() && property.fields.isEmpty() : property.setters.isEmpty() && property.fields.isEmpty()) {
+                checkCodec(serialization || property.getter() == null || !isContainer(property.getter().getReturnType()), property.anyElement(),
+                        "Collections and maps without setter are not supported");
+                it.remove();
+            }
+        }
+    }
+
+    private Property property(String name) {
+        Property property = properties.get(name);
+        if (property == null) {
+            property = new Property(name);
+            properties.put(name, property);
+        }
+        return property;
+    }
+
+    private static List<TypeElement> hierarchy(TypeElement type) {
+        List<TypeElement> hierarchy = new ArrayList<>();
+        for (TypeElement t = type; t != null && !t.getQualifiedName().contentEquals("java.lang.Object"); ) {
+            hierarchy.add(0, t);
+            TypeMirror superclass = t.getSuperclass();
+            t = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+        return hierarchy;
+    }
+
+    private static List<Accessor> visible(List<Accessor> accessors) {
+        List<Accessor> visible = new ArrayList<>(accessors.size());
+        for (Accessor accessor : accessors) {
+            if (accessor.visible) {
+                visible.add(accessor);
+            }
+        }
+        return visible;
+    }
+
+    /**
+     * Whether an accessor is named explicitly, like Jackson's {@code findNameForSerialization} and
+     * {@code findNameForDeserialization}, with {@code @JsonProperty}, {@code @JsonView} or the annotation of its
+     * custom serializer or deserializer.
+     */
+    private static boolean hasExplicitName(Element element, String serializerAnnotation) throws CodecException {
+        AnnotationMirror jsonProperty = getAnnotation(element, JSON_PROPERTY);
+        if (jsonProperty != null) {
+            String value = (String) getValue(jsonProperty, "value");
+            checkCodec(value == null || value.isEmpty(), element, "Renaming with @JsonProperty is not supported");
+            return true;
+        }
+        return hasAnnotation(element, JSON_VIEW) || hasAnnotation(element, serializerAnnotation);
+    }
+
+    private static void checkSupported(Element element) throws CodecException {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            String name = ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString();
+            if (name.startsWith("com.fasterxml.jackson.")) {
+                checkCodec(SUPPORTED_ANNOTATIONS.contains(name) && element.getKind() != ElementKind.CLASS,
+                        element, "@" + name + " is not supported on " + element.getKind().toString().toLowerCase());
+                if (name.equals(JSON_SERIALIZE) || name.equals(JSON_DESERIALIZE)) {
+                    for (ExecutableElement attribute : annotation.getElementValues().keySet()) {
+                        String attributeName = attribute.getSimpleName().toString();
+                        checkCodec(attributeName.equals("using") || attributeName.equals("keyUsing"), element, "@" + name + "(" + attributeName + ") is not supported");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Jackson's legacy mangling of the name of a property from the name of an accessor, lower casing the leading upper
+     * case characters.
+     */
+    private static String manglePropertyName(String basename) {
+        if (basename.isEmpty()) {
+            return null;
+        }
+        StringBuilder sb = null;
+        for (int i = 0; i < basename.length(); ++i) {
+            char upper = basename.charAt(i);
+            char lower = Character.toLowerCase(upper);
+            if (upper == lower) {
+                break;
+            }
+            if (sb == null) {
+                sb = new StringBuilder(basename);
+            }
+            sb.setCharAt(i, lower);
+        }
+        return sb == null ? basename : sb.toString();
+    }
+
+    /**
+     * Jackson's {@code PropertyNamingStrategy.CAMEL_CASE_TO_LOWER_CASE_WITH_UNDERSCORES}.
+     */
+    static String translate(String input) {
+        int length = input.length();
+        StringBuilder result = new StringBuilder(length * 2);
+        int resultLength = 0;
+        boolean wasPrevTranslated = false;
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            if (i > 0 || c != '_') {
+                if (Character.isUpperCase(c)) {
+                    if (!wasPrevTranslated && resultLength > 0 && result.charAt(resultLength - 1) != '_') {
+                        result.append('_');
+                        resultLength++;
+                    }
+                    c = Character.toLowerCase(c);
+                    wasPrevTranslated = true;
+                } else {
+                    wasPrevTranslated = false;
+                }
+                result.append(c);
+                resultLength++;
+            }
+        }
+        return resultLength > 0 ? result.toString() : input;
+    }
+
+    private static boolean isBoolean(TypeMirror type) {
+        return type.getKind() == TypeKind.BOOLEAN || type.toString().equals("java.lang.Boolean");
+    }
+
+    private static boolean isContainer(TypeMirror type) {
+        String name = type.getKind() == TypeKind.DECLARED ? ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString() : "";
+        return name.startsWith("java.util.") && (name.endsWith("List") || name.endsWith("Set") || name.endsWith("Map") || name.endsWith("Collection"));
+    }
+
+    static boolean hasAnnotation(Element element, String annotation) {
+        return getAnnotation(element, annotation) != null;
+    }
+
+    static AnnotationMirror getAnnotation(Element element, String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    static Object getValue(AnnotationMirror annotation, String attribute) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : annotation.getElementValues().entrySet()) {
+            if (value.getKey().getSimpleName().contentEquals(attribute)) {
+                return value.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    static void checkCodec(boolean condition, Element element, String message) throws CodecException {
+        if (!condition) {
+            throw new CodecException(message, element);
+        }
+    }
+
+    /**
+     * A field or method of a property.
+     */
+    static final class Accessor {
+        final Element element;
+        final boolean visible;
+        final boolean explicit;
+
+        Accessor(Element element, boolean visible, boolean explicit) {
+            this.element = element;
+            this.visible = visible;
+            this.explicit = explicit;
+        }
+
+        boolean isIgnored() {
+            return hasAnnotation(element, JSON_IGNORE);
+        }
+    }
+
+    /**
+     * A property, with its accessors.
+     */
+    static final class Property {
+        final String name;
+        List<Accessor> fields = new ArrayList<>(1);
+        List<Accessor> getters = new ArrayList<>(1);
+        List<Accessor> setters = new ArrayList<>(1);
+
+        Property(String name) {
+            this.name = name;
+        }
+
+        String getJsonName() {
+            return translate(name);
+        }
+
+        VariableElement field() {
+            return fields.isEmpty() ? null : (VariableElement) fields.get(0).element;
+        }
+
+        ExecutableElement getter() {
+            return getters.isEmpty() ? null : (ExecutableElement) getters.get(0).element;
+        }
+
+        ExecutableElement setter() {
+            return setters.isEmpty() ? null : (ExecutableElement) setters.get(0).element;
+        }
+
+        /**
+         * Get an annotation of the property, looked up on its accessors in the order Jackson merges their annotations.
+         *
+         * @param annotation    the name of the annotation
+         * @param serialization whether to look up the annotation for writes, or else for reads
+         * @return the annotation, or null if none
+         */
+        AnnotationMirror getAnnotation(String annotation, boolean serialization) {
+            List<List<Accessor>> accessors = serialization ? Arrays.asList(getters, setters, fields) : Arrays.asList(setters, fields, getters);
+            for (List<Accessor> list : accessors) {
+                for (Accessor accessor : list) {
+                    AnnotationMirror mirror = BeanProperties.getAnnotation(accessor.element, annotation);
+                    if (mirror != null) {
+                        return mirror;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private boolean isExplicit() {
+            return anyExplicit();
+        }
+
+        private boolean anyVisible() {
+            for (List<Accessor> list : Arrays.asList(fields, getters, setters)) {
+                for (Accessor accessor : list) {
+                    if (accessor.visible) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean anyExplicit() {
+            for (List<Accessor> list : Arrays.asList(fields, getters, setters)) {
+                for (Accessor accessor : list) {
+                    if (accessor.explicit) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean anyIgnored() {
+            for (List<Accessor> list : Arrays.asList(fields, getters, setters)) {
+                for (Accessor accessor : list) {
+                    if (accessor.isIgnored()) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private void removeIgnored() {
+            fields = notIgnored(fields);
+            getters = notIgnored(getters);
+            setters = notIgnored(setters);
+        }
+
+        private Element anyElement() {
+            for (List<Accessor> list : Arrays.asList(fields, getters, setters)) {
+                if (!list.isEmpty()) {
+                    return list.get(0).element;
+                }
+            }
+            return null;
+        }
+
+        private static List<Accessor> notIgnored(List<Accessor> accessors) {
+            List<Accessor> notIgnored = new ArrayList<>(accessors.size());
+            for (Accessor accessor : accessors) {
+                if (!accessor.isIgnored()) {
+                    notIgnored.add(accessor);
+                }
+            }
+            return notIgnored;
+        }
+    }
+
+    /**
+     * Thrown when a model cannot be bound by generated code.
+     */
+    static final class CodecException extends Exception {
+        final transient Element element;
+
+        CodecException(String message, Element element) {
+            super(message);
+            this.element = element;
+        }
+    }
+}
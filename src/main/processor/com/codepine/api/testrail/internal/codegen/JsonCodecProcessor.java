@@ -0,0 +1,803 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail.internal.codegen;
+
+import com.codepine.api.testrail.internal.codegen.BeanProperties.CodecException;
+import com.codepine.api.testrail.internal.codegen.BeanProperties.Property;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Annotation processor generating a JSON reader and writer for each model annotated with {@link JsonCodec}, which bind
+ * the model like Jackson binds it by reflection with the configuration of the client, see {@link BeanProperties}, but
+ * with the properties, their accessors and views resolved at compile time.
+ * <ul>
+ * <li>The reader, {@code <Model>_JsonReader}, dispatches on the property names with a switch, reads the numbers,
+ * booleans and strings straight from the parser and delegates the other values to the deserializers of Jackson.</li>
+ * <li>The writer, {@code <Model>_JsonWriter}, writes the properties with pre-encoded names, with a write method per
+ * view found on the properties, e.g. per request class, so that a request does not filter the properties at run
+ * time.</li>
+ * <li>{@code com.codepine.api.testrail.internal.ModelCodecs} creates the readers and writers by model.</li>
+ * </ul>
+ * Private members are accessed through method handles, resolved once.
+ * <p/>
+ * INTERNAL ONLY
+ */
+@SupportedAnnotationTypes("com.codepine.api.testrail.internal.codegen.JsonCodec")
+public class JsonCodecProcessor extends AbstractProcessor {
+
+    private static final String REGISTRY_PACKAGE = "com.codepine.api.testrail.internal";
+    private static final String REGISTRY_NAME = "ModelCodecs";
+    private static final String READER_SUFFIX = "_JsonReader";
+    private static final String WRITER_SUFFIX = "_JsonWriter";
+
+    private final List<TypeElement> models = new ArrayList<>();
+    private boolean registryWritten;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(JsonCodec.class)) {
+            TypeElement model = (TypeElement) element;
+            try {
+                checkModel(model);
+                writeSource(qualifiedName(model, READER_SUFFIX), new ReaderGenerator(model).generate(), model);
+                writeSource(qualifiedName(model, WRITER_SUFFIX), new WriterGenerator(model).generate(), model);
+                models.add(model);
+            } catch (CodecException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.element);
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write the JSON codec: " + e, model);
+            }
+        }
+        if (!models.isEmpty() && !registryWritten) {
+            registryWritten = true;
+            try {
+                writeSource(REGISTRY_PACKAGE + "." + REGISTRY_NAME, generateRegistry(), models.toArray(new Element[models.size()]));
+            } catch (IOException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write the JSON codec registry: " + e);
+            }
+        }
+        return true;
+    }
+
+    private void checkModel(TypeElement model) throws CodecException {
+        BeanProperties.checkCodec(model.getKind() == ElementKind.CLASS && !model.getModifiers().contains(Modifier.ABSTRACT)
+                && model.getModifiers().contains(Modifier.PUBLIC), model, "Only public concrete classes are supported");
+        BeanProperties.checkCodec(model.getNestingKind() != javax.lang.model.element.NestingKind.MEMBER || model.getModifiers().contains(Modifier.STATIC),
+                model, "Inner classes are not supported");
+        boolean defaultConstructor = ElementFilter.constructorsIn(model.getEnclosedElements()).isEmpty();
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(model.getEnclosedElements())) {
+            defaultConstructor |= constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC);
+        }
+        BeanProperties.checkCodec(defaultConstructor, model, "A public constructor without parameters is required");
+    }
+
+    private void writeSource(String qualifiedName, String source, Element... originatingElements) throws IOException {
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, originatingElements).openWriter()) {
+            writer.write(source);
+        }
+    }
+
+    private String generateRegistry() {
+        Source source = new Source(REGISTRY_PACKAGE, "the models annotated with @JsonCodec");
+        source.line("import com.fasterxml.jackson.databind.JsonDeserializer;");
+        source.line("import com.fasterxml.jackson.databind.JsonSerializer;");
+        source.line("");
+        source.line("/**");
+        source.line(" * The JSON readers and writers generated for the models.");
+        source.line(" * <p/>");
+        source.line(" * INTERNAL ONLY");
+        source.line(" */");
+        source.open("public final class " + REGISTRY_NAME + " {");
+        source.line("");
+        source.open("private " + REGISTRY_NAME + "() {");
+        source.close("}");
+        for (String kind : new String[]{"reader", "writer"}) {
+            boolean reader = kind.equals("reader");
+            source.line("");
+            source.line("/**");
+            source.line(" * Create a new " + kind + " of a model.");
+            source.line(" *");
+            source.line(" * @param type the model");
+            source.line(" * @return the " + kind + ", or null if none was generated for the model");
+            source.line(" */");
+            source.open("public static " + (reader ? "JsonDeserializer<?> newReader" : "JsonSerializer<?> newWriter") + "(Class<?> type) {");
+            for (TypeElement model : models) {
+                source.open("if (type == " + model.getQualifiedName() + ".class) {");
+                source.line("return new " + qualifiedName(model, reader ? READER_SUFFIX : WRITER_SUFFIX) + "();");
+                source.close("}");
+            }
+            source.line("return null;");
+            source.close("}");
+        }
+        source.close("}");
+        return source.toString();
+    }
+
+    private String qualifiedName(TypeElement model, String suffix) {
+        return packageOf(model) + "." + flatName(model) + suffix;
+    }
+
+    private String packageOf(Element element) {
+        return processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+    }
+
+    /**
+     * The name of a type within its package, with underscores between the names of the nested types.
+     */
+    private static String flatName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Element enclosing = type.getEnclosingElement(); !(enclosing instanceof PackageElement); enclosing = enclosing.getEnclosingElement()) {
+            name.insert(0, enclosing.getSimpleName() + "_");
+        }
+        return name.toString();
+    }
+
+    private String erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    /**
+     * Whether generated code in the package of a model can use a member directly.
+     */
+    private boolean isAccessible(Element member, TypeElement model) {
+        if (member.getModifiers().contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        boolean publicMember = member.getModifiers().contains(Modifier.PUBLIC);
+        for (Element type = member.getEnclosingElement(); !(type instanceof PackageElement); type = type.getEnclosingElement()) {
+            if (type.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            publicMember &= type.getModifiers().contains(Modifier.PUBLIC);
+        }
+        return publicMember || packageOf(member).equals(packageOf(model));
+    }
+
+    /**
+     * Get the class named by an attribute of an annotation, checked to be usable by generated code.
+     */
+    private TypeMirror getClassValue(AnnotationMirror annotation, String attribute, Element element, TypeElement model) throws CodecException {
+        if (annotation == null) {
+            return null;
+        }
+        TypeMirror type = (TypeMirror) BeanProperties.getValue(annotation, attribute);
+        if (type != null) {
+            TypeElement typeElement = (TypeElement) ((DeclaredType) type).asElement();
+            BeanProperties.checkCodec(isAccessible(typeElement, model) && !typeElement.getModifiers().contains(Modifier.ABSTRACT)
+                    && (typeElement.getNestingKind() != javax.lang.model.element.NestingKind.MEMBER || typeElement.getModifiers().contains(Modifier.STATIC)),
+                    element, typeElement + " must be a concrete static class accessible from " + packageOf(model));
+        }
+        return type;
+    }
+
+    /**
+     * Java code creating the Jackson type of a type, with a {@code TypeFactory} named {@code types}.
+     */
+    private String javaType(TypeMirror type, Element element) throws CodecException {
+        switch (type.getKind()) {
+            case DECLARED:
+                List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+                if (arguments.isEmpty()) {
+                    return "types.constructType(" + erasure(type) + ".class)";
+                }
+                StringBuilder code = new StringBuilder("types.constructParametricType(").append(erasure(type)).append(".class");
+                for (TypeMirror argument : arguments) {
+                    code.append(", ").append(javaType(argument, element));
+                }
+                return code.append(")").toString();
+            case ARRAY:
+                return "types.constructArrayType(" + javaType(((ArrayType) type).getComponentType(), element) + ")";
+            default:
+                BeanProperties.checkCodec(type.getKind().isPrimitive(), element, "Type " + type + " is not supported");
+                return "types.constructType(" + type + ".class)";
+        }
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static String constantName(String name) {
+        return BeanProperties.translate(name).toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * How a value is read or written.
+     */
+    private enum ValueKind {
+        INT("Int"), BOOLEAN("Boolean"), INTEGER("Integer"), BOOLEAN_OBJECT("BooleanObject"), STRING("String"), USING(null), OTHER(null);
+
+        private final String helperSuffix;
+
+        ValueKind(String helperSuffix) {
+            this.helperSuffix = helperSuffix;
+        }
+
+        static ValueKind of(TypeMirror type, TypeMirror using, Element element) throws CodecException {
+            if (using != null) {
+                BeanProperties.checkCodec(!type.getKind().isPrimitive(), element, "Custom serializers of primitives are not supported");
+                return USING;
+            }
+            switch (type.getKind()) {
+                case INT:
+                    return INT;
+                case BOOLEAN:
+                    return BOOLEAN;
+                case DECLARED:
+                case ARRAY:
+                    switch (type.toString()) {
+                        case "java.lang.Integer":
+                            return INTEGER;
+                        case "java.lang.Boolean":
+                            return BOOLEAN_OBJECT;
+                        case "java.lang.String":
+                            return STRING;
+                        default:
+                            return OTHER;
+                    }
+                default:
+                    throw new CodecException("Type " + type + " is not supported", element);
+            }
+        }
+
+        boolean isPrimitive() {
+            return this == INT || this == BOOLEAN;
+        }
+    }
+
+    /**
+     * Generator of the reader of a model.
+     */
+    private final class ReaderGenerator {
+
+        private final TypeElement model;
+        private final String modelName;
+        private final Source source;
+        private final List<String> handles = new ArrayList<>();
+        private final List<String> fields = new ArrayList<>();
+        private final List<String> resolutions = new ArrayList<>();
+        private final Source cases = new Source();
+
+        ReaderGenerator(TypeElement model) {
+            this.model = model;
+            this.modelName = model.getQualifiedName().toString();
+            this.source = new Source(packageOf(model), modelName);
+        }
+
+        String generate() throws CodecException {
+            BeanProperties beanProperties = BeanProperties.collect(model, false);
+            Set<String> names = new HashSet<>();
+            for (Property property : beanProperties.getProperties()) {
+                String jsonName = property.getJsonName();
+                BeanProperties.checkCodec(names.add(jsonName), model, "Duplicate property " + jsonName);
+                cases.line("case \"" + jsonName + "\":");
+                cases.indent(1);
+                cases.line(setStatement(property, readExpression(property)));
+                cases.line("continue;");
+                cases.indent(-1);
+            }
+            for (String ignoredName : beanProperties.getIgnoredNames()) {
+                if (names.add(ignoredName)) {
+                    cases.line("case \"" + ignoredName + "\":");
+                    cases.indent(1);
+                    cases.line("p.skipChildren();");
+                    cases.line("continue;");
+                    cases.indent(-1);
+                }
+            }
+
+            source.line("import com.codepine.api.testrail.internal.ModelReader;");
+            source.line("import com.fasterxml.jackson.core.JsonParser;");
+            source.line("import com.fasterxml.jackson.core.JsonToken;");
+            source.line("import com.fasterxml.jackson.databind.DeserializationContext;");
+            source.line("import com.fasterxml.jackson.databind.JsonDeserializer;");
+            source.line("import com.fasterxml.jackson.databind.JsonMappingException;");
+            source.line("import com.fasterxml.jackson.databind.type.TypeFactory;");
+            source.line("");
+            source.line("import java.io.IOException;");
+            source.line("import java.lang.invoke.MethodHandle;");
+            source.line("");
+            source.line("/**");
+            source.line(" * JSON reader of {@link " + modelName + "}, generated from its properties.");
+            source.line(" * <p/>");
+            source.line(" * INTERNAL ONLY");
+            source.line(" */");
+            source.line("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+            source.open("public final class " + flatName(model) + READER_SUFFIX + " extends ModelReader<" + modelName + "> {");
+            source.line("");
+
+            ExecutableElement anySetter = beanProperties.getAnySetter();
+            String anySetterStatement = null;
+            if (anySetter != null) {
+                fields.add("private JsonDeserializer<Object> anyDeserializer;");
+                resolutions.add("anyDeserializer = findDeserializer(ctxt, " + javaType(anySetter.getParameters().get(1).asType(), anySetter) + ");");
+                String name = anySetter.getSimpleName().toString();
+                if (isAccessible(anySetter, model)) {
+                    anySetterStatement = "bean." + name + "(name, value);";
+                } else {
+                    String handle = constantName(name) + "_METHOD";
+                    handles.add("private static final MethodHandle " + handle + " = methodHandle(" + declaringType(anySetter) + ".class, \"" + name + "\", "
+                            + erasure(anySetter.getParameters().get(0).asType()) + ".class, " + erasure(anySetter.getParameters().get(1).asType()) + ".class);");
+                    anySetterStatement = handle + ".invoke(bean, name, value);";
+                }
+            }
+
+            source.lines(handles);
+            if (!handles.isEmpty()) {
+                source.line("");
+            }
+            source.lines(fields);
+            if (!fields.isEmpty()) {
+                source.line("");
+            }
+            source.open("public " + flatName(model) + READER_SUFFIX + "() {");
+            source.line("super(" + modelName + ".class);");
+            source.close("}");
+            source.line("");
+            source.line("@Override");
+            source.open("protected void resolveProperties(DeserializationContext ctxt) throws JsonMappingException {");
+            if (!resolutions.isEmpty()) {
+                source.line("TypeFactory types = ctxt.getTypeFactory();");
+                source.lines(resolutions);
+            }
+            source.close("}");
+            source.line("");
+            source.line("@Override");
+            source.open("protected " + modelName + " createBean() {");
+            source.line("return new " + modelName + "();");
+            source.close("}");
+            source.line("");
+            source.line("@Override");
+            source.open("protected void readProperties(JsonParser p, DeserializationContext ctxt, " + modelName + " bean) throws IOException {");
+            source.open("for (JsonToken token = p.getCurrentToken(); token == JsonToken.FIELD_NAME; token = p.nextToken()) {");
+            source.line("String name = p.getCurrentName();");
+            source.line("p.nextToken();");
+            source.open("try {");
+            source.open("switch (name) {");
+            source.append(cases);
+            source.close("}");
+            source.close("} catch (Throwable e) {");
+            source.indent(1);
+            source.line("wrapAndThrow(e, bean, name, ctxt);");
+            source.close("}");
+            if (anySetterStatement == null) {
+                source.line("handleUnknownProperty(p, ctxt, bean, name);");
+            } else {
+                source.line("Object value = read(p, ctxt, anyDeserializer);");
+                if (anySetterStatement.startsWith("bean.")) {
+                    source.line(anySetterStatement);
+                } else {
+                    source.open("try {");
+                    source.line(anySetterStatement);
+                    source.close("} catch (Throwable e) {");
+                    source.indent(1);
+                    source.line("throw anySetterFailure(e, name, value);");
+                    source.close("}");
+                }
+            }
+            source.close("}");
+            source.close("}");
+            source.close("}");
+            return source.toString();
+        }
+
+        private String readExpression(Property property) throws CodecException {
+            Element mutator = property.setter() != null ? property.setter() : property.field();
+            TypeMirror type = property.setter() != null ? property.setter().getParameters().get(0).asType() : property.field().asType();
+            AnnotationMirror deserialize = property.getAnnotation(BeanProperties.JSON_DESERIALIZE, false);
+            TypeMirror using = getClassValue(deserialize, "using", mutator, model);
+            ValueKind kind = ValueKind.of(type, using, mutator);
+            if (kind.helperSuffix != null) {
+                return "read" + kind.helperSuffix + "(p, ctxt)";
+            }
+            String deserializer = property.name + "Deserializer";
+            fields.add("private JsonDeserializer<Object> " + deserializer + ";");
+            resolutions.add(deserializer + (kind == ValueKind.USING
+                    ? " = (JsonDeserializer) new " + erasure(using) + "();"
+                    : " = findDeserializer(ctxt, " + javaType(type, mutator) + ");"));
+            return "(" + type + ") read(p, ctxt, " + deserializer + ")";
+        }
+
+        private String setStatement(Property property, String value) {
+            ExecutableElement setter = property.setter();
+            if (setter != null) {
+                String name = setter.getSimpleName().toString();
+                if (isAccessible(setter, model)) {
+                    return "bean." + name + "(" + value + ");";
+                }
+                String handle = constantName(name) + "_METHOD";
+                handles.add("private static final MethodHandle " + handle + " = methodHandle(" + declaringType(setter) + ".class, \"" + name + "\", "
+                        + erasure(setter.getParameters().get(0).asType()) + ".class);");
+                return handle + ".invoke(bean, " + value + ");";
+            }
+            VariableElement field = property.field();
+            String name = field.getSimpleName().toString();
+            if (isAccessible(field, model)) {
+                return "bean." + name + " = " + value + ";";
+            }
+            String handle = constantName(name) + "_FIELD";
+            handles.add("private static final MethodHandle " + handle + " = setterHandle(" + declaringType(field) + ".class, \"" + name + "\");");
+            return handle + ".invoke(bean, " + value + ");";
+        }
+    }
+
+    /**
+     * Generator of the writer of a model.
+     */
+    private final class WriterGenerator {
+
+        private final TypeElement model;
+        private final String modelName;
+        private final Source source;
+        private final List<String> constants = new ArrayList<>();
+        private final List<String> handles = new ArrayList<>();
+        private final List<String> fields = new ArrayList<>();
+        private final List<String> resolutions = new ArrayList<>();
+        private final Map<Property, Source> writes = new LinkedHashMap<>();
+        private final Map<Property, List<TypeMirror>> views = new LinkedHashMap<>();
+        private final Map<String, TypeMirror> allViews = new LinkedHashMap<>();
+
+        WriterGenerator(TypeElement model) {
+            this.model = model;
+            this.modelName = model.getQualifiedName().toString();
+            this.source = new Source(packageOf(model), modelName);
+        }
+
+        String generate() throws CodecException {
+            BeanProperties beanProperties = BeanProperties.collect(model, true);
+            Set<String> names = new HashSet<>();
+            for (Property property : beanProperties.getProperties()) {
+                BeanProperties.checkCodec(names.add(property.getJsonName()), model, "Duplicate property " + property.getJsonName());
+                writes.put(property, writeStatements(property));
+                List<TypeMirror> propertyViews = getViews(property);
+                views.put(property, propertyViews);
+                for (TypeMirror view : propertyViews) {
+                    allViews.put(erasure(view), view);
+                }
+            }
+            Source anyWrite = anyWriteStatements(beanProperties.getAnyGetter());
+
+            source.line("import com.codepine.api.testrail.internal.ModelWriter;");
+            source.line("import com.fasterxml.jackson.core.JsonGenerator;");
+            source.line("import com.fasterxml.jackson.core.io.SerializedString;");
+            source.line("import com.fasterxml.jackson.databind.JsonMappingException;");
+            source.line("import com.fasterxml.jackson.databind.JsonSerializer;");
+            source.line("import com.fasterxml.jackson.databind.SerializerProvider;");
+            source.line("import com.fasterxml.jackson.databind.type.TypeFactory;");
+            source.line("");
+            source.line("import java.io.IOException;");
+            source.line("import java.lang.invoke.MethodHandle;");
+            source.line("");
+            source.line("/**");
+            source.line(" * JSON writer of {@link " + modelName + "}, generated from its properties, with a write method per view.");
+            source.line(" * <p/>");
+            source.line(" * INTERNAL ONLY");
+            source.line(" */");
+            source.line("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+            source.open("public final class " + flatName(model) + WRITER_SUFFIX + " extends ModelWriter<" + modelName + "> {");
+            source.line("");
+            source.lines(constants);
+            source.lines(handles);
+            source.line("");
+            source.lines(fields);
+            if (!fields.isEmpty()) {
+                source.line("");
+            }
+            source.open("public " + flatName(model) + WRITER_SUFFIX + "() {");
+            source.line("super(" + modelName + ".class);");
+            source.close("}");
+            source.line("");
+            source.line("@Override");
+            source.open("protected void resolveProperties(SerializerProvider provider) throws JsonMappingException {");
+            if (!resolutions.isEmpty()) {
+                source.line("TypeFactory types = provider.getTypeFactory();");
+                source.lines(resolutions);
+            }
+            source.close("}");
+
+            source.line("");
+            source.line("@Override");
+            source.open("protected void writeAll(" + modelName + " value, JsonGenerator gen, SerializerProvider provider) throws IOException {");
+            openTry();
+            for (Source write : writes.values()) {
+                source.append(write);
+            }
+            source.append(anyWrite);
+            closeTry();
+            source.close("}");
+
+            source.line("");
+            source.line("@Override");
+            source.open("protected void writeView(" + modelName + " value, JsonGenerator gen, SerializerProvider provider, Class<?> view) throws IOException {");
+            if (!allViews.isEmpty()) {
+                source.open("if (!isDefaultViewInclusion()) {");
+                for (TypeMirror view : allViews.values()) {
+                    source.open("if (view == " + erasure(view) + ".class) {");
+                    source.line(viewMethodName(view) + "(value, gen, provider);");
+                    source.line("return;");
+                    source.close("}");
+                }
+                source.close("}");
+            }
+            openTry();
+            for (Map.Entry<Property, Source> write : writes.entrySet()) {
+                List<TypeMirror> propertyViews = views.get(write.getKey());
+                if (propertyViews.isEmpty()) {
+                    source.open("if (isDefaultViewInclusion()) {");
+                } else {
+                    StringBuilder classes = new StringBuilder();
+                    for (TypeMirror view : propertyViews) {
+                        classes.append(", ").append(erasure(view)).append(".class");
+                    }
+                    source.open("if (isInView(view" + classes + ")) {");
+                }
+                source.append(write.getValue());
+                source.close("}");
+            }
+            source.append(anyWrite);
+            closeTry();
+            source.close("}");
+
+            for (TypeMirror view : allViews.values()) {
+                source.line("");
+                source.open("private void " + viewMethodName(view) + "(" + modelName + " value, JsonGenerator gen, SerializerProvider provider) throws IOException {");
+                openTry();
+                for (Map.Entry<Property, Source> write : writes.entrySet()) {
+                    if (isInView(view, views.get(write.getKey()))) {
+                        source.append(write.getValue());
+                    }
+                }
+                source.append(anyWrite);
+                closeTry();
+                source.close("}");
+            }
+            source.close("}");
+            return source.toString();
+        }
+
+        private void openTry() {
+            source.line("String name = null;");
+            source.open("try {");
+        }
+
+        private void closeTry() {
+            source.close("} catch (Throwable e) {");
+            source.indent(1);
+            source.line("wrapAndThrow(provider, e, value, name);");
+            source.close("}");
+        }
+
+        private Source writeStatements(Property property) throws CodecException {
+            Element accessor = property.getter() != null ? property.getter() : property.field();
+            TypeMirror type = property.getter() != null ? property.getter().getReturnType() : property.field().asType();
+            AnnotationMirror serialize = property.getAnnotation(BeanProperties.JSON_SERIALIZE, true);
+            TypeMirror using = getClassValue(serialize, "using", accessor, model);
+            ValueKind kind = ValueKind.of(type, using, accessor);
+            String jsonName = property.getJsonName();
+            String constant = constantName(property.name);
+            constants.add("private static final SerializedString " + constant + " = new SerializedString(\"" + jsonName + "\");");
+
+            String write;
+            if (kind.helperSuffix != null) {
+                write = "write" + kind.helperSuffix + "(%s, gen, provider);";
+            } else if (kind == ValueKind.USING) {
+                String serializer = property.name + "Serializer";
+                fields.add("private JsonSerializer<Object> " + serializer + ";");
+                resolutions.add(serializer + " = (JsonSerializer) new " + erasure(using) + "();");
+                write = serializer + ".serialize(%s, gen, provider);";
+            } else {
+                String writer = property.name + "Writer";
+                fields.add("private ValueWriter " + writer + ";");
+                boolean generic = type.getKind() == TypeKind.DECLARED && !((DeclaredType) type).getTypeArguments().isEmpty();
+                resolutions.add(writer + " = new ValueWriter(" + (generic ? javaType(type, accessor) : "null") + ");");
+                write = writer + ".write(%s, gen, provider);";
+            }
+
+            Source statements = new Source();
+            statements.line("name = \"" + jsonName + "\";");
+            String value = getExpression(property, type);
+            if (kind.isPrimitive()) {
+                statements.line("gen.writeFieldName(" + constant + ");");
+                statements.line(String.format(write, value));
+            } else {
+                String local = property.name + "Value";
+                statements.line(type + " " + local + " = " + value + ";");
+                statements.open("if (" + local + " != null) {");
+                statements.line("gen.writeFieldName(" + constant + ");");
+                statements.line(String.format(write, local));
+                statements.close("} else if (!isSuppressNulls()) {");
+                statements.indent(1);
+                statements.line("gen.writeFieldName(" + constant + ");");
+                statements.line("provider.defaultSerializeNull(gen);");
+                statements.close("}");
+            }
+            return statements;
+        }
+
+        private Source anyWriteStatements(ExecutableElement anyGetter) throws CodecException {
+            Source statements = new Source();
+            if (anyGetter == null) {
+                return statements;
+            }
+            TypeMirror type = anyGetter.getReturnType();
+            BeanProperties.checkCodec(isAccessible(anyGetter, model), anyGetter, "@JsonAnyGetter must be accessible from " + packageOf(model));
+            TypeMirror keyUsing = getClassValue(BeanProperties.getAnnotation(anyGetter, BeanProperties.JSON_SERIALIZE), "keyUsing", anyGetter, model);
+            TypeMirror using = getClassValue(BeanProperties.getAnnotation(anyGetter, BeanProperties.JSON_SERIALIZE), "using", anyGetter, model);
+            BeanProperties.checkCodec(using == null, anyGetter, "Custom serializers of @JsonAnyGetter are not supported");
+            fields.add("private JsonSerializer<Object> anyKeySerializer;");
+            fields.add("private ValueWriter anyWriter;");
+            if (keyUsing != null) {
+                resolutions.add("anyKeySerializer = (JsonSerializer) new " + erasure(keyUsing) + "();");
+            } else {
+                List<? extends TypeMirror> arguments = type.getKind() == TypeKind.DECLARED ? ((DeclaredType) type).getTypeArguments() : null;
+                TypeMirror keyType = arguments != null && arguments.size() == 2 ? arguments.get(0) : processingEnv.getElementUtils().getTypeElement("java.lang.Object").asType();
+                resolutions.add("anyKeySerializer = provider.findKeySerializer(" + javaType(keyType, anyGetter) + ", null);");
+            }
+            resolutions.add("anyWriter = new ValueWriter(null);");
+            statements.line("name = \"[anySetter]\";");
+            statements.line("writeAny(value." + anyGetter.getSimpleName() + "(), anyKeySerializer, anyWriter, gen, provider);");
+            return statements;
+        }
+
+        private String getExpression(Property property, TypeMirror type) {
+            ExecutableElement getter = property.getter();
+            if (getter != null && isAccessible(getter, model)) {
+                return "value." + getter.getSimpleName() + "()";
+            }
+            VariableElement field = property.field();
+            String name = field.getSimpleName().toString();
+            if (isAccessible(field, model)) {
+                return "value." + name;
+            }
+            String handle = constantName(name) + "_FIELD";
+            handles.add("private static final MethodHandle " + handle + " = getterHandle(" + declaringType(field) + ".class, \"" + name + "\");");
+            return "(" + erasure(type) + ") " + handle + ".invoke(value)";
+        }
+
+        private List<TypeMirror> getViews(Property property) {
+            List<TypeMirror> propertyViews = new ArrayList<>();
+            AnnotationMirror jsonView = property.getAnnotation(BeanProperties.JSON_VIEW, true);
+            Object value = jsonView == null ? null : BeanProperties.getValue(jsonView, "value");
+            if (value instanceof List) {
+                for (Object view : (List<?>) value) {
+                    propertyViews.add((TypeMirror) ((AnnotationValue) view).getValue());
+                }
+            } else if (value instanceof TypeMirror) {
+                propertyViews.add((TypeMirror) value);
+            }
+            return propertyViews;
+        }
+
+        private boolean isInView(TypeMirror activeView, List<TypeMirror> propertyViews) {
+            for (TypeMirror view : propertyViews) {
+                if (processingEnv.getTypeUtils().isSubtype(processingEnv.getTypeUtils().erasure(activeView), processingEnv.getTypeUtils().erasure(view))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private String viewMethodName(TypeMirror view) {
+            return "write" + flatName((TypeElement) ((DeclaredType) view).asElement()).replace("_", "");
+        }
+    }
+
+    private static String declaringType(Element member) {
+        return ((TypeElement) member.getEnclosingElement()).getQualifiedName().toString();
+    }
+
+    /**
+     * Java source being generated, with indentation.
+     */
+    private static final class Source {
+
+        private final StringBuilder code = new StringBuilder();
+        private int indentation;
+
+        Source() {
+        }
+
+        Source(String packageName, String generatedFrom) {
+            line("// Generated by " + JsonCodecProcessor.class.getSimpleName() + " from " + generatedFrom + ", do not edit.");
+            line("package " + packageName + ";");
+            line("");
+        }
+
+        void line(String line) {
+            if (!line.isEmpty()) {
+                for (int i = 0; i < indentation; i++) {
+                    code.append("    ");
+                }
+            }
+            code.append(line).append('\n');
+        }
+
+        void lines(List<String> lines) {
+            for (String line : lines) {
+                line(line);
+            }
+        }
+
+        void open(String line) {
+            line(line);
+            indentation++;
+        }
+
+        void close(String line) {
+            indentation--;
+            line(line);
+        }
+
+        void indent(int levels) {
+            indentation += levels;
+        }
+
+        void append(Source source) {
+            for (String line : source.code.toString().split("\n", -1)) {
+                if (!line.isEmpty()) {
+                    line(line);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return code.toString();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link AtomicFiles}.
+ */
+public class AtomicFilesTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void G_missingDirectory_W_write_T_fileWritten() throws IOException {
+        // GIVEN
+        Path file = temporaryFolder.getRoot().toPath().resolve("state").resolve("file");
+
+        // WHEN
+        AtomicFiles.write(file, "file", content("new"));
+
+        // THEN
+        assertEquals("new", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        assertEquals(Collections.singletonList(file), list(file.getParent()));
+    }
+
+    @Test
+    public void G_failingWrite_W_write_T_previousContentKeptAndTempFileDeleted() throws IOException {
+        // GIVEN
+        Path file = temporaryFolder.getRoot().toPath().resolve("file");
+        AtomicFiles.write(file, "file", content("previous"));
+
+        // WHEN
+        try {
+            AtomicFiles.write(file, "file", new AtomicFiles.ContentWriter() {
+                @Override
+                public void write(OutputStream out) throws IOException {
+                    out.write("partial".getBytes(StandardCharsets.UTF_8));
+                    throw new IOException("disk full");
+                }
+            });
+            fail("the failure of the write should be thrown");
+        } catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+
+        // THEN
+        assertEquals("previous", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        assertEquals(Collections.singletonList(file), list(file.getParent()));
+    }
+
+    private static AtomicFiles.ContentWriter content(final String content) {
+        return new AtomicFiles.ContentWriter() {
+            @Override
+            public void write(OutputStream out) throws IOException {
+                out.write(content.getBytes(StandardCharsets.UTF_8));
+            }
+        };
+    }
+
+    private static List<Path> list(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+}
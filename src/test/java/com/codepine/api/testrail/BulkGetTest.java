@@ -0,0 +1,115 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.UrlConnectionFactory;
+import com.codepine.api.testrail.model.Run;
+import com.codepine.api.testrail.model.Test;
+import com.codepine.api.testrail.model.User;
+import org.junit.Before;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Arrays;
+
+import static com.codepine.api.testrail.MockResponses.API_URL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link com.codepine.api.testrail.TestRail.BulkGet}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class BulkGetTest {
+
+    @Mock
+    private UrlConnectionFactory mockUrlConnectionFactory;
+
+    private MockResponses responses;
+    private TestRail testRail;
+
+    @Before
+    public void setUp() throws IOException {
+        responses = new MockResponses(mockUrlConnectionFactory);
+        testRail = MockResponses.builder(mockUrlConnectionFactory).parallelism(2).build();
+        HttpURLConnection notFound = MockResponses.connection(400, "{\"error\": \"Field :id is not a valid ID.\"}");
+        when(mockUrlConnectionFactory.getUrlConnection(any(String.class))).thenReturn(notFound);
+    }
+
+    @org.junit.Test
+    public void G_someRunsDoNotExist_W_getAllRuns_T_runsInInputOrderAndFailuresCollected() throws IOException {
+        // GIVEN
+        responses.respond("get_run/3", "{\"id\": 3, \"name\": \"Run 3\"}");
+        responses.respond("get_run/1", "{\"id\": 1, \"name\": \"Run 1\"}");
+
+        // WHEN
+        BulkGetResult<Run> result = testRail.runs().getAll(Arrays.asList(3, 2, 1, 3)).execute();
+
+        // THEN
+        assertEquals(Arrays.asList(3, 1), Arrays.asList(result.getValues().keySet().toArray()));
+        assertEquals("Run 1", result.get(1).getName());
+        assertEquals(Arrays.asList(2), Arrays.asList(result.getFailures().keySet().toArray()));
+        assertEquals(400, ((TestRailException) result.getFailures().get(2)).getResponseCode());
+        assertFalse(result.isComplete());
+    }
+
+    @org.junit.Test
+    public void G_manyUsers_W_getAllUsers_T_usersListedAndMissingOnesFetchedOneByOne() throws IOException {
+        // GIVEN
+        responses.respond("get_users", "[{\"id\": 1, \"name\": \"User 1\"}, {\"id\": 2, \"name\": \"User 2\"}, {\"id\": 5, \"name\": \"User 5\"}]");
+        responses.respond("get_user/9", "{\"id\": 9, \"name\": \"User 9\"}");
+
+        // WHEN
+        BulkGetResult<User> result = testRail.users().getAll(Arrays.asList(5, 9, 2)).execute();
+
+        // THEN
+        assertEquals(Arrays.asList(5, 9, 2), Arrays.asList(result.getValues().keySet().toArray()));
+        assertEquals("User 9", result.get(9).getName());
+        verify(mockUrlConnectionFactory, never()).getUrlConnection(API_URL + "get_user/2");
+        verify(mockUrlConnectionFactory, never()).getUrlConnection(API_URL + "get_user/5");
+    }
+
+    @org.junit.Test
+    public void G_testsOfSmallRun_W_getAllTestsOfRun_T_testsListed() throws IOException {
+        // GIVEN
+        responses.respond("get_tests/7", "[{\"id\": 10, \"run_id\": 7}, {\"id\": 11, \"run_id\": 7}, {\"id\": 12, \"run_id\": 7}]");
+        Run run = new Run().setId(7).setPassedCount(2).setFailedCount(1);
+
+        // WHEN
+        BulkGetResult<Test> result = testRail.tests().getAll(Arrays.asList(12, 10)).run(run).execute();
+
+        // THEN
+        assertEquals(Arrays.asList(12, 10), Arrays.asList(result.getValues().keySet().toArray()));
+        verify(mockUrlConnectionFactory, never()).getUrlConnection(API_URL + "get_test/12");
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.model.Case;
+import com.codepine.api.testrail.model.CaseField;
+import com.codepine.api.testrail.model.Field;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link CaseFingerprint}.
+ */
+public class CaseFingerprintTest {
+
+    private CaseFingerprint fingerprint;
+
+    @Before
+    public void setUp() {
+        fingerprint = new CaseFingerprint(Arrays.asList(field("steps", Field.Type.STEPS), field("platforms", Field.Type.MULTI_SELECT),
+                field("automated", Field.Type.CHECKBOX), field("points", Field.Type.INTEGER), field("preconds", Field.Type.TEXT)));
+    }
+
+    @Test
+    public void G_sameContentFormattedDifferently_W_of_T_sameFingerprint() {
+        // GIVEN
+        Case remote = new Case().setTitle("Pay with a card").setPriorityId(2).setRefs("PROJ-1, PROJ-2")
+                .setCustomFields(ImmutableMap.<String, Object>of("steps", Collections.singletonList(step("Pay", "Paid")),
+                        "platforms", Arrays.asList("web", "ios"), "automated", true, "points", 3, "preconds", "A card\nsaved"));
+        Case local = new Case().setTitle(" Pay with a card ").setPriorityId(2).setRefs("PROJ-1,PROJ-2")
+                .setCustomFields(ImmutableMap.<String, Object>of("steps", Collections.singletonList(step("Pay\r\n", "Paid")),
+                        "platforms", Arrays.asList("ios", "web"), "automated", "1", "points", "3", "preconds", "A card\r\nsaved"));
+
+        // WHEN, THEN
+        assertEquals(fingerprint.of(remote), fingerprint.of(local));
+        assertEquals(fingerprint.of(remote), new CaseFingerprint(Arrays.asList(field("preconds", Field.Type.TEXT), field("points", Field.Type.INTEGER),
+                field("automated", Field.Type.CHECKBOX), field("platforms", Field.Type.MULTI_SELECT), field("steps", Field.Type.STEPS))).of(remote));
+        assertNotEquals(fingerprint.of(remote), fingerprint.of(local.setPriorityId(3)));
+    }
+
+    @Test
+    public void G_definitionSettingSomeFields_W_matches_T_onlySetFieldsCompared() {
+        // GIVEN
+        Case remote = new Case().setTitle("Pay with a card").setPriorityId(2).setTypeId(1)
+                .setCustomFields(ImmutableMap.<String, Object>of("steps", Collections.singletonList(step("Pay", "Paid"))));
+
+        // WHEN, THEN
+        assertTrue(fingerprint.matches(new Case().setTitle("Pay with a card"), remote));
+        assertTrue(fingerprint.matches(new Case().setTitle("Pay with a card")
+                .setCustomFields(ImmutableMap.<String, Object>of("steps", Collections.singletonList(step("Pay ", "Paid")))), remote));
+        assertFalse(fingerprint.matches(new Case().setTitle("Pay with a card").setPriorityId(3), remote));
+        assertFalse(fingerprint.matches(new Case().setTitle("Pay with a card")
+                .setCustomFields(ImmutableMap.<String, Object>of("steps", Collections.singletonList(step("Pay", "Refused")))), remote));
+    }
+
+    private static CaseField field(String name, Field.Type type) {
+        CaseField field = new CaseField();
+        field.setName(name).setTypeId(type.ordinal());
+        return field;
+    }
+
+    private static Field.Step step(String content, String expected) {
+        return new Field.Step().setContent(content).setExpected(expected);
+    }
+}
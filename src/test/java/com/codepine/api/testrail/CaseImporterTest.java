@@ -0,0 +1,147 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.UrlConnectionFactory;
+import com.codepine.api.testrail.model.Case;
+import com.codepine.api.testrail.model.CaseField;
+import com.codepine.api.testrail.model.Section;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.codepine.api.testrail.MockResponses.API_URL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link CaseImporter}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class CaseImporterTest {
+
+    private static final List<CaseField> NO_CASE_FIELDS = Collections.emptyList();
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private UrlConnectionFactory mockUrlConnectionFactory;
+
+    private MockResponses responses;
+    private CaseImporter importer;
+    private Path progressFile;
+    private List<CaseImporter.SectionNode> roots;
+
+    @Before
+    public void setUp() throws IOException {
+        responses = new MockResponses(mockUrlConnectionFactory);
+        progressFile = temporaryFolder.getRoot().toPath().resolve("progress");
+        importer = new CaseImporter(MockResponses.builder(mockUrlConnectionFactory).parallelism(1).build(), 1, NO_CASE_FIELDS)
+                .suiteId(2).progressFile(progressFile);
+        // Checkout > Card, Search
+        roots = Arrays.asList(
+                new CaseImporter.SectionNode(new Section().setName("Checkout"))
+                        .addChild(new CaseImporter.SectionNode(new Section().setName("Card")).addCase(new Case().setTitle("Pay"))),
+                new CaseImporter.SectionNode(new Section().setName("Search")));
+        responses.respond("add_case/12", "{\"id\": 20, \"section_id\": 12, \"title\": \"Pay\"}");
+    }
+
+    @Test
+    public void G_sectionTree_W_importSections_T_parentsCreatedBeforeChildren() throws IOException {
+        // GIVEN
+        HttpURLConnection checkout = MockResponses.connection(200, "{\"id\": 10, \"name\": \"Checkout\"}");
+        HttpURLConnection search = MockResponses.connection(200, "{\"id\": 11, \"name\": \"Search\"}");
+        HttpURLConnection card = MockResponses.connection(200, "{\"id\": 12, \"name\": \"Card\", \"parent_id\": 10}");
+        when(mockUrlConnectionFactory.getUrlConnection(API_URL + "add_section/1")).thenReturn(checkout, search, card);
+
+        // WHEN
+        CaseImporter.Summary summary = importer.importSections(roots);
+
+        // THEN
+        assertFalse(MockResponses.getRequestContent(checkout).contains("parent_id"));
+        assertFalse(MockResponses.getRequestContent(search).contains("parent_id"));
+        assertTrue(MockResponses.getRequestContent(card).contains("\"parent_id\":10"));
+        assertEquals(3, summary.getCreatedSectionCount());
+        assertEquals(1, summary.getCreatedCaseCount());
+        assertTrue(summary.getFailures().isEmpty());
+        assertEquals("S 10 0\nS 11 1\nS 12 0/0\nC 20 0/0#0\n", readProgress());
+    }
+
+    @Test
+    public void G_progressFile_W_importSections_T_createdSectionsSkipped() throws IOException {
+        // GIVEN
+        Files.write(progressFile, "S 10 0\nS 11 1\n".getBytes(StandardCharsets.UTF_8));
+        HttpURLConnection card = responses.respond("add_section/1", "{\"id\": 12, \"name\": \"Card\", \"parent_id\": 10}");
+
+        // WHEN
+        CaseImporter.Summary summary = importer.importSections(roots);
+
+        // THEN
+        assertTrue(MockResponses.getRequestContent(card).contains("\"parent_id\":10"));
+        assertEquals(2, summary.getSkippedSectionCount());
+        assertEquals(1, summary.getCreatedSectionCount());
+        assertEquals(1, summary.getCreatedCaseCount());
+        assertEquals("S 10 0\nS 11 1\nS 12 0/0\nC 20 0/0#0\n", readProgress());
+    }
+
+    @Test
+    public void G_progressFileWithTornLastLine_W_importSections_T_lineDroppedAndMalformedLineIgnored() throws IOException {
+        // GIVEN
+        Files.write(progressFile, "S 10 0\nS x 1\nS 12 0/".getBytes(StandardCharsets.UTF_8));
+        HttpURLConnection search = MockResponses.connection(200, "{\"id\": 11, \"name\": \"Search\"}");
+        HttpURLConnection card = MockResponses.connection(200, "{\"id\": 12, \"name\": \"Card\", \"parent_id\": 10}");
+        when(mockUrlConnectionFactory.getUrlConnection(API_URL + "add_section/1")).thenReturn(search, card);
+
+        // WHEN
+        CaseImporter.Summary summary = importer.importSections(roots);
+
+        // THEN
+        assertTrue(MockResponses.getRequestContent(search).contains("\"name\":\"Search\""));
+        assertTrue(MockResponses.getRequestContent(card).contains("\"parent_id\":10"));
+        assertEquals(1, summary.getSkippedSectionCount());
+        assertEquals(2, summary.getCreatedSectionCount());
+        assertEquals(1, summary.getCreatedCaseCount());
+        assertEquals("S 10 0\nS x 1\nS 11 1\nS 12 0/0\nC 20 0/0#0\n", readProgress());
+    }
+
+    private String readProgress() throws IOException {
+        return new String(Files.readAllBytes(progressFile), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link com.codepine.api.testrail.CaseRefIndex}.
+ */
+public class CaseRefIndexTest {
+
+    private CaseRefIndex index;
+
+    @Before
+    public void setUp() {
+        index = new CaseRefIndex(TestRail.builder("https://test.end.point.com", "testUser", "testPassword").build(), 1, Collections.emptyList());
+    }
+
+    @Test
+    public void G_refsWithSpacesAndDuplicates_W_parseRefs_T_normalizedSortedDistinct() {
+        // WHEN, THEN
+        assertArrayEquals(new String[]{"PROJ-1", "PROJ-2"}, CaseRefIndex.parseRefs(" proj-2,PROJ-1, ,Proj-2"));
+        assertArrayEquals(new String[0], CaseRefIndex.parseRefs(null));
+    }
+
+    @Test
+    public void G_indexedCases_W_getCaseIdsOfBatch_T_sortedUnion() {
+        // GIVEN
+        index.index(ImmutableMap.of(
+                30, CaseRefIndex.parseRefs("PROJ-1,PROJ-2"),
+                10, CaseRefIndex.parseRefs("PROJ-2"),
+                20, CaseRefIndex.parseRefs("PROJ-3")));
+
+        // WHEN, THEN
+        assertEquals(3, index.size());
+        assertArrayEquals(new int[]{10, 30}, index.getCaseIds("proj-2"));
+        assertArrayEquals(new int[]{10, 20, 30}, index.getCaseIds(Arrays.asList("PROJ-1", "PROJ-2", "PROJ-3", "PROJ-4")));
+        assertEquals(Arrays.asList(10, 30), index.getCaseIdList(Arrays.asList("PROJ-1", "PROJ-2")));
+        assertArrayEquals(new int[0], index.getCaseIds("PROJ-4"));
+    }
+
+    @Test
+    public void G_updatedCases_W_index_T_oldRefsDropped() {
+        // GIVEN
+        index.index(ImmutableMap.of(
+                1, CaseRefIndex.parseRefs("PROJ-1"),
+                2, CaseRefIndex.parseRefs("PROJ-1,PROJ-2")));
+
+        // WHEN
+        int changed = index.index(ImmutableMap.of(
+                1, CaseRefIndex.parseRefs("PROJ-3"),
+                2, CaseRefIndex.parseRefs("PROJ-1,PROJ-2"),
+                3, CaseRefIndex.parseRefs("")));
+
+        // THEN
+        assertEquals(1, changed);
+        assertArrayEquals(new int[]{2}, index.getCaseIds("PROJ-1"));
+        assertArrayEquals(new int[]{1}, index.getCaseIds("PROJ-3"));
+        assertEquals(3, index.size());
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.UrlConnectionFactory;
+import com.codepine.api.testrail.model.Case;
+import com.codepine.api.testrail.model.CaseField;
+import com.codepine.api.testrail.model.Field;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link CaseSearchIndex}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class CaseSearchIndexTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private UrlConnectionFactory mockUrlConnectionFactory;
+
+    private MockResponses responses;
+    private TestRail testRail;
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        responses = new MockResponses(mockUrlConnectionFactory);
+        testRail = MockResponses.builder(mockUrlConnectionFactory).build();
+        file = temporaryFolder.getRoot().toPath().resolve("cases.idx");
+    }
+
+    @Test
+    public void G_textWithPunctuation_W_tokenize_T_lowerCaseWords() {
+        // WHEN, THEN
+        assertEquals(Arrays.asList("login", "with", "sso", "proj", "12", "\u00e9t\u00e9"),
+                CaseSearchIndex.tokenize("Login with SSO (PROJ-12) \u00c9T\u00c9", new ArrayList<String>()));
+    }
+
+    @Test
+    public void G_casesWithTextFields_W_search_T_rankedByRelevance() {
+        // GIVEN
+        CaseField preconditions = new CaseField();
+        preconditions.setName("preconds").setTypeId(Field.Type.TEXT.ordinal());
+        CaseField steps = new CaseField();
+        steps.setName("steps").setTypeId(Field.Type.STEPS.ordinal());
+        CaseSearchIndex index = new CaseSearchIndex(testRail, 1, Arrays.asList(preconditions, steps), file);
+        index.index(Arrays.asList(
+                new Case().setId(1).setTitle("Pay with a card").setCustomFields(ImmutableMap.<String, Object>of("preconds", "A saved card")),
+                new Case().setId(2).setTitle("Pay with a voucher").setCustomFields(ImmutableMap.<String, Object>of("steps",
+                        Collections.singletonList(new Field.Step().setContent("Enter the voucher code").setExpected("Voucher accepted")))),
+                new Case().setId(3).setTitle("Search products").setRefs("PROJ-7")));
+
+        // WHEN, THEN
+        assertEquals(3, index.size());
+        assertEquals(Arrays.asList(1), index.search("card", 10));
+        assertEquals(Arrays.asList(2, 1), index.search("VOUCHER pay", 10));
+        assertEquals(Arrays.asList(2), index.search("voucher pay", 1));
+        assertEquals(Arrays.asList(3), index.search("proj-7", 10));
+        assertEquals(Collections.emptyList(), index.search("refund", 10));
+    }
+
+    @Test
+    public void G_updatedCase_W_index_T_previousWordsNotMatched() {
+        // GIVEN
+        CaseSearchIndex index = new CaseSearchIndex(testRail, 1, Collections.<CaseField>emptyList(), file);
+        index.index(Arrays.asList(new Case().setId(1).setTitle("Pay with a card"), new Case().setId(2).setTitle("Pay by card")));
+
+        // WHEN
+        for (int i = 0; i < 100; i++) {
+            index.index(Collections.singletonList(new Case().setId(1).setTitle("Pay with a voucher " + i)));
+        }
+
+        // THEN
+        assertEquals(2, index.size());
+        assertEquals(Arrays.asList(2), index.search("card", 10));
+        assertEquals(Arrays.asList(1), index.search("voucher", 10));
+        assertEquals(Arrays.asList(1), index.search("99", 10));
+        assertEquals(Collections.emptyList(), index.search("98", 10));
+    }
+
+    @Test
+    public void G_savedIndex_W_refreshNewIndex_T_loadedAndOnlyUpdatedCasesFetched() throws IOException {
+        // GIVEN
+        long updatedOn = new Date().getTime() / 1000;
+        responses.respondToPrefix("get_cases/1&suite_id=", "[{\"id\": 1, \"title\": \"Pay with a card\", \"updated_on\": " + updatedOn + "},"
+                + "{\"id\": 2, \"title\": \"Pay with a voucher\", \"updated_on\": " + (updatedOn - 60) + "}]");
+        assertEquals(2, new CaseSearchIndex(testRail, 1, Collections.<CaseField>emptyList(), file).refresh());
+        responses.respondToPrefix("get_cases/1&suite_id=&updated_after=" + (updatedOn - 1), "[{\"id\": 2, \"title\": \"Pay with a gift card\", \"updated_on\": " + (updatedOn + 1) + "}]");
+        CaseSearchIndex index = new CaseSearchIndex(testRail, 1, Collections.<CaseField>emptyList(), file);
+
+        // WHEN
+        int indexedCount = index.refresh();
+
+        // THEN
+        assertEquals(1, indexedCount);
+        assertEquals(2, index.size());
+        assertEquals(Arrays.asList(1, 2), index.search("card", 10));
+        assertEquals(Collections.emptyList(), index.search("voucher", 10));
+    }
+
+    @Test
+    public void G_refreshFailedOnSecondPage_W_refreshAgain_T_casesOfUnfetchedPagesNotSkipped() throws IOException {
+        // GIVEN
+        long updatedOn = new Date().getTime() / 1000;
+        String firstPage = "{\"offset\": 0, \"limit\": 1, \"size\": 1, \"_links\": {\"next\": \"/api/v2/get_cases/1&suite_id=&offset=1\", \"prev\": null},"
+                + " \"cases\": [{\"id\": 1, \"title\": \"Pay with a card\", \"updated_on\": " + updatedOn + "}]}";
+        String secondPage = "{\"offset\": 1, \"limit\": 1, \"size\": 1, \"_links\": {\"next\": null, \"prev\": null},"
+                + " \"cases\": [{\"id\": 2, \"title\": \"Pay with a voucher\", \"updated_on\": " + (updatedOn - 60) + "}]}";
+        responses.respondToPrefix("get_cases/1&suite_id=", firstPage);
+        responses.respond("get_cases/1&suite_id=&offset=1", 400, "{\"error\": \"Temporary failure\"}");
+        CaseSearchIndex index = new CaseSearchIndex(testRail, 1, Collections.<CaseField>emptyList(), file);
+        try {
+            index.refresh();
+            fail();
+        } catch (TestRailException e) {
+            // the first page was indexed, not the second one
+        }
+        responses.respondToPrefix("get_cases/1&suite_id=", firstPage);
+        responses.respond("get_cases/1&suite_id=&offset=1", secondPage);
+        responses.respondToPrefix("get_cases/1&suite_id=&updated_after=", "{\"offset\": 0, \"limit\": 1, \"size\": 0, \"_links\": {\"next\": null, \"prev\": null}, \"cases\": []}");
+
+        // WHEN
+        int indexedCount = index.refresh();
+
+        // THEN
+        assertEquals(2, indexedCount);
+        assertEquals(Arrays.asList(2), index.search("voucher", 10));
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.UrlConnectionFactory;
+import com.codepine.api.testrail.model.Case;
+import com.codepine.api.testrail.model.CaseField;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.codepine.api.testrail.MockResponses.API_URL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link CaseSync}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class CaseSyncTest {
+
+    private static final List<CaseField> NO_CASE_FIELDS = Collections.emptyList();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private UrlConnectionFactory mockUrlConnectionFactory;
+
+    private MockResponses responses;
+    private TestRail testRail;
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        responses = new MockResponses(mockUrlConnectionFactory);
+        testRail = MockResponses.builder(mockUrlConnectionFactory).build();
+        file = temporaryFolder.getRoot().toPath().resolve("fingerprints");
+        responses.respondToPrefix("get_cases/1&suite_id=", "["
+                + "{\"id\": 1, \"section_id\": 10, \"title\": \"Pay with a card\", \"priority_id\": 2, \"type_id\": 1, \"updated_on\": 1000},"
+                + "{\"id\": 2, \"section_id\": 10, \"title\": \"Pay with a voucher\", \"priority_id\": 2, \"type_id\": 1, \"updated_on\": 1000},"
+                + "{\"id\": 3, \"section_id\": 11, \"title\": \"Search\", \"priority_id\": 2, \"type_id\": 1, \"updated_on\": 1000}]");
+    }
+
+    @Test
+    public void G_definitions_W_sync_T_onlyDifferencesSent() throws IOException {
+        // GIVEN
+        HttpURLConnection update = responses.respond("update_case/2", "{\"id\": 2, \"section_id\": 10, \"title\": \"Pay with a voucher\", \"priority_id\": 3}");
+        HttpURLConnection add = responses.respond("add_case/12", "{\"id\": 4, \"section_id\": 12, \"title\": \"Refund\"}");
+        Case unchanged = new Case().setSectionId(10).setTitle("Pay with a card").setPriorityId(2);
+        Case changed = new Case().setId(2).setTitle("Pay with a voucher").setPriorityId(3);
+        Case unchangedById = new Case().setId(3).setTitle("Search");
+        Case added = new Case().setSectionId(12).setTitle("Refund");
+
+        // WHEN
+        CaseSync.Result result = new CaseSync(testRail, 1, NO_CASE_FIELDS, file).sync(Arrays.asList(unchanged, changed, unchangedById, added));
+
+        // THEN
+        assertEquals(2, result.getUnchangedCount());
+        assertEquals(Collections.singletonList(changed), result.getUpdated());
+        assertEquals(Collections.singletonList(added), result.getAdded());
+        assertTrue(result.getFailures().isEmpty());
+        assertEquals(1, unchanged.getId());
+        assertEquals(4, added.getId());
+        assertEquals("{\"title\":\"Pay with a voucher\",\"priority_id\":3}", MockResponses.getRequestContent(update));
+        assertEquals("{\"title\":\"Refund\"}", MockResponses.getRequestContent(add));
+        verify(mockUrlConnectionFactory, times(3)).getUrlConnection(anyString());
+    }
+
+    @Test
+    public void G_failingUpdate_W_sync_T_failureReported() throws IOException {
+        // GIVEN
+        responses.respond("update_case/5", 400, "{\"error\": \"Field :case_id is not a valid test case.\"}");
+        Case deleted = new Case().setId(5).setTitle("Deleted");
+
+        // WHEN
+        CaseSync.Result result = new CaseSync(testRail, 1, NO_CASE_FIELDS, file).sync(Collections.singletonList(deleted));
+
+        // THEN
+        assertEquals(1, result.getFailures().size());
+        assertEquals(deleted, result.getFailures().get(0).getDefinition());
+        assertTrue(result.getFailures().get(0).getException() instanceof TestRailException);
+    }
+
+    @Test
+    public void G_savedFingerprints_W_syncWithNewInstance_T_onlyUpdatedCasesFetched() throws IOException {
+        // GIVEN
+        new CaseSync(testRail, 1, NO_CASE_FIELDS, file).sync(Collections.<Case>emptyList());
+        responses.respondToPrefix("get_cases/1&suite_id=&updated_after=999", "[]");
+        Case unchanged = new Case().setSectionId(10).setTitle("Pay with a card").setPriorityId(2);
+
+        // WHEN
+        CaseSync.Result result = new CaseSync(testRail, 1, NO_CASE_FIELDS, file).sync(Collections.singletonList(unchanged));
+
+        // THEN
+        assertEquals(1, result.getUnchangedCount());
+        assertEquals(1, unchanged.getId());
+        verify(mockUrlConnectionFactory, times(1)).getUrlConnection(API_URL + "get_cases/1&suite_id=");
+        verify(mockUrlConnectionFactory, times(1)).getUrlConnection(API_URL + "get_cases/1&suite_id=&updated_after=999");
+    }
+
+    @Test
+    public void G_duplicateDefinitions_W_sync_T_addedOnceAndDuplicateReported() throws IOException {
+        // GIVEN
+        HttpURLConnection add = responses.respond("add_case/12", "{\"id\": 4, \"section_id\": 12, \"title\": \"Refund\"}");
+        Case added = new Case().setSectionId(12).setTitle("Refund");
+        Case duplicate = new Case().setSectionId(12).setTitle(" Refund ");
+
+        // WHEN
+        CaseSync.Result result = new CaseSync(testRail, 1, NO_CASE_FIELDS, file).sync(Arrays.asList(added, duplicate));
+
+        // THEN
+        assertEquals(Collections.singletonList(added), result.getAdded());
+        assertEquals(1, result.getFailures().size());
+        assertEquals(duplicate, result.getFailures().get(0).getDefinition());
+        assertTrue(result.getFailures().get(0).getException() instanceof IllegalArgumentException);
+        assertNotNull(MockResponses.getRequestContent(add));
+        verify(mockUrlConnectionFactory, times(2)).getUrlConnection(anyString());
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.UrlConnectionFactory;
+import com.codepine.api.testrail.model.Case;
+import com.codepine.api.testrail.model.CaseField;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.List;
+
+import static com.codepine.api.testrail.MockResponses.API_URL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link ChangeTracker}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ChangeTrackerTest {
+
+    private static final String CASE_JSON = "{\"id\": 1, \"title\": \"Pay with a card\", \"section_id\": 2, \"priority_id\": 3, \"refs\": \"PROJ-1\"}";
+    private static final List<CaseField> NO_CASE_FIELDS = Collections.emptyList();
+
+    @Mock
+    private UrlConnectionFactory mockUrlConnectionFactory;
+
+    private MockResponses responses;
+    private TestRail testRail;
+
+    @Before
+    public void setUp() {
+        responses = new MockResponses(mockUrlConnectionFactory);
+        testRail = MockResponses.builder(mockUrlConnectionFactory).changeTracking(true).build();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void G_entityCacheEnabled_W_buildWithChangeTracking_T_exception() {
+        // WHEN
+        MockResponses.builder(mockUrlConnectionFactory).entityCache(new EntityCache.Settings().maximumSize(100)).changeTracking(true).build();
+    }
+
+    @Test
+    public void G_loadedCaseWithChangedField_W_update_T_onlyChangedFieldSent() throws IOException {
+        // GIVEN
+        responses.respond("get_case/1", CASE_JSON);
+        Case testCase = testRail.cases().get(1, NO_CASE_FIELDS).execute();
+        testCase.setTitle("Pay with a voucher");
+        HttpURLConnection update = responses.respond("update_case/1", CASE_JSON.replace("a card", "a voucher"));
+
+        // WHEN
+        testRail.cases().update(testCase, NO_CASE_FIELDS).execute();
+
+        // THEN
+        assertEquals("{\"title\":\"Pay with a voucher\"}", MockResponses.getRequestContent(update));
+    }
+
+    @Test
+    public void G_loadedCaseUnchanged_W_update_T_notSent() throws IOException {
+        // GIVEN
+        responses.respond("get_case/1", CASE_JSON);
+        Case testCase = testRail.cases().get(1, NO_CASE_FIELDS).execute();
+
+        // WHEN
+        Case updated = testRail.cases().update(testCase, NO_CASE_FIELDS).execute();
+
+        // THEN
+        assertSame(testCase, updated);
+        verify(mockUrlConnectionFactory, never()).getUrlConnection(API_URL + "update_case/1");
+    }
+
+    @Test
+    public void G_caseUpdatedOnce_W_updateAgainUnchanged_T_notSent() throws IOException {
+        // GIVEN
+        responses.respond("get_case/1", CASE_JSON);
+        Case testCase = testRail.cases().get(1, NO_CASE_FIELDS).execute();
+        testCase.setRefs("PROJ-2");
+        responses.respond("update_case/1", CASE_JSON.replace("PROJ-1", "PROJ-2"));
+        testRail.cases().update(testCase, NO_CASE_FIELDS).execute();
+        HttpURLConnection secondUpdate = responses.respond("update_case/1", CASE_JSON.replace("PROJ-1", "PROJ-2"));
+
+        // WHEN
+        testRail.cases().update(testCase, NO_CASE_FIELDS).execute();
+
+        // THEN
+        assertEquals("", MockResponses.getRequestContent(secondUpdate));
+    }
+
+    @Test
+    public void G_caseNotLoaded_W_update_T_sentInFull() throws IOException {
+        // GIVEN
+        HttpURLConnection update = responses.respond("update_case/1", CASE_JSON);
+
+        // WHEN
+        testRail.cases().update(new Case().setId(1).setTitle("Pay with a card").setPriorityId(3), NO_CASE_FIELDS).execute();
+
+        // THEN
+        assertEquals("{\"title\":\"Pay with a card\",\"priority_id\":3}", MockResponses.getRequestContent(update));
+    }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.UrlConnectionFactory;
+import com.codepine.api.testrail.model.Result;
+import com.codepine.api.testrail.model.ResultField;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link com.codepine.api.testrail.TestRail.Results.ChunkedAddList}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ChunkedAddListTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private HttpURLConnection mockConnection;
+    @Mock
+    private UrlConnectionFactory mockUrlConnectionFactory;
+
+    private final List<ByteArrayOutputStream> postBodies = new ArrayList<>();
+    private TestRail testRail;
+
+    @Before
+    public void setUp() throws IOException {
+        testRail = TestRail.builder("https://test.end.point.com", "testUser", "testPassword").parallelism(1).build();
+        when(mockUrlConnectionFactory.getUrlConnection(any(String.class))).thenReturn(mockConnection);
+        when(mockConnection.getOutputStream()).thenAnswer(new Answer<OutputStream>() {
+            @Override
+            public OutputStream answer(InvocationOnMock invocation) {
+                ByteArrayOutputStream postBody = new ByteArrayOutputStream();
+                postBodies.add(postBody);
+                return postBody;
+            }
+        });
+    }
+
+    @Test
+    public void G_resultsMoreThanChunkSize_W_addResults_T_sentInChunksAndReassembledInOrder() throws IOException {
+        // GIVEN
+        when(mockConnection.getResponseCode()).thenReturn(200);
+        when(mockConnection.getInputStream()).thenReturn(response(1, 2), response(3, 4), response(5));
+
+        // WHEN
+        TestRail.Results.AddList request = testRail.results().add(1, results(5), Collections.<ResultField>emptyList());
+        request.chunkSize(2).setUrlConnectionFactory(mockUrlConnectionFactory);
+        List<Result> actualResults = request.execute();
+
+        // THEN
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), getIds(actualResults));
+        assertEquals(3, postBodies.size());
+        assertEquals(Arrays.asList(2, 2, 1), Arrays.asList(getResultCount(0), getResultCount(1), getResultCount(2)));
+    }
+
+    @Test
+    public void G_resultsMoreThanChunkSize_W_addResults_T_listenersNotifiedOnceWithAllResults() throws IOException {
+        // GIVEN
+        when(mockConnection.getResponseCode()).thenReturn(200);
+        when(mockConnection.getInputStream()).thenReturn(response(1, 2), response(3, 4), response(5));
+        RecordingListener listener = new RecordingListener();
+        testRail.getConfig().getRequestListeners().add(listener);
+
+        // WHEN
+        TestRail.Results.AddList request = testRail.results().add(1, results(5), Collections.<ResultField>emptyList());
+        request.chunkSize(2).setUrlConnectionFactory(mockUrlConnectionFactory);
+        List<Result> actualResults = request.execute();
+
+        // THEN
+        assertEquals(Collections.<Request<?>>singletonList(request), listener.requests);
+        assertEquals(Collections.<Object>singletonList(actualResults), listener.responses);
+    }
+
+    @Test
+    public void G_resultsLargerThanMaxChunkBytes_W_addResults_T_sentInChunksBySize() throws IOException {
+        // GIVEN
+        when(mockConnection.getResponseCode()).thenReturn(200);
+        when(mockConnection.getInputStream()).thenReturn(response(1), response(2), response(3));
+
+        // WHEN
+        TestRail.Results.AddListForCases request = testRail.results().addForCases(1, results(3), Collections.<ResultField>emptyList());
+        request.maxChunkBytes(50).setUrlConnectionFactory(mockUrlConnectionFactory);
+        List<Result> actualResults = request.execute();
+
+        // THEN
+        assertEquals(Arrays.asList(1, 2, 3), getIds(actualResults));
+        assertEquals(3, postBodies.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void G_zeroChunkSize_W_chunkSize_T_exception() {
+        // GIVEN
+        TestRail.Results.AddList request = testRail.results().add(1, results(5), Collections.<ResultField>emptyList());
+
+        // WHEN
+        request.chunkSize(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void G_negativeMaxChunkBytes_W_maxChunkBytes_T_exception() {
+        // GIVEN
+        TestRail.Results.AddList request = testRail.results().add(1, results(5), Collections.<ResultField>emptyList());
+
+        // WHEN
+        request.maxChunkBytes(-1);
+    }
+
+    @Test
+    public void G_oneChunkFails_W_addResults_T_partialFailureReported() throws IOException {
+        // GIVEN
+        when(mockConnection.getResponseCode()).thenReturn(200, 400, 200);
+        when(mockConnection.getInputStream()).thenReturn(response(1, 2), response(5));
+        when(mockConnection.getErrorStream()).thenReturn(new ByteArrayInputStream("{\"error\": \"Field :results is not valid\"}".getBytes(StandardCharsets.UTF_8)));
+
+        RecordingListener listener = new RecordingListener();
+        testRail.getConfig().getRequestListeners().add(listener);
+
+        // WHEN
+        TestRail.Results.AddList request = testRail.results().add(1, results(5), Collections.<ResultField>emptyList());
+        request.chunkSize(2).setUrlConnectionFactory(mockUrlConnectionFactory);
+        try {
+            request.execute();
+            fail("Expected " + ChunkedRequestException.class.getSimpleName());
+        } catch (ChunkedRequestException e) {
+            // THEN
+            assertTrue(listener.requests.isEmpty());
+            assertEquals(Arrays.asList(1, 2, 5), getIds(e.getAddedResults()));
+            assertEquals(1, e.getFailures().size());
+            assertEquals(2, e.getFailures().get(0).getFromIndex());
+            assertEquals(4, e.getFailures().get(0).getToIndex());
+            assertEquals(400, ((TestRailException) e.getFailures().get(0).getCause()).getResponseCode());
+        }
+    }
+
+    private static List<Result> results(int count) {
+        List<Result> results = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            results.add(new Result().setCaseId(i).setStatusId(1).setComment("Result " + i));
+        }
+        return results;
+    }
+
+    private static ByteArrayInputStream response(int... ids) {
+        StringBuilder json = new StringBuilder("[");
+        for (int id : ids) {
+            json.append(json.length() > 1 ? "," : "").append("{\"id\":").append(id).append(",\"test_id\":").append(id).append("}");
+        }
+        return new ByteArrayInputStream(json.append("]").toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private int getResultCount(int request) throws IOException {
+        JsonNode postBody = objectMapper.readTree(postBodies.get(request).toByteArray());
+        return postBody.get("results").size();
+    }
+
+    private static List<Integer> getIds(List<Result> results) {
+        List<Integer> ids = new ArrayList<>();
+        for (Result result : results) {
+            ids.add(result.getId());
+        }
+        return ids;
+    }
+
+    private static class RecordingListener implements RequestListeners.Listener {
+        private final List<Request<?>> requests = new ArrayList<>();
+        private final List<Object> responses = new ArrayList<>();
+
+        @Override
+        public void onExecuted(Request<?> request, Object response) {
+            requests.add(request);
+            responses.add(response);
+        }
+    }
+}
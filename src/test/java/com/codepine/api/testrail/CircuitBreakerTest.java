@@ -0,0 +1,216 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.UrlConnectionFactory;
+import com.codepine.api.testrail.model.Case;
+import com.codepine.api.testrail.model.CaseField;
+import com.google.common.base.Ticker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static com.codepine.api.testrail.MockResponses.API_URL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link CircuitBreaker}.
+ */
+public class CircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(20);
+
+    private FakeTicker ticker;
+    private CircuitBreaker circuitBreaker;
+
+    @Before
+    public void setUp() {
+        ticker = new FakeTicker();
+        circuitBreaker = new CircuitBreaker("get_case", new CircuitBreaker.Settings().windowSize(4).minimumCalls(4).halfOpenCalls(2), ticker);
+    }
+
+    @Test
+    public void G_failuresBelowThreshold_W_requestsSent_T_breakerStaysClosed() {
+        // GIVEN
+        callWith(false, FAST);
+        callWith(false, FAST);
+        callWith(false, FAST);
+
+        // WHEN
+        callWith(true, FAST);
+
+        // THEN
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0.25, circuitBreaker.getFailureRate(), 0.0);
+    }
+
+    @Test
+    public void G_failuresAtThreshold_W_requestSent_T_failFastUntilOpenDurationElapses() {
+        // GIVEN
+        callWith(false, FAST);
+        callWith(false, FAST);
+        callWith(true, FAST);
+        callWith(true, FAST);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        // WHEN
+        ticker.advance(10, TimeUnit.SECONDS);
+        try {
+            circuitBreaker.acquirePermission();
+            fail("request should have been rejected");
+        } catch (CircuitBreakerOpenException e) {
+            // THEN
+            assertEquals("get_case", e.getEndpoint());
+            assertEquals(20000, e.getRetryAfterMillis());
+            assertTrue(e instanceof TestRailException);
+            assertEquals(TestRailException.NO_RESPONSE, e.getResponseCode());
+        }
+        assertEquals(1, circuitBreaker.getRejectedCalls());
+    }
+
+    @Test
+    public void G_slowRequests_W_requestsSent_T_breakerOpens() {
+        // GIVEN
+        callWith(false, SLOW);
+        callWith(false, SLOW);
+        callWith(false, SLOW);
+
+        // WHEN
+        callWith(false, SLOW);
+
+        // THEN
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void G_openBreaker_W_trialRequestsSucceed_T_breakerCloses() {
+        // GIVEN
+        openBreaker();
+        ticker.advance(30, TimeUnit.SECONDS);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+
+        // WHEN
+        circuitBreaker.acquirePermission();
+        circuitBreaker.acquirePermission();
+        try {
+            circuitBreaker.acquirePermission();
+            fail("only two trial requests should have been permitted");
+        } catch (CircuitBreakerOpenException e) {
+            assertEquals(0, e.getRetryAfterMillis());
+        }
+        circuitBreaker.onResult(FAST, false);
+        circuitBreaker.onResult(FAST, false);
+
+        // THEN
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getBufferedCalls());
+    }
+
+    @Test
+    public void G_openBreaker_W_trialRequestFails_T_breakerReopens() {
+        // GIVEN
+        openBreaker();
+        ticker.advance(30, TimeUnit.SECONDS);
+
+        // WHEN
+        callWith(true, FAST);
+
+        // THEN
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void G_trialRequestThrowsError_W_requestSentAgain_T_trialPermissionGivenBack() throws IOException, InterruptedException {
+        // GIVEN
+        UrlConnectionFactory urlConnectionFactory = mock(UrlConnectionFactory.class);
+        HttpURLConnection unavailable = MockResponses.connection(503, "{\"error\": \"Service Unavailable\"}");
+        HttpURLConnection ok = MockResponses.connection(200, "{\"id\": 1, \"title\": \"Pay\"}");
+        when(urlConnectionFactory.getUrlConnection(API_URL + "get_case/1")).thenReturn(unavailable)
+                .thenThrow(new AssertionError("unexpected")).thenReturn(ok);
+        TestRail testRail = MockResponses.builder(urlConnectionFactory)
+                .circuitBreakers(new CircuitBreaker.Settings().windowSize(1).minimumCalls(1).halfOpenCalls(1).openDurationMillis(1)).build();
+        try {
+            testRail.cases().get(1, Collections.<CaseField>emptyList()).execute();
+            fail("the unavailable response should be reported");
+        } catch (TestRailException e) {
+            assertEquals(503, e.getResponseCode());
+        }
+        Thread.sleep(10);
+        try {
+            testRail.cases().get(1, Collections.<CaseField>emptyList()).execute();
+            fail("the error of the trial request should be thrown");
+        } catch (AssertionError e) {
+            assertEquals("unexpected", e.getMessage());
+        }
+        Thread.sleep(10);
+
+        // WHEN
+        Case testCase = testRail.cases().get(1, Collections.<CaseField>emptyList()).execute();
+
+        // THEN
+        assertEquals("Pay", testCase.getTitle());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void G_minimumCallsAboveWindowSize_W_buildTestRail_T_exceptionThrown() {
+        TestRail.builder("https://test.end.point.com/", "username", "password")
+                .circuitBreakers(new CircuitBreaker.Settings().windowSize(5).minimumCalls(6));
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < 4; i++) {
+            callWith(true, FAST);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    private void callWith(boolean failure, long durationNanos) {
+        circuitBreaker.acquirePermission();
+        circuitBreaker.onResult(durationNanos, failure);
+    }
+
+    private static class FakeTicker extends Ticker {
+
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long duration, TimeUnit unit) {
+            nanos += unit.toNanos(duration);
+        }
+    }
+}
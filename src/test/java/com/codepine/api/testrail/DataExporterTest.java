@@ -0,0 +1,154 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.UrlConnectionFactory;
+import com.codepine.api.testrail.model.CaseField;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link DataExporter}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class DataExporterTest {
+
+    private static final String PAGE_1 = "{\"offset\": 0, \"limit\": 1, \"size\": 1, \"_links\": {\"next\": \"/api/v2/get_cases/1&limit=1&offset=1\", \"prev\": null}, \"cases\": ["
+            + "{\"id\": 1, \"title\": \"Login, then logout\", \"section_id\": 2, \"priority_id\": 3, \"created_on\": 1424641170, \"suite_id\": 4,"
+            + " \"custom_automated\": true, \"custom_steps_separated\": [{\"content\": \"Log in\", \"expected\": \"Logged in\"}]}]}";
+    private static final String PAGE_2 = "{\"offset\": 1, \"limit\": 1, \"size\": 1, \"_links\": {\"next\": null, \"prev\": null}, \"cases\": ["
+            + "{\"id\": 5, \"title\": \"Say \\\"hi\\\"\", \"section_id\": 2, \"priority_id\": 3, \"created_on\": 1424641100, \"suite_id\": 4,"
+            + " \"custom_automated\": null}]}";
+
+    @Mock
+    private UrlConnectionFactory mockUrlConnectionFactory;
+
+    private DataExporter dataExporter;
+    private List<CaseField> caseFields;
+
+    @Before
+    public void setUp() throws IOException {
+        TestRail testRail = TestRail.builder("https://test.end.point.com", "testUser", "testPassword")
+                .urlConnectionFactory(mockUrlConnectionFactory).build();
+        HttpURLConnection page1 = connection(PAGE_1);
+        HttpURLConnection page2 = connection(PAGE_2);
+        when(mockUrlConnectionFactory.getUrlConnection(any(String.class))).thenReturn(page1, page2);
+        dataExporter = new DataExporter(testRail);
+        caseFields = Arrays.asList(caseField("automated", 5), caseField("steps_separated", 10));
+    }
+
+    @Test
+    public void G_twoPagesOfCases_W_exportAsNdjson_T_verifyLinePerCase() {
+        // GIVEN
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // WHEN
+        long count = dataExporter.format(DataExporter.Format.NDJSON).exportCases(1, null, caseFields, out);
+
+        // THEN
+        assertEquals(2, count);
+        assertEquals("{\"id\":1,\"title\":\"Login, then logout\",\"section_id\":2,\"priority_id\":3,\"created_by\":0,\"created_on\":1424641170,"
+                + "\"updated_by\":0,\"suite_id\":4,\"custom_automated\":true,\"custom_steps_separated\":[{\"content\":\"Log in\",\"expected\":\"Logged in\"}]}\n"
+                + "{\"id\":5,\"title\":\"Say \\\"hi\\\"\",\"section_id\":2,\"priority_id\":3,\"created_by\":0,\"created_on\":1424641100,"
+                + "\"updated_by\":0,\"suite_id\":4}\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void G_twoPagesOfCases_W_exportAsCsv_T_verifyHeaderAndQuotedRows() {
+        // GIVEN
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // WHEN
+        long count = dataExporter.format(DataExporter.Format.CSV).exportCases(1, null, caseFields, out);
+
+        // THEN
+        assertEquals(2, count);
+        assertEquals("id,title,section_id,type_id,priority_id,milestone_id,refs,created_by,created_on,updated_by,updated_on,estimate,"
+                + "estimate_forecast,suite_id,custom_automated,custom_steps_separated\r\n"
+                + "1,\"Login, then logout\",2,,3,,,0,1424641170,0,,,,4,true,\"[{\"\"content\"\":\"\"Log in\"\",\"\"expected\"\":\"\"Logged in\"\"}]\"\r\n"
+                + "5,\"Say \"\"hi\"\"\",2,,3,,,0,1424641100,0,,,,4,,\r\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void G_twoPagesOfCases_W_exportAsColumnar_T_verifyRecordsReadBack() throws IOException {
+        // GIVEN
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // WHEN
+        long count = dataExporter.format(DataExporter.Format.COLUMNAR).exportCases(1, null, caseFields, out);
+
+        // THEN
+        assertEquals(2, count);
+        List<Object[]> records = new ArrayList<>();
+        try (ColumnarReader reader = new ColumnarReader(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(16, reader.getColumns().size());
+            assertEquals("custom_automated", reader.getColumns().get(14).getName());
+            assertEquals(DataExporter.ColumnType.BOOLEAN, reader.getColumns().get(14).getType());
+            assertEquals(DataExporter.ColumnType.JSON, reader.getColumns().get(15).getType());
+            for (Object[] record = reader.next(); record != null; record = reader.next()) {
+                records.add(record);
+            }
+            assertNull(reader.next());
+        }
+        assertEquals(2, records.size());
+        assertArrayEquals(new Object[]{1L, "Login, then logout", 2L, null, 3L, null, null, 0L, 1424641170L, 0L, null, null, null, 4L, true,
+                "[{\"content\":\"Log in\",\"expected\":\"Logged in\"}]"}, records.get(0));
+        assertArrayEquals(new Object[]{5L, "Say \"hi\"", 2L, null, 3L, null, null, 0L, 1424641100L, 0L, null, null, null, 4L, null, null}, records.get(1));
+    }
+
+    private static CaseField caseField(String name, int typeId) {
+        CaseField caseField = new CaseField();
+        caseField.setName(name);
+        caseField.setSystemName("custom_" + name);
+        caseField.setTypeId(typeId);
+        return caseField;
+    }
+
+    private static HttpURLConnection connection(String json) throws IOException {
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(connection.getResponseCode()).thenReturn(200);
+        when(connection.getInputStream()).thenReturn(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        return connection;
+    }
+}
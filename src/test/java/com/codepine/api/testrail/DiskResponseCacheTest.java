@@ -0,0 +1,203 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.UrlConnectionFactory;
+import com.codepine.api.testrail.model.Result;
+import com.codepine.api.testrail.model.ResultField;
+import com.codepine.api.testrail.model.Run;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.codepine.api.testrail.MockResponses.API_URL;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link DiskResponseCache}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class DiskResponseCacheTest {
+
+    private static final String SCOPE = "testUser@" + API_URL;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private UrlConnectionFactory mockUrlConnectionFactory;
+
+    private MockResponses responses;
+
+    @Before
+    public void setUp() {
+        responses = new MockResponses(mockUrlConnectionFactory);
+    }
+
+    @Test
+    public void G_completedRunFetched_W_runAndItsResultsRequestedByNextProcess_T_servedFromDisk() throws IOException {
+        // GIVEN
+        responses.respond("get_run/5", "{\"id\": 5, \"name\": \"Run 5\", \"is_completed\": true}");
+        responses.respond("get_results_for_run/5", "[{\"id\": 1, \"test_id\": 10, \"status_id\": 1}]");
+        TestRail testRail = testRail();
+        testRail.runs().get(5).execute();
+        testRail.results().listForRun(5, Collections.<ResultField>emptyList()).execute();
+
+        // WHEN
+        TestRail nextTestRail = testRail();
+        Run run = nextTestRail.runs().get(5).execute();
+        List<Result> results = nextTestRail.results().listForRun(5, Collections.<ResultField>emptyList()).execute();
+
+        // THEN
+        assertEquals("Run 5", run.getName());
+        assertEquals(10, results.get(0).getTestId());
+        verify(mockUrlConnectionFactory, times(1)).getUrlConnection(API_URL + "get_run/5");
+        verify(mockUrlConnectionFactory, times(1)).getUrlConnection(API_URL + "get_results_for_run/5");
+        assertEquals(new DiskResponseCache.Stats(2, 0, 0, 2, nextTestRail.responseCache().getStats().getSizeBytes()),
+                nextTestRail.responseCache().getStats());
+    }
+
+    @Test
+    public void G_openRunCached_W_ttlElapsed_T_responseExpired() throws IOException {
+        // GIVEN
+        MutableClock clock = new MutableClock();
+        DiskResponseCache cache = new DiskResponseCache(settings().ttlMillis(TimeUnit.MINUTES.toMillis(1)), clock);
+        byte[] run = "{\"id\": 6, \"is_completed\": false}".getBytes(StandardCharsets.UTF_8);
+        byte[] results = "[]".getBytes(StandardCharsets.UTF_8);
+        cache.put(SCOPE, "get_run/6", run);
+        cache.put(SCOPE, "get_results_for_run/6", results);
+
+        // WHEN
+        clock.millis += TimeUnit.SECONDS.toMillis(61);
+
+        // THEN
+        assertNull(cache.get(SCOPE, "get_run/6"));
+        assertNull(cache.get(SCOPE, "get_results_for_run/6"));
+        assertEquals(0, cache.getStats().getEntryCount());
+    }
+
+    @Test
+    public void G_cacheFull_W_responseCached_T_leastRecentlyUsedResponseEvicted() throws IOException {
+        // GIVEN
+        MutableClock clock = new MutableClock();
+        DiskResponseCache cache = new DiskResponseCache(settings().maximumSizeBytes(500), clock);
+        byte[] body = new byte[100];
+        new Random(42).nextBytes(body);
+        cache.put(SCOPE, "get_case/1", body);
+        clock.millis += 1000;
+        cache.put(SCOPE, "get_case/2", body);
+        clock.millis += 1000;
+        cache.get(SCOPE, "get_case/1");
+
+        // WHEN
+        clock.millis += 1000;
+        cache.put(SCOPE, "get_case/3", body);
+
+        // THEN
+        assertArrayEquals(body, cache.get(SCOPE, "get_case/1"));
+        assertNull(cache.get(SCOPE, "get_case/2"));
+        assertArrayEquals(body, cache.get(SCOPE, "get_case/3"));
+        assertEquals(1, cache.getStats().getEvictionCount());
+        assertTrue(cache.getStats().getSizeBytes() <= 500);
+    }
+
+    @Test
+    public void G_sameParametersInAnotherOrder_W_normalize_T_sameKey() {
+        // WHEN, THEN
+        assertEquals(DiskResponseCache.normalize("get_cases/1&suite_id=2&section_id=3"), DiskResponseCache.normalize("get_cases/1&section_id=3&suite_id=2"));
+        assertEquals("get_case/1", DiskResponseCache.normalize("get_case/1"));
+    }
+
+    @Test
+    public void G_postRequest_W_executed_T_notCached() throws IOException {
+        // GIVEN
+        HttpURLConnection connection = responses.respond("close_run/7", "{\"id\": 7, \"is_completed\": true}");
+        when(connection.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+        TestRail testRail = testRail();
+
+        // WHEN
+        testRail.runs().close(7).execute();
+
+        // THEN
+        assertEquals(0, testRail.responseCache().getStats().getEntryCount());
+        verify(mockUrlConnectionFactory, never()).getUrlConnection(API_URL + "get_run/7");
+    }
+
+    private TestRail testRail() {
+        return MockResponses.builder(mockUrlConnectionFactory).responseCache(settings()).build();
+    }
+
+    private DiskResponseCache.Settings settings() {
+        return new DiskResponseCache.Settings().directory(temporaryFolder.getRoot().toPath().resolve("cache"));
+    }
+
+    private static class MutableClock extends Clock {
+
+        private long millis = 1500000000000L;
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
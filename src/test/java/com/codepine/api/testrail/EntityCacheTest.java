@@ -0,0 +1,175 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.UrlConnectionFactory;
+import com.codepine.api.testrail.model.Case;
+import com.codepine.api.testrail.model.CaseField;
+import com.codepine.api.testrail.model.Section;
+import com.codepine.api.testrail.model.Suite;
+import com.google.common.base.Ticker;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static com.codepine.api.testrail.MockResponses.API_URL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link EntityCache}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class EntityCacheTest {
+
+    @Mock
+    private UrlConnectionFactory mockUrlConnectionFactory;
+
+    private TestRail testRail;
+
+    @Before
+    public void setUp() throws IOException {
+        testRail = MockResponses.builder(mockUrlConnectionFactory).entityCache(new EntityCache.Settings().maximumSize(100)).build();
+        // every entity exists, with the ID in its path
+        when(mockUrlConnectionFactory.getUrlConnection(any(String.class))).thenAnswer(new Answer<HttpURLConnection>() {
+            @Override
+            public HttpURLConnection answer(InvocationOnMock invocation) throws Throwable {
+                String url = (String) invocation.getArguments()[0];
+                return MockResponses.connection(200, "{\"id\": " + url.substring(url.lastIndexOf('/') + 1) + ", \"name\": \"Name\", \"title\": \"Title\"}");
+            }
+        });
+    }
+
+    @Test
+    public void G_caseFetched_W_getCaseAgain_T_caseServedFromCache() throws IOException {
+        // GIVEN
+        Case testCase = testRail.cases().get(1, Collections.<CaseField>emptyList()).execute();
+
+        // WHEN
+        Case cachedCase = testRail.cases().get(1, Collections.<CaseField>emptyList()).execute();
+
+        // THEN
+        assertSame(testCase, cachedCase);
+        verify(mockUrlConnectionFactory, times(1)).getUrlConnection(API_URL + "get_case/1");
+        assertEquals(new EntityCache.Stats(1, 1, 0, 1), testRail.entityCache().getStats());
+    }
+
+    @Test
+    public void G_sectionCached_W_updateSection_T_updatedSectionServedFromCache() throws IOException {
+        // GIVEN
+        Section section = testRail.sections().get(3).execute();
+
+        // WHEN
+        Section updatedSection = testRail.sections().update(section.setName("New Name")).execute();
+
+        // THEN
+        assertSame(updatedSection, testRail.sections().get(3).execute());
+        verify(mockUrlConnectionFactory, times(1)).getUrlConnection(API_URL + "get_section/3");
+    }
+
+    @Test
+    public void G_sectionAndItsCasesCached_W_deleteSection_T_sectionAndCasesFetchedAgain() throws IOException {
+        // GIVEN
+        testRail.sections().get(3).execute();
+        testRail.cases().get(1, Collections.<CaseField>emptyList()).execute();
+        testRail.suites().get(2).execute();
+
+        // WHEN
+        testRail.sections().delete(3).execute();
+
+        // THEN
+        assertNull(testRail.entityCache().getIfPresent(EntityCache.EntityType.SECTION, 3));
+        assertNull(testRail.entityCache().getIfPresent(EntityCache.EntityType.CASE, 1));
+        assertEquals(2, ((Suite) testRail.entityCache().getIfPresent(EntityCache.EntityType.SUITE, 2)).getId());
+    }
+
+    @Test
+    public void G_entryOlderThanTtl_W_getAgain_T_entityFetchedAgain() throws IOException {
+        // GIVEN
+        FakeTicker ticker = new FakeTicker();
+        EntityCache entityCache = new EntityCache(new EntityCache.Settings().ttl(EntityCache.EntityType.SUITE, 1, TimeUnit.MINUTES), ticker);
+        entityCache.execute(testRail.suites().get(2));
+        entityCache.execute(testRail.suites().get(2));
+
+        // WHEN
+        ticker.advance(61, TimeUnit.SECONDS);
+        entityCache.execute(testRail.suites().get(2));
+
+        // THEN
+        verify(mockUrlConnectionFactory, times(2)).getUrlConnection(API_URL + "get_suite/2");
+        assertEquals(1, entityCache.getStats().getHitCount());
+        assertEquals(2, entityCache.getStats().getMissCount());
+    }
+
+    @Test
+    public void G_frequentlyRequestedEntities_W_scanOfEntitiesRequestedOnce_T_frequentEntitiesKept() throws IOException {
+        // GIVEN
+        EntityCache entityCache = new EntityCache(new EntityCache.Settings().maximumSize(10), Ticker.systemTicker());
+        for (int i = 0; i < 3; i++) {
+            for (int id = 1; id <= 5; id++) {
+                entityCache.execute(testRail.suites().get(id));
+            }
+        }
+
+        // WHEN
+        for (int id = 100; id < 150; id++) {
+            entityCache.execute(testRail.suites().get(id));
+        }
+
+        // THEN
+        for (int id = 1; id <= 5; id++) {
+            assertEquals(id, ((Suite) entityCache.getIfPresent(EntityCache.EntityType.SUITE, id)).getId());
+        }
+        assertEquals(10, entityCache.getStats().getSize());
+        assertEquals(45, entityCache.getStats().getEvictionCount());
+    }
+
+    private static class FakeTicker extends Ticker {
+
+        private long nanos;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long duration, TimeUnit unit) {
+            nanos += unit.toNanos(duration);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.UrlConnectionFactory;
+import com.codepine.api.testrail.model.ResultField;
+import com.codepine.api.testrail.model.Run;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static com.codepine.api.testrail.MockResponses.API_URL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link FlakyTestDetector}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class FlakyTestDetectorTest {
+
+    private static final double DELTA = 1e-9;
+    private static final int P = 1;
+    private static final int B = 2;
+    private static final int F = 5;
+
+    @Mock
+    private UrlConnectionFactory mockUrlConnectionFactory;
+
+    private MockResponses responses;
+    private FlakyTestDetector detector;
+    private List<Run> runs;
+
+    @Before
+    public void setUp() {
+        responses = new MockResponses(mockUrlConnectionFactory);
+        detector = new FlakyTestDetector(MockResponses.builder(mockUrlConnectionFactory).parallelism(4).build(),
+                Collections.<ResultField>emptyList());
+        // given out of chronological order, run 1 being the first
+        runs = Arrays.asList(run(3), run(1), run(4), run(2));
+    }
+
+    @Test
+    public void G_fourRuns_W_analyze_T_casesRankedByFlipRateThenEntropy() throws IOException {
+        // GIVEN
+        // case 1: P F P F, case 2: P P F F, case 3: P P P P, case 4: P, case 5: P B F P
+        respondWithOutcomes(1, 0, P, P, P, P, P);
+        respondWithOutcomes(2, 0, F, P, P, 0, B);
+        respondWithOutcomes(3, 0, P, F, P, 0, F);
+        respondWithOutcomes(4, 0, F, F, P, 0, P);
+        // the first run is fetched last, its outcomes must still be folded first
+        final HttpURLConnection slowResults = MockResponses.connection(200, results(1, 0, P, P, P, P, P));
+        when(mockUrlConnectionFactory.getUrlConnection(API_URL + "get_results_for_run/1")).thenAnswer(new Answer<HttpURLConnection>() {
+            @Override
+            public HttpURLConnection answer(InvocationOnMock invocation) throws Throwable {
+                Thread.sleep(200);
+                return slowResults;
+            }
+        });
+        // the latest result of case 1 in run 2 is the failure, whatever the order in which results are listed
+        responses.respond("get_results_for_run/2", "[{\"id\": 2001, \"test_id\": 201, \"status_id\": 5},"
+                + "{\"id\": 1999, \"test_id\": 201, \"status_id\": 1}," + results(2, 0, 0, P, P, 0, B).substring(1));
+
+        // WHEN
+        List<FlakyTestDetector.CaseFlakiness> report = detector.analyze(runs);
+
+        // THEN
+        assertEquals(4, report.size());
+        assertFlakiness(report.get(0), 5, 4, 2, 1, 2, 1.0, 0, 1, 1.5);
+        assertFlakiness(report.get(1), 1, 4, 2, 2, 3, 1.0, 1, 1, 1.0);
+        assertFlakiness(report.get(2), 2, 4, 2, 2, 1, 1.0 / 3, 2, 2, 1.0);
+        assertFlakiness(report.get(3), 3, 4, 4, 0, 0, 0, 0, 0, 0);
+    }
+
+    @Test
+    public void G_singleCaseMissingFromARun_W_analyze_T_resultsListedPerCaseAndRunSkipped() throws IOException {
+        // GIVEN
+        responses.respond("get_results_for_case/1/1", "[{\"id\": 1, \"test_id\": 101, \"status_id\": 1}]");
+        responses.respond("get_results_for_case/2/1", "[{\"id\": 2, \"test_id\": 201, \"status_id\": 5}]");
+        responses.respond("get_results_for_case/3/1", 400, "{\"error\": \"No (active) test found for the run/case combination.\"}");
+        responses.respond("get_results_for_case/4/1", "[{\"id\": 4, \"test_id\": 401, \"status_id\": 5}]");
+
+        // WHEN
+        List<FlakyTestDetector.CaseFlakiness> report = detector.analyze(runs, Collections.singletonList(1));
+
+        // THEN
+        assertEquals(1, report.size());
+        assertFlakiness(report.get(0), 1, 3, 1, 2, 1, 0.5, 2, 2, 0.9182958340544896);
+    }
+
+    @Test
+    public void G_otherBadRequest_W_analyzePerCase_T_failureNotTakenForMissingCase() throws IOException {
+        // GIVEN
+        responses.respond("get_results_for_case/1/1", "[]");
+        responses.respond("get_results_for_case/2/1", "[]");
+        responses.respond("get_results_for_case/3/1", 400, "{\"error\": \"Field :run_id is not a valid test run.\"}");
+        responses.respond("get_results_for_case/4/1", "[]");
+
+        // WHEN
+        try {
+            detector.analyze(runs, Collections.singletonList(1));
+            fail("the bad request should be reported");
+        } catch (TestRailException e) {
+            // THEN
+            assertEquals(400, e.getResponseCode());
+        }
+    }
+
+    /**
+     * Respond to the requests of the tests and results of a run, with a test per case numbered from 1 and a result per status.
+     *
+     * @param statusIds the status of each case, 0 for a case which is not part of the run
+     */
+    private void respondWithOutcomes(int runId, int... statusIds) throws IOException {
+        StringBuilder tests = new StringBuilder("[");
+        for (int caseId = 1; caseId < statusIds.length; caseId++) {
+            if (statusIds[caseId] != 0) {
+                tests.append(tests.length() > 1 ? "," : "").append("{\"id\": ").append(runId * 100 + caseId).append(", \"case_id\": ").append(caseId).append("}");
+            }
+        }
+        responses.respond("get_tests/" + runId, tests.append("]").toString());
+        responses.respond("get_results_for_run/" + runId, results(runId, statusIds));
+    }
+
+    private static String results(int runId, int... statusIds) {
+        StringBuilder results = new StringBuilder("[");
+        for (int caseId = 1; caseId < statusIds.length; caseId++) {
+            if (statusIds[caseId] != 0) {
+                results.append(results.length() > 1 ? "," : "").append("{\"id\": ").append(runId * 1000 + caseId).append(", \"test_id\": ")
+                        .append(runId * 100 + caseId).append(", \"status_id\": ").append(statusIds[caseId]).append("}");
+            }
+        }
+        return results.append("]").toString();
+    }
+
+    private static Run run(int id) {
+        return new Run().setId(id).setCreatedOn(new Date(id * 1000000L)).setPassedCount(5);
+    }
+
+    private static void assertFlakiness(FlakyTestDetector.CaseFlakiness flakiness, int caseId, int outcomeCount, int passedCount,
+                                        int failedCount, int flipCount, double flipRate, int currentFailStreak, int longestFailStreak,
+                                        double entropy) {
+        assertEquals(caseId, flakiness.getCaseId());
+        assertEquals(outcomeCount, flakiness.getOutcomeCount());
+        assertEquals(passedCount, flakiness.getPassedCount());
+        assertEquals(failedCount, flakiness.getFailedCount());
+        assertEquals(flipCount, flakiness.getFlipCount());
+        assertEquals(flipRate, flakiness.getFlipRate(), DELTA);
+        assertEquals(currentFailStreak, flakiness.getCurrentFailStreak());
+        assertEquals(longestFailStreak, flakiness.getLongestFailStreak());
+        assertEquals(entropy, flakiness.getEntropy(), DELTA);
+    }
+}
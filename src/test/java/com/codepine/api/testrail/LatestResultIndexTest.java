@@ -0,0 +1,161 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.UrlConnectionFactory;
+import com.codepine.api.testrail.model.Result;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+
+import static com.codepine.api.testrail.MockResponses.API_URL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link com.codepine.api.testrail.LatestResultIndex}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class LatestResultIndexTest {
+
+    private static final String PAGE_1 = "{\"offset\": 0, \"limit\": 2, \"size\": 2, "
+            + "\"_links\": {\"next\": \"/api/v2/get_results_for_run/1&limit=2&offset=2\", \"prev\": null}, \"results\": ["
+            + "{\"id\": 4, \"test_id\": 11, \"status_id\": 5, \"created_on\": 3000}, {\"id\": 3, \"test_id\": 10, \"status_id\": 1, \"created_on\": 2000}]}";
+    private static final String PAGE_2 = "{\"offset\": 2, \"limit\": 2, \"size\": 1, \"_links\": {\"next\": null, \"prev\": null}, \"results\": ["
+            + "{\"id\": 1, \"test_id\": 12, \"status_id\": 1, \"created_on\": 1000}]}";
+
+    @Mock
+    private UrlConnectionFactory mockUrlConnectionFactory;
+
+    private MockResponses responses;
+    private LatestResultIndex index;
+
+    @Before
+    public void setUp() {
+        responses = new MockResponses(mockUrlConnectionFactory);
+        index = new LatestResultIndex(MockResponses.builder(mockUrlConnectionFactory).build(), 1, Collections.emptyList());
+    }
+
+    @Test
+    public void G_indexRefreshed_W_refresh_T_onlyResultsCreatedSinceLatestFetched() throws IOException {
+        // GIVEN
+        responses.respond("get_results_for_run/1", PAGE_1);
+        responses.respond("get_results_for_run/1&limit=2&offset=2", PAGE_2);
+        assertEquals(3, index.refresh());
+        responses.respond("get_results_for_run/1&created_after=2999", "{\"offset\": 0, \"limit\": 2, \"size\": 1, "
+                + "\"_links\": {\"next\": null, \"prev\": null}, \"results\": [{\"id\": 5, \"test_id\": 12, \"status_id\": 5, \"created_on\": 3001}]}");
+
+        // WHEN
+        int updatedCount = index.refresh();
+
+        // THEN
+        assertEquals(1, updatedCount);
+        assertEquals(5, index.getStatusId(12));
+        verify(mockUrlConnectionFactory, times(1)).getUrlConnection(API_URL + "get_results_for_run/1&created_after=2999");
+    }
+
+    @Test
+    public void G_laterPageFailed_W_refreshAgain_T_allResultsFetchedAgain() throws IOException {
+        // GIVEN
+        responses.respond("get_results_for_run/1", PAGE_1);
+        responses.respond("get_results_for_run/1&limit=2&offset=2", 400, "{\"error\": \"Field :offset is not valid.\"}");
+        try {
+            index.refresh();
+            fail("the second page should fail");
+        } catch (TestRailException e) {
+            assertEquals(400, e.getResponseCode());
+        }
+        responses.respond("get_results_for_run/1", PAGE_1);
+        responses.respond("get_results_for_run/1&limit=2&offset=2", PAGE_2);
+
+        // WHEN
+        index.refresh();
+
+        // THEN
+        assertEquals(3, index.size());
+        assertEquals(1, index.getStatusId(12));
+        verify(mockUrlConnectionFactory, times(2)).getUrlConnection(API_URL + "get_results_for_run/1");
+    }
+
+    @Test
+    public void G_resultsOutOfOrder_W_index_T_latestResultPerTest() {
+        // WHEN
+        assertTrue(index.index(new Result().setId(2).setTestId(10).setStatusId(5).setCreatedOn(new Date(2000L))));
+        assertFalse(index.index(new Result().setId(1).setTestId(10).setStatusId(1).setCreatedOn(new Date(1000L))));
+        assertTrue(index.index(new Result().setId(3).setTestId(11).setStatusId(1).setCreatedOn(new Date(3000L))));
+        assertTrue(index.index(new Result().setId(4).setTestId(10).setStatusId(1).setCreatedOn(new Date(4000L))));
+
+        // THEN
+        assertEquals(2, index.size());
+        assertEquals(1, index.getStatusId(10));
+        assertEquals(4, index.getResultId(10));
+        assertEquals(4000L, index.getCreatedOn(10));
+        assertEquals(1, index.getStatusId(11));
+        assertEquals(LatestResultIndex.NONE, index.getStatusId(12));
+    }
+
+    @Test
+    public void G_alreadyIndexedResult_W_indexAgain_T_ignored() {
+        // GIVEN
+        Result result = new Result().setId(1).setTestId(10).setStatusId(5).setCreatedOn(new Date(1000L));
+        index.index(result);
+
+        // WHEN, THEN
+        assertFalse(index.index(result));
+    }
+
+    @Test
+    public void G_resultWithoutStatus_W_index_T_ignored() {
+        // WHEN
+        assertFalse(index.index(new Result().setId(1).setTestId(10).setComment("comment only").setCreatedOn(new Date(1000L))));
+
+        // THEN
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void G_manyTests_W_index_T_allIndexed() {
+        // WHEN
+        for (int testId = 1; testId <= 1000; testId++) {
+            index.index(new Result().setId(testId).setTestId(testId).setStatusId(testId % 5 + 1).setCreatedOn(new Date(testId * 1000L)));
+        }
+
+        // THEN
+        assertEquals(1000, index.size());
+        for (int testId = 1; testId <= 1000; testId++) {
+            assertEquals(testId % 5 + 1, index.getStatusId(testId));
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.UrlConnectionFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.Matchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Responses of a mocked TestRail server for tests, stubbed as connections returned by a mocked {@link UrlConnectionFactory}.
+ */
+class MockResponses {
+
+    /**
+     * The base API URL of the clients built with {@link #builder(UrlConnectionFactory)}.
+     */
+    static final String API_URL = "https://test.end.point.com/index.php?/api/v2/";
+
+    private final UrlConnectionFactory urlConnectionFactory;
+
+    /**
+     * @param urlConnectionFactory the mocked factory to stub responses on
+     */
+    MockResponses(UrlConnectionFactory urlConnectionFactory) {
+        this.urlConnectionFactory = urlConnectionFactory;
+    }
+
+    /**
+     * Get a builder of a client connecting through a mocked factory.
+     *
+     * @param urlConnectionFactory the mocked factory
+     * @return the builder
+     */
+    static TestRail.Builder builder(UrlConnectionFactory urlConnectionFactory) {
+        return TestRail.builder("https://test.end.point.com", "testUser", "testPassword").urlConnectionFactory(urlConnectionFactory);
+    }
+
+    /**
+     * Respond to the requests of a path with a JSON content.
+     *
+     * @param path the path of the request URL, relative to {@link #API_URL}, including its query string if any
+     * @param json the content of the response
+     * @return the stubbed connection
+     */
+    HttpURLConnection respond(String path, String json) throws IOException {
+        return respond(path, 200, json);
+    }
+
+    /**
+     * Respond to the requests of a path with a status code and a JSON content, the error if the code is not 200.
+     *
+     * @param path         the path of the request URL, relative to {@link #API_URL}, including its query string if any
+     * @param responseCode the HTTP status code
+     * @param json         the content of the response
+     * @return the stubbed connection
+     */
+    HttpURLConnection respond(String path, int responseCode, String json) throws IOException {
+        HttpURLConnection connection = connection(responseCode, json);
+        when(urlConnectionFactory.getUrlConnection(API_URL + path)).thenReturn(connection);
+        return connection;
+    }
+
+    /**
+     * Respond to the requests of the paths starting with a prefix, whatever their filters, with a JSON content.
+     *
+     * @param pathPrefix the prefix of the path of the request URL, relative to {@link #API_URL}
+     * @param json       the content of the response
+     * @return the stubbed connection
+     */
+    HttpURLConnection respondToPrefix(String pathPrefix, String json) throws IOException {
+        HttpURLConnection connection = connection(200, json);
+        when(urlConnectionFactory.getUrlConnection(startsWith(API_URL + pathPrefix))).thenReturn(connection);
+        return connection;
+    }
+
+    /**
+     * Create a connection responding with a status code and a JSON content, and recording the content of the request.
+     *
+     * @param responseCode the HTTP status code
+     * @param json         the content of the response, the error if the code is not 200
+     * @return the connection
+     */
+    static HttpURLConnection connection(int responseCode, String json) throws IOException {
+        HttpURLConnection connection = mock(HttpURLConnection.class);
+        when(connection.getResponseCode()).thenReturn(responseCode);
+        if (responseCode == 200) {
+            when(connection.getInputStream()).thenReturn(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        } else {
+            when(connection.getErrorStream()).thenReturn(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        }
+        when(connection.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+        return connection;
+    }
+
+    /**
+     * Get the content of the request sent through a connection.
+     *
+     * @param connection a connection created by this class
+     * @return the content, empty if none was sent
+     */
+    static String getRequestContent(HttpURLConnection connection) throws IOException {
+        return new String(((ByteArrayOutputStream) connection.getOutputStream()).toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.ModelCodecModule;
+import com.codepine.api.testrail.model.Case;
+import com.codepine.api.testrail.model.CaseField;
+import com.fasterxml.jackson.databind.InjectableValues;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH measurement of binding a page of cases with many custom fields configured, read one entity per read, as with a
+ * context per entity, against all entities in a single read, which resolves the custom field types once. Each binding
+ * is measured with the models bound by reflection and with their generated readers and writers, on the same input,
+ * and so is the first read and write of a fresh mapper.
+ * <p>Not a unit test, run it with: {@code java -cp <test classpath> com.codepine.api.testrail.ModelBindingBenchmark [JMH options]}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBindingBenchmark {
+
+    private static final int CASES = 250;
+
+    @Param({"10", "40"})
+    public int customFields;
+
+    @Param({"reflective", "generated"})
+    public String binding;
+
+    private List<byte[]> caseJsons;
+    private byte[] casesJson;
+    private InjectableValues injectableValues;
+    private ObjectReader caseReader;
+    private ObjectReader casesReader;
+    private List<Case> cases;
+    private ObjectWriter casesWriter;
+    private ObjectWriter casesAddWriter;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<CaseField> caseFields = new ArrayList<>(customFields);
+        for (int i = 0; i < customFields; i++) {
+            ObjectNode caseField = Request.JSON.createObjectNode();
+            caseField.put("id", i).put("type_id", 1).put("name", "field_" + i).put("system_name", "custom_field_" + i).put("label", "Field " + i);
+            caseField.putArray("configs");
+            caseFields.add(Request.JSON.convertValue(caseField, CaseField.class));
+        }
+        ArrayNode cases = Request.JSON.createArrayNode();
+        caseJsons = new ArrayList<>(CASES);
+        for (int i = 0; i < CASES; i++) {
+            ObjectNode testCase = cases.addObject();
+            testCase.put("id", i).put("title", "Test Case " + i).put("section_id", 1).put("suite_id", 1).put("created_on", 1425683583);
+            for (int j = 0; j < 3; j++) {
+                testCase.put("custom_field_" + ((i + j) % customFields), "value " + j);
+            }
+            caseJsons.add(Request.JSON.writeValueAsBytes(testCase));
+        }
+        casesJson = Request.JSON.writeValueAsBytes(cases);
+        injectableValues = new InjectableValues.Std().addValue(Case.class.toString(), caseFields);
+        ObjectMapper mapper = newMapper();
+        caseReader = mapper.reader(Case.class).with(injectableValues);
+        casesReader = mapper.reader(casesType(mapper)).with(injectableValues);
+        this.cases = casesReader.readValue(casesJson);
+        casesWriter = mapper.writer();
+        casesAddWriter = mapper.writerWithView(TestRail.Cases.Add.class);
+    }
+
+    @Benchmark
+    public List<Case> readCasesOnePerRead() throws IOException {
+        List<Case> cases = new ArrayList<>(CASES);
+        for (byte[] caseJson : caseJsons) {
+            cases.add(caseReader.<Case>readValue(caseJson));
+        }
+        return cases;
+    }
+
+    @Benchmark
+    public List<Case> readCasesInOneRead() throws IOException {
+        return casesReader.readValue(casesJson);
+    }
+
+    @Benchmark
+    public byte[] writeCases() throws IOException {
+        return casesWriter.writeValueAsBytes(cases);
+    }
+
+    @Benchmark
+    public byte[] writeCasesInRequestView() throws IOException {
+        return casesAddWriter.writeValueAsBytes(cases);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(10)
+    public byte[] firstReadAndWrite() throws IOException {
+        ObjectMapper mapper = newMapper();
+        List<Case> firstCases = mapper.reader(casesType(mapper)).with(injectableValues).readValue(casesJson);
+        return mapper.writerWithView(TestRail.Cases.Add.class).writeValueAsBytes(firstCases);
+    }
+
+    private ObjectMapper newMapper() {
+        ObjectMapper mapper = Request.newReflectiveObjectMapper();
+        return binding.equals("generated") ? mapper.registerModule(new ModelCodecModule()) : mapper;
+    }
+
+    private static JavaType casesType(ObjectMapper mapper) {
+        return mapper.getTypeFactory().constructCollectionType(List.class, Case.class);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(ModelBindingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.model.Case;
+import com.codepine.api.testrail.model.CaseField;
+import com.codepine.api.testrail.model.CaseType;
+import com.codepine.api.testrail.model.Milestone;
+import com.codepine.api.testrail.model.Plan;
+import com.codepine.api.testrail.model.Priority;
+import com.codepine.api.testrail.model.Project;
+import com.codepine.api.testrail.model.Result;
+import com.codepine.api.testrail.model.ResultField;
+import com.codepine.api.testrail.model.Run;
+import com.codepine.api.testrail.model.Section;
+import com.codepine.api.testrail.model.Status;
+import com.codepine.api.testrail.model.Suite;
+import com.codepine.api.testrail.model.User;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.InjectableValues;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Tests that the JSON readers and writers generated for the models bind them exactly as Jackson binds them by
+ * reflection.
+ */
+public class ModelCodecTest {
+
+    private static final List<Class<?>> MODEL_CLASSES = Arrays.<Class<?>>asList(Case.class, CaseType.class, Milestone.class, Plan.class,
+            Plan.Entry.class, Plan.Entry.Run.class, Priority.class, Project.class, Result.class, Result.List.class, Run.class, Section.class,
+            Status.class, Suite.class, com.codepine.api.testrail.model.Test.class, User.class);
+
+    private final ObjectMapper reflective = Request.newReflectiveObjectMapper();
+    private final ObjectMapper generated = Request.JSON;
+
+    @Test
+    public void G_modelClasses_W_codecsCreated_T_readerAndWriterGeneratedForEach() {
+        // GIVEN
+        List<String> missing = new ArrayList<>();
+
+        // WHEN
+        for (Class<?> modelClass : MODEL_CLASSES) {
+            if (com.codepine.api.testrail.internal.ModelCodecs.newReader(modelClass) == null || com.codepine.api.testrail.internal.ModelCodecs.newWriter(modelClass) == null) {
+                missing.add(modelClass.getName());
+            }
+        }
+
+        // THEN
+        assertEquals(new ArrayList<String>(), missing);
+    }
+
+    @Test
+    public void G_populatedModels_W_writtenInEveryView_T_sameJsonAsReflection() throws Exception {
+        // GIVEN
+        List<Class<?>> views = new ArrayList<>();
+        collectRequestClasses(TestRail.class, views);
+        views.add(null);
+        views.add(Object.class);
+
+        for (Class<?> modelClass : MODEL_CLASSES) {
+            for (Object model : Arrays.asList(populate(modelClass, 1, true), modelClass.newInstance())) {
+                for (Class<?> view : views) {
+                    // WHEN
+                    String actual = generated.writerWithView(view).writeValueAsString(model);
+
+                    // THEN
+                    assertEquals(modelClass + " in " + view, reflective.writerWithView(view).writeValueAsString(model), actual);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void G_alwaysInclusion_W_emptyModelsWritten_T_nullsWrittenAsWithReflection() throws Exception {
+        // GIVEN
+        ObjectMapper reflectiveAlways = Request.newReflectiveObjectMapper().setSerializationInclusion(JsonInclude.Include.ALWAYS);
+        ObjectMapper generatedAlways = Request.newReflectiveObjectMapper().setSerializationInclusion(JsonInclude.Include.ALWAYS)
+                .registerModule(new com.codepine.api.testrail.internal.ModelCodecModule());
+
+        for (Class<?> modelClass : MODEL_CLASSES) {
+            Object model = modelClass.newInstance();
+
+            // WHEN
+            String actual = generatedAlways.writeValueAsString(model);
+
+            // THEN
+            assertEquals(modelClass.toString(), reflectiveAlways.writeValueAsString(model), actual);
+        }
+    }
+
+    @Test
+    public void G_populatedModels_W_read_T_sameModelsAsReflection() throws Exception {
+        for (Class<?> modelClass : MODEL_CLASSES) {
+            // GIVEN
+            JsonNode tree = reflective.valueToTree(populate(modelClass, 1, false));
+            joinConfigs(tree);
+            byte[] json = reflective.writeValueAsBytes(tree);
+
+            // WHEN
+            Object actual = withNoCustomFields(generated.reader(modelClass)).readValue(json);
+
+            // THEN
+            assertEquals(modelClass.toString(), withNoCustomFields(reflective.reader(modelClass)).readValue(json), actual);
+        }
+    }
+
+    @Test
+    public void G_fixtures_W_readAndWritten_T_sameAsReflection() throws IOException {
+        // GIVEN
+        List<CaseField> caseFields = Collections.singletonList(reflective.readValue(getClass().getResourceAsStream("/step_field.json"), CaseField.class));
+        List<ResultField> resultFields = Collections.singletonList(reflective.readValue(getClass().getResourceAsStream("/step_result_field.json"), ResultField.class));
+        InjectableValues injectableValues = new InjectableValues.Std().addValue(Case.class.toString(), caseFields).addValue(Result.class.toString(), resultFields);
+        Map<String, Class<?>> fixtures = new HashMap<>();
+        fixtures.put("/get_model.json", Project.class);
+        fixtures.put("/add_model.json", Project.class);
+        fixtures.put("/update_model.json", Project.class);
+        fixtures.put("/plan_with_entries.json", Plan.class);
+        fixtures.put("/plan_with_no_entries.json", Plan.class);
+        fixtures.put("/case_with_step_field_set.json", Case.class);
+        fixtures.put("/case_with_no_custom_fields.json", Case.class);
+        fixtures.put("/result_with_step_result_field_set.json", Result.class);
+        fixtures.put("/result_with_no_custom_fields.json", Result.class);
+
+        for (Map.Entry<String, Class<?>> fixture : fixtures.entrySet()) {
+            // WHEN
+            Object actual = generated.reader(fixture.getValue()).with(injectableValues).readValue(getClass().getResourceAsStream(fixture.getKey()));
+
+            // THEN
+            Object expected = reflective.reader(fixture.getValue()).with(injectableValues).readValue(getClass().getResourceAsStream(fixture.getKey()));
+            assertEquals(fixture.getKey(), expected, actual);
+            assertEquals(fixture.getKey(), reflective.writeValueAsString(expected), generated.writeValueAsString(actual));
+        }
+    }
+
+    @Test
+    public void G_fixtureLists_W_read_T_sameModelsAsReflection() throws IOException {
+        // GIVEN
+        String fixture = "/get_models.json";
+
+        // WHEN
+        Project[] actual = generated.readValue(getClass().getResourceAsStream(fixture), Project[].class);
+
+        // THEN
+        assertEquals(Arrays.asList(reflective.readValue(getClass().getResourceAsStream(fixture), Project[].class)), Arrays.asList(actual));
+    }
+
+    @Test
+    public void G_lenientJson_W_read_T_sameCoercionsAsReflection() throws IOException {
+        // GIVEN
+        String json = "{\"id\":\"12\",\"name\":7,\"announcement\":null,\"show_announcement\":1,\"is_completed\":true,\"completed_on\":\"1424641170\","
+                + "\"suite_mode\":2.0,\"unknown\":{\"nested\":[1,{\"id\":3}]},\"default\":true}";
+
+        // WHEN
+        Project actual = generated.readValue(json, Project.class);
+
+        // THEN
+        assertNotNull(actual);
+        assertEquals(reflective.readValue(json, Project.class), actual);
+    }
+
+    @Test
+    public void G_existingModel_W_readForUpdating_T_sameModelAsReflection() throws IOException {
+        // GIVEN
+        String json = "{\"name\":\"Updated\",\"suite_mode\":3}";
+        Project expected = new Project().setId(1).setName("Name").setAnnouncement("Announcement");
+        Project actual = new Project().setId(1).setName("Name").setAnnouncement("Announcement");
+
+        // WHEN
+        generated.readerForUpdating(actual).readValue(json);
+
+        // THEN
+        reflective.readerForUpdating(expected).readValue(json);
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * Runs write their configurations as arrays but read them as comma separated values.
+     */
+    private static void joinConfigs(JsonNode tree) {
+        if (tree.has("config") && tree.get("config").isArray()) {
+            StringBuilder config = new StringBuilder();
+            for (JsonNode value : tree.get("config")) {
+                config.append(config.length() == 0 ? "" : ", ").append(value.asText());
+            }
+            ((ObjectNode) tree).put("config", config.toString());
+        }
+        for (JsonNode child : tree) {
+            joinConfigs(child);
+        }
+    }
+
+    private static ObjectReader withNoCustomFields(ObjectReader reader) {
+        return reader.with(new InjectableValues.Std().addValue(Case.class.toString(), Collections.<CaseField>emptyList())
+                .addValue(Result.class.toString(), Collections.<ResultField>emptyList()));
+    }
+
+    /**
+     * Create a model with every field set, to distinct values derived from a seed.
+     */
+    private static <T> T populate(Class<T> modelClass, int seed, boolean customFields) throws Exception {
+        T model = modelClass.newInstance();
+        int i = seed * 100;
+        for (Class<?> type = modelClass; type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()
+                        || (Map.class == field.getType() && !customFields && modelClass != com.codepine.api.testrail.model.Test.class)) {
+                    continue;
+                }
+                field.setAccessible(true);
+                field.set(model, value(field.getGenericType(), ++i, customFields));
+            }
+        }
+        return model;
+    }
+
+    private static Object value(Type type, int seed, boolean customFields) throws Exception {
+        if (type == int.class || type == Integer.class) {
+            return seed;
+        }
+        if (type == boolean.class || type == Boolean.class) {
+            return seed % 2 == 0;
+        }
+        if (type == String.class) {
+            return "value " + seed;
+        }
+        if (type == Date.class) {
+            return new Date(seed * 1000L);
+        }
+        if (type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() == List.class) {
+            Type elementType = ((ParameterizedType) type).getActualTypeArguments()[0];
+            return Arrays.asList(value(elementType, seed, customFields), value(elementType, seed + 1, customFields));
+        }
+        if (type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() == Map.class) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("text", "value " + seed);
+            map.put("number", seed);
+            return map;
+        }
+        return populate((Class<?>) type, seed, customFields);
+    }
+
+    private static void collectRequestClasses(Class<?> enclosingClass, List<Class<?>> requestClasses) {
+        for (Class<?> nestedClass : enclosingClass.getDeclaredClasses()) {
+            if (Request.class.isAssignableFrom(nestedClass)) {
+                requestClasses.add(nestedClass);
+            }
+            collectRequestClasses(nestedClass, requestClasses);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.model.Case;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the GraalVM native-image metadata shipped in the JAR, so that it keeps up with the classes bound by Jackson.
+ */
+public class NativeImageMetadataTest {
+
+    private static final String METADATA_DIR = "/META-INF/native-image/com.codepine.api/testrail-api-java-client/";
+
+    private static Set<String> reflectedClasses;
+
+    @BeforeClass
+    public static void readReflectConfig() throws IOException {
+        reflectedClasses = new HashSet<>();
+        try (InputStream in = NativeImageMetadataTest.class.getResourceAsStream(METADATA_DIR + "reflect-config.json")) {
+            assertNotNull("reflect-config.json is missing", in);
+            for (JsonNode entry : Request.JSON.readTree(in)) {
+                reflectedClasses.add(entry.get("name").asText());
+            }
+        }
+    }
+
+    @Test
+    public void G_requestsOfClient_W_reflectConfigRead_T_allRequestClassesRegistered() {
+        // GIVEN
+        List<Class<?>> requestClasses = new ArrayList<>();
+        collectRequestClasses(TestRail.class, requestClasses);
+
+        // WHEN
+        List<String> missing = new ArrayList<>();
+        for (Class<?> requestClass : requestClasses) {
+            if (!reflectedClasses.contains(requestClass.getName())) {
+                missing.add(requestClass.getName());
+            }
+        }
+
+        // THEN
+        assertTrue(requestClasses.size() > 50);
+        assertEquals(new ArrayList<String>(), missing);
+    }
+
+    @Test
+    public void G_modelClasses_W_reflectConfigRead_T_allModelClassesRegistered() throws Exception {
+        // GIVEN
+        File modelDir = new File(Case.class.getResource("Case.class").toURI()).getParentFile();
+
+        // WHEN
+        List<String> missing = new ArrayList<>();
+        for (String fileName : modelDir.list()) {
+            // the generated readers and writers are created without reflection
+            if (fileName.endsWith(".class") && !fileName.matches(".*\\$\\d+.*") && !fileName.matches(".*_Json(Reader|Writer)\\.class")) {
+                String className = Case.class.getPackage().getName() + "." + fileName.substring(0, fileName.length() - ".class".length());
+                if (!reflectedClasses.contains(className)) {
+                    missing.add(className);
+                }
+            }
+        }
+
+        // THEN
+        assertEquals(new ArrayList<String>(), missing);
+    }
+
+    private static void collectRequestClasses(Class<?> enclosingClass, List<Class<?>> requestClasses) {
+        for (Class<?> nestedClass : enclosingClass.getDeclaredClasses()) {
+            if (Request.class.isAssignableFrom(nestedClass)) {
+                requestClasses.add(nestedClass);
+            }
+            collectRequestClasses(nestedClass, requestClasses);
+        }
+    }
+}
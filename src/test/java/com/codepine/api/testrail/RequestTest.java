@@ -33,6 +33,8 @@ import com.fasterxml.jackson.annotation.JsonView;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.Uninterruptibles;
 import lombok.AccessLevel;
 import lombok.Data;
 import lombok.Getter;
@@ -44,21 +46,27 @@ import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -76,6 +84,8 @@ public class RequestTest {
 
     @Rule
     public final ExpectedException expectedException = ExpectedException.none();
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
     @Mock private HttpURLConnection mockConnection;
     @Mock private HttpURLConnection mockConnection1;
     @Mock private HttpURLConnection mockConnection2;
@@ -90,6 +100,12 @@ public class RequestTest {
         PropertyConfigurator.configure(RequestTest.class.getResourceAsStream("/log4j.properties"));
     }
 
+    @BeforeClass
+    public static void registerEndpoints() {
+        Endpoints.register(Models.ListPaginated.class, "get_models", "models", Model.class);
+        Endpoints.register(Models.ListCases.class, "get_cases", "cases", Case.class);
+    }
+
     @Before
     public void setUp() throws IOException {
         when(mockUrlConnectionFactory.getUrlConnection(any(String.class))).thenReturn(mockConnection);
@@ -127,6 +143,31 @@ public class RequestTest {
         assertEquals(expectedModel, actualModel);
     }
 
+    @Test
+    public void G_modelExistsAndGzipResponse_W_getModel_T_verifyModelAndTransferStatistics() throws IOException {
+        // GIVEN
+        byte[] json = ByteStreams.toByteArray(this.getClass().getResourceAsStream("/get_model.json"));
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(gzipped)) {
+            gzipOutputStream.write(json);
+        }
+        when(mockConnection.getResponseCode()).thenReturn(200);
+        when(mockConnection.getContentEncoding()).thenReturn("gzip");
+        when(mockConnection.getInputStream()).thenReturn(new ByteArrayInputStream(gzipped.toByteArray()));
+        config.getTransferStatistics().reset();
+
+        // WHEN
+        final Model actualModel = models.get().execute();
+
+        // THEN
+        verify(mockConnection).setRequestProperty("Accept-Encoding", "gzip, deflate");
+        assertEquals("Test Model 1", actualModel.getName());
+        TransferStatistics.Endpoint statistics = config.getTransferStatistics().getEndpoint("get_model");
+        assertEquals(1, statistics.getResponses());
+        assertEquals(gzipped.size(), statistics.getTransferredBytes());
+        assertEquals(json.length, statistics.getDecompressedBytes());
+    }
+
     @Test
     public void G_modelDoesNotExist_W_getModel_T_verifyError() throws IOException {
         // THEN set up
@@ -163,6 +204,126 @@ public class RequestTest {
         assertEquals(expectedModels, actualModels);
     }
 
+    @Test
+    public void G_modelsExists_W_forEachPageOfModels_T_verifyPagesInOrder() throws IOException {
+        // GIVEN
+        when(mockConnection1.getResponseCode()).thenReturn(200);
+        when(mockConnection2.getResponseCode()).thenReturn(200);
+        when(mockConnection3.getResponseCode()).thenReturn(200);
+        when(mockConnection1.getInputStream()).thenReturn(this.getClass().getResourceAsStream("/get_modelsA.json"));
+        when(mockConnection2.getInputStream()).thenReturn(this.getClass().getResourceAsStream("/get_modelsB.json"));
+        when(mockConnection3.getInputStream()).thenReturn(this.getClass().getResourceAsStream("/get_modelsC.json"));
+
+        // WHEN
+        final List<List<Model>> actualPages = new ArrayList<>();
+        models.listPaginated().forEachPage(actualPages::add);
+
+        // THEN
+        assertEquals(3, actualPages.size());
+        assertEquals(Arrays.asList(1, 3), getIds(actualPages.get(0)));
+        assertEquals(Collections.singletonList(4), getIds(actualPages.get(1)));
+        assertEquals(Collections.singletonList(5), getIds(actualPages.get(2)));
+    }
+
+    @Test
+    public void G_modelsExists_W_forEachPageOfModelsPastDeadline_T_verifyCompletedPagesAndNextOffset() throws IOException {
+        // GIVEN
+        when(mockConnection1.getResponseCode()).thenReturn(200);
+        when(mockConnection1.getInputStream()).thenReturn(this.getClass().getResourceAsStream("/get_modelsA.json"));
+        final List<List<Model>> actualPages = new ArrayList<>();
+
+        // WHEN
+        try {
+            models.listPaginated().deadline(100, TimeUnit.MILLISECONDS).forEachPage(page -> {
+                actualPages.add(page);
+                Uninterruptibles.sleepUninterruptibly(200, TimeUnit.MILLISECONDS);
+            });
+            fail("deadline should have been exceeded");
+        } catch (DeadlineExceededException e) {
+            // THEN
+            assertEquals(1, e.getCompletedPages());
+            assertEquals(Integer.valueOf(2), e.getNextOffset());
+        }
+        assertEquals(1, actualPages.size());
+        verify(mockUrlConnectionFactory, never()).getUrlConnection("https://test.end.point.com/index.php?/api/v2/get_models/2");
+    }
+
+    @Test
+    public void G_exportFailedAtSecondPage_W_exportAgain_T_verifyResumedFromCheckpoint() throws IOException {
+        // GIVEN
+        when(mockConnection1.getResponseCode()).thenReturn(200);
+        when(mockConnection2.getResponseCode()).thenReturn(503).thenReturn(200);
+        when(mockConnection3.getResponseCode()).thenReturn(200);
+        when(mockConnection1.getInputStream()).thenReturn(this.getClass().getResourceAsStream("/get_modelsA.json"));
+        when(mockConnection2.getInputStream()).thenReturn(this.getClass().getResourceAsStream("/get_modelsB.json"));
+        when(mockConnection3.getInputStream()).thenReturn(this.getClass().getResourceAsStream("/get_modelsC.json"));
+        final FileExportCheckpoint checkpoint = new FileExportCheckpoint(temporaryFolder.getRoot().toPath().resolve("models.checkpoint"));
+        final List<List<Model>> actualPages = new ArrayList<>();
+        try {
+            models.listPaginated().export(checkpoint, actualPages::add);
+            fail("second page should have failed");
+        } catch (TestRailException e) {
+            assertEquals(503, e.getResponseCode());
+        }
+        assertEquals(new ExportCheckpoint.Position(models.listPaginated().prepare().getUrl(), 1, 2, "get_models/2"), checkpoint.load());
+
+        // WHEN
+        final ExportCheckpoint.Position position = models.listPaginated().export(checkpoint, actualPages::add);
+
+        // THEN
+        assertTrue(position.isComplete());
+        assertEquals(3, position.getCompletedPages());
+        assertEquals(position, checkpoint.load());
+        assertEquals(3, actualPages.size());
+        assertEquals(Arrays.asList(1, 3), getIds(actualPages.get(0)));
+        assertEquals(Collections.singletonList(4), getIds(actualPages.get(1)));
+        assertEquals(Collections.singletonList(5), getIds(actualPages.get(2)));
+        verify(mockUrlConnectionFactory).getUrlConnection("https://test.end.point.com/index.php?/api/v2/get_models/1");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void G_checkpointOfAnotherRequest_W_export_T_exceptionThrown() {
+        // GIVEN
+        final FileExportCheckpoint checkpoint = new FileExportCheckpoint(temporaryFolder.getRoot().toPath().resolve("models.checkpoint"));
+        checkpoint.save(new ExportCheckpoint.Position("https://test.end.point.com/index.php?/api/v2/get_cases/1", 1, 250, "get_cases/1&offset=250"));
+
+        // WHEN
+        models.listPaginated().export(checkpoint, page -> { });
+    }
+
+    @Test
+    public void G_requestTimeouts_W_getModel_T_verifyTimeoutsSetOnConnection() throws IOException {
+        // GIVEN
+        when(mockConnection.getResponseCode()).thenReturn(200);
+        when(mockConnection.getInputStream()).thenReturn(this.getClass().getResourceAsStream("/get_model.json"));
+
+        // WHEN
+        models.get().timeouts(1000, 2000).execute();
+
+        // THEN
+        verify(mockConnection).setConnectTimeout(1000);
+        verify(mockConnection).setReadTimeout(2000);
+    }
+
+    @Test
+    public void G_pageWithoutRegisteredField_W_getModels_T_verifyError() throws IOException {
+        // THEN set up
+        expectedException.expect(RuntimeException.class);
+        expectedException.expectMessage("Page has no array field 'models'");
+
+        // GIVEN
+        when(mockConnection1.getResponseCode()).thenReturn(200);
+        when(mockConnection1.getInputStream()).thenReturn(this.getClass().getResourceAsStream("/get_cases.json"));
+
+        // WHEN
+        models.listPaginated().execute();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void W_registerEndpointWithWrongElementClass_T_exceptionThrown() {
+        Endpoints.register(Models.ListPaginated.class, "get_models", "models", Case.class);
+    }
+
     @Test
     public void G_casesExists_W_getCasesWithFilter_T_verifyFilterQueryAndCases() throws IOException {
         // GIVEN
@@ -205,6 +366,27 @@ public class RequestTest {
         assertEquals(expectedModels, actualModels);
     }
 
+    @Test
+    public void G_preparedRequest_W_filterChangedAndExecutedTwice_T_verifyPreparedFilterQueryUsed() throws IOException {
+        // GIVEN
+        when(mockConnection.getResponseCode()).thenReturn(200);
+        when(mockConnection.getInputStream()).thenReturn(this.getClass().getResourceAsStream("/get_models.json"), this.getClass().getResourceAsStream("/get_models.json"));
+        Models.List request = models.list().setSectionId(1);
+        PreparedRequest<List<Model>> preparedRequest = request.prepare();
+        request.setSectionId(2);
+
+        // WHEN
+        final List<Model> firstModels = preparedRequest.execute();
+        final List<Model> secondModels = preparedRequest.execute();
+
+        // THEN
+        String expectedUrlWithFilterQuery = String.format("%s/index.php?/api/v2/get_models/0&section_id=1", TEST_END_POINT);
+        assertEquals(expectedUrlWithFilterQuery, preparedRequest.getUrl());
+        Mockito.verify(mockUrlConnectionFactory, Mockito.times(2)).getUrlConnection(expectedUrlWithFilterQuery);
+        assertEquals(3, firstModels.size());
+        assertEquals(firstModels, secondModels);
+    }
+
     @Test
     public void W_addModel_T_verifyPostBodyAndModel() throws IOException {
         // set up
@@ -286,6 +468,14 @@ public class RequestTest {
         assertEquals(expectedModels, actualModels);
     }
 
+    private static List<Integer> getIds(List<Model> models) {
+        final List<Integer> ids = new ArrayList<>();
+        for (Model model : models) {
+            ids.add(model.getId());
+        }
+        return ids;
+    }
+
 
     @Data
     public static class Model {
@@ -0,0 +1,102 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.UrlConnectionFactory;
+import com.codepine.api.testrail.model.ResultField;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link ResultAggregator}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ResultAggregatorTest {
+
+    @Mock
+    private UrlConnectionFactory mockUrlConnectionFactory;
+
+    private MockResponses responses;
+    private ResultAggregator aggregator;
+
+    @Before
+    public void setUp() throws IOException {
+        responses = new MockResponses(mockUrlConnectionFactory);
+        aggregator = new ResultAggregator(MockResponses.builder(mockUrlConnectionFactory).parallelism(2).build(),
+                Collections.<ResultField>emptyList());
+        // run 10 has 4 tests, 2 of them without any result; run 11 has 2 tests, 1 of them without any result
+        responses.respond("get_plan/1", "{\"id\": 1, \"entries\": ["
+                + "{\"id\": \"a\", \"runs\": [{\"id\": 10, \"config\": \"Chrome, Windows\", \"passed_count\": 1, \"failed_count\": 1, \"untested_count\": 2}]},"
+                + "{\"id\": \"b\", \"runs\": [{\"id\": 11, \"untested_count\": 2}]}]}");
+        responses.respond("get_results_for_run/10", page("/api/v2/get_results_for_run/10&limit=2&offset=2",
+                "{\"id\": 1, \"test_id\": 100, \"status_id\": 5, \"assignedto_id\": 7},"
+                        + "{\"id\": 3, \"test_id\": 100, \"status_id\": 1, \"assignedto_id\": 7}"));
+        // results are not in chronological order: the latest status of test 101 comes before a later comment
+        responses.respond("get_results_for_run/10&limit=2&offset=2", page(null,
+                "{\"id\": 4, \"test_id\": 101, \"assignedto_id\": 9},"
+                        + "{\"id\": 2, \"test_id\": 101, \"status_id\": 8, \"assignedto_id\": 8}"));
+        responses.respond("get_results_for_run/11", page(null, "{\"id\": 5, \"test_id\": 200, \"status_id\": 4}"));
+    }
+
+    @Test
+    public void G_planOfTwoRunsWithPagedResults_W_forPlan_T_latestStatusOfEachTestCounted() {
+        // WHEN
+        ResultAggregator.Report report = aggregator.forPlan(1);
+
+        // THEN
+        assertEquals(2, report.getRunCount());
+        assertEquals(5, report.getResultCount());
+        assertEquals(ImmutableMap.of(1, 1, 8, 1, 4, 1, 3, 3), report.getStatusCounts());
+        assertEquals(1, report.getPassedCount());
+        assertEquals(0, report.getFailedCount());
+        assertEquals(1, report.getRetestCount());
+        assertEquals(3, report.getUntestedCount());
+        assertEquals(1, report.getCustomStatusCount(3));
+        assertEquals(ImmutableMap.of(5, 1L, 1, 1L, 8, 1L, 4, 1L), report.getResultStatusCounts());
+    }
+
+    @Test
+    public void G_planOfTwoRunsWithPagedResults_W_forPlan_T_breakdownsPerAssigneeAndConfig() {
+        // WHEN
+        ResultAggregator.Report report = aggregator.forPlan(1);
+
+        // THEN
+        assertEquals(ImmutableMap.of(7, ImmutableMap.of(1, 1), 9, ImmutableMap.of(8, 1)), report.getAssigneeStatusCounts());
+        assertEquals(ImmutableMap.of("Chrome, Windows", ImmutableMap.of(1, 1, 8, 1, 3, 2)), report.getConfigStatusCounts());
+    }
+
+    private static String page(String next, String results) {
+        return "{\"offset\": 0, \"limit\": 2, \"size\": 2, \"_links\": {\"next\": " + (next == null ? "null" : "\"" + next + "\"")
+                + ", \"prev\": null}, \"results\": [" + results + "]}";
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.UrlConnectionFactory;
+import com.codepine.api.testrail.model.Section;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link SectionTree}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class SectionTreeTest {
+
+    @Mock
+    private UrlConnectionFactory mockUrlConnectionFactory;
+
+    private MockResponses responses;
+    private TestRail testRail;
+    private SectionTree sectionTree;
+
+    @Before
+    public void setUp() throws IOException {
+        responses = new MockResponses(mockUrlConnectionFactory);
+        testRail = MockResponses.builder(mockUrlConnectionFactory).build();
+        // Checkout (1)
+        //   Payment (3)
+        //     Cards (4)
+        //   Cart (2)
+        // Search (5)
+        responses.respond("get_sections/1&suite_id=", "["
+                + "{\"id\": 1, \"name\": \"Checkout\", \"parent_id\": null, \"depth\": 0, \"display_order\": 1},"
+                + "{\"id\": 2, \"name\": \"Cart\", \"parent_id\": 1, \"depth\": 1, \"display_order\": 3},"
+                + "{\"id\": 3, \"name\": \"Payment\", \"parent_id\": 1, \"depth\": 1, \"display_order\": 2},"
+                + "{\"id\": 4, \"name\": \"Cards\", \"parent_id\": 3, \"depth\": 2, \"display_order\": 1},"
+                + "{\"id\": 5, \"name\": \"Search\", \"parent_id\": null, \"depth\": 0, \"display_order\": 4}]");
+        sectionTree = SectionTree.build(testRail, 1);
+    }
+
+    @Test
+    public void W_build_T_hierarchyInDisplayOrder() {
+        // WHEN, THEN
+        assertEquals(5, sectionTree.size());
+        assertArrayEquals(new int[]{1, 5}, sectionTree.getChildIds(SectionTree.ROOT));
+        assertArrayEquals(new int[]{3, 2}, sectionTree.getChildIds(1));
+        assertEquals(SectionTree.ROOT, sectionTree.getParentId(5));
+        assertEquals(3, sectionTree.getParentId(4));
+    }
+
+    @Test
+    public void W_subtreeQueries_T_descendantsInDisplayOrder() {
+        // WHEN, THEN
+        assertArrayEquals(new int[]{1, 3, 4, 2}, sectionTree.getSubtreeIds(1));
+        assertTrue(sectionTree.isInSubtree(4, 1));
+        assertTrue(sectionTree.isInSubtree(3, 3));
+        assertFalse(sectionTree.isInSubtree(5, 1));
+        assertFalse(sectionTree.isInSubtree(1, 4));
+        assertFalse(sectionTree.isInSubtree(99, 1));
+        assertEquals("Checkout > Payment > Cards", sectionTree.getPath(4));
+    }
+
+    @Test
+    public void G_sectionsChangedThroughClient_W_queries_T_changesApplied() throws IOException {
+        // GIVEN
+        responses.respond("add_section/1", "{\"id\": 6, \"name\": \"Wallets\", \"parent_id\": 3, \"depth\": 2, \"display_order\": 2}");
+        responses.respond("update_section/3", "{\"id\": 3, \"name\": \"Pay\", \"parent_id\": 1, \"depth\": 1, \"display_order\": 2}");
+        responses.respond("delete_section/1", "");
+        assertEquals("Checkout > Payment > Cards", sectionTree.getPath(4));
+
+        // WHEN
+        testRail.sections().add(1, new Section().setName("Wallets").setParentId(3)).execute();
+        testRail.sections().update(new Section().setId(3).setName("Pay")).execute();
+
+        // THEN
+        assertArrayEquals(new int[]{1, 3, 4, 6, 2}, sectionTree.getSubtreeIds(1));
+        assertEquals("Checkout > Pay > Cards", sectionTree.getPath(4));
+        assertEquals("Checkout > Pay > Wallets", sectionTree.getPath(6));
+
+        // WHEN
+        testRail.sections().delete(1).execute();
+
+        // THEN
+        assertEquals(1, sectionTree.size());
+        assertArrayEquals(new int[]{5}, sectionTree.getChildIds(SectionTree.ROOT));
+        assertFalse(sectionTree.contains(4));
+    }
+
+}
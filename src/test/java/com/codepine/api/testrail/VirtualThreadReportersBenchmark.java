@@ -0,0 +1,164 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail;
+
+import com.codepine.api.testrail.internal.VirtualThreads;
+import com.codepine.api.testrail.model.Result;
+import com.codepine.api.testrail.model.ResultField;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Benchmark of many concurrent test reporters, each adding the results of its tests one by one to a simulated TestRail
+ * server answering after a fixed latency. Each reporter runs on its own virtual thread on Java 21+, else on its own
+ * platform thread.
+ * <p>Not a unit test, run it with: {@code java -cp <test classpath> com.codepine.api.testrail.VirtualThreadReportersBenchmark
+ * [reporters] [results per reporter] [latency millis] [http2]}. Add {@code -Djdk.tracePinnedThreads=full} on Java 21 to
+ * get the stack trace of any virtual thread pinning its carrier thread while blocked.</p>
+ */
+public class VirtualThreadReportersBenchmark {
+
+    private static final List<ResultField> NO_CUSTOM_FIELDS = Collections.emptyList();
+
+    public static void main(String[] args) throws Exception {
+        final int reporters = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        final int resultsPerReporter = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        final int latencyMillis = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        final boolean http2 = args.length > 3 && Boolean.parseBoolean(args[3]);
+        final boolean virtualThreads = VirtualThreads.isSupported();
+        // log4j appenders write while holding a monitor, which would pin virtual threads when logging per request
+        Logger.getRootLogger().setLevel(Level.WARN);
+
+        ExecutorService serverExecutor = virtualThreads ? VirtualThreads.newThreadPerTaskExecutor("server-") : Executors.newCachedThreadPool();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), reporters);
+        server.createContext("/", new SlowHandler(latencyMillis));
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        final TestRail testRail = TestRail.builder("http://localhost:" + server.getAddress().getPort(), "user", "password")
+                .http2(http2)
+                .virtualThreads(virtualThreads)
+                .build();
+        List<Callable<long[]>> tasks = new ArrayList<>(reporters);
+        for (int i = 0; i < reporters; i++) {
+            final int runId = i + 1;
+            tasks.add(new Callable<long[]>() {
+                @Override
+                public long[] call() {
+                    long[] latencies = new long[resultsPerReporter];
+                    for (int caseId = 1; caseId <= resultsPerReporter; caseId++) {
+                        long start = System.nanoTime();
+                        testRail.results().addForCase(runId, caseId, new Result().setStatusId(1).setComment("passed"), NO_CUSTOM_FIELDS).execute();
+                        latencies[caseId - 1] = System.nanoTime() - start;
+                    }
+                    return latencies;
+                }
+            });
+        }
+
+        System.out.printf("%d reporters x %d results, %d ms server latency, %s threads, %s%n", reporters, resultsPerReporter,
+                latencyMillis, virtualThreads ? "virtual" : "platform", http2 ? "HTTP/2" : "HTTP/1.1");
+        ExecutorService reporterExecutor = virtualThreads ? VirtualThreads.newThreadPerTaskExecutor("reporter-") : Executors.newFixedThreadPool(reporters);
+        long start = System.nanoTime();
+        List<Future<long[]>> futures = reporterExecutor.invokeAll(tasks);
+        long elapsed = System.nanoTime() - start;
+
+        long[] latencies = new long[reporters * resultsPerReporter];
+        int count = 0;
+        int failures = 0;
+        for (Future<long[]> future : futures) {
+            try {
+                long[] reporterLatencies = future.get();
+                System.arraycopy(reporterLatencies, 0, latencies, count, reporterLatencies.length);
+                count += reporterLatencies.length;
+            } catch (Exception e) {
+                if (failures++ == 0) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        Arrays.sort(latencies, 0, count);
+        System.out.printf("%d requests in %d ms, %.0f requests/s, %d failed reporters%n", count, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                count / (elapsed / 1e9), failures);
+        if (count > 0) {
+            System.out.printf("latency p50 %d ms, p99 %d ms, max %d ms%n", TimeUnit.NANOSECONDS.toMillis(latencies[count / 2]),
+                    TimeUnit.NANOSECONDS.toMillis(latencies[(int) (count * 0.99)]), TimeUnit.NANOSECONDS.toMillis(latencies[count - 1]));
+        }
+
+        reporterExecutor.shutdownNow();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private static class SlowHandler implements HttpHandler {
+
+        private final int latencyMillis;
+        private final AtomicInteger resultIds = new AtomicInteger();
+
+        SlowHandler(int latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try (InputStream requestBody = exchange.getRequestBody()) {
+                byte[] buffer = new byte[8192];
+                while (requestBody.read(buffer) != -1) {
+                    // drain
+                }
+                Thread.sleep(latencyMillis);
+                byte[] response = ("{\"id\":" + resultIds.incrementAndGet() + ",\"test_id\":1,\"status_id\":1}").getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, response.length);
+                try (OutputStream responseBody = exchange.getResponseBody()) {
+                    responseBody.write(response);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+}
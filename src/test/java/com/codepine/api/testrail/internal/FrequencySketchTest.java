@@ -0,0 +1,72 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.codepine.api.testrail.internal;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link com.codepine.api.testrail.internal.FrequencySketch}.
+ */
+public class FrequencySketchTest {
+
+    @Test
+    public void W_increment_T_frequencyCountedUpToMaximum() {
+        // GIVEN
+        FrequencySketch sketch = new FrequencySketch(1000);
+
+        // WHEN
+        for (int i = 0; i < 20; i++) {
+            sketch.increment(42);
+            if (i < 3) {
+                sketch.increment(7);
+            }
+        }
+
+        // THEN
+        assertEquals(15, sketch.frequency(42));
+        assertEquals(3, sketch.frequency(7));
+        assertEquals(0, sketch.frequency(8));
+    }
+
+    @Test
+    public void G_sampleSizeReached_W_increment_T_frequenciesHalved() {
+        // GIVEN
+        FrequencySketch sketch = new FrequencySketch(10);
+        for (int i = 0; i < 10; i++) {
+            sketch.increment(1);
+        }
+
+        // WHEN
+        for (long key = 1000; key < 1100; key++) {
+            sketch.increment(key);
+        }
+
+        // THEN
+        assertTrue(sketch.frequency(1) < 10);
+        assertTrue(sketch.frequency(1) >= 4);
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail.internal;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link com.codepine.api.testrail.internal.IntIntHashMap}.
+ */
+public class IntIntHashMapTest {
+
+    @Test
+    public void W_get_T_missingValueForUnmappedKeys() {
+        // GIVEN
+        IntIntHashMap map = new IntIntHashMap();
+        map.put(1, 10);
+
+        // WHEN, THEN
+        assertEquals(10, map.get(1, -1));
+        assertEquals(-1, map.get(2, -1));
+        assertEquals(-1, map.get(0, -1));
+    }
+
+    @Test
+    public void W_putExistingKey_T_valueReplaced() {
+        // GIVEN
+        IntIntHashMap map = new IntIntHashMap();
+        map.put(1, 10);
+
+        // WHEN
+        map.put(1, 11);
+
+        // THEN
+        assertEquals(11, map.get(1, -1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void W_putZeroKey_T_mapped() {
+        // GIVEN
+        IntIntHashMap map = new IntIntHashMap();
+
+        // WHEN
+        map.put(0, 5);
+
+        // THEN
+        assertTrue(map.containsKey(0));
+        assertEquals(5, map.get(0, -1));
+        assertArrayEquals(new int[]{0}, map.keys());
+        assertTrue(map.remove(0));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    public void G_manyRandomOperations_W_compareWithHashMap_T_sameMappings() {
+        // GIVEN
+        IntIntHashMap map = new IntIntHashMap(2);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        // WHEN
+        for (int i = 0; i < 100000; i++) {
+            int key = random.nextInt(5000) - 100;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            } else {
+                expected.put(key, i);
+                map.put(key, i);
+            }
+        }
+
+        // THEN
+        assertEquals(expected.size(), map.size());
+        for (int key = -100; key < 4900; key++) {
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+            assertEquals(expected.containsKey(key) ? expected.get(key).intValue() : -1, map.get(key, -1));
+        }
+        int[] keys = map.keys();
+        Arrays.sort(keys);
+        assertArrayEquals(expected.keySet().stream().mapToInt(Integer::intValue).sorted().toArray(), keys);
+    }
+
+    @Test
+    public void W_clear_T_empty() {
+        // GIVEN
+        IntIntHashMap map = new IntIntHashMap();
+        map.put(1, 1);
+        map.put(0, 1);
+
+        // WHEN
+        map.clear();
+
+        // THEN
+        assertEquals(0, map.size());
+        assertFalse(map.containsKey(1));
+        assertFalse(map.containsKey(0));
+    }
+}
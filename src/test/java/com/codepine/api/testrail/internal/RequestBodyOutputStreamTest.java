@@ -0,0 +1,159 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail.internal;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link com.codepine.api.testrail.internal.RequestBodyOutputStream}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class RequestBodyOutputStreamTest {
+
+    @Mock
+    private HttpURLConnection mockConnection;
+
+    private final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+
+    @Before
+    public void setUp() throws IOException {
+        when(mockConnection.getOutputStream()).thenReturn(sent);
+    }
+
+    @Test
+    public void G_bodyWithinThreshold_W_close_T_sentWithFixedLength() throws IOException {
+        // GIVEN
+        byte[] body = body(100);
+
+        // WHEN
+        try (OutputStream outputStream = new RequestBodyOutputStream(mockConnection, 100, 100)) {
+            outputStream.write(body);
+        }
+
+        // THEN
+        verify(mockConnection).setFixedLengthStreamingMode(100);
+        verify(mockConnection, never()).setChunkedStreamingMode(anyInt());
+        verify(mockConnection, never()).setRequestProperty("Content-Encoding", "gzip");
+        assertArrayEquals(body, sent.toByteArray());
+    }
+
+    @Test
+    public void G_bodyAboveThresholdAndCompression_W_close_T_streamedCompressed() throws IOException {
+        // GIVEN
+        byte[] body = body(10000);
+
+        // WHEN
+        try (OutputStream outputStream = new RequestBodyOutputStream(mockConnection, 100, 100)) {
+            outputStream.write(body, 0, 60);
+            outputStream.write(body, 60, body.length - 60);
+        }
+
+        // THEN
+        verify(mockConnection).setChunkedStreamingMode(anyInt());
+        verify(mockConnection).setRequestProperty("Content-Encoding", "gzip");
+        assertArrayEquals(body, ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(sent.toByteArray()))));
+    }
+
+    @Test
+    public void G_bodyAboveThresholdWithoutCompression_W_close_T_streamedUncompressed() throws IOException {
+        // GIVEN
+        byte[] body = body(10000);
+
+        // WHEN
+        try (OutputStream outputStream = new RequestBodyOutputStream(mockConnection, 100, -1)) {
+            for (byte b : body) {
+                outputStream.write(b);
+            }
+        }
+
+        // THEN
+        verify(mockConnection).setChunkedStreamingMode(anyInt());
+        verify(mockConnection, never()).setRequestProperty("Content-Encoding", "gzip");
+        assertArrayEquals(body, sent.toByteArray());
+    }
+
+    @Test
+    public void G_bodyWithinStreamingThresholdAboveCompressionThreshold_W_close_T_sentCompressedWithFixedLength() throws IOException {
+        // GIVEN
+        byte[] body = body(1000);
+
+        // WHEN
+        try (OutputStream outputStream = new RequestBodyOutputStream(mockConnection, 2000, 100)) {
+            outputStream.write(body);
+        }
+
+        // THEN
+        verify(mockConnection).setFixedLengthStreamingMode(sent.size());
+        verify(mockConnection, never()).setChunkedStreamingMode(anyInt());
+        verify(mockConnection).setRequestProperty("Content-Encoding", "gzip");
+        assertArrayEquals(body, ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(sent.toByteArray()))));
+    }
+
+    @Test
+    public void G_bodyAboveStreamingThresholdBelowCompressionThreshold_W_close_T_streamedWithoutWaitingForCompression() throws IOException {
+        // GIVEN
+        byte[] body = body(10000);
+
+        // WHEN
+        try (OutputStream outputStream = new RequestBodyOutputStream(mockConnection, 100, 5000)) {
+            outputStream.write(body, 0, 200);
+            // THEN
+            verify(mockConnection).setChunkedStreamingMode(anyInt());
+            outputStream.write(body, 200, body.length - 200);
+        }
+
+        // THEN
+        verify(mockConnection).setRequestProperty("Content-Encoding", "gzip");
+        assertArrayEquals(body, ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(sent.toByteArray()))));
+        // the first 5000 bytes are stored as they are, the rest is compressed
+        assertTrue(String.valueOf(sent.size()), sent.size() > 5000 && sent.size() < 6000);
+    }
+
+    private static byte[] body(int size) {
+        byte[] body = new byte[size];
+        Arrays.fill(body, (byte) 'a');
+        return body;
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2015 Kunal Shah
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.codepine.api.testrail.internal;
+
+import com.codepine.api.testrail.TestRail;
+import com.codepine.api.testrail.model.Case;
+import com.codepine.api.testrail.model.CaseField;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@code HttpClientUrlConnection}, run on Java 11+ against a local server.
+ */
+public class HttpClientUrlConnectionTest {
+
+    private HttpServer server;
+    private String url;
+    private UrlConnectionFactory urlConnectionFactory;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/ok", exchange -> {
+            exchange.getResponseHeaders().add("X-Request-Method", exchange.getRequestMethod());
+            respond(exchange, 200, "ok".getBytes(StandardCharsets.UTF_8));
+        });
+        server.createContext("/echo", exchange -> {
+            exchange.getResponseHeaders().add("X-Content-Length", String.valueOf(exchange.getRequestHeaders().getFirst("Content-Length")));
+            respond(exchange, 200, exchange.getRequestBody().readAllBytes());
+        });
+        server.createContext("/missing", exchange -> respond(exchange, 400, "{\"error\": \"Field :case_id is not a valid test case.\"}".getBytes(StandardCharsets.UTF_8)));
+        server.createContext("/slow", exchange -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, "late".getBytes(StandardCharsets.UTF_8));
+        });
+        server.createContext("/index.php", exchange -> {
+            ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+            try (OutputStream gzipStream = new GZIPOutputStream(gzipped)) {
+                gzipStream.write(("{\"id\": 1, \"title\": \"" + exchange.getRequestURI().getQuery() + "\"}").getBytes(StandardCharsets.UTF_8));
+            }
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            respond(exchange, 200, gzipped.toByteArray());
+        });
+        server.start();
+        url = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+        urlConnectionFactory = UrlConnectionFactory.http2OrDefault(5000);
+        assertEquals("com.codepine.api.testrail.internal.HttpClientUrlConnectionFactory", urlConnectionFactory.getClass().getName());
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void G_okResponse_W_getResponseCode_T_statusHeadersAndBodyMapped() throws IOException {
+        // GIVEN
+        HttpURLConnection connection = (HttpURLConnection) urlConnectionFactory.getUrlConnection(url + "/ok");
+        connection.setRequestMethod("GET");
+
+        // WHEN
+        int responseCode = connection.getResponseCode();
+
+        // THEN
+        assertEquals(200, responseCode);
+        assertEquals("GET", connection.getHeaderField("X-Request-Method"));
+        assertEquals("ok", read(connection.getInputStream()));
+        assertNull(connection.getErrorStream());
+    }
+
+    @Test
+    public void G_errorResponse_W_getResponseCode_T_bodyInErrorStream() throws IOException {
+        // GIVEN
+        HttpURLConnection connection = (HttpURLConnection) urlConnectionFactory.getUrlConnection(url + "/missing");
+
+        // WHEN
+        int responseCode = connection.getResponseCode();
+
+        // THEN
+        assertEquals(400, responseCode);
+        assertEquals("{\"error\": \"Field :case_id is not a valid test case.\"}", read(connection.getErrorStream()));
+        try {
+            connection.getInputStream();
+            fail("the input stream of an error response should not be available");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void G_fixedLengthBody_W_writeBody_T_bodySentWithContentLength() throws IOException {
+        // GIVEN
+        byte[] body = "{\"title\": \"Pay\"}".getBytes(StandardCharsets.UTF_8);
+        HttpURLConnection connection = (HttpURLConnection) urlConnectionFactory.getUrlConnection(url + "/echo");
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(body.length);
+
+        // WHEN
+        try (OutputStream outputStream = connection.getOutputStream()) {
+            outputStream.write(body);
+        }
+
+        // THEN
+        assertEquals(200, connection.getResponseCode());
+        assertEquals(String.valueOf(body.length), connection.getHeaderField("X-Content-Length"));
+        assertEquals("{\"title\": \"Pay\"}", read(connection.getInputStream()));
+    }
+
+    @Test
+    public void G_streamedBody_W_writeBody_T_wholeBodySent() throws IOException {
+        // GIVEN
+        byte[] body = new byte[100000];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) ('a' + i % 26);
+        }
+        HttpURLConnection connection = (HttpURLConnection) urlConnectionFactory.getUrlConnection(url + "/echo");
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setChunkedStreamingMode(8192);
+
+        // WHEN
+        try (OutputStream outputStream = connection.getOutputStream()) {
+            // larger than the hand-off buffer, so that the writer waits for the client to read
+            outputStream.write(body, 0, 50000);
+            for (int i = 50000; i < body.length; i++) {
+                outputStream.write(body[i]);
+            }
+        }
+
+        // THEN
+        assertEquals(200, connection.getResponseCode());
+        assertEquals(new String(body, StandardCharsets.UTF_8), read(connection.getInputStream()));
+    }
+
+    @Test
+    public void G_gzipResponse_W_executeWithHttp2_T_responseDecoded() {
+        // GIVEN
+        TestRail testRail = TestRail.builder(url, "testUser", "testPassword").http2(true).build();
+
+        // WHEN
+        Case testCase = testRail.cases().get(1, Collections.<CaseField>emptyList()).execute();
+
+        // THEN
+        assertEquals("/api/v2/get_case/1", testCase.getTitle());
+    }
+
+    @Test(expected = SocketTimeoutException.class)
+    public void G_slowResponse_W_getResponseCode_T_socketTimeoutException() throws IOException {
+        // GIVEN
+        HttpURLConnection connection = (HttpURLConnection) urlConnectionFactory.getUrlConnection(url + "/slow");
+        connection.setReadTimeout(100);
+
+        // WHEN
+        connection.getResponseCode();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void G_connectTimeoutShorterThanClient_W_getResponseCode_T_rejected() throws IOException {
+        // GIVEN
+        HttpURLConnection connection = (HttpURLConnection) urlConnectionFactory.getUrlConnection(url + "/ok");
+        connection.setConnectTimeout(1000);
+
+        // WHEN
+        connection.getResponseCode();
+    }
+
+    @Test
+    public void G_connectTimeoutBoundByReadTimeout_W_getResponseCode_T_sent() throws IOException {
+        // GIVEN
+        HttpURLConnection connection = (HttpURLConnection) urlConnectionFactory.getUrlConnection(url + "/ok");
+        connection.setConnectTimeout(500);
+        connection.setReadTimeout(500);
+
+        // WHEN
+        int responseCode = connection.getResponseCode();
+
+        // THEN
+        assertEquals(200, responseCode);
+    }
+
+    private static void respond(HttpExchange exchange, int responseCode, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(responseCode, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+
+    private static String read(InputStream inputStream) throws IOException {
+        try (InputStream stream = inputStream) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}